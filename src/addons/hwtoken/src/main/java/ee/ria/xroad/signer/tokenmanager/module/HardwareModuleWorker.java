@@ -30,6 +30,7 @@ import java.util.Map;
 import akka.actor.Props;
 import akka.actor.SupervisorStrategy;
 
+import iaik.pkcs.pkcs11.DefaultInitializeArgs;
 import iaik.pkcs.pkcs11.Module;
 import iaik.pkcs.pkcs11.Slot;
 import iaik.pkcs.pkcs11.wrapper.PKCS11Constants;
@@ -72,7 +73,10 @@ public class HardwareModuleWorker extends AbstractModuleWorker {
 
         try {
             pkcs11Module = moduleGetInstance(module.getPkcs11LibraryPath());
-            pkcs11Module.initialize(null);
+            // Signing sessions of a token are used from several threads
+            // when a sign session pool is configured
+            pkcs11Module.initialize(module.getSignSessionPoolSize() > 1
+                    ? new DefaultInitializeArgs(null, false, true) : null);
         } catch (Throwable t) {
             // Note that we catch all serious errors here since we do not
             // want Signer to crash if the module could not be loaded for
@@ -142,6 +146,7 @@ public class HardwareModuleWorker extends AbstractModuleWorker {
                 module.isPinVerificationPerSigning(),
                 module.isBatchSigningEnabled(),
                 module.getSignMechanismName(),
+                module.getSignSessionPoolSize(),
                 module.getPrivKeyAttributes(),
                 module.getPubKeyAttributes()
         );
@@ -30,7 +30,7 @@ import ee.ria.xroad.signer.protocol.dto.TokenInfo;
  */
 public class HardwareToken extends AbstractToken {
 
-    private static final String DISPATCHER = "token-worker-dispatcher";
+    static final String DISPATCHER = "token-worker-dispatcher";
 
     private final HardwareTokenType tokenType;
 
@@ -0,0 +1,224 @@
+/**
+ * The MIT License
+ * Copyright (c) 2015 Estonian Information System Authority (RIA), Population Register Centre (VRK)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package ee.ria.xroad.signer.tokenmanager.token;
+
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import iaik.pkcs.pkcs11.Session;
+import iaik.pkcs.pkcs11.State;
+
+import lombok.extern.slf4j.Slf4j;
+
+import ee.ria.xroad.common.CodedException;
+import ee.ria.xroad.common.util.PasswordStore;
+
+import static ee.ria.xroad.common.ErrorCodes.X_INTERNAL_ERROR;
+import static ee.ria.xroad.signer.util.ExceptionHelper.tokenNotActive;
+
+/**
+ * Bounded pool of logged in sessions used for calculating signatures on a
+ * hardware token. Sessions are opened lazily up to the maximum size. A
+ * session is checked before it is handed out: if the user is not logged in
+ * (e.g. the token has been reset) the session is logged in again, if the
+ * session is not usable at all it is replaced with a new one.
+ */
+@Slf4j
+class HardwareTokenSessionPool {
+
+    /**
+     * Opens a new session on the token.
+     */
+    @FunctionalInterface
+    interface SessionFactory {
+        Session openSession() throws Exception;
+    }
+
+    // how many times a usable session is looked for before giving up
+    private static final int MAX_BORROW_ATTEMPTS = 2;
+
+    private static final long BORROW_TIMEOUT_SECONDS = 60;
+
+    private final String tokenId;
+    private final int maxSize;
+    private final SessionFactory sessionFactory;
+
+    private final BlockingQueue<Session> idleSessions = new LinkedBlockingQueue<>();
+    private final AtomicInteger openSessions = new AtomicInteger();
+
+    private volatile boolean closed;
+
+    /**
+     * @param tokenId the token id
+     * @param maxSize maximum number of sessions
+     * @param sessionFactory opens new sessions on the token
+     */
+    HardwareTokenSessionPool(String tokenId, int maxSize, SessionFactory sessionFactory) {
+        this.tokenId = tokenId;
+        this.maxSize = maxSize;
+        this.sessionFactory = sessionFactory;
+    }
+
+    /**
+     * Returns a logged in session, waiting for one to become available if
+     * all sessions are in use. The session must be given back with either
+     * {@link #returnSession(Session)} or {@link #invalidateSession(Session)}.
+     * @return the session
+     * @throws Exception if a usable session cannot be obtained
+     */
+    Session borrowSession() throws Exception {
+        for (int attempt = 1;; attempt++) {
+            Session session = takeSession();
+
+            try {
+                ensureLoggedIn(session);
+
+                return session;
+            } catch (Exception e) {
+                invalidateSession(session);
+
+                if (attempt >= MAX_BORROW_ATTEMPTS) {
+                    throw e;
+                }
+
+                log.warn("Signing session on token '{}' is not usable, opening a new one", tokenId, e);
+            }
+        }
+    }
+
+    /**
+     * Gives a healthy session back to the pool.
+     * @param session the session
+     */
+    void returnSession(Session session) {
+        if (closed) {
+            invalidateSession(session);
+        } else {
+            idleSessions.offer(session);
+        }
+    }
+
+    /**
+     * Closes a session that should not be used any more (e.g. signing with
+     * it failed) and frees its place in the pool.
+     * @param session the session
+     */
+    void invalidateSession(Session session) {
+        openSessions.decrementAndGet();
+
+        closeSession(session);
+    }
+
+    /**
+     * Closes all idle sessions. Sessions currently in use are closed when
+     * they are given back.
+     */
+    void close() {
+        closed = true;
+
+        Session session;
+
+        while ((session = idleSessions.poll()) != null) {
+            invalidateSession(session);
+        }
+    }
+
+    /**
+     * @return number of sessions opened by this pool and not yet closed
+     */
+    int getOpenSessions() {
+        return openSessions.get();
+    }
+
+    private Session takeSession() throws Exception {
+        if (closed) {
+            throw new CodedException(X_INTERNAL_ERROR, "Signing sessions of token %s are closed", tokenId);
+        }
+
+        Session session = idleSessions.poll();
+
+        if (session == null) {
+            session = openSessionIfAllowed();
+        }
+
+        if (session == null) {
+            session = idleSessions.poll(BORROW_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        }
+
+        if (session == null) {
+            throw new CodedException(X_INTERNAL_ERROR, "No signing session available on token %s", tokenId);
+        }
+
+        return session;
+    }
+
+    private Session openSessionIfAllowed() throws Exception {
+        int current;
+
+        do {
+            current = openSessions.get();
+
+            if (current >= maxSize) {
+                return null;
+            }
+        } while (!openSessions.compareAndSet(current, current + 1));
+
+        try {
+            log.debug("Opening signing session #{} on token '{}'", current + 1, tokenId);
+
+            return sessionFactory.openSession();
+        } catch (Exception e) {
+            openSessions.decrementAndGet();
+
+            throw e;
+        }
+    }
+
+    private void ensureLoggedIn(Session session) throws Exception {
+        State state = session.getSessionInfo().getState();
+
+        if (State.RO_USER_FUNCTIONS.equals(state) || State.RW_USER_FUNCTIONS.equals(state)) {
+            return;
+        }
+
+        char[] password = PasswordStore.getPassword(tokenId);
+
+        if (password == null) {
+            throw tokenNotActive(tokenId);
+        }
+
+        log.info("Logging in signing session on token '{}'", tokenId);
+
+        HardwareTokenUtil.login(session, password);
+    }
+
+    private void closeSession(Session session) {
+        try {
+            session.closeSession();
+        } catch (Exception e) {
+            log.warn("Failed to close signing session on token '{}'", tokenId, e);
+        }
+    }
+}
@@ -0,0 +1,119 @@
+/**
+ * The MIT License
+ * Copyright (c) 2015 Estonian Information System Authority (RIA), Population Register Centre (VRK)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package ee.ria.xroad.signer.tokenmanager.token;
+
+import java.util.Map;
+import java.util.function.Supplier;
+
+import iaik.pkcs.pkcs11.Mechanism;
+import iaik.pkcs.pkcs11.Session;
+import iaik.pkcs.pkcs11.objects.RSAPrivateKey;
+import iaik.pkcs.pkcs11.wrapper.PKCS11Exception;
+
+import lombok.extern.slf4j.Slf4j;
+
+import ee.ria.xroad.common.CodedException;
+
+import static ee.ria.xroad.common.ErrorCodes.X_KEY_NOT_FOUND;
+import static ee.ria.xroad.common.ErrorCodes.X_UNSUPPORTED_SIGN_ALGORITHM;
+import static ee.ria.xroad.signer.tokenmanager.TokenManager.isKeyAvailable;
+import static ee.ria.xroad.signer.util.ExceptionHelper.keyNotAvailable;
+
+/**
+ * Calculates signatures on a hardware token using a session borrowed from
+ * the token's {@link HardwareTokenSessionPool}. The private key objects are
+ * read from the immutable map currently published by the token worker.
+ */
+@Slf4j
+class HardwareTokenSigningWorker extends AbstractTokenSigningWorker {
+
+    private final String tokenId;
+
+    // maps signature algorithm id and signing mechanism
+    private final Map<String, Mechanism> signMechanisms;
+
+    // supplies the current map of key id (hex) to RSAPrivateKey
+    private final Supplier<Map<String, RSAPrivateKey>> privateKeys;
+
+    private final HardwareTokenSessionPool sessionPool;
+
+    HardwareTokenSigningWorker(String tokenId, Map<String, Mechanism> signMechanisms,
+            Supplier<Map<String, RSAPrivateKey>> privateKeys, HardwareTokenSessionPool sessionPool) {
+        this.tokenId = tokenId;
+        this.signMechanisms = signMechanisms;
+        this.privateKeys = privateKeys;
+        this.sessionPool = sessionPool;
+    }
+
+    @Override
+    protected Exception customizeException(Exception e) {
+        if (e instanceof PKCS11Exception) {
+            // See HardwareTokenWorker.customizeException()
+            return new Exception(e.getMessage());
+        }
+
+        return e;
+    }
+
+    @Override
+    protected byte[] sign(String keyId, String signatureAlgorithmId, byte[] data) throws Exception {
+        log.trace("sign({}, {})", keyId, signatureAlgorithmId);
+
+        if (!isKeyAvailable(keyId)) {
+            throw keyNotAvailable(keyId);
+        }
+
+        RSAPrivateKey key = privateKeys.get().get(keyId);
+
+        if (key == null) {
+            throw CodedException.tr(X_KEY_NOT_FOUND, "key_not_found_on_token", "Key '%s' not found on token '%s'",
+                    keyId, tokenId);
+        }
+
+        Mechanism signMechanism = signMechanisms.get(signatureAlgorithmId);
+
+        if (signMechanism == null) {
+            throw CodedException.tr(X_UNSUPPORTED_SIGN_ALGORITHM, "unsupported_sign_algorithm",
+                    "Unsupported signature algorithm '%s'", signatureAlgorithmId);
+        }
+
+        log.debug("Signing with key '{}' and signature algorithm '{}'", keyId, signatureAlgorithmId);
+
+        Session session = sessionPool.borrowSession();
+        byte[] signature;
+
+        try {
+            session.signInit(signMechanism, key);
+            signature = session.sign(data);
+        } catch (Exception e) {
+            // The session may be left in an undefined state, do not reuse it
+            sessionPool.invalidateSession(session);
+
+            throw e;
+        }
+
+        sessionPool.returnSession(session);
+
+        return signature;
+    }
+}
@@ -57,6 +57,8 @@ public class HardwareTokenType implements TokenType {
 
     private final String signMechanismName;
 
+    private final int signSessionPoolSize;
+
     private final PrivKeyAttributes privKeyAttributes;
 
     private final PubKeyAttributes pubKeyAttributes;
@@ -25,12 +25,19 @@ package ee.ria.xroad.signer.tokenmanager.token;
 import java.security.cert.X509Certificate;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
 
 import javax.xml.bind.DatatypeConverter;
 
+import akka.actor.ActorRef;
+import akka.actor.Props;
+import akka.routing.SmallestMailboxPool;
+
 import iaik.pkcs.pkcs11.Mechanism;
 import iaik.pkcs.pkcs11.Session;
 import iaik.pkcs.pkcs11.Token;
@@ -55,6 +62,7 @@ import ee.ria.xroad.signer.protocol.message.ActivateToken;
 import ee.ria.xroad.signer.protocol.message.GenerateKey;
 import ee.ria.xroad.signer.tokenmanager.TokenManager;
 import ee.ria.xroad.signer.tokenmanager.module.ModuleConf;
+import ee.ria.xroad.signer.util.CalculateSignature;
 import ee.ria.xroad.signer.util.SignerUtil;
 
 import static iaik.pkcs.pkcs11.Token.SessionType.SERIAL_SESSION;
@@ -69,24 +77,33 @@ import static ee.ria.xroad.signer.util.ExceptionHelper.*;
 import static ee.ria.xroad.signer.util.SignerUtil.keyId;
 
 /**
- * Token worker for hardware tokens.
+ * Token worker for hardware tokens. If a sign session pool is configured for
+ * the module, signature calculation is delegated to a pool of
+ * {@link HardwareTokenSigningWorker}s, each signing in its own session.
  */
 @Slf4j
 public class HardwareTokenWorker extends AbstractTokenWorker {
 
     private static final Mechanism KEYGEN_MECHANISM = Mechanism.get(PKCS11Constants.CKM_RSA_PKCS_KEY_PAIR_GEN);
 
+    private static final String SIGNING_WORKERS = "signingworkers";
+
     private final HardwareTokenType tokenType;
 
     // maps signature algorithm id and signing mechanism
     private final Map<String, Mechanism> signMechanisms;
 
-    // maps key id (hex) to RSAPrivateKey
-    private final Map<String, RSAPrivateKey> privateKeys = new HashMap<>();
+    // maps key id (hex) to RSAPrivateKey, shared with the signing workers.
+    // The maps are never modified, changes are published by replacing the map
+    private final AtomicReference<Map<String, RSAPrivateKey>> privateKeys =
+            new AtomicReference<>(Collections.emptyMap());
     private final Map<String, List<X509PublicKeyCertificate>> certs = new HashMap<>();
 
     private Session activeSession;
 
+    private HardwareTokenSessionPool signSessionPool;
+    private ActorRef signingWorkers;
+
     /**
      * @param tokenInfo the token info
      * @param tokenType the token type
@@ -149,6 +166,8 @@ public class HardwareTokenWorker extends AbstractTokenWorker {
 
     @Override
     public void preStart() throws Exception {
+        startSigningWorkers();
+
         try {
             initialize();
             setTokenAvailable(tokenId, true);
@@ -171,6 +190,10 @@ public class HardwareTokenWorker extends AbstractTokenWorker {
     public void postStop() throws Exception {
         super.postStop();
 
+        if (signSessionPool != null) {
+            signSessionPool.close();
+        }
+
         try {
             closeActiveSession();
         } catch (Exception e) {
@@ -191,6 +214,12 @@ public class HardwareTokenWorker extends AbstractTokenWorker {
 
     @Override
     protected void onMessage(Object message) throws Exception {
+        if (message instanceof CalculateSignature && signingWorkers != null) {
+            signingWorkers.forward(message, getContext());
+
+            return;
+        }
+
         try {
             super.onMessage(message);
         } finally {
@@ -282,7 +311,9 @@ public class HardwareTokenWorker extends AbstractTokenWorker {
         byte[] publicKeyBytes = generateX509PublicKey(publicKey);
         String publicKeyBase64 = encodeBase64(publicKeyBytes);
 
-        privateKeys.put(keyId, privateKey);
+        Map<String, RSAPrivateKey> keys = new HashMap<>(privateKeys.get());
+        keys.put(keyId, privateKey);
+        privateKeys.set(Collections.unmodifiableMap(keys));
 
         return new GenerateKeyResult(keyId, publicKeyBase64);
     }
@@ -294,14 +325,17 @@ public class HardwareTokenWorker extends AbstractTokenWorker {
         assertTokenWritable();
         assertActiveSession();
 
-        RSAPrivateKey privateKey = privateKeys.get(keyId);
+        RSAPrivateKey privateKey = privateKeys.get().get(keyId);
 
         if (privateKey != null) {
             log.info("Deleting private key '{}' on token '{}'", keyId, getWorkerId());
 
             try {
                 activeSession.destroyObject(privateKey);
-                privateKeys.remove(keyId);
+
+                Map<String, RSAPrivateKey> keys = new HashMap<>(privateKeys.get());
+                keys.remove(keyId);
+                privateKeys.set(Collections.unmodifiableMap(keys));
             } catch (Exception e) {
                 throw new CodedException(X_INTERNAL_ERROR, "Failed to delete private key '%s' on token '%s': %s",
                         keyId, getWorkerId(), e);
@@ -390,7 +424,7 @@ public class HardwareTokenWorker extends AbstractTokenWorker {
             throw keyNotAvailable(keyId);
         }
 
-        RSAPrivateKey key = privateKeys.get(keyId);
+        RSAPrivateKey key = privateKeys.get().get(keyId);
 
         if (key == null) {
             throw CodedException.tr(X_KEY_NOT_FOUND, "key_not_found_on_token", "Key '%s' not found on token '%s'",
@@ -547,6 +581,28 @@ public class HardwareTokenWorker extends AbstractTokenWorker {
         updateTokenInfo();
     }
 
+    private void startSigningWorkers() {
+        int poolSize = tokenType.getSignSessionPoolSize();
+
+        // Login state is shared by all sessions of the token, so per signing
+        // PIN verification requires signing in the active session
+        if (poolSize <= 1 || tokenType.isPinVerificationPerSigning()) {
+            return;
+        }
+
+        log.info("Starting {} signing workers for token '{}'", poolSize, getWorkerId());
+
+        signSessionPool = new HardwareTokenSessionPool(tokenId, poolSize,
+                () -> getToken().openSession(SERIAL_SESSION, false, null, null));
+
+        Supplier<Map<String, RSAPrivateKey>> currentPrivateKeys = privateKeys::get;
+
+        Props props = Props.create(HardwareTokenSigningWorker.class, tokenId, signMechanisms, currentPrivateKeys,
+                signSessionPool).withDispatcher(HardwareToken.DISPATCHER);
+
+        signingWorkers = getContext().actorOf(new SmallestMailboxPool(poolSize).props(props), SIGNING_WORKERS);
+    }
+
     private void login() throws Exception {
         char[] password = PasswordStore.getPassword(tokenId);
 
@@ -580,7 +636,7 @@ public class HardwareTokenWorker extends AbstractTokenWorker {
             return;
         }
 
-        privateKeys.clear();
+        privateKeys.set(Collections.emptyMap());
 
         log.trace("logout()");
 
@@ -612,13 +668,13 @@ public class HardwareTokenWorker extends AbstractTokenWorker {
             return;
         }
 
-        privateKeys.clear();
-
         List<RSAPrivateKey> keysOnToken = findPrivateKeys(activeSession,
                 tokenType.getPrivKeyAttributes().getAllowedMechanisms());
 
         log.trace("Found {} private key(s) on token '{}'", keysOnToken.size(), getWorkerId());
 
+        Map<String, RSAPrivateKey> keys = new HashMap<>();
+
         for (RSAPrivateKey keyOnToken: keysOnToken) {
             String keyId = keyId(keyOnToken);
 
@@ -628,8 +684,13 @@ public class HardwareTokenWorker extends AbstractTokenWorker {
                 continue;
             }
 
-            privateKeys.put(keyId, keyOnToken);
+            keys.put(keyId, keyOnToken);
+        }
+
+        // Publish the keys before marking them available to the signing workers
+        privateKeys.set(Collections.unmodifiableMap(keys));
 
+        for (String keyId : keys.keySet()) {
             log.trace("Private key '{}' added to token '{}'", keyId, getWorkerId());
 
             if (!hasKey(keyId)) {
@@ -644,14 +705,14 @@ public class HardwareTokenWorker extends AbstractTokenWorker {
         for (KeyInfo keyInfo: listKeys(tokenId)) {
             String keyId = keyInfo.getId();
 
-            if (!privateKeys.containsKey(keyId)) {
+            if (!keys.containsKey(keyId)) {
                 setKeyAvailable(keyId, false);
 
                 log.debug("Private key ({}) not found in token '{}'", keyId, getWorkerId());
             }
         }
 
-        if (privateKeys.isEmpty()) {
+        if (keys.isEmpty()) {
             log.warn("No private key(s) found in token '{}'", getWorkerId());
         }
     }
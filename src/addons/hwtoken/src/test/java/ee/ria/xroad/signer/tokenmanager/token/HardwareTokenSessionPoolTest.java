@@ -0,0 +1,161 @@
+/**
+ * The MIT License
+ * Copyright (c) 2015 Estonian Information System Authority (RIA), Population Register Centre (VRK)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package ee.ria.xroad.signer.tokenmanager.token;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import iaik.pkcs.pkcs11.Session;
+import iaik.pkcs.pkcs11.SessionInfo;
+import iaik.pkcs.pkcs11.State;
+import iaik.pkcs.pkcs11.TokenException;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import ee.ria.xroad.common.CodedException;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Tests the hardware token signing session pool against mocked sessions.
+ */
+public class HardwareTokenSessionPoolTest {
+
+    private static final int MAX_SIZE = 2;
+
+    private final List<Session> opened = new ArrayList<>();
+
+    private HardwareTokenSessionPool pool;
+
+    /**
+     * Creates the pool.
+     */
+    @Before
+    public void setUp() {
+        pool = new HardwareTokenSessionPool("token", MAX_SIZE, this::openSession);
+    }
+
+    /**
+     * Test that sessions are opened lazily and reused after being returned.
+     * @throws Exception if an error occurs
+     */
+    @Test
+    public void reusesReturnedSessions() throws Exception {
+        Session first = pool.borrowSession();
+        pool.returnSession(first);
+
+        assertSame(first, pool.borrowSession());
+        assertEquals(1, opened.size());
+
+        Session second = pool.borrowSession();
+
+        assertNotSame(first, second);
+        assertEquals(2, opened.size());
+        assertEquals(2, pool.getOpenSessions());
+    }
+
+    /**
+     * Test that an invalidated session is closed and replaced with a new one.
+     * @throws Exception if an error occurs
+     */
+    @Test
+    public void replacesInvalidatedSessions() throws Exception {
+        Session first = pool.borrowSession();
+        Session second = pool.borrowSession();
+
+        pool.invalidateSession(first);
+
+        verify(first).closeSession();
+        assertEquals(1, pool.getOpenSessions());
+
+        Session third = pool.borrowSession();
+
+        assertNotSame(first, third);
+        assertNotSame(second, third);
+        assertEquals(3, opened.size());
+    }
+
+    /**
+     * Test that a session failing the health check is replaced.
+     * @throws Exception if an error occurs
+     */
+    @Test
+    public void replacesBrokenSessions() throws Exception {
+        Session first = pool.borrowSession();
+        when(first.getSessionInfo()).thenThrow(new TokenException("session handle invalid"));
+        pool.returnSession(first);
+
+        Session session = pool.borrowSession();
+
+        assertNotSame(first, session);
+        verify(first).closeSession();
+        assertEquals(1, pool.getOpenSessions());
+    }
+
+    /**
+     * Test that closing the pool closes the idle sessions and the sessions in
+     * use once they are returned.
+     * @throws Exception if an error occurs
+     */
+    @Test
+    public void closesSessions() throws Exception {
+        Session idle = pool.borrowSession();
+        Session inUse = pool.borrowSession();
+        pool.returnSession(idle);
+
+        pool.close();
+
+        verify(idle).closeSession();
+
+        pool.returnSession(inUse);
+
+        verify(inUse).closeSession();
+        assertEquals(0, pool.getOpenSessions());
+
+        try {
+            pool.borrowSession();
+            fail("Borrowing from a closed pool should fail");
+        } catch (CodedException expected) {
+            // expected
+        }
+    }
+
+    private Session openSession() throws Exception {
+        SessionInfo info = mock(SessionInfo.class);
+        when(info.getState()).thenReturn(State.RW_USER_FUNCTIONS);
+
+        Session session = mock(Session.class);
+        when(session.getSessionInfo()).thenReturn(info);
+
+        opened.add(session);
+
+        return session;
+    }
+}
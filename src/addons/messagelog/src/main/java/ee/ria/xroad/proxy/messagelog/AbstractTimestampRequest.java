@@ -30,7 +30,16 @@ import static ee.ria.xroad.proxy.messagelog.TimestamperUtil.getTimestampResponse
 
 import java.io.InputStream;
 import java.security.cert.X509Certificate;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import org.bouncycastle.asn1.ASN1ObjectIdentifier;
 import org.bouncycastle.tsp.TimeStampRequest;
@@ -50,25 +59,93 @@ import lombok.extern.slf4j.Slf4j;
 @RequiredArgsConstructor
 abstract class AbstractTimestampRequest {
 
+    // Shared by all the time-stamp requests, idle threads are released after a while
+    private static final ExecutorService EXECUTOR = Executors.newCachedThreadPool(runnable -> {
+        Thread thread = new Thread(runnable, "timestamper-request");
+        thread.setDaemon(true);
+
+        return thread;
+    });
+
     protected final Long[] logRecords;
 
     abstract byte[] getRequestData() throws Exception;
 
     abstract Timestamper.TimestampResult result(TimeStampResponse tsResponse, String url) throws Exception;
 
+    /**
+     * Sends the time-stamp request to the time-stamping providers, starting with the TSP with the best
+     * recent record. If the TSP has not responded within the configured percentile of its recent response
+     * times, the request is also sent to the next TSP. A failed request is immediately followed by a request
+     * to the next TSP. The first verified response is used.
+     * @param tspUrls the configured TSP URLs
+     * @return the result of the time-stamping
+     * @throws Exception if none of the TSPs returned a verified time-stamp
+     */
     Timestamper.TimestampResult execute(List<String> tspUrls) throws Exception {
         TimeStampRequest tsRequest = createTimestampRequest(getRequestData());
 
-        TsRequest req = makeTsRequest(tsRequest, tspUrls);
-        if (req.getInputStream() == null) {
-            throw new RuntimeException("Could not get response from TSP");
-        }
+        List<String> urls = TspStatistics.order(tspUrls);
+        int hedgePercentile = MessageLogProperties.getTimestamperHedgePercentile();
+        long hedgeDelay = MessageLogProperties.getTimestamperHedgeDelay();
 
-        TimeStampResponse tsResponse = getTimestampResponse(req.getInputStream());
-        log.info("tsresponse {}", tsResponse);
-        verify(tsRequest, tsResponse);
+        CompletionService<Timestamper.TimestampResult> completionService =
+                new ExecutorCompletionService<>(EXECUTOR);
+        List<SentRequest> requests = new ArrayList<>();
+        AtomicBoolean finished = new AtomicBoolean();
 
-        return result(tsResponse, req.getUrl());
+        try {
+            requests.add(send(completionService, tsRequest, urls.get(0), finished));
+
+            int pending = 1;
+
+            while (pending > 0) {
+                Future<Timestamper.TimestampResult> completed;
+
+                if (hedgePercentile > 0 && requests.size() < urls.size()) {
+                    String url = requests.get(requests.size() - 1).getUrl();
+                    long delay = TspStatistics.get(url).getHedgeDelay(hedgePercentile, hedgeDelay);
+
+                    completed = completionService.poll(delay, TimeUnit.MILLISECONDS);
+
+                    if (completed == null) {
+                        String nextUrl = urls.get(requests.size());
+
+                        log.info("No time-stamp response from {} in {} ms, sending the request also to {}",
+                                url, delay, nextUrl);
+
+                        requests.add(send(completionService, tsRequest, nextUrl, finished));
+                        pending++;
+
+                        continue;
+                    }
+                } else {
+                    completed = completionService.take();
+                }
+
+                pending--;
+
+                try {
+                    return completed.get();
+                } catch (ExecutionException e) {
+                    // Failure is logged by the request, try the next TSP without waiting for the others
+                    if (requests.size() < urls.size()) {
+                        requests.add(send(completionService, tsRequest, urls.get(requests.size()), finished));
+                        pending++;
+                    }
+                }
+            }
+        } finally {
+            finished.set(true);
+
+            for (SentRequest request : requests) {
+                request.cancel();
+            }
+        }
+
+        // All the URLs failed. Throw exception.
+        throw new RuntimeException(
+                "Failed to get time stamp from any time-stamping providers");
     }
 
     @Getter
@@ -82,21 +159,82 @@ abstract class AbstractTimestampRequest {
         }
     }
 
-    protected TsRequest makeTsRequest(TimeStampRequest request,
-            List<String> tspUrls) throws Exception {
-        for (String url: tspUrls) {
-            try {
-                log.debug("Sending time-stamp request to {}", url);
+    private SentRequest send(CompletionService<Timestamper.TimestampResult> completionService,
+            TimeStampRequest tsRequest, String url, AtomicBoolean finished) {
+        return new SentRequest(url, System.currentTimeMillis(),
+                completionService.submit(() -> requestTimestamp(tsRequest, url, finished)));
+    }
+
+    private Timestamper.TimestampResult requestTimestamp(TimeStampRequest tsRequest, String url,
+            AtomicBoolean finished) throws Exception {
+        TspStatistics statistics = TspStatistics.get(url);
+        long start = System.currentTimeMillis();
+
+        TsRequest req;
+        TimeStampResponse tsResponse;
+
+        try {
+            log.debug("Sending time-stamp request to {}", url);
+
+            req = makeTsRequest(tsRequest, url);
+            if (req.getInputStream() == null) {
+                throw new RuntimeException("Could not get response from TSP");
+            }
+
+            try (InputStream in = req.getInputStream()) {
+                tsResponse = getTimestampResponse(in);
+            }
+
+            log.info("tsresponse {}", tsResponse);
+            verify(tsRequest, tsResponse);
+        } catch (Exception ex) {
+            if (finished.get()) {
+                // The time-stamp was already received from another TSP and this request was cancelled,
+                // the elapsed time has been recorded at cancellation
+                log.debug("Time-stamp request to {} was cancelled: {}", url, ex.getMessage());
+
+                throw ex;
+            }
+
+            statistics.failure();
+
+            log.error("Failed to get time stamp from " + url, ex);
+
+            throw ex;
+        }
+
+        if (!finished.get()) {
+            statistics.success(System.currentTimeMillis() - start);
+        }
+
+        return result(tsResponse, req.getUrl());
+    }
+
+    /**
+     * A time-stamp request sent to one TSP.
+     */
+    @Getter
+    @RequiredArgsConstructor
+    private static final class SentRequest {
+        private final String url;
+        private final long sentAt;
+        private final Future<Timestamper.TimestampResult> response;
+
+        /**
+         * Cancels the request, if the TSP has not responded yet. The time waited for the response is recorded
+         * as a response time of the TSP, so that a TSP that stopped responding loses its place in the order.
+         */
+        void cancel() {
+            if (!response.isDone()) {
+                response.cancel(true);
 
-                return new TsRequest(TimestamperUtil.makeTsRequest(request, url), url);
-            } catch (Exception ex) {
-                log.error("Failed to get time stamp from " + url, ex);
+                TspStatistics.get(url).unfinished(System.currentTimeMillis() - sentAt);
             }
         }
+    }
 
-        // All the URLs failed. Throw exception.
-        throw new RuntimeException(
-                "Failed to get time stamp from any time-stamping providers");
+    protected TsRequest makeTsRequest(TimeStampRequest request, String url) throws Exception {
+        return new TsRequest(TimestamperUtil.makeTsRequest(request, url), url);
     }
 
     private TimeStampRequest createTimestampRequest(byte[] data)
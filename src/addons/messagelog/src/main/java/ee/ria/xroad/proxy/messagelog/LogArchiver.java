@@ -25,6 +25,7 @@ package ee.ria.xroad.proxy.messagelog;
 import akka.actor.UntypedActor;
 import ee.ria.xroad.common.CodedException;
 import ee.ria.xroad.common.ErrorCodes;
+import ee.ria.xroad.common.messagelog.AbstractLogRecord;
 import ee.ria.xroad.common.messagelog.LogRecord;
 import ee.ria.xroad.common.messagelog.MessageLogProperties;
 import ee.ria.xroad.common.messagelog.MessageRecord;
@@ -34,11 +35,12 @@ import ee.ria.xroad.common.messagelog.archive.LogArchiveBase;
 import ee.ria.xroad.common.messagelog.archive.LogArchiveWriter;
 import lombok.Getter;
 import lombok.RequiredArgsConstructor;
-import lombok.Value;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.io.IOUtils;
 import org.apache.commons.io.output.NullOutputStream;
 import org.hibernate.Criteria;
+import org.hibernate.ScrollMode;
+import org.hibernate.ScrollableResults;
 import org.hibernate.Session;
 import org.hibernate.criterion.Order;
 import org.hibernate.criterion.Projections;
@@ -65,14 +67,9 @@ import static org.apache.commons.lang3.StringUtils.isBlank;
 @RequiredArgsConstructor
 public class LogArchiver extends UntypedActor {
 
-    private static final int MAX_RECORDS_IN_ARCHIVE = 10;
-    private static final int MAX_RECORDS_IN_PATCHS = 360;
-
     public static final String START_ARCHIVING = "doArchive";
 
     private final Path archivePath;
-    private final Path workingPath;
-    private boolean safeTransactionBatch;
 
     @Override
     public void onReceive(Object message) throws Exception {
@@ -92,63 +89,90 @@ public class LogArchiver extends UntypedActor {
         }
     }
 
+    /**
+     * Archives the non-archived time-stamp records up to the given id together with their message records, until
+     * the transaction batch size is reached. The transaction always ends at a time-stamp record boundary.
+     * @return true if the transaction batch size was reached and there may be more records to archive
+     */
     private boolean handleArchive(long maxTimestampId) throws Exception {
         return doInTransaction(session -> {
-            List<LogRecord> records = getRecordsToBeArchived(session, maxTimestampId);
-            if (records == null || records.isEmpty()) {
-                log.info("No records to be archived at this time");
-                return false;
-            }
-
-            log.info("Archiving log records...");
+            HibernateLogArchiveBase archiveBase = new HibernateLogArchiveBase(session);
 
             long start = System.currentTimeMillis();
             int recordsArchived = 0;
+            boolean batchSizeReached = false;
+
+            try (LogArchiveWriter archiveWriter = new LogArchiveWriter(getArchivePath(), archiveBase)) {
+                long lastTimestampId = 0;
+                List<TimestampRecord> timestamps;
+
+                do {
+                    timestamps = getNonArchivedTimestampRecords(session, lastTimestampId, maxTimestampId);
+
+                    for (TimestampRecord ts : timestamps) {
+                        recordsArchived += archiveMessageRecords(session, archiveWriter, ts.getId());
 
-            try (LogArchiveWriter archiveWriter = createLogArchiveWriter(session)) {
-                while (!records.isEmpty()) {
-                    archive(archiveWriter, records);
-                    runTransferCommand(getArchiveTransferCommand());
-                    recordsArchived += records.size();
-
-                    //flush changes (records marked as archived) and free memory
-                    //used up by cached records retrieved previously in the session
-                    session.flush();
-                    session.clear();
-
-                    if (safeTransactionBatch
-                            && recordsArchived >= MessageLogProperties.getArchiveTransactionBatchSize()) {
-                        log.info("Archived {} log records in {} ms", recordsArchived,
-                                System.currentTimeMillis() - start);
-                        return true;
+                        archiveWriter.write(ts);
+                        recordsArchived++;
+
+                        lastTimestampId = ts.getId();
+
+                        // Free memory used up by records retrieved previously in the session. Flush first, so
+                        // that the last archive digest saved when the archive rotated is not discarded.
+                        session.flush();
+                        session.clear();
+
+                        if (recordsArchived >= MessageLogProperties.getArchiveTransactionBatchSize()) {
+                            batchSizeReached = true;
+                            break;
+                        }
                     }
+                } while (!batchSizeReached && !timestamps.isEmpty());
 
-                    records = getRecordsToBeArchived(session, maxTimestampId);
-                }
+                archiveBase.markPendingRecordsArchived();
             } catch (Exception e) {
                 throw new CodedException(ErrorCodes.X_INTERNAL_ERROR, e);
             }
 
-            log.info("Archived {} log records in {} ms", recordsArchived,
-                    System.currentTimeMillis() - start);
+            if (recordsArchived == 0) {
+                log.info("No records to be archived at this time");
+
+                return false;
+            }
 
-            return false;
+            runTransferCommand(getArchiveTransferCommand());
+
+            long duration = Math.max(System.currentTimeMillis() - start, 1);
+
+            log.info("Archived {} log records in {} ms ({} records/s)", recordsArchived, duration,
+                    recordsArchived * 1000L / duration);
+
+            return batchSizeReached;
         });
     }
 
-    private void archive(LogArchiveWriter archiveWriter,
-            List<LogRecord> records) throws Exception {
-        for (LogRecord record : records) {
-            archiveWriter.write(record);
+    private int archiveMessageRecords(Session session, LogArchiveWriter archiveWriter, Long timestampRecordNumber)
+            throws Exception {
+        int recordsArchived = 0;
+
+        ScrollableResults messages = getNonArchivedMessageRecords(session, timestampRecordNumber);
+
+        try {
+            while (messages.next()) {
+                MessageRecord messageRecord = (MessageRecord) messages.get(0);
+
+                archiveWriter.write(messageRecord);
+                session.evict(messageRecord);
+
+                recordsArchived++;
+            }
+        } finally {
+            messages.close();
         }
-    }
 
-    private LogArchiveWriter createLogArchiveWriter(Session session) {
-        return new LogArchiveWriter(
-            getArchivePath(),
-            getWorkingPath(),
-            this.new HibernateLogArchiveBase(session)
-        );
+        log.trace("Archived {} message records of timestamp record #{}", recordsArchived, timestampRecordNumber);
+
+        return recordsArchived;
     }
 
     private Path getArchivePath() {
@@ -165,55 +189,14 @@ public class LogArchiver extends UntypedActor {
         return archivePath;
     }
 
-    private Path getWorkingPath() {
-        if (!Files.isDirectory(workingPath)) {
-            throw new RuntimeException(
-                    "Log working path (" + workingPath + ") must be directory");
-        }
-
-        if (!Files.isWritable(workingPath)) {
-            throw new RuntimeException(
-                    "Log working path (" + workingPath + ") must be writable");
-        }
-
-        return workingPath;
-    }
-
-    protected List<LogRecord> getRecordsToBeArchived(Session session, long maxTimestampId) {
-        List<LogRecord> recordsToArchive = new ArrayList<>();
-        safeTransactionBatch = false;
-        int allowedInArchiveCount = MAX_RECORDS_IN_ARCHIVE;
-        for (TimestampRecord ts : getNonArchivedTimestampRecords(session, MAX_RECORDS_IN_PATCHS, maxTimestampId)) {
-            List<MessageRecord> messages =
-                    getNonArchivedMessageRecords(session, ts.getId(),
-                            allowedInArchiveCount);
-            if (allTimestampMessagesArchived(session, ts.getId())) {
-                log.trace("Timestamp record #{} will be archived",
-                        ts.getId());
-                recordsToArchive.add(ts);
-                safeTransactionBatch = true;
-            } else {
-                log.trace("Timestamp record #{} still related to"
-                                + " non-archived message records",
-                        ts.getId());
-            }
-
-            recordsToArchive.addAll(messages);
-            allowedInArchiveCount -= messages.size();
-            if (safeTransactionBatch || allowedInArchiveCount <= 0) {
-                break;
-            }
-        }
-        return recordsToArchive;
-    }
-
     @SuppressWarnings("unchecked")
     protected List<TimestampRecord> getNonArchivedTimestampRecords(
-            Session session, int maxRecordsToGet, long maxTimestampId) {
+            Session session, long afterTimestampId, long maxTimestampId) {
         Criteria criteria = session.createCriteria(TimestampRecord.class);
         criteria.add(Restrictions.eq("archived", false));
+        criteria.add(Restrictions.gt("id", afterTimestampId));
         criteria.add(Restrictions.le("id", maxTimestampId));
-        criteria.setMaxResults(maxRecordsToGet);
+        criteria.setMaxResults(MessageLogProperties.getArchiveFetchSize());
         criteria.addOrder(Order.asc("id"));
         return criteria.list();
     }
@@ -227,28 +210,16 @@ public class LogArchiver extends UntypedActor {
                 .uniqueResult();
     }
 
-    @SuppressWarnings("unchecked")
-    protected List<MessageRecord> getNonArchivedMessageRecords(Session session,
-            Long timestampRecordNumber, int maxRecordsToGet) {
-        return session
-                .createCriteria(MessageRecord.class)
-                .add(Restrictions.eq("archived", false))
-                .add(Restrictions.eq("timestampRecord.id",
-                        timestampRecordNumber))
-                .setMaxResults(maxRecordsToGet)
-                .list();
-    }
-
-    protected boolean allTimestampMessagesArchived(Session session,
+    protected ScrollableResults getNonArchivedMessageRecords(Session session,
             Long timestampRecordNumber) {
-        Long result = (Long) session
+        return session
                 .createCriteria(MessageRecord.class)
                 .add(Restrictions.eq("archived", false))
                 .add(Restrictions.eq("timestampRecord.id",
                         timestampRecordNumber))
-                .setProjection(Projections.rowCount())
-                .uniqueResult();
-        return result == 0;
+                .addOrder(Order.asc("id"))
+                .setFetchSize(MessageLogProperties.getArchiveFetchSize())
+                .scroll(ScrollMode.FORWARD_ONLY);
     }
 
     protected void markArchiveCreated(final DigestEntry lastArchive,
@@ -309,10 +280,15 @@ public class LogArchiver extends UntypedActor {
         }
     }
 
-    @Value
+    /**
+     * Marks the archived records with bulk updates of the configured batch size instead of updating each record.
+     */
+    @RequiredArgsConstructor
     private class HibernateLogArchiveBase implements LogArchiveBase {
 
-        private Session session;
+        private final Session session;
+
+        private final List<Long> pendingArchivedIds = new ArrayList<>();
 
         @Override
         public void markArchiveCreated(DigestEntry lastArchive)
@@ -325,8 +301,29 @@ public class LogArchiver extends UntypedActor {
             log.trace("Setting {} #{} archived",
                     logRecord.getClass().getName(), logRecord.getId());
 
-            logRecord.setArchived(true);
-            session.saveOrUpdate(logRecord);
+            pendingArchivedIds.add(logRecord.getId());
+
+            if (pendingArchivedIds.size() >= MessageLogProperties.getArchiveUpdateBatchSize()) {
+                markPendingRecordsArchived();
+            }
+        }
+
+        void markPendingRecordsArchived() {
+            if (pendingArchivedIds.isEmpty()) {
+                return;
+            }
+
+            int updated = session
+                    .createQuery(
+                            "update " + AbstractLogRecord.class.getName()
+                            + " set archived = true where id in (:ids)"
+                    )
+                    .setParameterList("ids", pendingArchivedIds)
+                    .executeUpdate();
+
+            log.trace("Marked {} log records archived", updated);
+
+            pendingArchivedIds.clear();
         }
 
         @Override
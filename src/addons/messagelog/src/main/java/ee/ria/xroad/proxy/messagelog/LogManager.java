@@ -27,11 +27,11 @@ import ee.ria.xroad.common.CommonMessages;
 import ee.ria.xroad.common.DiagnosticsErrorCodes;
 import ee.ria.xroad.common.DiagnosticsStatus;
 import ee.ria.xroad.common.DiagnosticsUtils;
-import ee.ria.xroad.common.SystemProperties;
 import ee.ria.xroad.common.conf.globalconf.GlobalConf;
 import ee.ria.xroad.common.conf.serverconf.ServerConf;
 import ee.ria.xroad.common.message.SoapMessageImpl;
 import ee.ria.xroad.common.messagelog.AbstractLogManager;
+import ee.ria.xroad.common.messagelog.LogMessage;
 import ee.ria.xroad.common.messagelog.LogRecord;
 import ee.ria.xroad.common.messagelog.MessageLogProperties;
 import ee.ria.xroad.common.messagelog.MessageRecord;
@@ -59,12 +59,15 @@ import scala.concurrent.duration.FiniteDuration;
 import java.nio.file.Paths;
 import java.time.LocalTime;
 import java.util.Date;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.TimeUnit;
 
 import static ee.ria.xroad.common.ErrorCodes.X_MLOG_TIMESTAMPER_FAILED;
 import static ee.ria.xroad.common.messagelog.MessageLogProperties.getAcceptableTimestampFailurePeriodSeconds;
 import static ee.ria.xroad.common.messagelog.MessageLogProperties.getArchiveInterval;
 import static ee.ria.xroad.common.messagelog.MessageLogProperties.getCleanInterval;
+import static ee.ria.xroad.common.messagelog.MessageLogProperties.getGroupCommitMaxRecords;
+import static ee.ria.xroad.common.messagelog.MessageLogProperties.getGroupCommitWindow;
 import static ee.ria.xroad.common.messagelog.MessageLogProperties.getHashAlg;
 import static ee.ria.xroad.common.messagelog.MessageLogProperties.shouldTimestampImmediately;
 import static ee.ria.xroad.common.util.CryptoUtils.calculateDigest;
@@ -78,6 +81,8 @@ import static java.nio.charset.StandardCharsets.UTF_8;
 /**
  * Message log manager. Sets up the whole logging system components.
  * The logging system consists of a task queue, timestamper, archiver and log cleaner.
+ * Unless messages are time-stamped immediately, the message records are saved by a group commit writer and the
+ * log requests are answered when the transaction containing the record has been committed.
  */
 @Slf4j
 public class LogManager extends AbstractLogManager {
@@ -95,6 +100,9 @@ public class LogManager extends AbstractLogManager {
 
     private ActorRef timestamper;
 
+    // Started when the first message is logged without time-stamping it immediately
+    private MessageRecordWriter messageRecordWriter;
+
     LogManager(JobManager jobManager) throws Exception {
         super(jobManager);
 
@@ -154,6 +162,23 @@ public class LogManager extends AbstractLogManager {
         }
     }
 
+    /**
+     * Saves the message record with the group commit writer and answers the sender when the record has been
+     * saved, so that the following log messages can be collected into the same transaction meanwhile.
+     */
+    private void logAsynchronously(LogMessage message) throws Exception {
+        verifyCanLogMessage(false);
+
+        MessageRecord logRecord = createMessageRecord(message.getMessage(), message.getSignature(),
+                message.isClientSide());
+
+        ActorRef sender = getSender();
+        ActorRef self = getSelf();
+
+        writeMessageRecord(logRecord).whenComplete((record, error) ->
+                sender.tell(error != null ? error : new Object(), self));
+    }
+
     @Override
     protected TimestampRecord timestamp(Long messageRecordId) throws Exception {
         log.trace("timestamp({})", messageRecordId);
@@ -189,6 +214,8 @@ public class LogManager extends AbstractLogManager {
                 getSender().tell(statusMap, getSelf());
             } else if (message instanceof SetTimestampingStatusMessage) {
                 setTimestampingStatus((SetTimestampingStatusMessage) message);
+            } else if (message instanceof LogMessage && !shouldTimestampImmediately()) {
+                logAsynchronously((LogMessage) message);
             } else {
                 super.onReceive(message);
             }
@@ -197,6 +224,15 @@ public class LogManager extends AbstractLogManager {
         }
     }
 
+    @Override
+    public void postStop() throws Exception {
+        if (messageRecordWriter != null) {
+            messageRecordWriter.stop();
+        }
+
+        super.postStop();
+    }
+
     // ------------------------------------------------------------------------
 
     protected Props getTaskQueueImpl() {
@@ -208,8 +244,7 @@ public class LogManager extends AbstractLogManager {
     }
 
     protected Props getArchiverImpl() {
-        return Props.create(LogArchiver.class, Paths.get(MessageLogProperties.getArchivePath()),
-                Paths.get(SystemProperties.getTempFilesPath()));
+        return Props.create(LogArchiver.class, Paths.get(MessageLogProperties.getArchivePath()));
     }
 
     protected Props getCleanerImpl() {
@@ -268,12 +303,29 @@ public class LogManager extends AbstractLogManager {
         return messageRecord;
     }
 
+    /**
+     * Saves the message record. Message records that are logged without time-stamping them immediately are saved
+     * by the group commit writer, which calls this method on its own thread in the transaction of the group.
+     * @param messageRecord the message record to save
+     * @return the saved message record
+     * @throws Exception if an error occurs
+     */
     protected MessageRecord saveMessageRecord(MessageRecord messageRecord) throws Exception {
         LogRecordManager.saveMessageRecord(messageRecord);
 
         return messageRecord;
     }
 
+    private CompletableFuture<MessageRecord> writeMessageRecord(MessageRecord messageRecord) {
+        if (messageRecordWriter == null) {
+            messageRecordWriter = new MessageRecordWriter(
+                    records -> LogRecordManager.saveMessageRecords(records, this::saveMessageRecord),
+                    getGroupCommitMaxRecords(), getGroupCommitWindow());
+        }
+
+        return messageRecordWriter.write(messageRecord);
+    }
+
     static TimestampRecord saveTimestampRecord(Timestamper.TimestampSucceeded message) throws Exception {
         log.trace("saveTimestampRecord()");
 
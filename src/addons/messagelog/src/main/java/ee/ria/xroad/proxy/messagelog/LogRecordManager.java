@@ -26,6 +26,7 @@ import ee.ria.xroad.common.db.HibernateUtil;
 import ee.ria.xroad.common.identifier.ClientId;
 import ee.ria.xroad.common.messagelog.AbstractLogRecord;
 import ee.ria.xroad.common.messagelog.LogRecord;
+import ee.ria.xroad.common.messagelog.MessageLogProperties;
 import ee.ria.xroad.common.messagelog.MessageRecord;
 import ee.ria.xroad.common.messagelog.TimestampRecord;
 
@@ -60,6 +61,8 @@ public final class LogRecordManager {
     private static final int INDEX_2 = 2;
     private static final int INDEX_3 = 3;
 
+    // The session of the transaction opened by saveMessageRecords() on the current thread
+    private static final ThreadLocal<Session> GROUP_SESSION = new ThreadLocal<>();
 
     private LogRecordManager() {
     }
@@ -121,11 +124,22 @@ public final class LogRecordManager {
     }
 
     /**
-     * Saves the message record to database.
+     * Saves the message record to database. When called by the saver given to
+     * {@link #saveMessageRecords(List, RecordSaver)}, the record is saved in the transaction of the group.
      * @param messageRecord the message record to be saved.
      * @throws Exception if an error occurs while communicating with database.
      */
     static void saveMessageRecord(MessageRecord messageRecord) throws Exception {
+        compressIfEnabled(messageRecord);
+
+        Session groupSession = GROUP_SESSION.get();
+
+        if (groupSession != null) {
+            save(groupSession, messageRecord);
+
+            return;
+        }
+
         doInTransaction(session -> {
             save(session, messageRecord);
 
@@ -133,12 +147,39 @@ public final class LogRecordManager {
         });
     }
 
+    /**
+     * Saves the message records to database in one transaction. The inserts are sent to the database in
+     * JDBC batches of the configured batch size.
+     * @param messageRecords the message records to be saved.
+     * @throws Exception if an error occurs while communicating with database.
+     */
+    static void saveMessageRecords(List<MessageRecord> messageRecords) throws Exception {
+        saveMessageRecords(messageRecords, LogRecordManager::saveMessageRecord);
+    }
+
+    /**
+     * Saves the message records to database in one transaction. Every record is passed to the saver, which is
+     * expected to save it with {@link #saveMessageRecord(MessageRecord)}.
+     * @param messageRecords the message records to be saved.
+     * @param saver saves a single message record.
+     * @throws Exception if an error occurs while communicating with database.
+     */
+    static void saveMessageRecords(List<MessageRecord> messageRecords, RecordSaver saver) throws Exception {
+        for (MessageRecord messageRecord : messageRecords) {
+            compressIfEnabled(messageRecord);
+        }
+
+        doInTransaction(session -> saveInGroup(session, messageRecords, saver));
+    }
+
     /**
      * Saves the message record in the database.
      * @param messageRecord the message record to be updated.
      * @throws Exception if an error occurs while communicating with database.
      */
     static void updateMessageRecord(MessageRecord messageRecord) throws Exception {
+        compressIfEnabled(messageRecord);
+
         doInTransaction(session -> {
             session.update(messageRecord);
 
@@ -175,6 +216,18 @@ public final class LogRecordManager {
         session.save(logRecord);
     }
 
+    /**
+     * Compresses the message and signature of the message record, if message compression is enabled.
+     * The compression is done before the transaction is started to keep the transaction short.
+     * @param messageRecord the message record to compress.
+     * @throws Exception if compression fails.
+     */
+    private static void compressIfEnabled(MessageRecord messageRecord) throws Exception {
+        if (MessageLogProperties.isMessageCompressionEnabled()) {
+            messageRecord.compress();
+        }
+    }
+
     /**
      * Associates each log record with the time-stamp record.
      * @param session the Hibernate session.
@@ -235,6 +288,21 @@ public final class LogRecordManager {
         return (AbstractLogRecord) session.get(AbstractLogRecord.class, number);
     }
 
+    @SneakyThrows
+    private static Void saveInGroup(Session session, List<MessageRecord> messageRecords, RecordSaver saver) {
+        GROUP_SESSION.set(session);
+
+        try {
+            for (MessageRecord messageRecord : messageRecords) {
+                saver.save(messageRecord);
+            }
+        } finally {
+            GROUP_SESSION.remove();
+        }
+
+        return null;
+    }
+
     @SneakyThrows
     private static MessageRecord getMessageRecord(Session session, String queryId, Date startTime, Date endTime) {
         Criteria criteria = session.createCriteria(MessageRecord.class);
@@ -283,4 +351,12 @@ public final class LogRecordManager {
 
         return configuredBatchSize;
     }
+
+    /**
+     * Saves a single message record.
+     */
+    @FunctionalInterface
+    interface RecordSaver {
+        void save(MessageRecord messageRecord) throws Exception;
+    }
 }
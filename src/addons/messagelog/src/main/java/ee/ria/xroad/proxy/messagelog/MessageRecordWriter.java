@@ -0,0 +1,233 @@
+/**
+ * The MIT License
+ * Copyright (c) 2015 Estonian Information System Authority (RIA), Population Register Centre (VRK)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package ee.ria.xroad.proxy.messagelog;
+
+import ee.ria.xroad.common.messagelog.MessageRecord;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Group commit writer for message records. The writer thread takes the first queued record, collects the records
+ * queued within the group commit window, up to the maximum number of records, and saves them in one transaction.
+ * The futures of the records are completed after the transaction has been committed. While a transaction is being
+ * committed, new records wait in the queue for the next one.
+ */
+@Slf4j
+class MessageRecordWriter {
+
+    private static final long POLL_INTERVAL_MILLIS = 100;
+    private static final long STOP_TIMEOUT_MILLIS = 30000;
+
+    private final BlockingQueue<PendingRecord> queue = new LinkedBlockingQueue<>();
+
+    private final Saver saver;
+    private final int maxRecords;
+    private final long windowNanos;
+
+    private final Thread thread;
+
+    private volatile boolean running = true;
+
+    /**
+     * Creates the writer and starts the writer thread.
+     * @param maxRecords the maximum number of records saved in one transaction
+     * @param windowMillis the time to wait for more records after the first one
+     */
+    MessageRecordWriter(int maxRecords, long windowMillis) {
+        this(LogRecordManager::saveMessageRecords, maxRecords, windowMillis);
+    }
+
+    MessageRecordWriter(Saver saver, int maxRecords, long windowMillis) {
+        this.saver = saver;
+        this.maxRecords = Math.max(maxRecords, 1);
+        this.windowNanos = TimeUnit.MILLISECONDS.toNanos(windowMillis);
+
+        thread = new Thread(this::run, "MessageRecordWriter");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Queues the message record to be saved.
+     * @param messageRecord the message record
+     * @return future that completes with the message record after it has been saved
+     */
+    synchronized CompletableFuture<MessageRecord> write(MessageRecord messageRecord) {
+        PendingRecord pending = new PendingRecord(messageRecord);
+
+        if (!running) {
+            pending.future.completeExceptionally(new IllegalStateException("Message record writer is stopped"));
+        } else {
+            queue.add(pending);
+        }
+
+        return pending.future;
+    }
+
+    /**
+     * Stops the writer after the queued records have been saved.
+     * @throws InterruptedException if interrupted while waiting for the writer thread
+     */
+    void stop() throws InterruptedException {
+        synchronized (this) {
+            running = false;
+        }
+
+        thread.join(STOP_TIMEOUT_MILLIS);
+    }
+
+    private void run() {
+        List<PendingRecord> group = new ArrayList<>();
+
+        try {
+            while (running || !queue.isEmpty()) {
+                PendingRecord first = queue.poll(POLL_INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
+
+                if (first != null) {
+                    group.add(first);
+
+                    collect(group);
+                    save(group);
+
+                    group.clear();
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+
+            log.warn("Message record writer was interrupted");
+        }
+
+        failPending(group);
+    }
+
+    private void collect(List<PendingRecord> group) throws InterruptedException {
+        queue.drainTo(group, maxRecords - group.size());
+
+        long deadline = System.nanoTime() + windowNanos;
+
+        while (group.size() < maxRecords) {
+            long remaining = deadline - System.nanoTime();
+
+            if (remaining <= 0) {
+                break;
+            }
+
+            PendingRecord next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+
+            if (next == null) {
+                break;
+            }
+
+            group.add(next);
+
+            queue.drainTo(group, maxRecords - group.size());
+        }
+    }
+
+    private void save(List<PendingRecord> group) {
+        log.trace("save({})", group.size());
+
+        try {
+            saver.save(getRecords(group));
+
+            group.forEach(PendingRecord::complete);
+        } catch (Exception e) {
+            if (group.size() == 1) {
+                group.get(0).fail(e);
+            } else {
+                log.error("Saving {} message records failed, saving them one by one", group.size(), e);
+
+                // Only the records that cannot be saved on their own should fail
+                group.forEach(this::saveSeparately);
+            }
+        }
+    }
+
+    private void saveSeparately(PendingRecord pending) {
+        // The identifier assigned in the failed transaction is not valid
+        pending.messageRecord.setId(null);
+
+        try {
+            saver.save(Collections.singletonList(pending.messageRecord));
+
+            pending.complete();
+        } catch (Exception e) {
+            pending.fail(e);
+        }
+    }
+
+    private void failPending(List<PendingRecord> group) {
+        queue.drainTo(group);
+
+        for (PendingRecord pending : group) {
+            if (!pending.future.isDone()) {
+                pending.fail(new IllegalStateException("Message record writer is stopped"));
+            }
+        }
+    }
+
+    private static List<MessageRecord> getRecords(List<PendingRecord> group) {
+        List<MessageRecord> records = new ArrayList<>(group.size());
+
+        for (PendingRecord pending : group) {
+            records.add(pending.messageRecord);
+        }
+
+        return records;
+    }
+
+    /**
+     * Saves the message records in one transaction.
+     */
+    @FunctionalInterface
+    interface Saver {
+        void save(List<MessageRecord> messageRecords) throws Exception;
+    }
+
+    private static final class PendingRecord {
+
+        private final MessageRecord messageRecord;
+        private final CompletableFuture<MessageRecord> future = new CompletableFuture<>();
+
+        PendingRecord(MessageRecord messageRecord) {
+            this.messageRecord = messageRecord;
+        }
+
+        void complete() {
+            future.complete(messageRecord);
+        }
+
+        void fail(Exception e) {
+            future.completeExceptionally(e);
+        }
+    }
+}
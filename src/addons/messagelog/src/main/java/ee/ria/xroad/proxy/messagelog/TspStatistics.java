@@ -0,0 +1,141 @@
+/**
+ * The MIT License
+ * Copyright (c) 2015 Estonian Information System Authority (RIA), Population Register Centre (VRK)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package ee.ria.xroad.proxy.messagelog;
+
+import com.codahale.metrics.Histogram;
+import com.codahale.metrics.Snapshot;
+import com.codahale.metrics.SlidingWindowReservoir;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Keeps track of the recent response times and failures of the time-stamping providers. Used for
+ * ordering the TSP URLs and for deciding when to send a hedged time-stamp request to the next TSP.
+ */
+final class TspStatistics {
+
+    private static final int LATENCY_SAMPLES = 100;
+
+    private static final int MIN_LATENCY_SAMPLES = 10;
+
+    // Fast TSPs must not cause the request to be sent to all the TSPs at once
+    static final long MIN_HEDGE_DELAY_MILLIS = 100;
+
+    private static final double MEDIAN = 0.5;
+
+    private static final double PERCENT = 100.0;
+
+    private static final ConcurrentMap<String, TspStatistics> STATISTICS = new ConcurrentHashMap<>();
+
+    private final Histogram latencies = new Histogram(new SlidingWindowReservoir(LATENCY_SAMPLES));
+
+    private final AtomicInteger consecutiveFailures = new AtomicInteger();
+
+    private TspStatistics() {
+    }
+
+    /**
+     * @param url the TSP URL
+     * @return the statistics of the TSP
+     */
+    static TspStatistics get(String url) {
+        return STATISTICS.computeIfAbsent(url, u -> new TspStatistics());
+    }
+
+    /**
+     * Orders the TSP URLs so that the TSPs with fewer consecutive failures come first and among those the
+     * TSPs with lower median response time. The TSPs without recorded response times keep their configured
+     * order after the measured ones.
+     * @param urls the configured TSP URLs
+     * @return the ordered TSP URLs
+     */
+    static List<String> order(List<String> urls) {
+        List<String> ordered = new ArrayList<>(urls);
+        ordered.sort(Comparator.comparingInt((String url) -> get(url).getConsecutiveFailures())
+                .thenComparingDouble(url -> get(url).getMedianLatency()));
+
+        return ordered;
+    }
+
+    /**
+     * Removes all the recorded statistics.
+     */
+    static void clear() {
+        STATISTICS.clear();
+    }
+
+    /**
+     * Records a successful time-stamp request.
+     * @param latencyMillis the response time in milliseconds
+     */
+    void success(long latencyMillis) {
+        latencies.update(latencyMillis);
+        consecutiveFailures.set(0);
+    }
+
+    /**
+     * Records a time-stamp request that was cancelled before the TSP responded, because a time-stamp was
+     * received from another TSP. The elapsed time is a lower bound of the response time of the TSP.
+     * @param elapsedMillis the time waited for the response in milliseconds
+     */
+    void unfinished(long elapsedMillis) {
+        latencies.update(elapsedMillis);
+    }
+
+    /**
+     * Records a failed time-stamp request.
+     */
+    void failure() {
+        consecutiveFailures.incrementAndGet();
+    }
+
+    int getConsecutiveFailures() {
+        return consecutiveFailures.get();
+    }
+
+    /**
+     * @param percentile the percentile of the recent response times (0-100)
+     * @param defaultDelay the delay used if not enough response times have been recorded
+     * @return the time in milliseconds to wait for the response before sending the request to the next TSP,
+     * at least {@link #MIN_HEDGE_DELAY_MILLIS} when based on the recorded response times
+     */
+    long getHedgeDelay(int percentile, long defaultDelay) {
+        Snapshot snapshot = latencies.getSnapshot();
+        if (snapshot.size() < MIN_LATENCY_SAMPLES) {
+            return defaultDelay;
+        }
+
+        return Math.max(MIN_HEDGE_DELAY_MILLIS, (long) Math.ceil(snapshot.getValue(percentile / PERCENT)));
+    }
+
+    private double getMedianLatency() {
+        Snapshot snapshot = latencies.getSnapshot();
+
+        return snapshot.size() == 0 ? Double.MAX_VALUE : snapshot.getValue(MEDIAN);
+    }
+}
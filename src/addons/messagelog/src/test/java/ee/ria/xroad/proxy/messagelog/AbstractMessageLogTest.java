@@ -24,6 +24,7 @@ package ee.ria.xroad.proxy.messagelog;
 
 import ee.ria.xroad.common.message.SoapMessageImpl;
 import ee.ria.xroad.common.messagelog.AbstractLogManager;
+import ee.ria.xroad.common.messagelog.LogMessage;
 import ee.ria.xroad.common.messagelog.MessageLogProperties;
 import ee.ria.xroad.common.messagelog.MessageRecord;
 import ee.ria.xroad.common.messagelog.TimestampRecord;
@@ -35,6 +36,7 @@ import akka.actor.ActorSystem;
 import akka.actor.DeadLetter;
 import akka.actor.Props;
 import akka.actor.UntypedActor;
+import akka.pattern.PatternsCS;
 import akka.testkit.TestActorRef;
 import com.typesafe.config.ConfigFactory;
 import com.typesafe.config.ConfigRenderOptions;
@@ -44,6 +46,7 @@ import lombok.extern.slf4j.Slf4j;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
@@ -52,6 +55,8 @@ import static org.junit.Assert.assertTrue;
 @Slf4j
 abstract class AbstractMessageLogTest {
 
+    private static final long ASK_TIMEOUT_MILLIS = 5000;
+
     JobManager jobManager;
     ActorSystem actorSystem;
     LogManager logManager;
@@ -151,6 +156,17 @@ abstract class AbstractMessageLogTest {
         logManager.log(message, signature, true);
     }
 
+    /**
+     * Sends the message to the log manager actor like the proxy does.
+     * @param message the message
+     * @param signature the signature
+     * @return future that completes with the reply of the log manager
+     */
+    CompletableFuture<Object> logThroughActor(SoapMessageImpl message, SignatureData signature) {
+        return PatternsCS.ask(logManagerRef, new LogMessage(message, signature, true), ASK_TIMEOUT_MILLIS)
+                .toCompletableFuture();
+    }
+
     TimestampRecord timestamp(MessageRecord record) throws Exception {
         return logManager.timestamp(record.getId());
     }
@@ -56,7 +56,10 @@ import java.io.File;
 import java.io.FileFilter;
 import java.nio.file.Paths;
 import java.text.SimpleDateFormat;
+import java.util.ArrayList;
 import java.util.Date;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.TimeUnit;
 
@@ -69,6 +72,7 @@ import static ee.ria.xroad.proxy.messagelog.TestUtil.createSignature;
 import static ee.ria.xroad.proxy.messagelog.TestUtil.initForTest;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
@@ -167,6 +171,28 @@ public class MessageLogTest extends AbstractMessageLogTest {
         log.info("dead letters: " + getDeadLetters());
     }
 
+    /**
+     * Logs messages concurrently through the log manager actor. The log requests must complete only after the
+     * message records have been saved.
+     * @throws Exception in case of any unexpected errors
+     */
+    @Test
+    public void logConcurrently() throws Exception {
+        log.trace("logConcurrently()");
+
+        List<CompletableFuture<Object>> results = new ArrayList<>();
+
+        for (int i = 0; i < 10; i++) {
+            results.add(logThroughActor(createMessage(), createSignature()));
+        }
+
+        for (CompletableFuture<Object> result : results) {
+            assertFalse(result.get(5, TimeUnit.SECONDS) instanceof Exception);
+        }
+
+        assertTaskQueueSize(10);
+    }
+
     /**
      * Timestamps message immediately. No messages are expected to be in the task queue.
      * @throws Exception in case of any unexpected errors
@@ -239,6 +265,43 @@ public class MessageLogTest extends AbstractMessageLogTest {
         assertArchiveHashChain();
     }
 
+    /**
+     * Logs and time-stamps 3 and 2 messages and archives them with small batch sizes, so that the archiving spans
+     * several transactions and update statements. All 7 records must be archived.
+     * @throws Exception in case of any unexpected errors
+     */
+    @Test
+    public void archiveInBatches() throws Exception {
+        log.trace("archiveInBatches()");
+
+        System.setProperty(MessageLogProperties.ARCHIVE_TRANSACTION_BATCH, "1");
+        System.setProperty(MessageLogProperties.ARCHIVE_FETCH_SIZE, "1");
+        System.setProperty(MessageLogProperties.ARCHIVE_UPDATE_BATCH, "2");
+
+        log(createMessage(), createSignature());
+        log(createMessage(), createSignature());
+        log(createMessage(), createSignature());
+
+        startTimestamping();
+        waitForTimestampSuccessful();
+        assertTrue(TestTaskQueue.waitForTimestampSaved());
+
+        log(createMessage(), createSignature());
+        log(createMessage(), createSignature());
+
+        startTimestamping();
+        waitForTimestampSuccessful();
+        assertTrue(TestTaskQueue.waitForTimestampSaved());
+
+        assertTaskQueueSize(0);
+
+        startArchiving();
+        TestLogArchiver.waitForArchiveSuccessful();
+
+        assertEquals(7, waitForNumberOfRecords(true, 7));
+        assertEquals(0, getNumberOfRecords(false));
+    }
+
     /**
      * Logs 3 messages, time-stamping fails. Task queue must have 3 tasks. Logs 1 more message, task queue must
      * have 4 tasks.
@@ -354,6 +417,35 @@ public class MessageLogTest extends AbstractMessageLogTest {
         assertNull(findByQueryId("foo", "02-04-2014 12:34:56.100", "02-04-2014 12:34:59.100"));
     }
 
+    /**
+     * Logs messages with message compression enabled. The stored message must be compressed and the record must
+     * still return the original message, also in the ASiC container.
+     * @throws Exception in case of any unexpected errors
+     */
+    @Test
+    public void logCompressed() throws Exception {
+        log.trace("logCompressed()");
+
+        System.setProperty(MessageLogProperties.MESSAGE_COMPRESSION_ENABLED, "true");
+
+        SoapMessageImpl message = createMessage("compressed");
+        log("02-04-2014 12:34:56.100", message);
+
+        MessageRecord record = (MessageRecord) findByQueryId("compressed", "02-04-2014 12:34:50.100",
+                "02-04-2014 12:34:59.100");
+
+        assertTrue(getStoredMessage("compressed").startsWith("deflate:"));
+        assertEquals(message.getXml(), record.getMessage());
+        assertEquals(message.getXml(), record.toAsicContainer().getMessage());
+        assertNotNull(timestamp(record));
+
+        // Time-stamping immediately updates the stored signature
+        System.setProperty(MessageLogProperties.TIMESTAMP_IMMEDIATELY, "true");
+
+        log(createMessage(), createSignature());
+        assertTaskQueueSize(0);
+    }
+
     /**
      * Wants to time-stamp, but no TSP urls configured.
      * @throws Exception in case of any unexpected errors
@@ -384,6 +476,10 @@ public class MessageLogTest extends AbstractMessageLogTest {
         System.setProperty(MessageLogProperties.CLEAN_INTERVAL, "0 0 0/12 1/1 * ? *");
 
         System.setProperty(MessageLogProperties.ARCHIVE_PATH, "build/");
+        System.setProperty(MessageLogProperties.MESSAGE_COMPRESSION_ENABLED, "false");
+        System.clearProperty(MessageLogProperties.ARCHIVE_TRANSACTION_BATCH);
+        System.clearProperty(MessageLogProperties.ARCHIVE_FETCH_SIZE);
+        System.clearProperty(MessageLogProperties.ARCHIVE_UPDATE_BATCH);
 
         initForTest();
         testSetUp();
@@ -401,6 +497,13 @@ public class MessageLogTest extends AbstractMessageLogTest {
         TestTimestamperWorker.failNextTimestamping(false);
     }
 
+    private static String getStoredMessage(String queryId) throws Exception {
+        return doInTransaction(session -> (String) session
+                .createSQLQuery("SELECT message FROM logrecord WHERE queryid = :queryId")
+                .setParameter("queryId", queryId)
+                .uniqueResult());
+    }
+
     @SneakyThrows
     private void initLastHashStep() {
         DigestEntry lastArchive = new DigestEntry(LAST_DIGEST, LAST_LOG_ARCHIVE_FILE);
@@ -535,6 +638,19 @@ public class MessageLogTest extends AbstractMessageLogTest {
         return new SimpleDateFormat("dd-MM-yyyy HH:mm:ss.SSS").parse(dateStr);
     }
 
+    private static int waitForNumberOfRecords(boolean archived, int expected) throws Exception {
+        long deadline = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(5);
+
+        int numberOfRecords = getNumberOfRecords(archived);
+        while (numberOfRecords != expected && System.currentTimeMillis() < deadline) {
+            Thread.sleep(50);
+
+            numberOfRecords = getNumberOfRecords(archived);
+        }
+
+        return numberOfRecords;
+    }
+
     private static int getNumberOfRecords(final boolean archived) throws Exception {
         return doInTransaction(session -> session
                 .createCriteria(AbstractLogRecord.class)
@@ -600,7 +716,7 @@ public class MessageLogTest extends AbstractMessageLogTest {
 
         @Override
         protected Props getArchiverImpl() {
-            return Props.create(TestLogArchiver.class, Paths.get("build"), Paths.get("build/tmp"));
+            return Props.create(TestLogArchiver.class, Paths.get("build"));
         }
 
         @Override
@@ -0,0 +1,113 @@
+/**
+ * The MIT License
+ * Copyright (c) 2015 Estonian Information System Authority (RIA), Population Register Centre (VRK)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package ee.ria.xroad.proxy.messagelog;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import ee.ria.xroad.common.identifier.ClientId;
+import ee.ria.xroad.common.messagelog.MessageRecord;
+
+import static ee.ria.xroad.proxy.messagelog.TestUtil.createMessage;
+
+/**
+ * Message record writer benchmark. Compares saving each message record in its own transaction with the group
+ * commit of {@link MessageRecordWriter} against an embedded file database that syncs every commit. The
+ * records are saved by concurrent logger threads.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Fork(1)
+@Threads(20)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@State(Scope.Benchmark)
+public class MessageRecordWriterBenchmark {
+
+    private static final int GROUP_COMMIT_MAX_RECORDS = 100;
+
+    private static final ClientId CLIENT = ClientId.create("EE", "BUSINESS", "consumer");
+
+    private final AtomicInteger queryId = new AtomicInteger();
+
+    private MessageRecordWriter writer;
+
+    /**
+     * Opens the file database and starts the group commit writer.
+     */
+    @Setup
+    public void setUp() {
+        System.setProperty("messagelog.hibernate.connection.url",
+                "jdbc:hsqldb:file:build/perfdb/messagelog;hsqldb.write_delay=false");
+
+        TestUtil.initForTest();
+
+        writer = new MessageRecordWriter(GROUP_COMMIT_MAX_RECORDS, 0);
+    }
+
+    /**
+     * Stops the writer and closes the database.
+     * @throws Exception if the database cannot be closed
+     */
+    @TearDown
+    public void tearDown() throws Exception {
+        writer.stop();
+
+        MessageLogDatabaseCtx.get().closeSessionFactory();
+    }
+
+    /**
+     * Saves a record in its own transaction.
+     * @throws Exception if the record cannot be saved
+     */
+    @Benchmark
+    public void perRecordCommit() throws Exception {
+        LogRecordManager.saveMessageRecord(createRecord());
+    }
+
+    /**
+     * Saves a record with the group commit of the writer.
+     * @throws Exception if the record cannot be saved
+     */
+    @Benchmark
+    public void groupCommit() throws Exception {
+        writer.write(createRecord()).get();
+    }
+
+    private MessageRecord createRecord() throws Exception {
+        return new MessageRecord(createMessage(String.valueOf(queryId.incrementAndGet())), "signature", CLIENT);
+    }
+}
@@ -0,0 +1,205 @@
+/**
+ * The MIT License
+ * Copyright (c) 2015 Estonian Information System Authority (RIA), Population Register Centre (VRK)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package ee.ria.xroad.proxy.messagelog;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Test;
+
+import ee.ria.xroad.common.identifier.ClientId;
+import ee.ria.xroad.common.messagelog.MessageRecord;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Tests the group commit writer of message records.
+ */
+public class MessageRecordWriterTest {
+
+    private static final long TIMEOUT_SECONDS = 5;
+
+    private final List<List<MessageRecord>> transactions = Collections.synchronizedList(new ArrayList<>());
+
+    private MessageRecordWriter writer;
+
+    /**
+     * Stops the writer.
+     * @throws Exception if an error occurs
+     */
+    @After
+    public void tearDown() throws Exception {
+        if (writer != null) {
+            writer.stop();
+        }
+    }
+
+    /**
+     * Test that the records queued during a transaction are saved together in the next transaction.
+     * @throws Exception if an error occurs
+     */
+    @Test
+    public void recordsQueuedDuringCommitAreSavedTogether() throws Exception {
+        CountDownLatch firstSaveStarted = new CountDownLatch(1);
+        CountDownLatch firstSaveReleased = new CountDownLatch(1);
+
+        writer = new MessageRecordWriter(records -> {
+            if (transactions.isEmpty()) {
+                firstSaveStarted.countDown();
+                firstSaveReleased.await();
+            }
+
+            transactions.add(new ArrayList<>(records));
+        }, 100, 0);
+
+        CompletableFuture<MessageRecord> first = writer.write(createRecord("first"));
+
+        assertTrue(firstSaveStarted.await(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+
+        List<CompletableFuture<MessageRecord>> others = new ArrayList<>();
+
+        for (int i = 0; i < 5; i++) {
+            others.add(writer.write(createRecord("other" + i)));
+        }
+
+        assertFalse(first.isDone());
+
+        firstSaveReleased.countDown();
+
+        first.get(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+
+        for (CompletableFuture<MessageRecord> other : others) {
+            other.get(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        }
+
+        assertEquals(2, transactions.size());
+        assertEquals(1, transactions.get(0).size());
+        assertEquals(5, transactions.get(1).size());
+    }
+
+    /**
+     * Test that a transaction contains at most the maximum number of records.
+     * @throws Exception if an error occurs
+     */
+    @Test
+    public void transactionSizeIsLimited() throws Exception {
+        writer = new MessageRecordWriter(records -> transactions.add(new ArrayList<>(records)), 3, 500);
+
+        List<CompletableFuture<MessageRecord>> futures = new ArrayList<>();
+
+        for (int i = 0; i < 7; i++) {
+            futures.add(writer.write(createRecord("record" + i)));
+        }
+
+        for (CompletableFuture<MessageRecord> future : futures) {
+            future.get(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        }
+
+        int saved = 0;
+
+        for (List<MessageRecord> transaction : transactions) {
+            assertTrue(transaction.size() <= 3);
+
+            saved += transaction.size();
+        }
+
+        assertEquals(7, saved);
+    }
+
+    /**
+     * Test that only the record that cannot be saved fails when a transaction fails.
+     * @throws Exception if an error occurs
+     */
+    @Test
+    public void failedTransactionIsRetriedRecordByRecord() throws Exception {
+        CountDownLatch firstSaveReleased = new CountDownLatch(1);
+        Exception saveFailed = new Exception("save failed");
+
+        writer = new MessageRecordWriter(records -> {
+            firstSaveReleased.await();
+
+            for (MessageRecord record : records) {
+                if ("bad".equals(record.getQueryId())) {
+                    throw saveFailed;
+                }
+            }
+
+            transactions.add(new ArrayList<>(records));
+        }, 100, 0);
+
+        CompletableFuture<MessageRecord> first = writer.write(createRecord("first"));
+        CompletableFuture<MessageRecord> good = writer.write(createRecord("good"));
+        CompletableFuture<MessageRecord> bad = writer.write(createRecord("bad"));
+
+        firstSaveReleased.countDown();
+
+        first.get(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        good.get(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+
+        try {
+            bad.get(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+
+            fail("Saving the record should have failed");
+        } catch (ExecutionException e) {
+            assertSame(saveFailed, e.getCause());
+        }
+    }
+
+    /**
+     * Test that the queued records are saved when the writer is stopped and later records are rejected.
+     * @throws Exception if an error occurs
+     */
+    @Test
+    public void stop() throws Exception {
+        writer = new MessageRecordWriter(records -> transactions.add(new ArrayList<>(records)), 100, 0);
+
+        CompletableFuture<MessageRecord> queued = writer.write(createRecord("queued"));
+
+        writer.stop();
+
+        assertEquals("queued", queued.get(TIMEOUT_SECONDS, TimeUnit.SECONDS).getQueryId());
+
+        try {
+            writer.write(createRecord("rejected")).get(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+
+            fail("Writing to a stopped writer should have failed");
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof IllegalStateException);
+        }
+    }
+
+    private static MessageRecord createRecord(String queryId) {
+        return new MessageRecord(queryId, "message", "signature", false,
+                ClientId.create("EE", "BUSINESS", "consumer"));
+    }
+}
@@ -0,0 +1,174 @@
+/**
+ * The MIT License
+ * Copyright (c) 2015 Estonian Information System Authority (RIA), Population Register Centre (VRK)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package ee.ria.xroad.proxy.messagelog;
+
+import ee.ria.xroad.common.util.CryptoUtils;
+
+import org.bouncycastle.asn1.ASN1ObjectIdentifier;
+import org.bouncycastle.asn1.oiw.OIWObjectIdentifiers;
+import org.bouncycastle.asn1.x500.X500Name;
+import org.bouncycastle.asn1.x509.AlgorithmIdentifier;
+import org.bouncycastle.asn1.x509.ExtendedKeyUsage;
+import org.bouncycastle.asn1.x509.Extension;
+import org.bouncycastle.asn1.x509.KeyPurposeId;
+import org.bouncycastle.cert.jcajce.JcaX509CertificateConverter;
+import org.bouncycastle.cert.jcajce.JcaX509v3CertificateBuilder;
+import org.bouncycastle.cms.jcajce.JcaSimpleSignerInfoGeneratorBuilder;
+import org.bouncycastle.operator.jcajce.JcaContentSignerBuilder;
+import org.bouncycastle.operator.jcajce.JcaDigestCalculatorProviderBuilder;
+import org.bouncycastle.tsp.TSPAlgorithms;
+import org.bouncycastle.tsp.TimeStampRequest;
+import org.bouncycastle.tsp.TimeStampResponseGenerator;
+import org.bouncycastle.tsp.TimeStampTokenGenerator;
+import org.eclipse.jetty.server.Request;
+import org.eclipse.jetty.server.Server;
+import org.eclipse.jetty.server.ServerConnector;
+import org.eclipse.jetty.server.handler.AbstractHandler;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import java.io.IOException;
+import java.math.BigInteger;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.cert.X509Certificate;
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Local time-stamping provider for tests. Signs the time-stamps with a generated key and responds
+ * after the configured delay.
+ */
+class TestTSP {
+
+    private static final String ASN1_OID_POLICY = "1.2.3.4";
+
+    private static final AtomicLong SERIAL = new AtomicLong();
+
+    private static KeyPair keyPair;
+    private static X509Certificate cert;
+
+    private final Server server = new Server(0);
+
+    private final AtomicInteger requests = new AtomicInteger();
+
+    private volatile long delay;
+    private volatile boolean failing;
+
+    /**
+     * @return the certificate of the test time-stamping providers
+     * @throws Exception if the certificate cannot be created
+     */
+    static synchronized X509Certificate getCert() throws Exception {
+        if (cert == null) {
+            KeyPairGenerator keyPairGenerator = KeyPairGenerator.getInstance("RSA");
+            keyPairGenerator.initialize(2048);
+            keyPair = keyPairGenerator.generateKeyPair();
+
+            X500Name name = new X500Name("C=EE, O=TEST, CN=Test TSP");
+            Date now = new Date();
+
+            JcaX509v3CertificateBuilder builder = new JcaX509v3CertificateBuilder(name, BigInteger.ONE,
+                    new Date(now.getTime() - TimeUnit.DAYS.toMillis(1)),
+                    new Date(now.getTime() + TimeUnit.DAYS.toMillis(1)), name, keyPair.getPublic());
+            builder.addExtension(Extension.extendedKeyUsage, true,
+                    new ExtendedKeyUsage(KeyPurposeId.id_kp_timeStamping));
+
+            cert = new JcaX509CertificateConverter().getCertificate(builder.build(
+                    new JcaContentSignerBuilder(CryptoUtils.SHA256WITHRSA_ID).build(keyPair.getPrivate())));
+        }
+
+        return cert;
+    }
+
+    void start() throws Exception {
+        getCert();
+
+        server.setHandler(new TspHandler());
+        server.start();
+    }
+
+    void stop() throws Exception {
+        server.stop();
+    }
+
+    String getUrl() {
+        return "http://127.0.0.1:" + ((ServerConnector) server.getConnectors()[0]).getLocalPort() + "/";
+    }
+
+    void setDelay(long delayMillis) {
+        this.delay = delayMillis;
+    }
+
+    void setFailing(boolean failing) {
+        this.failing = failing;
+    }
+
+    int getRequests() {
+        return requests.get();
+    }
+
+    private class TspHandler extends AbstractHandler {
+
+        @Override
+        public void handle(String target, Request baseRequest, HttpServletRequest request,
+                HttpServletResponse response) throws IOException {
+            requests.incrementAndGet();
+
+            try {
+                Thread.sleep(delay);
+
+                if (failing) {
+                    response.sendError(HttpServletResponse.SC_INTERNAL_SERVER_ERROR);
+                } else {
+                    byte[] tsResponse = createResponse(new TimeStampRequest(request.getInputStream()));
+
+                    response.setContentType("application/timestamp-reply");
+                    response.setContentLength(tsResponse.length);
+                    response.getOutputStream().write(tsResponse);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (Exception e) {
+                throw new IOException(e);
+            } finally {
+                baseRequest.setHandled(true);
+            }
+        }
+    }
+
+    private static byte[] createResponse(TimeStampRequest tsRequest) throws Exception {
+        TimeStampTokenGenerator tokenGenerator = new TimeStampTokenGenerator(
+                new JcaSimpleSignerInfoGeneratorBuilder().build(CryptoUtils.SHA256WITHRSA_ID,
+                        keyPair.getPrivate(), cert),
+                new JcaDigestCalculatorProviderBuilder().build().get(
+                        new AlgorithmIdentifier(OIWObjectIdentifiers.idSHA1)),
+                new ASN1ObjectIdentifier(ASN1_OID_POLICY));
+
+        return new TimeStampResponseGenerator(tokenGenerator, TSPAlgorithms.ALLOWED)
+                .generate(tsRequest, BigInteger.valueOf(SERIAL.incrementAndGet()), new Date()).getEncoded();
+    }
+}
@@ -47,7 +47,7 @@ class TestTimestamperWorker extends TimestamperWorker {
     protected AbstractTimestampRequest createSingleTimestampRequest(Long logRecord) {
         return new SingleTimestampRequest(logRecord) {
             @Override
-            protected AbstractTimestampRequest.TsRequest makeTsRequest(TimeStampRequest req, List<String> tspUrls)
+            protected AbstractTimestampRequest.TsRequest makeTsRequest(TimeStampRequest req, String url)
                     throws Exception {
                 synchronized (shouldFail) {
                     if (shouldFail) {
@@ -74,7 +74,7 @@ class TestTimestamperWorker extends TimestamperWorker {
     protected AbstractTimestampRequest createBatchTimestampRequest(Long[] logRecords, String[] signatureHashes) {
         return new BatchTimestampRequest(logRecords, signatureHashes) {
             @Override
-            protected AbstractTimestampRequest.TsRequest makeTsRequest(TimeStampRequest req, List<String> tspUrls)
+            protected AbstractTimestampRequest.TsRequest makeTsRequest(TimeStampRequest req, String url)
                     throws Exception {
                 synchronized (shouldFail) {
                     if (shouldFail) {
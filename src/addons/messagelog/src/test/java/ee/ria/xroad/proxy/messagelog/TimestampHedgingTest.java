@@ -0,0 +1,250 @@
+/**
+ * The MIT License
+ * Copyright (c) 2015 Estonian Information System Authority (RIA), Population Register Centre (VRK)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package ee.ria.xroad.proxy.messagelog;
+
+import java.nio.charset.StandardCharsets;
+import java.security.cert.X509Certificate;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.bouncycastle.tsp.TimeStampResponse;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import ee.ria.xroad.common.conf.globalconf.EmptyGlobalConf;
+import ee.ria.xroad.common.conf.globalconf.GlobalConf;
+import ee.ria.xroad.common.messagelog.MessageLogProperties;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Tests the hedged time-stamp requests against local time-stamping providers.
+ */
+public class TimestampHedgingTest {
+
+    private static final long SLOW_TSP_DELAY = 5000;
+
+    private TestTSP first;
+    private TestTSP second;
+
+    /**
+     * Trusts the certificate of the test time-stamping providers.
+     */
+    @BeforeClass
+    public static void setUpConf() {
+        GlobalConf.reload(new EmptyGlobalConf() {
+            @Override
+            public List<X509Certificate> getTspCertificates() {
+                try {
+                    return Collections.singletonList(TestTSP.getCert());
+                } catch (Exception e) {
+                    throw new RuntimeException(e);
+                }
+            }
+        });
+    }
+
+    /**
+     * Starts the time-stamping providers.
+     * @throws Exception if an error occurs
+     */
+    @Before
+    public void setUp() throws Exception {
+        System.clearProperty(MessageLogProperties.TIMESTAMPER_HEDGE_PERCENTILE);
+        System.clearProperty(MessageLogProperties.TIMESTAMPER_HEDGE_DELAY);
+
+        TspStatistics.clear();
+
+        first = new TestTSP();
+        first.start();
+
+        second = new TestTSP();
+        second.start();
+    }
+
+    /**
+     * Stops the time-stamping providers.
+     * @throws Exception if an error occurs
+     */
+    @After
+    public void tearDown() throws Exception {
+        first.stop();
+        second.stop();
+    }
+
+    /**
+     * Test that the request is sent only to the first TSP if it responds in time.
+     * @throws Exception if an error occurs
+     */
+    @Test
+    public void fastTspIsNotHedged() throws Exception {
+        Timestamper.TimestampSucceeded result = execute(first.getUrl(), second.getUrl());
+
+        assertEquals(first.getUrl(), result.getUrl());
+        assertEquals(1, first.getRequests());
+        assertEquals(0, second.getRequests());
+    }
+
+    /**
+     * Test that the request is also sent to the next TSP when the first one is slow and that the first
+     * verified response is used.
+     * @throws Exception if an error occurs
+     */
+    @Test
+    public void slowTspIsHedged() throws Exception {
+        System.setProperty(MessageLogProperties.TIMESTAMPER_HEDGE_DELAY, "100");
+        first.setDelay(SLOW_TSP_DELAY);
+
+        long start = System.currentTimeMillis();
+
+        Timestamper.TimestampSucceeded result = execute(first.getUrl(), second.getUrl());
+
+        assertEquals(second.getUrl(), result.getUrl());
+        assertTrue(System.currentTimeMillis() - start < SLOW_TSP_DELAY);
+        assertEquals(1, first.getRequests());
+        assertEquals(1, second.getRequests());
+    }
+
+    /**
+     * Test that the time waited for a TSP that lost to a hedged request is recorded, so that the TSP
+     * loses its place in the order.
+     * @throws Exception if an error occurs
+     */
+    @Test
+    public void cancelledTspIsRecordedAsSlow() throws Exception {
+        System.setProperty(MessageLogProperties.TIMESTAMPER_HEDGE_DELAY, "100");
+        first.setDelay(SLOW_TSP_DELAY);
+
+        execute(first.getUrl(), second.getUrl());
+
+        assertEquals(Arrays.asList(second.getUrl(), first.getUrl()),
+                TspStatistics.order(Arrays.asList(first.getUrl(), second.getUrl())));
+    }
+
+    /**
+     * Test that a request that fails while another one is pending is followed immediately by a request
+     * to the next TSP.
+     * @throws Exception if an error occurs
+     */
+    @Test
+    public void failureWhilePendingSendsNextRequest() throws Exception {
+        System.setProperty(MessageLogProperties.TIMESTAMPER_HEDGE_DELAY, "1000");
+        first.setDelay(SLOW_TSP_DELAY);
+        second.setFailing(true);
+
+        TestTSP third = new TestTSP();
+        third.start();
+
+        try {
+            long start = System.currentTimeMillis();
+
+            Timestamper.TimestampSucceeded result = execute(first.getUrl(), second.getUrl(), third.getUrl());
+
+            assertEquals(third.getUrl(), result.getUrl());
+            // The third TSP is asked right after the second fails, not after another hedge delay
+            assertTrue(System.currentTimeMillis() - start < 1800);
+        } finally {
+            third.stop();
+        }
+    }
+
+    /**
+     * Test that the requests are sent one after another when hedging is disabled.
+     * @throws Exception if an error occurs
+     */
+    @Test
+    public void hedgingDisabled() throws Exception {
+        System.setProperty(MessageLogProperties.TIMESTAMPER_HEDGE_PERCENTILE, "0");
+        System.setProperty(MessageLogProperties.TIMESTAMPER_HEDGE_DELAY, "100");
+        first.setDelay(500);
+
+        Timestamper.TimestampSucceeded result = execute(first.getUrl(), second.getUrl());
+
+        assertEquals(first.getUrl(), result.getUrl());
+        assertEquals(0, second.getRequests());
+    }
+
+    /**
+     * Test that a failed request is followed immediately by a request to the next TSP and that the
+     * failed TSP is tried last in the following requests.
+     * @throws Exception if an error occurs
+     */
+    @Test
+    public void failedTspIsTriedLast() throws Exception {
+        System.setProperty(MessageLogProperties.TIMESTAMPER_HEDGE_DELAY, String.valueOf(SLOW_TSP_DELAY));
+        first.setFailing(true);
+
+        long start = System.currentTimeMillis();
+
+        assertEquals(second.getUrl(), execute(first.getUrl(), second.getUrl()).getUrl());
+        assertTrue(System.currentTimeMillis() - start < SLOW_TSP_DELAY);
+        assertEquals(1, TspStatistics.get(first.getUrl()).getConsecutiveFailures());
+
+        assertEquals(second.getUrl(), execute(first.getUrl(), second.getUrl()).getUrl());
+        assertEquals(1, first.getRequests());
+        assertEquals(2, second.getRequests());
+    }
+
+    /**
+     * Test that the time-stamping fails if all the TSPs fail.
+     * @throws Exception if an error occurs
+     */
+    @Test
+    public void allTspsFail() throws Exception {
+        first.setFailing(true);
+        second.setFailing(true);
+
+        try {
+            execute(first.getUrl(), second.getUrl());
+
+            fail("Time-stamping should have failed");
+        } catch (RuntimeException e) {
+            assertEquals("Failed to get time stamp from any time-stamping providers", e.getMessage());
+        }
+
+        assertEquals(1, first.getRequests());
+        assertEquals(1, second.getRequests());
+    }
+
+    private static Timestamper.TimestampSucceeded execute(String... tspUrls) throws Exception {
+        AbstractTimestampRequest request = new AbstractTimestampRequest(new Long[] {1L}) {
+            @Override
+            byte[] getRequestData() {
+                return "data".getBytes(StandardCharsets.UTF_8);
+            }
+
+            @Override
+            Timestamper.TimestampResult result(TimeStampResponse tsResponse, String url) throws Exception {
+                return new Timestamper.TimestampSucceeded(logRecords, tsResponse.getTimeStampToken().getEncoded(),
+                        null, null, url);
+            }
+        };
+
+        return (Timestamper.TimestampSucceeded) request.execute(Arrays.asList(tspUrls));
+    }
+}
@@ -0,0 +1,109 @@
+/**
+ * The MIT License
+ * Copyright (c) 2015 Estonian Information System Authority (RIA), Population Register Centre (VRK)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package ee.ria.xroad.proxy.messagelog;
+
+import java.util.Arrays;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests the time-stamping provider statistics.
+ */
+public class TspStatisticsTest {
+
+    private static final String FAST = "http://fast";
+    private static final String SLOW = "http://slow";
+    private static final String FAILING = "http://failing";
+    private static final String UNKNOWN = "http://unknown";
+
+    /**
+     * Clears the statistics.
+     */
+    @Before
+    public void setUp() {
+        TspStatistics.clear();
+    }
+
+    /**
+     * Test that the TSPs are ordered by consecutive failures and median response time.
+     */
+    @Test
+    public void order() {
+        assertEquals(Arrays.asList(SLOW, FAST), TspStatistics.order(Arrays.asList(SLOW, FAST)));
+
+        TspStatistics.get(FAST).success(10);
+        TspStatistics.get(SLOW).success(1000);
+        TspStatistics.get(FAILING).success(1);
+        TspStatistics.get(FAILING).failure();
+
+        assertEquals(Arrays.asList(FAST, SLOW, UNKNOWN, FAILING),
+                TspStatistics.order(Arrays.asList(FAILING, UNKNOWN, SLOW, FAST)));
+
+        TspStatistics.get(FAILING).success(1);
+
+        assertEquals(Arrays.asList(FAILING, FAST, SLOW, UNKNOWN),
+                TspStatistics.order(Arrays.asList(FAILING, UNKNOWN, SLOW, FAST)));
+    }
+
+    /**
+     * Test that the hedge delay is the percentile of the recent response times.
+     */
+    @Test
+    public void hedgeDelay() {
+        TspStatistics statistics = TspStatistics.get(FAST);
+
+        for (int i = 1; i < 10; i++) {
+            statistics.success(i * 10);
+        }
+
+        assertEquals(5000, statistics.getHedgeDelay(95, 5000));
+
+        for (int i = 10; i <= 100; i++) {
+            statistics.success(i * 10);
+        }
+
+        long delay = statistics.getHedgeDelay(95, 5000);
+        assertTrue("Hedge delay " + delay, delay >= 940 && delay <= 960);
+
+        delay = statistics.getHedgeDelay(50, 5000);
+        assertTrue("Hedge delay " + delay, delay >= 490 && delay <= 510);
+    }
+
+    /**
+     * Test that the hedge delay is not shorter than the minimum, even if the TSP has responded immediately.
+     */
+    @Test
+    public void hedgeDelayFloor() {
+        TspStatistics statistics = TspStatistics.get(FAST);
+
+        for (int i = 0; i < 20; i++) {
+            statistics.success(0);
+        }
+
+        assertEquals(TspStatistics.MIN_HEDGE_DELAY_MILLIS, statistics.getHedgeDelay(95, 5000));
+    }
+}
@@ -49,8 +49,20 @@ public final class MessageLogProperties {
 
     private static final int DEFAULT_TIMESTAMPER_CLIENT_READ_TIMEOUT = 60000;
 
+    private static final int DEFAULT_TIMESTAMPER_HEDGE_PERCENTILE = 95;
+
+    private static final int DEFAULT_TIMESTAMPER_HEDGE_DELAY = 5000;
+
     private static final int DEFAULT_ARCHIVE_TRANSACTION_BATCH_SIZE = 10000;
 
+    private static final int DEFAULT_ARCHIVE_FETCH_SIZE = 100;
+
+    private static final int DEFAULT_ARCHIVE_UPDATE_BATCH_SIZE = 1000;
+
+    private static final int DEFAULT_GROUP_COMMIT_MAX_RECORDS = 100;
+
+    private static final int DEFAULT_GROUP_COMMIT_WINDOW = 0;
+
     private static final String PREFIX = "xroad.message-log.";
 
     /** Property name of the timestamper client connect timeout (milliseconds). */
@@ -59,6 +71,12 @@ public final class MessageLogProperties {
     /** Property name of the timestamper client read timeout (milliseconds). */
     public static final String TIMESTAMPER_CLIENT_READ_TIMEOUT = PREFIX + "timestamper-client-read-timeout";
 
+    /** Property name of the TSP latency percentile after which the time-stamp request is sent to the next TSP. */
+    public static final String TIMESTAMPER_HEDGE_PERCENTILE = PREFIX + "timestamper-hedge-percentile";
+
+    /** Property name of the hedge delay (milliseconds) used until the TSP has enough latency samples. */
+    public static final String TIMESTAMPER_HEDGE_DELAY = PREFIX + "timestamper-hedge-delay";
+
     public static final String TIMESTAMP_IMMEDIATELY = PREFIX + "timestamp-immediately";
 
     public static final String TIMESTAMP_RECORDS_LIMIT = PREFIX + "timestamp-records-limit";
@@ -75,12 +93,27 @@ public final class MessageLogProperties {
 
     public static final String ARCHIVE_TRANSACTION_BATCH = PREFIX + "archive-transaction-batch";
 
+    /** Property name of the number of records fetched from the database at a time when archiving. */
+    public static final String ARCHIVE_FETCH_SIZE = PREFIX + "archive-fetch-size";
+
+    /** Property name of the maximum number of records marked archived with one update statement. */
+    public static final String ARCHIVE_UPDATE_BATCH = PREFIX + "archive-update-batch";
+
     public static final String CLEAN_INTERVAL = PREFIX + "clean-interval";
 
     public static final String HASH_ALGO_ID = PREFIX + "hash-algo-id";
 
     public static final String ARCHIVE_TRANSFER_COMMAND = PREFIX + "archive-transfer-command";
 
+    /** Property name of the maximum number of message records saved in one transaction. */
+    public static final String GROUP_COMMIT_MAX_RECORDS = PREFIX + "group-commit-max-records";
+
+    /** Property name of the time to wait for more message records before saving them (milliseconds). */
+    public static final String GROUP_COMMIT_WINDOW = PREFIX + "group-commit-window";
+
+    /** Property name for toggling compression of the stored messages and signatures. */
+    public static final String MESSAGE_COMPRESSION_ENABLED = PREFIX + "message-compression";
+
     /** Property name for toggling SOAP body logging on/off **/
     public static final String SOAP_BODY_LOGGING_ENABLED = PREFIX + "soap-body-logging";
 
@@ -123,6 +156,23 @@ public final class MessageLogProperties {
                 DEFAULT_TIMESTAMPER_CLIENT_READ_TIMEOUT);
     }
 
+    /**
+     * @return the percentile of the recent response times of a TSP after which the time-stamp request is also sent
+     * to the next TSP, if no response has been received. A value of zero disables the hedged requests and the TSPs
+     * are tried one after another. '95' by default.
+     */
+    public static int getTimestamperHedgePercentile() {
+        return getInt(System.getProperty(TIMESTAMPER_HEDGE_PERCENTILE), DEFAULT_TIMESTAMPER_HEDGE_PERCENTILE);
+    }
+
+    /**
+     * @return the time in milliseconds to wait for a response from a TSP before also sending the time-stamp request
+     * to the next TSP, used until enough response times of the TSP have been recorded. '5000' by default.
+     */
+    public static int getTimestamperHedgeDelay() {
+        return getInt(System.getProperty(TIMESTAMPER_HEDGE_DELAY), DEFAULT_TIMESTAMPER_HEDGE_DELAY);
+    }
+
     /**
      * @return true if the time-stamp is created synchronously for each request message. This is a security policy to
      * guarantee the time-stamp at the time of logging the message.
@@ -161,6 +211,43 @@ public final class MessageLogProperties {
         return getInt(System.getProperty(ARCHIVE_TRANSACTION_BATCH), DEFAULT_ARCHIVE_TRANSACTION_BATCH_SIZE);
     }
 
+    /**
+     * @return the number of time-stamp records read with one query and the JDBC fetch size used when reading the
+     * message records to be archived, '100' by default.
+     */
+    public static int getArchiveFetchSize() {
+        return getInt(System.getProperty(ARCHIVE_FETCH_SIZE), DEFAULT_ARCHIVE_FETCH_SIZE);
+    }
+
+    /**
+     * @return the maximum number of log records marked archived with one update statement, '1000' by default.
+     */
+    public static int getArchiveUpdateBatchSize() {
+        return getInt(System.getProperty(ARCHIVE_UPDATE_BATCH), DEFAULT_ARCHIVE_UPDATE_BATCH_SIZE);
+    }
+
+    /**
+     * @return the maximum number of message records saved in one transaction, '100' by default.
+     */
+    public static int getGroupCommitMaxRecords() {
+        return getInt(System.getProperty(GROUP_COMMIT_MAX_RECORDS), DEFAULT_GROUP_COMMIT_MAX_RECORDS);
+    }
+
+    /**
+     * @return the time in milliseconds to wait for more message records before saving them in one
+     * transaction, '0' by default.
+     */
+    public static int getGroupCommitWindow() {
+        return getInt(System.getProperty(GROUP_COMMIT_WINDOW), DEFAULT_GROUP_COMMIT_WINDOW);
+    }
+
+    /**
+     * @return true if the messages and signatures are stored compressed in the database, 'false' by default.
+     */
+    public static boolean isMessageCompressionEnabled() {
+        return "true".equalsIgnoreCase(System.getProperty(MESSAGE_COMPRESSION_ENABLED, "false"));
+    }
+
     /**
      * @return the time interval as Cron expression for cleaning archived records from online database.
      */
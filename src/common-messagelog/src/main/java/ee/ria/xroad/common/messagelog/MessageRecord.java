@@ -31,11 +31,15 @@ import ee.ria.xroad.common.identifier.ClientId;
 import ee.ria.xroad.common.message.SoapMessageImpl;
 import ee.ria.xroad.common.signature.SignatureData;
 import ee.ria.xroad.common.util.CryptoUtils;
+
+import java.io.IOException;
+
 import lombok.AccessLevel;
 import lombok.EqualsAndHashCode;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.Setter;
+import lombok.SneakyThrows;
 import lombok.ToString;
 import lombok.extern.slf4j.Slf4j;
 
@@ -52,11 +56,9 @@ public class MessageRecord extends AbstractLogRecord {
     @Setter
     private String queryId;
 
-    @Getter
     @Setter
     private String message;
 
-    @Getter
     @Setter
     private String signature;
 
@@ -127,9 +129,34 @@ public class MessageRecord extends AbstractLogRecord {
         this.subsystemCode = clientId.getSubsystemCode();
     }
 
+    /**
+     * @return the message, decompressed if it was stored compressed
+     */
+    @SneakyThrows
+    public String getMessage() {
+        return MessageRecordCompression.decompress(message);
+    }
+
+    /**
+     * @return the signature, decompressed if it was stored compressed
+     */
+    @SneakyThrows
+    public String getSignature() {
+        return MessageRecordCompression.decompress(signature);
+    }
+
+    /**
+     * Compresses the message and the signature for storing. The getters keep returning the decompressed values.
+     * @throws IOException if compression fails
+     */
+    public void compress() throws IOException {
+        message = MessageRecordCompression.compress(message);
+        signature = MessageRecordCompression.compress(signature);
+    }
+
     @Override
     public Object[] getLinkingInfoFields() {
-        return new Object[] {getId(), getTime(), queryId, message, signature,
+        return new Object[] {getId(), getTime(), queryId, getMessage(), getSignature(),
                 memberClass, memberCode, subsystemCode};
     }
 
@@ -141,7 +168,7 @@ public class MessageRecord extends AbstractLogRecord {
         log.trace("toAsicContainer({})", queryId);
 
         SignatureData signatureData =
-                new SignatureData(signature, hashChainResult, hashChain);
+                new SignatureData(getSignature(), hashChainResult, hashChain);
 
         TimestampData timestamp = null;
 
@@ -152,7 +179,7 @@ public class MessageRecord extends AbstractLogRecord {
                     timestampHashChain);
         }
 
-        return new AsicContainer(message, signatureData, timestamp);
+        return new AsicContainer(getMessage(), signatureData, timestamp);
     }
 
     /**
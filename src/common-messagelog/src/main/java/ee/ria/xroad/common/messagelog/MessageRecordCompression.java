@@ -0,0 +1,102 @@
+/**
+ * The MIT License
+ * Copyright (c) 2015 Estonian Information System Authority (RIA), Population Register Centre (VRK)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package ee.ria.xroad.common.messagelog;
+
+import static ee.ria.xroad.common.util.CryptoUtils.decodeBase64;
+import static ee.ria.xroad.common.util.CryptoUtils.encodeBase64;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+
+import org.apache.commons.io.IOUtils;
+
+/**
+ * Compresses the message and signature texts of message records. A compressed text is the base 64 encoded
+ * Deflate stream of its UTF-8 bytes, prefixed with a format marker. Texts without the marker are stored as
+ * they are, so records saved before compression was enabled remain readable.
+ */
+final class MessageRecordCompression {
+
+    static final String DEFLATE_PREFIX = "deflate:";
+
+    private MessageRecordCompression() {
+    }
+
+    /**
+     * @param text the text to compress
+     * @return the compressed text, or the text itself if it is already compressed or compression would not
+     * make it shorter
+     * @throws IOException if compression fails
+     */
+    static String compress(String text) throws IOException {
+        if (text == null || isCompressed(text)) {
+            return text;
+        }
+
+        // Favour speed, the compression runs on the message logging path
+        Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        try (DeflaterOutputStream deflaterOut = new DeflaterOutputStream(out, deflater)) {
+            deflaterOut.write(text.getBytes(StandardCharsets.UTF_8));
+        } finally {
+            deflater.end();
+        }
+
+        String compressed = DEFLATE_PREFIX + encodeBase64(out.toByteArray());
+
+        return compressed.length() < text.length() ? compressed : text;
+    }
+
+    /**
+     * @param text the possibly compressed text
+     * @return the decompressed text, or the text itself if it is not compressed
+     * @throws IOException if decompression fails
+     */
+    static String decompress(String text) throws IOException {
+        if (text == null || !isCompressed(text)) {
+            return text;
+        }
+
+        Inflater inflater = new Inflater();
+
+        byte[] compressed = decodeBase64(text.substring(DEFLATE_PREFIX.length()));
+
+        try (InputStream in = new InflaterInputStream(new ByteArrayInputStream(compressed), inflater)) {
+            return new String(IOUtils.toByteArray(in), StandardCharsets.UTF_8);
+        } finally {
+            inflater.end();
+        }
+    }
+
+    static boolean isCompressed(String text) {
+        return text.startsWith(DEFLATE_PREFIX);
+    }
+}
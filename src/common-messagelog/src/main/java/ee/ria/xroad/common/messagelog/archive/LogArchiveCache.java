@@ -22,43 +22,35 @@
  */
 package ee.ria.xroad.common.messagelog.archive;
 
-import ee.ria.xroad.common.CodedException;
 import ee.ria.xroad.common.asic.AsicContainerNameGenerator;
 import ee.ria.xroad.common.messagelog.MessageRecord;
 import lombok.SneakyThrows;
 import lombok.extern.slf4j.Slf4j;
-import org.apache.commons.io.FileUtils;
 import org.apache.commons.io.IOUtils;
 
+import java.io.BufferedOutputStream;
 import java.io.Closeable;
-import java.io.File;
-import java.io.FileInputStream;
-import java.io.FileOutputStream;
 import java.io.IOException;
-import java.io.InputStream;
 import java.io.OutputStream;
-import java.nio.file.Files;
-import java.nio.file.Path;
-import java.nio.file.Paths;
-import java.util.ArrayList;
 import java.util.Date;
-import java.util.List;
 import java.util.Set;
 import java.util.TreeSet;
 import java.util.function.Supplier;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipOutputStream;
 
-import static ee.ria.xroad.common.ErrorCodes.X_IO_ERROR;
 import static ee.ria.xroad.common.messagelog.MessageLogProperties.getArchiveMaxFilesize;
 import static ee.ria.xroad.common.messagelog.archive.LogArchiveWriter.MAX_RANDOM_GEN_ATTEMPTS;
 
 /**
- * Encapsulates logic of creating log archive from ASiC containers.
+ * Encapsulates logic of creating log archive from ASiC containers. The containers are streamed directly into the
+ * archive ZIP and the linking info is updated as each container is added, so every container is written only once.
  */
 @Slf4j
 class LogArchiveCache implements Closeable {
 
+    private static final int BUFFER_SIZE = 64 * 1024;
+
     private enum State {
         NEW,
         ADDING,
@@ -67,31 +59,38 @@ class LogArchiveCache implements Closeable {
 
     private final Supplier<String> randomGenerator;
     private final LinkingInfoBuilder linkingInfoBuilder;
-    private final Path workingDir;
 
     private AsicContainerNameGenerator nameGenerator;
     private State state = State.NEW;
 
-    private File archiveContentDir;
-    private File tempArchive;
+    private ZipOutputStream archiveOut;
 
-    private List<String> archiveFileNames;
     private Set<Date> creationTimes;
     private long archivesTotalSize;
 
     LogArchiveCache(Supplier<String> randomGenerator,
-                    LinkingInfoBuilder linkingInfoBuilder,
-                    Path workingDir) {
+                    LinkingInfoBuilder linkingInfoBuilder) {
         this.randomGenerator = randomGenerator;
         this.linkingInfoBuilder = linkingInfoBuilder;
-        this.workingDir = workingDir;
-        reset();
+        resetCacheState();
+    }
+
+    /**
+     * Starts a new archive, the ZIP entries are written to the given output.
+     * @param out the archive output, closed when the archive is finished
+     */
+    void start(OutputStream out) {
+        close();
+
+        archiveOut = new ZipOutputStream(new BufferedOutputStream(out, BUFFER_SIZE));
+        state = State.NEW;
+
+        resetCacheState();
     }
 
     void add(MessageRecord messageRecord) throws Exception {
         try {
             validateMessageRecord(messageRecord);
-            handleRotation();
             cacheRecord(messageRecord);
             updateState();
         } catch (Exception e) {
@@ -99,42 +98,32 @@ class LogArchiveCache implements Closeable {
         }
     }
 
-    InputStream getArchiveFile() throws IOException {
-        tempArchive = File.createTempFile(
-                "xroad-log-archive-zip", ".tmp", workingDir.toFile());
-        try (ZipOutputStream out = new ZipOutputStream(new FileOutputStream(tempArchive))) {
-            addAsicContainersToArchive(out);
-            addLinkingInfoToArchive(out);
+    /**
+     * Adds the linking info to the archive and closes the archive output.
+     * @throws IOException if the archive cannot be finished
+     */
+    void finish() throws IOException {
+        if (archiveOut == null) {
+            throw new IOException("Log archive is not open");
+        }
+
+        try {
+            addLinkingInfoToArchive(archiveOut);
+
+            archiveOut.close();
+            archiveOut = null;
         } catch (Exception e) {
             handleCacheError(e);
         }
-
-        return new FileInputStream(tempArchive);
     }
 
     @SneakyThrows
     private void handleCacheError(Exception e) {
-        deleteArchiveArtifacts();
+        close();
 
         throw e;
     }
 
-    private void addAsicContainersToArchive(ZipOutputStream zipOut)
-            throws IOException {
-        for (String eachName : archiveFileNames) {
-            ZipEntry entry = new ZipEntry(eachName);
-
-            zipOut.putNextEntry(entry);
-
-            try (InputStream archiveInput =
-                    Files.newInputStream(createTempAsicPath(eachName))) {
-                IOUtils.copy(archiveInput, zipOut);
-            }
-
-            zipOut.closeEntry();
-        }
-    }
-
     private void addLinkingInfoToArchive(ZipOutputStream zipOut)
             throws IOException {
         ZipEntry linkingInfoEntry = new ZipEntry("linkinginfo");
@@ -159,8 +148,10 @@ class LogArchiveCache implements Closeable {
     }
 
     @Override
-    public void close() throws IOException {
-        deleteArchiveArtifacts();
+    public void close() {
+        IOUtils.closeQuietly(archiveOut);
+
+        archiveOut = null;
     }
 
     private void validateMessageRecord(MessageRecord record)
@@ -169,14 +160,10 @@ class LogArchiveCache implements Closeable {
             throw new IllegalArgumentException(
                     "Message record to be archived must not be null");
         }
-    }
 
-    private void handleRotation() throws IOException {
-        if (state != State.ROTATING) {
-            return;
+        if (archiveOut == null) {
+            throw new IOException("Log archive is not open");
         }
-
-        reset();
     }
 
     private void cacheRecord(MessageRecord messageRecord) throws Exception {
@@ -200,46 +187,14 @@ class LogArchiveCache implements Closeable {
                 nameGenerator.getArchiveFilename(record.getQueryId(), record.isResponse() ? "response" : "request");
 
         linkingInfoBuilder.addNextFile(archiveFilename, containerBytes);
-        archiveFileNames.add(archiveFilename);
         archivesTotalSize += containerBytes.length;
 
-        try (OutputStream os =
-                Files.newOutputStream(createTempAsicPath(archiveFilename))) {
-            os.write(containerBytes);
-        }
-    }
-
-    private Path createTempAsicPath(String archiveFilename) {
-        return Paths.get(archiveContentDir.getAbsolutePath(), archiveFilename);
-    }
-
-    private void reset() {
-        try {
-            resetArchive();
-            resetCacheState();
-        } catch (IOException e) {
-            log.error("Resetting log archive cache failed, cause:", e);
-            throw new CodedException(X_IO_ERROR,
-                    "Failed to reset log archive cache");
-        }
-    }
-
-    private void resetArchive() throws IOException {
-        deleteArchiveArtifacts();
-
-        archiveContentDir = Files.createTempDirectory(
-                    workingDir,
-                    "xroad-log-archive"
-                ).toFile();
-    }
-
-    private void deleteArchiveArtifacts() {
-        FileUtils.deleteQuietly(archiveContentDir);
-        FileUtils.deleteQuietly(tempArchive);
+        archiveOut.putNextEntry(new ZipEntry(archiveFilename));
+        archiveOut.write(containerBytes);
+        archiveOut.closeEntry();
     }
 
     private void resetCacheState() {
-        archiveFileNames = new ArrayList<>();
         creationTimes = new TreeSet<>();
         archivesTotalSize = 0;
 
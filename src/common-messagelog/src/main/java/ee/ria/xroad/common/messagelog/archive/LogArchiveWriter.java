@@ -35,8 +35,6 @@ import static org.apache.commons.lang3.RandomStringUtils.randomAlphanumeric;
 import java.io.Closeable;
 import java.io.File;
 import java.io.IOException;
-import java.io.InputStream;
-import java.io.OutputStream;
 import java.nio.channels.Channels;
 import java.nio.channels.WritableByteChannel;
 import java.nio.charset.Charset;
@@ -45,7 +43,6 @@ import java.nio.file.Files;
 import java.nio.file.Path;
 import java.text.SimpleDateFormat;
 
-import org.apache.commons.io.IOUtils;
 import org.apache.commons.lang.ArrayUtils;
 
 import ee.ria.xroad.common.messagelog.LogRecord;
@@ -55,7 +52,8 @@ import lombok.extern.slf4j.Slf4j;
 
 /**
  * Class for writing log records to zip file containing ASiC containers
- * (archive).
+ * (archive). The archive is written to a temporary file in the output
+ * directory and atomically renamed once it is complete.
  */
 @Slf4j
 public class LogArchiveWriter implements Closeable {
@@ -78,16 +76,13 @@ public class LogArchiveWriter implements Closeable {
     protected WritableByteChannel archiveOut;
 
     private Path archiveTmp;
-    private Path lastHashStepTmp;
 
     /**
      * Creates new LogArchiveWriter
      * @param outputPath directory where the log archive is created.
-     * @param workingPath directory where the temporary files are stored
      * @param archiveBase interface to archive database.
      */
-    public LogArchiveWriter(Path outputPath, Path workingPath,
-            LogArchiveBase archiveBase) {
+    public LogArchiveWriter(Path outputPath, LogArchiveBase archiveBase) {
         this.outputPath = outputPath;
         this.archiveBase = archiveBase;
 
@@ -98,8 +93,7 @@ public class LogArchiveWriter implements Closeable {
 
         this.logArchiveCache = new LogArchiveCache(
             LogArchiveWriter::generateRandom,
-            linkingInfoBuilder,
-            workingPath
+            linkingInfoBuilder
         );
     }
 
@@ -135,14 +129,13 @@ public class LogArchiveWriter implements Closeable {
         log.trace("Closing log archive writer ...");
 
         try {
-            if (archiveAsicContainers()) {
+            if (archiveOut != null && archiveAsicContainers()) {
                 closeOutputs();
 
                 saveArchive();
-
-                logArchiveCache.close();
             }
         } finally {
+            logArchiveCache.close();
             clearTempArchive();
         }
     }
@@ -154,15 +147,12 @@ public class LogArchiveWriter implements Closeable {
 
         // Without it, temp file remains on the disk even after closing.
         deleteQuietly(archiveTmp.toFile());
-        deleteQuietly(lastHashStepTmp.toFile());
 
         archiveTmp = null;
-        lastHashStepTmp = null;
     }
 
     protected WritableByteChannel createArchiveOutput() throws Exception {
         archiveTmp = createTempFile(outputPath, "mlogtmp", null);
-        lastHashStepTmp = createTempFile(outputPath, "lasthashsteptmp", null);
 
         return createOutputToTempFile(archiveTmp);
     }
@@ -176,7 +166,7 @@ public class LogArchiveWriter implements Closeable {
 
     protected void rotate() throws Exception {
         log.trace("rotate()");
-        archiveAsicContainers();
+        logArchiveCache.finish();
 
         closeOutputs();
         archiveOut = null;
@@ -184,13 +174,11 @@ public class LogArchiveWriter implements Closeable {
         saveArchive();
 
         archiveTmp = null;
-        lastHashStepTmp = null;
     }
 
     private boolean archiveAsicContainers() {
-        try (InputStream input = logArchiveCache.getArchiveFile();
-                OutputStream output = Channels.newOutputStream(archiveOut)) {
-            IOUtils.copy(input, output);
+        try {
+            logArchiveCache.finish();
         } catch (IOException e) {
             log.error("Failed to archive ASiC containers due to IO error", e);
             return false;
@@ -215,6 +203,8 @@ public class LogArchiveWriter implements Closeable {
         }
 
         archiveOut = createArchiveOutput();
+
+        logArchiveCache.start(Channels.newOutputStream(archiveOut));
     }
 
     private void saveArchive() throws IOException {
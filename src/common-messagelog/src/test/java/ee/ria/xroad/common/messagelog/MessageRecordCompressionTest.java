@@ -0,0 +1,95 @@
+/**
+ * The MIT License
+ * Copyright (c) 2015 Estonian Information System Authority (RIA), Population Register Centre (VRK)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package ee.ria.xroad.common.messagelog;
+
+import static ee.ria.xroad.common.messagelog.MessageRecordCompression.compress;
+import static ee.ria.xroad.common.messagelog.MessageRecordCompression.decompress;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import org.apache.commons.lang3.StringUtils;
+import org.junit.Test;
+
+import ee.ria.xroad.common.identifier.ClientId;
+
+/**
+ * Tests the compression of message record texts.
+ */
+public class MessageRecordCompressionTest {
+
+    private static final String MESSAGE = "<SOAP-ENV:Envelope>"
+            + StringUtils.repeat("<id:memberCode>ÕÄÖÜ</id:memberCode>", 100) + "</SOAP-ENV:Envelope>";
+
+    /**
+     * Test that the compressed text is marked, shorter and decompresses to the original text.
+     * @throws Exception in case of any unexpected errors
+     */
+    @Test
+    public void compressAndDecompress() throws Exception {
+        String compressed = compress(MESSAGE);
+
+        assertTrue(compressed.startsWith(MessageRecordCompression.DEFLATE_PREFIX));
+        assertTrue(compressed.length() < MESSAGE.length());
+        assertEquals(MESSAGE, decompress(compressed));
+    }
+
+    /**
+     * Test that uncompressed texts are returned as they are.
+     * @throws Exception in case of any unexpected errors
+     */
+    @Test
+    public void uncompressedTextIsReadAsIs() throws Exception {
+        assertEquals(MESSAGE, decompress(MESSAGE));
+        assertNull(decompress(null));
+    }
+
+    /**
+     * Test that texts are not compressed twice and texts that do not get shorter are kept uncompressed.
+     * @throws Exception in case of any unexpected errors
+     */
+    @Test
+    public void compressOnlyWhenUseful() throws Exception {
+        String compressed = compress(MESSAGE);
+
+        assertEquals(compressed, compress(compressed));
+        assertEquals("<a/>", compress("<a/>"));
+        assertNull(compress(null));
+    }
+
+    /**
+     * Test that the linking info of a record does not depend on whether its texts are stored compressed.
+     * @throws Exception in case of any unexpected errors
+     */
+    @Test
+    public void linkingInfoIsComputedFromDecompressedTexts() throws Exception {
+        ClientId clientId = ClientId.create("EE", "BUSINESS", "consumer");
+        MessageRecord record = new MessageRecord("qid", MESSAGE, MESSAGE, false, clientId);
+        Object[] uncompressedFields = record.getLinkingInfoFields();
+
+        record.compress();
+
+        assertArrayEquals(uncompressedFields, record.getLinkingInfoFields());
+    }
+}
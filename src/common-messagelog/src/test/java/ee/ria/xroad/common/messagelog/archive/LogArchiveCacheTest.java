@@ -33,10 +33,10 @@ import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.when;
 
 import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.nio.charset.StandardCharsets;
-import java.nio.file.Paths;
 import java.util.Arrays;
 import java.util.Date;
 import java.util.List;
@@ -44,7 +44,6 @@ import java.util.function.Supplier;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipInputStream;
 
-import org.apache.commons.io.IOUtils;
 import org.hamcrest.Description;
 import org.hamcrest.Matcher;
 import org.hamcrest.TypeSafeMatcher;
@@ -79,6 +78,8 @@ public class LogArchiveCacheTest {
     private static final long LOG_TIME_REQUEST_LARGE_EARLIEST = 1428664660610L;
     private static final long LOG_TIME_RESPONSE_NORMAL = 1428664927050L;
 
+    private ByteArrayOutputStream archiveOut;
+
     private LogArchiveCache cache = createCache(getMockRandomGenerator());
 
     @Rule
@@ -97,10 +98,10 @@ public class LogArchiveCacheTest {
         cache.add(createRequestRecordNormal());
 
         // Then
-        assertZip(expectedNormalSizeRequestEntryName(), getArchiveBytes());
         assertFalse(
                 "Should not rotate, as entry is small enough to fit in.",
                 cache.isRotating());
+        assertZip(expectedNormalSizeRequestEntryName(), getArchiveBytes());
 
         Date expectedCreationTime = normalRequestCreationTime();
         assertEquals(expectedCreationTime, cache.getStartTime());
@@ -120,10 +121,10 @@ public class LogArchiveCacheTest {
         cache.add(createRequestRecordTooLarge());
 
         // Then
-        assertZip(expectedLargeSizeRequestEntryName(), getArchiveBytes());
         assertTrue(
                 "Entry is so large that rotation must take place",
                 cache.isRotating());
+        assertZip(expectedLargeSizeRequestEntryName(), getArchiveBytes());
     }
 
     /**
@@ -150,18 +151,18 @@ public class LogArchiveCacheTest {
         // First record
         cache.add(createRequestRecordNormal());
 
-        assertZip(expectedNormalSizeRequestEntryName(), getArchiveBytes());
         assertFalse("Step 1: no need to rotate yet.", cache.isRotating());
 
         // Second record
         cache.add(createRequestRecordTooLarge());
 
-        assertZip(expectedNormalAndLargeRequestEntryNames(), getArchiveBytes());
         assertTrue("Step 2: should be rotated.", cache.isRotating());
         assertEquals(largeRequestCreationTime(), cache.getStartTime());
         assertEquals(normalRequestCreationTime(), cache.getEndTime());
+        assertZip(expectedNormalAndLargeRequestEntryNames(), getArchiveBytes());
 
         // Third record
+        startArchive();
         cache.add(createResponseRecordNormal());
 
         assertZip(expectedNormalSizeResponseEntryName(), getArchiveBytes());
@@ -184,15 +185,38 @@ public class LogArchiveCacheTest {
 
         // First record
         cache.add(createRequestRecordNormal());
-        assertZip(expectedNormalSizeRequestEntryName(), getArchiveBytes());
 
         // Record with conflicting name
         cache.add(createRequestRecordNormal());
         assertZip(expectedConflictingEntryNames(), getArchiveBytes());
     }
 
+    /**
+     * Test to ensure records cannot be added after the archive has been finished.
+     * @throws Exception in case of any unexpected errors
+     */
+    @Test
+    public void doNotAllowAddingToFinishedArchive() throws Exception {
+        setMaxArchiveSizeDefault();
+
+        cache.add(createRequestRecordNormal());
+        cache.finish();
+
+        thrown.expect(IOException.class);
+        thrown.expectMessage("Log archive is not open");
+
+        cache.add(createRequestRecordNormal());
+    }
+
     private byte[] getArchiveBytes() throws IOException {
-        return IOUtils.toByteArray(cache.getArchiveFile());
+        cache.finish();
+
+        return archiveOut.toByteArray();
+    }
+
+    private void startArchive() {
+        archiveOut = new ByteArrayOutputStream();
+        cache.start(archiveOut);
     }
 
     private void setMaxArchiveSizeSmall() {
@@ -369,11 +393,15 @@ public class LogArchiveCacheTest {
     }
 
     private LogArchiveCache createCache(Supplier<String> randomGenerator) {
-        return new LogArchiveCache(
+        LogArchiveCache logArchiveCache = new LogArchiveCache(
             randomGenerator,
-            mockLinkingInfoBuilder(),
-            Paths.get("build/tmp/")
+            mockLinkingInfoBuilder()
         );
+
+        archiveOut = new ByteArrayOutputStream();
+        logArchiveCache.start(archiveOut);
+
+        return logArchiveCache;
     }
 
     @RequiredArgsConstructor
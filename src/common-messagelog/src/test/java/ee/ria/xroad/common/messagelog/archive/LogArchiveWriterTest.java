@@ -0,0 +1,236 @@
+/**
+ * The MIT License
+ * Copyright (c) 2015 Estonian Information System Authority (RIA), Population Register Centre (VRK)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package ee.ria.xroad.common.messagelog.archive;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import ee.ria.xroad.common.asic.AsicContainer;
+import ee.ria.xroad.common.identifier.ClientId;
+import ee.ria.xroad.common.messagelog.LogRecord;
+import ee.ria.xroad.common.messagelog.MessageLogProperties;
+import ee.ria.xroad.common.messagelog.MessageRecord;
+import ee.ria.xroad.common.messagelog.TimestampRecord;
+import ee.ria.xroad.common.util.CryptoUtils;
+
+/**
+ * Tests the archive files written by the log archive writer.
+ */
+public class LogArchiveWriterTest {
+
+    private static final Path ARCHIVE_PATH = Paths.get("build/archivewritertest");
+
+    private static final int NUM_RECORDS = 6;
+
+    private static final String HASH_ALGO_ID = CryptoUtils.SHA512_ID;
+
+    private final List<DigestEntry> createdArchives = new ArrayList<>();
+
+    /**
+     * Creates the archive directory.
+     * @throws Exception in case of any unexpected errors
+     */
+    @Before
+    public void setUp() throws Exception {
+        FileUtils.deleteDirectory(ARCHIVE_PATH.toFile());
+        Files.createDirectories(ARCHIVE_PATH);
+
+        System.setProperty(MessageLogProperties.ARCHIVE_PATH, ARCHIVE_PATH.toString());
+        System.setProperty(MessageLogProperties.HASH_ALGO_ID, HASH_ALGO_ID);
+        System.clearProperty(MessageLogProperties.ARCHIVE_MAX_FILESIZE);
+
+        createdArchives.add(new DigestEntry("0123456789abcdef", "mlog-previous.zip"));
+    }
+
+    /**
+     * Removes the archive directory.
+     * @throws Exception in case of any unexpected errors
+     */
+    @After
+    public void tearDown() throws Exception {
+        System.clearProperty(MessageLogProperties.ARCHIVE_MAX_FILESIZE);
+
+        FileUtils.deleteDirectory(ARCHIVE_PATH.toFile());
+    }
+
+    /**
+     * Test to ensure the archive contains the ASiC containers and the linking info that chains the containers
+     * to the previous archive, and that no temporary files are left behind.
+     * @throws Exception in case of any unexpected errors
+     */
+    @Test
+    public void writeArchive() throws Exception {
+        List<MessageRecord> records = writeRecords(NUM_RECORDS);
+
+        assertEquals(2, createdArchives.size());
+        assertArchiveFiles(1);
+        assertArchive(createdArchives.get(0), createdArchives.get(1), records);
+    }
+
+    /**
+     * Test to ensure the archive is rotated when it grows too large.
+     * @throws Exception in case of any unexpected errors
+     */
+    @Test
+    public void writeAndRotate() throws Exception {
+        // Rotate after every third record
+        System.setProperty(MessageLogProperties.ARCHIVE_MAX_FILESIZE,
+                Long.toString(2 * containerSize(nextMessageRecord(0)) + 1));
+
+        writeRecords(NUM_RECORDS);
+
+        assertEquals(3, createdArchives.size());
+        assertArchiveFiles(2);
+    }
+
+    private List<MessageRecord> writeRecords(int count) throws Exception {
+        List<MessageRecord> records = new ArrayList<>();
+
+        try (LogArchiveWriter writer = new LogArchiveWriter(ARCHIVE_PATH, new TestLogArchiveBase())) {
+            for (int i = 1; i <= count; i++) {
+                MessageRecord record = nextMessageRecord(i);
+                records.add(record);
+
+                writer.write(record);
+            }
+        }
+
+        return records;
+    }
+
+    private static void assertArchiveFiles(int count) {
+        File[] files = ARCHIVE_PATH.toFile().listFiles();
+
+        assertNotNull(files);
+        assertEquals("Only the archive files must remain", count, files.length);
+
+        for (File file : files) {
+            assertTrue(file.getName().startsWith("mlog-"));
+        }
+    }
+
+    private void assertArchive(DigestEntry previous, DigestEntry created, List<MessageRecord> records)
+            throws Exception {
+        List<String> entryNames = new ArrayList<>();
+        String linkingInfo = null;
+
+        StringBuilder expectedLinkingInfo = new StringBuilder()
+                .append(previous.getDigest()).append(' ')
+                .append(previous.getFileName()).append(' ')
+                .append(HASH_ALGO_ID).append('\n');
+        String lastDigest = previous.getDigest();
+
+        try (ZipInputStream zip = new ZipInputStream(
+                new FileInputStream(ARCHIVE_PATH.resolve(created.getFileName()).toFile()))) {
+            ZipEntry entry;
+
+            while ((entry = zip.getNextEntry()) != null) {
+                byte[] bytes = IOUtils.toByteArray(zip);
+
+                if ("linkinginfo".equals(entry.getName())) {
+                    linkingInfo = new String(bytes, StandardCharsets.UTF_8);
+                    continue;
+                }
+
+                MessageRecord record = records.get(entryNames.size());
+                entryNames.add(entry.getName());
+
+                assertTrue(entry.getName().startsWith(record.getQueryId() + "-request-"));
+
+                AsicContainer container = AsicContainer.read(new ByteArrayInputStream(bytes));
+                assertEquals(record.getMessage(), container.getMessage());
+
+                lastDigest = hexDigest(lastDigest + hexDigest(bytes));
+                expectedLinkingInfo.append(lastDigest).append(' ').append(entry.getName()).append('\n');
+            }
+        }
+
+        assertEquals(records.size(), entryNames.size());
+        assertEquals(expectedLinkingInfo.toString(), linkingInfo);
+        assertEquals(lastDigest, created.getDigest());
+    }
+
+    private static long containerSize(MessageRecord record) throws Exception {
+        return record.toAsicContainer().getBytes().length;
+    }
+
+    private static String hexDigest(String input) throws Exception {
+        return hexDigest(input.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static String hexDigest(byte[] input) throws Exception {
+        return CryptoUtils.hexDigest(HASH_ALGO_ID, input);
+    }
+
+    private static MessageRecord nextMessageRecord(long recordNo) {
+        TimestampRecord timestamp = new TimestampRecord();
+        timestamp.setId(0L);
+        timestamp.setTimestamp(CryptoUtils.encodeBase64("timestamp"));
+        timestamp.setHashChainResult("foo");
+
+        MessageRecord record = new MessageRecord("qid" + recordNo, "msg" + recordNo, "sig" + recordNo, false,
+                ClientId.create("memberClass", "memberCode", "subsystemCode"));
+        record.setId(recordNo);
+        record.setTime(1428664947372L + recordNo);
+        record.setTimestampRecord(timestamp);
+        record.setTimestampHashChain("foo");
+
+        return record;
+    }
+
+    private class TestLogArchiveBase implements LogArchiveBase {
+        @Override
+        public void markArchiveCreated(DigestEntry lastArchive) {
+            createdArchives.add(lastArchive);
+        }
+
+        @Override
+        public void markRecordArchived(LogRecord logRecord) {
+            // Do nothing.
+        }
+
+        @Override
+        public DigestEntry loadLastArchive() {
+            return createdArchives.get(createdArchives.size() - 1);
+        }
+    }
+}
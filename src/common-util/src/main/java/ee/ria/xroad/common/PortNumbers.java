@@ -45,6 +45,9 @@ public final class PortNumbers {
     /** Signer listens for HTTP queries. */
     public static final int SIGNER_PORT = 5558;
 
+    /** Signer listens for binary protocol requests. */
+    public static final int SIGNER_BINARY_PORT = 5560;
+
     /** Signer Admin port. */
     public static final int SIGNER_ADMIN_PORT = 5559;
 
@@ -128,6 +128,10 @@ public final class SystemProperties {
     public static final String OCSP_RESPONDER_CLIENT_READ_TIMEOUT =
             PREFIX + "proxy.ocsp-responder-client-read-timeout";
 
+    /** Property name of the Ocsp Responder response cache period. */
+    public static final String OCSP_RESPONDER_CACHE_PERIOD =
+            PREFIX + "proxy.ocsp-responder-cache-period";
+
     /** Property name of the flag to turn off proxy client SSL verification. */
     public static final String PROXY_VERIFY_CLIENT_CERT =
             PREFIX + "proxy.verify-client-cert";
@@ -213,6 +217,18 @@ public final class SystemProperties {
     private static final String CLIENTPROXY_POOL_REUSE_CONNECTIONS =
             PREFIX + "proxy.pool-enable-connection-reuse";
 
+    /** Property name of the switch that makes client proxy decode, sign and send requests on the request thread */
+    private static final String CLIENTPROXY_SINGLE_THREAD_PIPELINE =
+            PREFIX + "proxy.client-single-thread-pipeline";
+
+    /** Property name of the size up to which a message's attachments are cached in memory */
+    private static final String PROXY_ATTACHMENT_CACHE_MEMORY_THRESHOLD =
+            PREFIX + "proxy.attachment-cache-memory-threshold";
+
+    /** Property name of the total memory that may be used for caching attachments of concurrent messages */
+    private static final String PROXY_ATTACHMENT_CACHE_MEMORY_BUDGET =
+            PREFIX + "proxy.attachment-cache-memory-budget";
+
     private static final String PROXY_HEALTH_CHECK_INTERFACE = PREFIX + "proxy.health-check-interface";
 
     private static final String PROXY_HEALTH_CHECK_PORT = PREFIX + "proxy.health-check-port";
@@ -255,6 +271,12 @@ public final class SystemProperties {
      * for the ClientProxy can be actually reused **/
     private static final String DEFAULT_CLIENTPROXY_POOL_REUSE_CONNECTIONS = "false";
 
+    private static final String DEFAULT_CLIENTPROXY_SINGLE_THREAD_PIPELINE = "false";
+
+    private static final String DEFAULT_PROXY_ATTACHMENT_CACHE_MEMORY_THRESHOLD = "65536";
+
+    private static final String DEFAULT_PROXY_ATTACHMENT_CACHE_MEMORY_BUDGET = "67108864";
+
     private static final String DEFAULT_PROXY_HEALTH_CHECK_INTERFACE = "0.0.0.0";
 
     private static final String DEFAULT_PROXY_HEALTH_CHECK_PORT = "0";
@@ -265,6 +287,24 @@ public final class SystemProperties {
 
     private static final int OCSP_VERIFIER_CACHE_PERIOD_MAX = 180;
 
+    /** Property name of the period (in seconds) for which validated certification paths are cached */
+    private static final String CERT_PATH_CACHE_PERIOD =
+            PREFIX + "proxy.cert-path-cache-period";
+
+    private static final String DEFAULT_CERT_PATH_CACHE_PERIOD = "3600";
+
+    /** Property name of the maximum time (in microseconds) a signing request waits for other requests to batch with */
+    private static final String PROXY_BATCH_SIGNING_LINGER_TIME =
+            PREFIX + "proxy.batch-signing-linger-time";
+
+    private static final String DEFAULT_PROXY_BATCH_SIGNING_LINGER_TIME = "0";
+
+    /** Property name of the maximum number of signing requests in one batch signature */
+    private static final String PROXY_BATCH_SIGNING_MAX_BATCH_SIZE =
+            PREFIX + "proxy.batch-signing-max-batch-size";
+
+    private static final String DEFAULT_PROXY_BATCH_SIGNING_MAX_BATCH_SIZE = "0";
+
 
     // Signer -----------------------------------------------------------------
 
@@ -284,6 +324,14 @@ public final class SystemProperties {
     public static final String SIGNER_ADMIN_PORT =
             PREFIX + "signer.admin-port";
 
+    /** Property name of the Signer's binary transport on/off switch. */
+    public static final String SIGNER_BINARY_TRANSPORT_ENABLED =
+            PREFIX + "signer.binary-transport-enabled";
+
+    /** Property name of the Signer's binary transport port number. */
+    public static final String SIGNER_BINARY_PORT =
+            PREFIX + "signer.binary-port";
+
     /** Property name of the SignerClient's timeout. */
     public static final String SIGNER_CLIENT_TIMEOUT =
             PREFIX + "signer.client-timeout";
@@ -300,9 +348,27 @@ public final class SystemProperties {
     public static final String SIGNER_CSR_SIGNATURE_DIGEST_ALGORITHM =
             PREFIX + "signer.csr-signature-digest-algorithm";
 
+    public static final String SIGNER_SOFTWARE_TOKEN_SIGNING_WORKERS =
+            PREFIX + "signer.software-token-signing-workers";
+
     public static final String OCSP_RESPONSE_RETRIEVAL_ACTIVE =
             PREFIX + "signer.ocsp-response-retrieval-active";
 
+    public static final String SIGNER_OCSP_FETCH_PARALLELISM =
+            PREFIX + "signer.ocsp-fetch-parallelism";
+
+    public static final String SIGNER_OCSP_RESPONDER_MAX_CONCURRENCY =
+            PREFIX + "signer.ocsp-responder-max-concurrency";
+
+    public static final String SIGNER_OCSP_HEDGE_DELAY =
+            PREFIX + "signer.ocsp-hedge-delay";
+
+    public static final String SIGNER_OCSP_CONNECT_TIMEOUT =
+            PREFIX + "signer.ocsp-connect-timeout";
+
+    public static final String SIGNER_OCSP_READ_TIMEOUT =
+            PREFIX + "signer.ocsp-read-timeout";
+
     // AntiDos ----------------------------------------------------------------
 
     /** Property name of the AntiDos on/off switch */
@@ -484,6 +550,10 @@ public final class SystemProperties {
     public static final String ENV_MONITOR_CERTIFICATE_INFO_SENSOR_INTERVAL =
             PREFIX + "env-monitor.certificate-info-sensor-interval";
 
+    /** Property name of signer metrics sensor interval. */
+    public static final String ENV_MONITOR_SIGNER_METRICS_SENSOR_INTERVAL =
+            PREFIX + "env-monitor.signer-metrics-sensor-interval";
+
     public static final String ONE_DAY_AS_SECONDS = String.valueOf(24 * 60 * 60);
 
     // Cluster node configuration ------------------------------------------ //
@@ -751,6 +821,22 @@ public final class SystemProperties {
         return Integer.parseInt(System.getProperty(SIGNER_ADMIN_PORT, Integer.toString(PortNumbers.SIGNER_ADMIN_PORT)));
     }
 
+    /**
+     * @return whether the signer and its clients use the binary transport
+     * for the most frequent requests, 'false' by default.
+     */
+    public static boolean isSignerBinaryTransportEnabled() {
+        return Boolean.parseBoolean(System.getProperty(SIGNER_BINARY_TRANSPORT_ENABLED, "false"));
+    }
+
+    /**
+     * @return the port on which the signer listens for binary transport requests
+     */
+    public static int getSignerBinaryPort() {
+        return Integer.parseInt(System.getProperty(SIGNER_BINARY_PORT,
+                Integer.toString(PortNumbers.SIGNER_BINARY_PORT)));
+    }
+
     /**
      * @return the signer connection timeout in milliseconds, '60000' by default.
      */
@@ -774,6 +860,51 @@ public final class SystemProperties {
         return System.getProperty(SIGNER_CSR_SIGNATURE_DIGEST_ALGORITHM, CryptoUtils.SHA256_ID);
     }
 
+    /**
+     * @return number of workers calculating signatures in parallel for the software token,
+     * the number of available processors by default.
+     */
+    public static int getSignerSoftwareTokenSigningWorkers() {
+        return Math.max(1, Integer.getInteger(SIGNER_SOFTWARE_TOKEN_SIGNING_WORKERS,
+                Runtime.getRuntime().availableProcessors()));
+    }
+
+    /**
+     * @return number of certificates whose OCSP responses are fetched in parallel, 4 by default.
+     */
+    public static int getSignerOcspFetchParallelism() {
+        return Math.max(1, Integer.getInteger(SIGNER_OCSP_FETCH_PARALLELISM, 4));
+    }
+
+    /**
+     * @return maximum number of concurrent requests to one OCSP responder, 2 by default.
+     */
+    public static int getSignerOcspResponderMaxConcurrency() {
+        return Math.max(1, Integer.getInteger(SIGNER_OCSP_RESPONDER_MAX_CONCURRENCY, 2));
+    }
+
+    /**
+     * @return time in milliseconds to wait for an OCSP responder before also sending the request to the
+     * next responder, 5000 by default. The value 0 disables the additional requests.
+     */
+    public static int getSignerOcspHedgeDelay() {
+        return Integer.getInteger(SIGNER_OCSP_HEDGE_DELAY, 5000);
+    }
+
+    /**
+     * @return OCSP responder connect timeout in milliseconds, 20000 by default.
+     */
+    public static int getSignerOcspConnectTimeout() {
+        return Integer.getInteger(SIGNER_OCSP_CONNECT_TIMEOUT, 20000);
+    }
+
+    /**
+     * @return OCSP responder read timeout in milliseconds, 60000 by default.
+     */
+    public static int getSignerOcspReadTimeout() {
+        return Integer.getInteger(SIGNER_OCSP_READ_TIMEOUT, 60000);
+    }
+
     /**
      * @return whether OCSP-response retrieval loop should be activated
      */
@@ -838,6 +969,13 @@ public final class SystemProperties {
         return Integer.parseInt(System.getProperty(OCSP_RESPONDER_CLIENT_READ_TIMEOUT, "30000"));
     }
 
+    /**
+     * @return how long (in seconds) the OCSP responder caches its response bodies, '60' by default.
+     */
+    public static int getOcspResponderCachePeriod() {
+        return Integer.parseInt(System.getProperty(OCSP_RESPONDER_CACHE_PERIOD, "60"));
+    }
+
     /**
      * @return whether SSL should be used between client and server proxies, 'true' by default.
      */
@@ -1022,6 +1160,13 @@ public final class SystemProperties {
         return Integer.parseInt(System.getProperty(ENV_MONITOR_CERTIFICATE_INFO_SENSOR_INTERVAL, ONE_DAY_AS_SECONDS));
     }
 
+    /**
+     * @return signer metrics sensor interval in seconds, '60' by default.
+     */
+    public static int getEnvMonitorSignerMetricsSensorInterval() {
+        return Integer.parseInt(System.getProperty(ENV_MONITOR_SIGNER_METRICS_SENSOR_INTERVAL, "60"));
+    }
+
 
     /**
      * @return path to the file containing network statistics,
@@ -1152,6 +1297,31 @@ public final class SystemProperties {
         return period < OCSP_VERIFIER_CACHE_PERIOD_MAX ? period : OCSP_VERIFIER_CACHE_PERIOD_MAX;
     }
 
+    /**
+     * @return period in seconds for which successfully validated certification paths are cached,
+     * 3600 by default. The value 0 disables caching.
+     */
+    public static int getCertPathCachePeriod() {
+        return Integer.parseInt(System.getProperty(CERT_PATH_CACHE_PERIOD, DEFAULT_CERT_PATH_CACHE_PERIOD));
+    }
+
+    /**
+     * @return the maximum time in microseconds a signing request waits for other requests to be signed
+     * in the same batch when the signer is idle, 0 (no waiting) by default.
+     */
+    public static long getBatchSigningLingerTime() {
+        return Long.parseLong(System.getProperty(PROXY_BATCH_SIGNING_LINGER_TIME,
+                DEFAULT_PROXY_BATCH_SIGNING_LINGER_TIME));
+    }
+
+    /**
+     * @return the maximum number of signing requests in one batch signature, 0 (unlimited) by default.
+     */
+    public static int getBatchSigningMaxBatchSize() {
+        return Integer.parseInt(System.getProperty(PROXY_BATCH_SIGNING_MAX_BATCH_SIZE,
+                DEFAULT_PROXY_BATCH_SIGNING_MAX_BATCH_SIZE));
+    }
+
     /**
      * @return the connection maximum idle time that should be set for server proxy connector
      */
@@ -1275,6 +1445,33 @@ public final class SystemProperties {
                 DEFAULT_CLIENTPROXY_POOL_VALIDATE_CONNECTIONS_AFTER_INACTIVITY_OF_MS));
     }
 
+    /**
+     * @return true if client proxy should stream requests to the server proxy on the thread that reads the request
+     * instead of handing the request over to a separate SOAP handler thread, false by default
+     */
+    public static boolean isClientProxySingleThreadPipeline() {
+        return Boolean.parseBoolean(System.getProperty(CLIENTPROXY_SINGLE_THREAD_PIPELINE,
+                DEFAULT_CLIENTPROXY_SINGLE_THREAD_PIPELINE));
+    }
+
+    /**
+     * @return the size in bytes up to which the attachments of a message are cached in memory before they are
+     * written to a temporary file, 65536 by default. 0 caches all attachments in temporary files.
+     */
+    public static int getAttachmentCacheMemoryThreshold() {
+        return Integer.parseInt(System.getProperty(PROXY_ATTACHMENT_CACHE_MEMORY_THRESHOLD,
+                DEFAULT_PROXY_ATTACHMENT_CACHE_MEMORY_THRESHOLD));
+    }
+
+    /**
+     * @return the total size in bytes of memory used for caching attachments of all messages being processed,
+     * 67108864 (64 MiB) by default. Attachments that do not fit are cached in temporary files.
+     */
+    public static long getAttachmentCacheMemoryBudget() {
+        return Long.parseLong(System.getProperty(PROXY_ATTACHMENT_CACHE_MEMORY_BUDGET,
+                DEFAULT_PROXY_ATTACHMENT_CACHE_MEMORY_BUDGET));
+    }
+
     /**
      * @return the {@link #NODE_TYPE} in a cluster for this Server.
      */
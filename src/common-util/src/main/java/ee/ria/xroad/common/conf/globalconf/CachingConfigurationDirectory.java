@@ -71,11 +71,8 @@ public class CachingConfigurationDirectory extends ConfigurationDirectoryV2 {
    *
    */
   @Override
-  public synchronized String getInstanceIdentifier() {
-    if (!cache.isValid(INSTANCE_IDENTIFIER)) {
-      cache.setValue(INSTANCE_IDENTIFIER, super.getInstanceIdentifier());
-    }
-    return (String) cache.getValue(INSTANCE_IDENTIFIER);
+  public String getInstanceIdentifier() {
+    return cache.get(INSTANCE_IDENTIFIER, super::getInstanceIdentifier);
   }
 
   /**
@@ -86,13 +83,10 @@ public class CachingConfigurationDirectory extends ConfigurationDirectoryV2 {
    * @throws Exception if an error occurs while reading parameters
    */
   @Override
-  public synchronized PrivateParametersV2 getPrivate(String instanceId)
+  public PrivateParametersV2 getPrivate(String instanceId)
       throws Exception {
     final String key = String.format("%s-%s", PRIVATE_PARAMS, instanceId);
-    if (!cache.isValid(key)) {
-      cache.setValue(key, super.getPrivate(instanceId));
-    }
-    return (PrivateParametersV2) cache.getValue(key);
+    return cache.get(key, () -> super.getPrivate(instanceId));
   }
 
   /**
@@ -103,13 +97,10 @@ public class CachingConfigurationDirectory extends ConfigurationDirectoryV2 {
    * @throws Exception if an error occurs while reading parameters
    */
   @Override
-  public synchronized SharedParametersV2 getShared(String instanceId)
+  public SharedParametersV2 getShared(String instanceId)
       throws Exception {
     final String key = String.format("%s-%s", SHARED_PARAMS, instanceId);
-    if (!cache.isValid(key)) {
-      cache.setValue(key, super.getShared(instanceId));
-    }
-    return (SharedParametersV2) cache.getValue(key);
+    return cache.get(key, () -> super.getShared(instanceId));
   }
 
   /**
@@ -117,11 +108,11 @@ public class CachingConfigurationDirectory extends ConfigurationDirectoryV2 {
    * configuration files is too old.
    */
   @Override
-  public synchronized void verifyUpToDate() throws Exception {
-    if (!cache.isValid(VERIFY_UP_TO_DATE)) {
+  public void verifyUpToDate() throws Exception {
+    cache.get(VERIFY_UP_TO_DATE, () -> {
       super.verifyUpToDate();
-      cache.setValue(VERIFY_UP_TO_DATE, 1);
-    }
+      return 1;
+    });
   }
 
   /**
@@ -130,11 +121,11 @@ public class CachingConfigurationDirectory extends ConfigurationDirectoryV2 {
    * @throws Exception if an error occurs during reload
    */
   @Override
-  public synchronized void reload() throws Exception {
+  public void reload() throws Exception {
     // cache validity indicates whether reloading should be done at this time
-    // cache value is meaningless in this case
-    if (cache != null && !cache.isValid(RELOAD)) {
-      cache.setValue(RELOAD, 1);
+    // cache value is meaningless in this case, only the thread that sets it
+    // performs the reload
+    if (cache != null && cache.setValueIfInvalid(RELOAD, 1)) {
       super.reload();
     }
   }
@@ -36,6 +36,7 @@ import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.Set;
 import java.util.stream.Collectors;
 
@@ -50,6 +51,7 @@ import ee.ria.xroad.common.conf.AbstractXmlConf;
 import ee.ria.xroad.common.identifier.ClientId;
 import ee.ria.xroad.common.identifier.GlobalGroupId;
 import ee.ria.xroad.common.identifier.SecurityServerId;
+import ee.ria.xroad.common.identifier.ServiceId;
 import lombok.AccessLevel;
 import lombok.Getter;
 
@@ -66,6 +68,10 @@ public class SharedParametersV2 extends AbstractXmlConf<SharedParametersTypeV2>
             new HashMap<>();
     private final Map<X509Certificate, List<OcspInfoType>> caCertsAndOcspData =
             new HashMap<>();
+    private final Map<X509Certificate, List<X509Certificate>> caCertsAndOcspResponderCerts =
+            new HashMap<>();
+    private final List<X509Certificate> ocspResponderCerts = new ArrayList<>();
+    private final List<X509Certificate> tspCerts = new ArrayList<>();
     private final Map<ClientId, Set<String>> memberAddresses = new HashMap<>();
     private final Map<ClientId, Set<byte[]>> memberAuthCerts = new HashMap<>();
     private final Map<String, SecurityServerType> serverByAuthCert =
@@ -75,6 +81,10 @@ public class SharedParametersV2 extends AbstractXmlConf<SharedParametersTypeV2>
     private final List<X509Certificate> verificationCaCerts = new ArrayList<>();
     private final Set<String> knownAddresses = new HashSet<>();
     private final Map<SecurityServerId, SecurityServerType> securityServersById = new HashMap<>();
+    private final Map<ClientId, String> memberNames = new HashMap<>();
+    private final Map<String, GlobalGroupType> globalGroupsByCode = new HashMap<>();
+    private final Map<String, Set<ClientId>> globalGroupMembers = new HashMap<>();
+    private final Map<String, ServiceId> centralServiceImplementations = new HashMap<>();
 
     SharedParametersV2() {
         super(ObjectFactory.class, SharedParametersSchemaValidatorV2.class);
@@ -134,9 +144,24 @@ public class SharedParametersV2 extends AbstractXmlConf<SharedParametersTypeV2>
             return null;
         }
 
-        return confType.getGlobalGroup().stream()
-                .filter(g -> g.getGroupCode().equals(groupId.getGroupCode()))
-                .findFirst().orElse(null);
+        return globalGroupsByCode.get(groupId.getGroupCode());
+    }
+
+    boolean isGlobalGroupMember(GlobalGroupId groupId, ClientId subjectId) {
+        if (!groupId.getXRoadInstance().equals(
+                confType.getInstanceIdentifier())) {
+            return false;
+        }
+
+        Set<ClientId> members = globalGroupMembers.get(groupId.getGroupCode());
+        return members != null && members.contains(subjectId);
+    }
+
+    String getMemberName(ClientId memberId) {
+        // Names are stored by member identifiers, the subsystem part
+        // of the identifier is ignored.
+        return memberNames.get(ClientId.create(memberId.getXRoadInstance(),
+                memberId.getMemberClass(), memberId.getMemberCode()));
     }
 
     X509Certificate getCaCertForSubject(X509Certificate subject)
@@ -161,8 +186,12 @@ public class SharedParametersV2 extends AbstractXmlConf<SharedParametersTypeV2>
         try {
             clearCache();
             cacheCaCerts();
+            cacheTspCerts();
             cacheKnownAddresses();
             cacheSecurityServers();
+            cacheMembers();
+            cacheGlobalGroups();
+            cacheCentralServices();
         } catch (Exception e) {
             throw translateException(e);
         }
@@ -182,6 +211,9 @@ public class SharedParametersV2 extends AbstractXmlConf<SharedParametersTypeV2>
         subjectsAndCaCerts.clear();
         caCertsAndCertProfiles.clear();
         caCertsAndOcspData.clear();
+        caCertsAndOcspResponderCerts.clear();
+        ocspResponderCerts.clear();
+        tspCerts.clear();
         memberAddresses.clear();
         memberAuthCerts.clear();
         serverByAuthCert.clear();
@@ -189,6 +221,10 @@ public class SharedParametersV2 extends AbstractXmlConf<SharedParametersTypeV2>
         verificationCaCerts.clear();
         knownAddresses.clear();
         securityServersById.clear();
+        memberNames.clear();
+        globalGroupsByCode.clear();
+        globalGroupMembers.clear();
+        centralServiceImplementations.clear();
     }
 
     private void cacheCaCerts() throws CertificateException, IOException {
@@ -223,6 +259,17 @@ public class SharedParametersV2 extends AbstractXmlConf<SharedParametersTypeV2>
                     new X509CertificateHolder(cert.getEncoded());
             subjectsAndCaCerts.put(certHolder.getSubject(), cert);
         }
+
+        caCertsAndOcspResponderCerts.values()
+                .forEach(ocspResponderCerts::addAll);
+    }
+
+    private void cacheTspCerts() {
+        confType.getApprovedTSA().stream()
+            .map(ApprovedTSAType::getCert)
+            .filter(Objects::nonNull)
+            .map(c -> readCertificate(c))
+            .forEach(tspCerts::add);
     }
 
     private void cacheKnownAddresses() {
@@ -269,6 +316,32 @@ public class SharedParametersV2 extends AbstractXmlConf<SharedParametersTypeV2>
         }
     }
 
+    private void cacheMembers() {
+        for (MemberType member : confType.getMember()) {
+            memberNames.putIfAbsent(createMemberId(member), member.getName());
+        }
+    }
+
+    private void cacheGlobalGroups() {
+        for (GlobalGroupType globalGroup : confType.getGlobalGroup()) {
+            if (globalGroupsByCode.putIfAbsent(globalGroup.getGroupCode(),
+                    globalGroup) == null) {
+                globalGroupMembers.put(globalGroup.getGroupCode(),
+                        new HashSet<>(globalGroup.getGroupMember()));
+            }
+        }
+    }
+
+    private void cacheCentralServices() {
+        for (CentralServiceType centralService : confType.getCentralService()) {
+            if (centralService.getImplementingService() != null) {
+                centralServiceImplementations.putIfAbsent(
+                        centralService.getServiceCode(),
+                        centralService.getImplementingService());
+            }
+        }
+    }
+
     private void addServerClient(ClientId client, SecurityServerType server) {
         // Add the mapping from client to security server address.
         if (isNotBlank(server.getAddress())) {
@@ -310,6 +383,11 @@ public class SharedParametersV2 extends AbstractXmlConf<SharedParametersTypeV2>
             X509Certificate cert = readCertificate(caType.getCert());
             List<OcspInfoType> caOcspTypes = caType.getOcsp();
             caCertsAndOcspData.put(cert, caOcspTypes);
+            caCertsAndOcspResponderCerts.put(cert, caOcspTypes.stream()
+                    .map(OcspInfoType::getCert)
+                    .filter(Objects::nonNull)
+                    .map(c -> readCertificate(c))
+                    .collect(Collectors.toList()));
         }
     }
 
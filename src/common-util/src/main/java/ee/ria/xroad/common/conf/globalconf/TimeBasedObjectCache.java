@@ -22,60 +22,164 @@
  */
 package ee.ria.xroad.common.conf.globalconf;
 
-import lombok.Value;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.util.concurrent.ExecutionError;
+import com.google.common.util.concurrent.UncheckedExecutionException;
 import lombok.extern.slf4j.Slf4j;
 
-import java.time.LocalDateTime;
-import java.util.HashMap;
-import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
 
 /**
- * Simple last time based object cache
+ * Simple last time based object cache. The cache is thread safe, holds at
+ * most a fixed number of entries (least recently used entries are evicted
+ * first) and measures the expiration with a monotonic clock. Null values
+ * are allowed.
  */
 @Slf4j
 public class TimeBasedObjectCache {
 
-  @Value
-  private static class TimeAndValue {
-    private LocalDateTime time;
-    private Object value;
+  /** Maximum number of entries, if not given in the constructor. */
+  public static final int DEFAULT_MAX_SIZE = 10000;
+
+  /**
+   * Computes a value for the cache.
+   * @param <T> the type of the value
+   * @param <E> the type of the exception thrown by the computation
+   */
+  @FunctionalInterface
+  public interface ValueLoader<T, E extends Exception> {
+    /**
+     * @return the computed value, can be null
+     * @throws E if the value cannot be computed
+     */
+    T load() throws E;
   }
 
-  private final int expireSeconds;
+  private final Cache<String, Optional<Object>> values;
 
-  private Map<String, TimeAndValue> values = new HashMap<>();
+  /**
+   * Constructor, creates cache with {@link #DEFAULT_MAX_SIZE} entries.
+   * @param expireSeconds seconds after which a value expires
+   */
+  public TimeBasedObjectCache(int expireSeconds) {
+    this(expireSeconds, DEFAULT_MAX_SIZE);
+  }
 
   /**
    * Constructor.
+   * @param expireSeconds seconds after which a value expires
+   * @param maxSize maximum number of entries in the cache
    */
-  public TimeBasedObjectCache(int expireSeconds) {
+  public TimeBasedObjectCache(int expireSeconds, int maxSize) {
     if (expireSeconds < 0) {
       throw new IllegalArgumentException("Cache expiration period cannot be negative");
     }
-    this.expireSeconds = expireSeconds;
-    log.trace("creating TimeBasedObjectCache with expiration of {} seconds", expireSeconds);
+    if (maxSize < 0) {
+      throw new IllegalArgumentException("Cache maximum size cannot be negative");
+    }
+    this.values = CacheBuilder.newBuilder()
+        .expireAfterWrite(expireSeconds, TimeUnit.SECONDS)
+        .maximumSize(maxSize)
+        .recordStats()
+        .build();
+    log.trace("creating TimeBasedObjectCache with expiration of {} seconds and maximum size of {}",
+        expireSeconds, maxSize);
   }
 
   /**
    * Check if cache value is valid
    */
   public boolean isValid(String key) {
-    TimeAndValue timeAndValue = values.get(key);
-    LocalDateTime now = LocalDateTime.now().minusSeconds(expireSeconds);
-    return timeAndValue != null && timeAndValue.getTime().isAfter(now);
+    return values.getIfPresent(key) != null;
   }
 
   /**
    * Get value from cache. The user should first check the validity with isValid.
+   * Since the value may expire in between, prefer {@link #get(String, ValueLoader)}
+   * when the cache is shared between threads.
+   * @return the value or null, if the value is missing or has expired
    */
   public Object getValue(String key) {
-    return values.get(key).getValue();
+    Optional<Object> value = values.getIfPresent(key);
+    return value != null ? value.orElse(null) : null;
   }
 
   /**
    * Set cache value.
    */
   public void setValue(String key, Object value) {
-    values.put(key, new TimeAndValue(LocalDateTime.now(), value));
+    values.put(key, Optional.ofNullable(value));
+  }
+
+  /**
+   * Sets the cache value, unless a valid value already exists. Can be used
+   * by concurrent callers to decide which of them performs a periodic task.
+   * @return true, if the value was set
+   */
+  public boolean setValueIfInvalid(String key, Object value) {
+    return values.asMap().putIfAbsent(key, Optional.ofNullable(value)) == null;
+  }
+
+  /**
+   * Returns the valid cache value or computes and stores a new value. The
+   * value for a key is computed by one thread at a time, other threads
+   * requesting the same key wait for the result.
+   * @param key the key
+   * @param loader computes the value if there is no valid value
+   * @param <T> the type of the value
+   * @param <E> the type of the exception thrown by the loader
+   * @return the value
+   * @throws E if the loader fails, in which case nothing is cached
+   */
+  @SuppressWarnings("unchecked")
+  public <T, E extends Exception> T get(String key, ValueLoader<T, E> loader) throws E {
+    try {
+      return (T) values.get(key, () -> Optional.ofNullable(loader.load())).orElse(null);
+    } catch (ExecutionException e) {
+      // the loader can only throw checked exceptions of type E
+      throw (E) e.getCause();
+    } catch (UncheckedExecutionException e) {
+      throw (RuntimeException) e.getCause();
+    } catch (ExecutionError e) {
+      throw (Error) e.getCause();
+    }
+  }
+
+  /**
+   * Removes all values from the cache.
+   */
+  public void clear() {
+    values.invalidateAll();
+  }
+
+  /**
+   * @return the approximate number of entries in the cache
+   */
+  public long size() {
+    return values.size();
+  }
+
+  /**
+   * @return the number of lookups that found a valid value
+   */
+  public long getHitCount() {
+    return values.stats().hitCount();
+  }
+
+  /**
+   * @return the number of lookups that did not find a valid value
+   */
+  public long getMissCount() {
+    return values.stats().missCount();
+  }
+
+  /**
+   * @return the number of entries removed because of the size limit or expiration
+   */
+  public long getEvictionCount() {
+    return values.stats().evictionCount();
   }
 }
@@ -23,7 +23,6 @@
 package ee.ria.xroad.common.message;
 
 import java.io.BufferedWriter;
-import java.io.ByteArrayOutputStream;
 import java.io.InputStream;
 import java.io.OutputStreamWriter;
 import java.io.Writer;
@@ -47,6 +46,7 @@ import lombok.SneakyThrows;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.io.input.BOMInputStream;
 import org.apache.commons.io.input.TeeInputStream;
+import org.apache.commons.io.output.ByteArrayOutputStream;
 import org.apache.commons.lang3.StringEscapeUtils;
 import org.apache.commons.lang3.StringUtils;
 import org.xml.sax.Attributes;
@@ -183,27 +183,31 @@ public class SaxSoapParserImpl implements SoapParser {
     private Soap parseMessage(InputStream is, String mimeType, String contentType, String charset) throws Exception {
         log.trace("parseMessage({}, {})", mimeType, charset);
 
-        ByteArrayOutputStream rawXml = new ByteArrayOutputStream();
+        RawXmlBuffer rawXml = new RawXmlBuffer();
         ByteArrayOutputStream processedXml = new ByteArrayOutputStream();
 
         InputStream proxyStream = excludeUtf8Bom(contentType, new TeeInputStream(is, rawXml));
         Writer outputWriter = new OutputStreamWriter(processedXml, charset);
-        XRoadSoapHandler handler = handleSoap(outputWriter, proxyStream);
+        XRoadSoapHandler handler = handleSoap(outputWriter, rawXml, proxyStream);
 
         CodedException fault = handler.getFault();
         if (fault != null) {
             return createSoapFault(charset, rawXml, fault);
         }
 
+        if (!isProcessedXmlRequired() && rawXml.isDiscarded()) {
+            throw new IllegalStateException("Original XML is required but has already been discarded");
+        }
+
         byte[] xmlBytes = isProcessedXmlRequired() ? processedXml.toByteArray() : rawXml.toByteArray();
 
         return createSoapMessage(contentType, charset, handler, xmlBytes);
     }
 
-    private XRoadSoapHandler handleSoap(Writer writer, InputStream inputStream)
+    private XRoadSoapHandler handleSoap(Writer writer, RawXmlBuffer rawXml, InputStream inputStream)
             throws Exception {
         try (BufferedWriter out = new BufferedWriter(writer)) {
-            XRoadSoapHandler handler = new XRoadSoapHandler(out);
+            XRoadSoapHandler handler = new XRoadSoapHandler(out, rawXml);
             SAXParser saxParser = PARSER_FACTORY.newSAXParser();
             XMLReader xmlReader = saxParser.getXMLReader();
             xmlReader.setProperty(LEXICAL_HANDLER_PROPERTY, handler);
@@ -246,7 +250,9 @@ public class SaxSoapParserImpl implements SoapParser {
 
     /**
      * Determines whether the raw XML of the SOAP message should be re-encoded
-     * or if the original should be used in the output.
+     * or if the original should be used in the output. The result must not
+     * change after the SOAP body has started, because the original XML is
+     * no longer kept from that point on if it is re-encoded.
      * @return false by default
      */
     protected boolean isProcessedXmlRequired() {
@@ -296,6 +302,8 @@ public class SaxSoapParserImpl implements SoapParser {
 
         private final BufferedWriter out;
 
+        private final RawXmlBuffer rawXml;
+
         private char[] xmlEntity;
 
         private Stack<XmlElementHandler> elementHandlers = new Stack<>();
@@ -352,10 +360,18 @@ public class SaxSoapParserImpl implements SoapParser {
         }
 
         private void handleElement(Attributes attributes, QName element) {
-            XmlElementHandler elementHandler = elementHandlers.peek().getChildElementHandler(element);
+            XmlElementHandler parentHandler = elementHandlers.peek();
+            XmlElementHandler elementHandler = parentHandler.getChildElementHandler(element);
             elementHandler.setAttributes(attributes);
             elementHandler.openTag();
             elementHandlers.push(elementHandler);
+
+            if (parentHandler instanceof SoapBodyHandler && !element.equals(QNAME_SOAP_FAULT)
+                    && isProcessedXmlRequired()) {
+                // The message is not a fault and is going to be re-encoded,
+                // the original XML is not needed any more.
+                rawXml.discard();
+            }
         }
 
         private void handleRootElement(Attributes attributes, QName element) {
@@ -470,6 +486,36 @@ public class SaxSoapParserImpl implements SoapParser {
         }
     }
 
+    /**
+     * Buffer for the original XML of the message. Grows in chunks instead of
+     * copying its contents on every resize and stops collecting data once
+     * discarded.
+     */
+    private static final class RawXmlBuffer extends ByteArrayOutputStream {
+
+        @Getter
+        private boolean discarded;
+
+        void discard() {
+            discarded = true;
+            reset();
+        }
+
+        @Override
+        public void write(int b) {
+            if (!discarded) {
+                super.write(b);
+            }
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            if (!discarded) {
+                super.write(b, off, len);
+            }
+        }
+    }
+
     private static void validateDuplicateHeader(QName qName,
             Object existing) {
         if (existing != null) {
@@ -33,8 +33,10 @@ import org.apache.james.mime4j.MimeException;
 import org.apache.james.mime4j.parser.AbstractContentHandler;
 import org.apache.james.mime4j.parser.MimeStreamParser;
 import org.apache.james.mime4j.stream.BodyDescriptor;
+import org.apache.james.mime4j.stream.EntityState;
 import org.apache.james.mime4j.stream.Field;
 import org.apache.james.mime4j.stream.MimeConfig;
+import org.apache.james.mime4j.stream.MimeTokenStream;
 
 import ee.ria.xroad.common.CodedException;
 
@@ -54,6 +56,9 @@ public class SoapMessageDecoder {
     private final String baseContentType;
     private final SoapParser parser;
 
+    private MimeTokenStream tokenStream;
+    private MultipartHandler tokenHandler;
+
     /**
      * Callback interface for handling the outcome of the decoding process.
      */
@@ -145,6 +150,64 @@ public class SoapMessageDecoder {
         callback.onCompleted();
     }
 
+    /**
+     * Decodes the SOAP message from the given input stream, but returns as
+     * soon as the SOAP part has been passed to the callback. The remaining
+     * parts of the message must then be decoded with
+     * {@link #parseRemaining()}. This allows the caller to act on the SOAP
+     * message before the attachments are read, without using a separate
+     * thread for reading the input stream.
+     *
+     * @param soapStream input stream with the SOAP message data
+     * @throws Exception if any errors occur
+     */
+    public void parseSoap(InputStream soapStream) throws Exception {
+        if (baseContentType == null) {
+            throw new CodedException(X_INVALID_REQUEST,
+                    "Could not get content type from request");
+        }
+
+        try {
+            switch (baseContentType.toLowerCase()) {
+                case TEXT_XML:
+                case XOP_XML:
+                    readSoapMessage(soapStream);
+                    break;
+                case MULTIPART_RELATED:
+                    startMultipart(soapStream);
+                    readParts(true);
+                    break;
+                default:
+                    throw new CodedException(X_INVALID_CONTENT_TYPE,
+                            "Invalid content type: %s", baseContentType);
+            }
+        } catch (Exception e) {
+            tokenStream = null;
+
+            callback.onError(e);
+        }
+    }
+
+    /**
+     * Decodes the rest of the message after {@link #parseSoap(InputStream)}
+     * and completes the decoding.
+     *
+     * @throws Exception if any errors occur
+     */
+    public void parseRemaining() throws Exception {
+        try {
+            if (tokenStream != null) {
+                readParts(false);
+            }
+        } catch (Exception e) {
+            callback.onError(e);
+        } finally {
+            tokenStream = null;
+        }
+
+        callback.onCompleted();
+    }
+
     private void readSoapMessage(InputStream is) throws Exception {
         log.trace("readSoapMessage");
 
@@ -182,6 +245,62 @@ public class SoapMessageDecoder {
         }
     }
 
+    private void startMultipart(InputStream is) throws Exception {
+        log.trace("startMultipart");
+
+        MimeConfig config = new MimeConfig.Builder().setHeadlessParsing(contentType).build();
+
+        tokenStream = new MimeTokenStream(config, null, null);
+        tokenHandler = new MultipartHandler();
+
+        try {
+            Field headlessContentType = tokenStream.parseHeadless(is, contentType);
+
+            tokenHandler.startHeader();
+            tokenHandler.field(headlessContentType);
+        } catch (MimeException ex) {
+            throw new CodedException(X_MIME_PARSING_FAILED, ex);
+        }
+    }
+
+    /**
+     * Feeds the parts from the token stream to the multipart handler, the
+     * same way as {@link MimeStreamParser} would do. If stopAfterSoap is set,
+     * returns after the SOAP part has been handled.
+     */
+    private void readParts(boolean stopAfterSoap) throws Exception {
+        try {
+            EntityState state = tokenStream.getState();
+
+            while (state != EntityState.T_END_OF_STREAM) {
+                switch (state) {
+                    case T_START_HEADER:
+                        tokenHandler.startHeader();
+                        break;
+                    case T_FIELD:
+                        tokenHandler.field(tokenStream.getField());
+                        break;
+                    case T_BODY:
+                        tokenHandler.body(tokenStream.getBodyDescriptor(), tokenStream.getInputStream());
+
+                        if (stopAfterSoap && tokenHandler.soapBody != null) {
+                            tokenStream.next();
+
+                            return;
+                        }
+
+                        break;
+                    default:
+                        break;
+                }
+
+                state = tokenStream.next();
+            }
+        } catch (MimeException ex) {
+            throw new CodedException(X_MIME_PARSING_FAILED, ex);
+        }
+    }
+
     private class MultipartHandler extends AbstractContentHandler {
         private Map<String, String> headers;
         private String partContentType;
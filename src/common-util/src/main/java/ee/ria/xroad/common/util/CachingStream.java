@@ -22,44 +22,87 @@
  */
 package ee.ria.xroad.common.util;
 
+import java.io.ByteArrayInputStream;
 import java.io.FilterOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.SequenceInputStream;
 import java.nio.channels.Channels;
 import java.nio.channels.SeekableByteChannel;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
 
 import lombok.extern.slf4j.Slf4j;
 
 import ee.ria.xroad.common.DefaultFilepaths;
 import ee.ria.xroad.common.ErrorCodes;
+import ee.ria.xroad.common.SystemProperties;
 
 /**
- * Caches stuff in a temporary file.
+ * Caches stuff in memory and, once the cached data grows over the memory
+ * threshold or the memory budget shared by all caching streams runs out,
+ * in a temporary file.
  */
 @Slf4j
 public class CachingStream extends FilterOutputStream {
+
+    private static final int CHUNK_SIZE = 8192;
+
+    // Memory currently reserved by all caching streams
+    private static final AtomicLong MEMORY_IN_USE = new AtomicLong();
+
+    private final int memoryThreshold;
+    private final long memoryBudget;
+
+    private List<byte[]> chunks = new ArrayList<>();
+    private int count;
+    private long reserved;
+
     private SeekableByteChannel channel;
     private Path tempFile;
 
     /**
-     * Constructs a new caching stream that caches data in a temporary file.
+     * Constructs a new caching stream that caches data in memory up to
+     * the configured threshold and in a temporary file beyond it.
      * @throws IOException if I/O errors occurred
      */
     public CachingStream() throws IOException {
-        // Construct the parent class with null stream and replace it later.
+        this(SystemProperties.getAttachmentCacheMemoryThreshold(),
+                SystemProperties.getAttachmentCacheMemoryBudget());
+    }
+
+    /**
+     * Constructs a new caching stream.
+     * @param memoryThreshold the number of bytes this stream caches in memory
+     * @param memoryBudget the number of bytes all caching streams may cache
+     * in memory together
+     */
+    CachingStream(int memoryThreshold, long memoryBudget) {
+        // The output stream of the parent class is set when the stream
+        // switches to a temporary file.
         super(null);
 
-        tempFile = DefaultFilepaths.createTempFile("tmpattach", null);
-        channel = Files.newByteChannel(tempFile, StandardOpenOption.CREATE,
-                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING,
-                StandardOpenOption.READ, StandardOpenOption.DELETE_ON_CLOSE);
+        this.memoryThreshold = memoryThreshold;
+        this.memoryBudget = memoryBudget;
+    }
 
-        // Now that we are set up, we can set the output stream in the
-        // parent class.
-        out = Channels.newOutputStream(channel);
+    /**
+     * @return the number of bytes cached in memory by all caching streams
+     */
+    static long getMemoryInUse() {
+        return MEMORY_IN_USE.get();
+    }
+
+    /**
+     * @return true, if the cached data has been written to a temporary file
+     */
+    boolean isCachedInFile() {
+        return channel != null;
     }
 
     @Override
@@ -68,11 +111,54 @@ public class CachingStream extends FilterOutputStream {
         flush();
     }
 
+    @Override
+    public void flush() throws IOException {
+        if (out != null) {
+            out.flush();
+        }
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        if (channel == null && !reserveMemory(1)) {
+            switchToFile();
+        }
+
+        if (channel != null) {
+            out.write(b);
+
+            return;
+        }
+
+        chunks.get(count / CHUNK_SIZE)[count % CHUNK_SIZE] = (byte) b;
+        count++;
+    }
+
     @Override
     public void write(byte[] b, int off, int len)
             throws IOException {
-        // prevent FilterOutputStream from writing inefficiently
-        out.write(b, off, len);
+        if (channel == null && !reserveMemory(len)) {
+            switchToFile();
+        }
+
+        if (channel != null) {
+            // prevent FilterOutputStream from writing inefficiently
+            out.write(b, off, len);
+
+            return;
+        }
+
+        int written = 0;
+
+        while (written < len) {
+            int pos = count % CHUNK_SIZE;
+            int n = Math.min(len - written, CHUNK_SIZE - pos);
+
+            System.arraycopy(b, off + written, chunks.get(count / CHUNK_SIZE), pos, n);
+
+            count += n;
+            written += n;
+        }
     }
 
     /**
@@ -84,6 +170,17 @@ public class CachingStream extends FilterOutputStream {
             // Flush any unwritten data, just in case.
             flush();
 
+            if (channel == null) {
+                List<InputStream> streams = new ArrayList<>(chunks.size());
+
+                for (int i = 0; i < chunks.size(); i++) {
+                    streams.add(new ByteArrayInputStream(chunks.get(i), 0,
+                            Math.min(CHUNK_SIZE, count - i * CHUNK_SIZE)));
+                }
+
+                return new SequenceInputStream(Collections.enumeration(streams));
+            }
+
             // the channel will be closed when the stream is closed
             return Channels.newInputStream(channel.position(0));
         } catch (IOException ex) { // the position shouldn't really throw
@@ -95,6 +192,12 @@ public class CachingStream extends FilterOutputStream {
      * Finalize caching stream. Use to avoid file handle leaks.
      */
     public void consume() {
+        releaseMemory();
+
+        if (channel == null) {
+            return;
+        }
+
         try {
             channel.close();
         } catch (IOException e) {
@@ -102,4 +205,69 @@ public class CachingStream extends FilterOutputStream {
                     tempFile.toString(), e);
         }
     }
+
+    // Makes room for len more bytes in memory, returns false if the data
+    // does not fit within the threshold or the memory budget.
+    private boolean reserveMemory(int len) {
+        if ((long) count + len > memoryThreshold) {
+            return false;
+        }
+
+        int missing = count + len - chunks.size() * CHUNK_SIZE;
+
+        if (missing <= 0) {
+            return true;
+        }
+
+        int newChunks = (missing + CHUNK_SIZE - 1) / CHUNK_SIZE;
+        long size = (long) newChunks * CHUNK_SIZE;
+
+        long inUse;
+
+        do {
+            inUse = MEMORY_IN_USE.get();
+
+            if (inUse + size > memoryBudget) {
+                log.trace("Attachment cache memory budget exhausted ({} bytes in use)", inUse);
+
+                return false;
+            }
+        } while (!MEMORY_IN_USE.compareAndSet(inUse, inUse + size));
+
+        reserved += size;
+
+        for (int i = 0; i < newChunks; i++) {
+            chunks.add(new byte[CHUNK_SIZE]);
+        }
+
+        return true;
+    }
+
+    private void releaseMemory() {
+        if (reserved > 0) {
+            MEMORY_IN_USE.addAndGet(-reserved);
+            reserved = 0;
+        }
+
+        chunks = Collections.emptyList();
+    }
+
+    private void switchToFile() throws IOException {
+        log.trace("Caching {} bytes in a temporary file", count);
+
+        tempFile = DefaultFilepaths.createTempFile("tmpattach", null);
+        channel = Files.newByteChannel(tempFile, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING,
+                StandardOpenOption.READ, StandardOpenOption.DELETE_ON_CLOSE);
+
+        // Now that we are set up, we can set the output stream in the
+        // parent class.
+        out = Channels.newOutputStream(channel);
+
+        for (int i = 0; i < chunks.size(); i++) {
+            out.write(chunks.get(i), 0, Math.min(CHUNK_SIZE, count - i * CHUNK_SIZE));
+        }
+
+        releaseMemory();
+    }
 }
@@ -0,0 +1,97 @@
+/**
+ * The MIT License
+ * Copyright (c) 2015 Estonian Information System Authority (RIA), Population Register Centre (VRK)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package ee.ria.xroad.common.util;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.BasicFileAttributes;
+
+import lombok.Value;
+
+/**
+ * A file modification checker that compares the last modification time and
+ * size of the file first and calculates the checksum only if either of them
+ * has changed. The common case of an unchanged file costs a single file
+ * status lookup instead of reading and hashing the whole file.
+ */
+public class FileStampChangeChecker extends FileContentChangeChecker {
+
+    private volatile Stamp stamp;
+
+    /**
+     * Records the modification stamp and calculates hash of the input file.
+     * @param fileName the input file
+     * @throws Exception if an error occurs
+     */
+    public FileStampChangeChecker(String fileName) throws Exception {
+        // The stamp is read before hashing, so that a change made while
+        // hashing moves the stamp and is detected by the next check
+        this(fileName, readStamp(Paths.get(fileName)));
+    }
+
+    private FileStampChangeChecker(String fileName, Stamp stamp) throws Exception {
+        super(fileName);
+
+        this.stamp = stamp;
+    }
+
+    /**
+     * @return true, if the modification stamp of the file has moved and
+     * its content has changed
+     * @throws Exception if an error occurs
+     */
+    @Override
+    public boolean hasChanged() throws Exception {
+        File file = getFile();
+        Stamp current = readStamp(file.toPath());
+
+        if (current.equals(stamp)) {
+            return false;
+        }
+
+        synchronized (this) {
+            if (current.equals(stamp)) {
+                // Another thread has already processed the change
+                return false;
+            }
+
+            stamp = current;
+
+            return super.hasChanged();
+        }
+    }
+
+    private static Stamp readStamp(Path path) throws Exception {
+        BasicFileAttributes attributes = Files.readAttributes(path, BasicFileAttributes.class);
+
+        return new Stamp(attributes.lastModifiedTime().toMillis(), attributes.size());
+    }
+
+    @Value
+    private static class Stamp {
+        private final long lastModified;
+        private final long length;
+    }
+}
@@ -26,6 +26,7 @@ import java.io.InputStream;
 import java.net.URI;
 
 import lombok.extern.slf4j.Slf4j;
+import org.apache.http.HttpEntity;
 import org.apache.http.HttpResponse;
 import org.apache.http.client.HttpClient;
 import org.apache.http.client.methods.HttpGet;
@@ -95,6 +96,28 @@ public class HttpSender extends AbstractHttpSender {
         doRequest(post);
     }
 
+    /**
+     * Sends the given entity using POST method to some address.
+     * The entity is written on the calling thread.
+     * Method blocks until response becomes available, after which
+     * {@link #getResponseContent()} and {@link #getResponseContentType()}
+     * can be used to retrieve the response.
+     *
+     * @param address the address to send
+     * @param entity the entity to send
+     * @throws Exception if an error occurs
+     */
+    public void doPost(URI address, HttpEntity entity) throws Exception {
+        log.trace("doPost(address = {}, connectionTimeout = {}, socketTimeout = {})", address, connectionTimeout,
+                socketTimeout);
+
+        HttpPost post = new HttpPost(address);
+        post.setConfig(getRequestConfig());
+        post.setEntity(entity);
+
+        doRequest(post);
+    }
+
     @Override
     public void doGet(URI address) throws Exception {
         log.trace("doGet(address = {}, connectionTimeout = {}, socketTimeout = {})", address, connectionTimeout,
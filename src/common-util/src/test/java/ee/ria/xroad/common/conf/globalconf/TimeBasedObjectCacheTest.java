@@ -24,7 +24,12 @@ package ee.ria.xroad.common.conf.globalconf;
 
 import org.junit.Test;
 
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 
 /**
@@ -49,6 +54,61 @@ public class TimeBasedObjectCacheTest {
     assertTrue(cache.isValid("foo"));
   }
 
+  @Test
+  public void testMaxSize() {
+    final int maxSize = 10;
+    TimeBasedObjectCache cache = new TimeBasedObjectCache(60, maxSize);
+    for (int i = 0; i < maxSize * 2; i++) {
+      cache.setValue("key" + i, i);
+      assertTrue(cache.isValid("key0"));
+    }
+    assertTrue(cache.size() <= maxSize);
+    assertEquals(maxSize, cache.getEvictionCount());
+    // recently used entry is kept, least recently used ones are evicted
+    assertTrue(cache.isValid("key0"));
+    assertFalse(cache.isValid("key1"));
+    assertTrue(cache.isValid("key" + (maxSize * 2 - 1)));
+  }
+
+  @Test
+  public void testGetWithLoader() throws IOException {
+    TimeBasedObjectCache cache = new TimeBasedObjectCache(60);
+    AtomicInteger loads = new AtomicInteger();
+    assertEquals("bar0", cache.get("foo", () -> "bar" + loads.getAndIncrement()));
+    assertEquals("bar0", cache.get("foo", () -> "bar" + loads.getAndIncrement()));
+    assertNull(cache.get("null", () -> null));
+    assertTrue(cache.isValid("null"));
+    assertEquals(1, loads.get());
+    assertEquals(2, cache.getMissCount());
+    assertEquals(2, cache.getHitCount()); // second get and isValid
+
+    try {
+      cache.get("failing", () -> {
+        throw new IOException("failed");
+      });
+    } catch (IOException expected) {
+      assertEquals("failed", expected.getMessage());
+    }
+    assertFalse(cache.isValid("failing"));
+  }
+
+  @Test
+  public void testSetValueIfInvalid() {
+    TimeBasedObjectCache cache = new TimeBasedObjectCache(60);
+    assertTrue(cache.setValueIfInvalid("foo", 1));
+    assertFalse(cache.setValueIfInvalid("foo", 2));
+    assertEquals(1, cache.getValue("foo"));
+  }
+
+  @Test
+  public void testZeroExpiration() {
+    TimeBasedObjectCache cache = new TimeBasedObjectCache(0);
+    assertEquals("bar", cache.get("foo", () -> "bar"));
+    assertFalse(cache.isValid("foo"));
+    assertTrue(cache.setValueIfInvalid("foo", 1));
+    assertTrue(cache.setValueIfInvalid("foo", 1));
+  }
+
   /**
    * Idles for given time period
    */
@@ -0,0 +1,109 @@
+/**
+ * The MIT License
+ * Copyright (c) 2015 Estonian Information System Authority (RIA), Population Register Centre (VRK)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package ee.ria.xroad.common.message;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import ee.ria.xroad.common.util.MimeTypes;
+
+import static ee.ria.xroad.common.message.SoapMessageTestUtil.fileToBytes;
+
+/**
+ * SOAP parser benchmark for a message with a large body, both when the
+ * original XML is used as is and when the parser re-encodes it. Run with
+ * the JMH option -prof gc to see the bytes allocated per parsed message
+ * (gc.alloc.rate.norm).
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@State(Scope.Benchmark)
+public class SaxSoapParserBenchmark {
+
+    // size of the body content
+    private static final int BODY_SIZE = 4 * 1024 * 1024;
+
+    private final SaxSoapParserImpl original = new SaxSoapParserImpl();
+
+    private final SaxSoapParserImpl reencoded = new SaxSoapParserImpl() {
+        @Override
+        protected boolean isProcessedXmlRequired() {
+            return true;
+        }
+    };
+
+    private byte[] message;
+
+    /**
+     * Creates the message.
+     * @throws Exception if the query file cannot be read
+     */
+    @Setup
+    public void setUp() throws Exception {
+        String query = new String(fileToBytes("simple.query"), StandardCharsets.UTF_8);
+
+        StringBuilder data = new StringBuilder(BODY_SIZE + 20);
+        data.append("<data>");
+
+        while (data.length() < BODY_SIZE) {
+            data.append("0123456789abcdefghijklmnopqrstuvwxyz");
+        }
+
+        data.append("</data>");
+
+        message = query.replace("<age>35</age>", "<age>35</age>" + data).getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Parses the message using the original XML as is.
+     * @return the parsed message
+     */
+    @Benchmark
+    public Soap parseOriginal() {
+        return original.parse(MimeTypes.TEXT_XML_UTF8, new ByteArrayInputStream(message));
+    }
+
+    /**
+     * Parses the message and re-encodes the XML.
+     * @return the parsed message
+     */
+    @Benchmark
+    public Soap parseReencoded() {
+        return reencoded.parse(MimeTypes.TEXT_XML_UTF8, new ByteArrayInputStream(message));
+    }
+}
@@ -0,0 +1,185 @@
+/**
+ * The MIT License
+ * Copyright (c) 2015 Estonian Information System Authority (RIA), Population Register Centre (VRK)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package ee.ria.xroad.common.message;
+
+import java.io.FileInputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.commons.io.IOUtils;
+import org.junit.Test;
+
+import ee.ria.xroad.common.CodedException;
+
+import static ee.ria.xroad.common.ErrorCodes.X_INVALID_CONTENT_TYPE;
+import static ee.ria.xroad.common.message.SoapMessageTestUtil.QUERY_DIR;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests decoding a SOAP message in two steps with
+ * {@link SoapMessageDecoder#parseSoap(InputStream)} and
+ * {@link SoapMessageDecoder#parseRemaining()}.
+ */
+public class SoapMessageDecoderTest {
+
+    private static final String MULTIPART_CONTENT_TYPE =
+            "multipart/related; charset=UTF-8; boundary=jetty771207119h3h10dty";
+
+    /**
+     * Test that a plain SOAP message is decoded by parseSoap() and the
+     * decoding is completed by parseRemaining().
+     * @throws Exception in case of any unexpected errors
+     */
+    @Test
+    public void soapMessage() throws Exception {
+        RecordingCallback callback = new RecordingCallback();
+        SoapMessageDecoder decoder = new SoapMessageDecoder("text/xml; charset=UTF-8", callback);
+
+        try (InputStream in = new FileInputStream(QUERY_DIR + "simple.query")) {
+            decoder.parseSoap(in);
+
+            assertNotNull("SOAP message should have been decoded", callback.soap);
+            assertEquals(0, callback.completed);
+
+            decoder.parseRemaining();
+        }
+
+        assertTrue(callback.attachments.isEmpty());
+        assertEquals(1, callback.completed);
+        assertNull(callback.error);
+    }
+
+    /**
+     * Test that parseSoap() returns after the SOAP part of a multipart
+     * message and parseRemaining() decodes the attachments.
+     * @throws Exception in case of any unexpected errors
+     */
+    @Test
+    public void multipartMessageStopsAfterSoap() throws Exception {
+        RecordingCallback callback = new RecordingCallback();
+        SoapMessageDecoder decoder = new SoapMessageDecoder(MULTIPART_CONTENT_TYPE, callback);
+
+        try (InputStream in = new FileInputStream(QUERY_DIR + "attachm.query")) {
+            decoder.parseSoap(in);
+
+            assertNotNull("SOAP message should have been decoded", callback.soap);
+            assertEquals("test", callback.soap.getService().getServiceCode());
+            assertTrue("Attachments should not have been read", callback.attachments.isEmpty());
+            assertEquals(0, callback.completed);
+
+            decoder.parseRemaining();
+        }
+
+        assertEquals(1, callback.attachments.size());
+        assertTrue(callback.attachments.get(0).contains("blaah"));
+        assertEquals(1, callback.completed);
+        assertNull(callback.error);
+    }
+
+    /**
+     * Test that parseSoap() and parseRemaining() decode the same attachments
+     * as parse().
+     * @throws Exception in case of any unexpected errors
+     */
+    @Test
+    public void sameResultAsParse() throws Exception {
+        RecordingCallback expected = new RecordingCallback();
+
+        try (InputStream in = new FileInputStream(QUERY_DIR + "attachm.query")) {
+            new SoapMessageDecoder(MULTIPART_CONTENT_TYPE, expected).parse(in);
+        }
+
+        RecordingCallback actual = new RecordingCallback();
+        SoapMessageDecoder decoder = new SoapMessageDecoder(MULTIPART_CONTENT_TYPE, actual);
+
+        try (InputStream in = new FileInputStream(QUERY_DIR + "attachm.query")) {
+            decoder.parseSoap(in);
+            decoder.parseRemaining();
+        }
+
+        assertEquals(expected.soap.getXml(), actual.soap.getXml());
+        assertEquals(expected.attachments, actual.attachments);
+        assertEquals(expected.completed, actual.completed);
+    }
+
+    /**
+     * Test that an error in parseSoap() is passed to the callback and
+     * parseRemaining() only completes the decoding.
+     * @throws Exception in case of any unexpected errors
+     */
+    @Test
+    public void invalidContentType() throws Exception {
+        RecordingCallback callback = new RecordingCallback();
+        SoapMessageDecoder decoder = new SoapMessageDecoder("text/plain", callback);
+
+        try (InputStream in = new FileInputStream(QUERY_DIR + "simple.query")) {
+            decoder.parseSoap(in);
+            decoder.parseRemaining();
+        }
+
+        assertNull(callback.soap);
+        assertNotNull(callback.error);
+        assertEquals(X_INVALID_CONTENT_TYPE, callback.error.getFaultCode());
+        assertEquals(1, callback.completed);
+    }
+
+    private static final class RecordingCallback implements SoapMessageDecoder.Callback {
+
+        private SoapMessageImpl soap;
+        private final List<String> attachments = new ArrayList<>();
+        private int completed;
+        private CodedException error;
+
+        @Override
+        public void soap(SoapMessage message, Map<String, String> additionalHeaders) throws Exception {
+            soap = (SoapMessageImpl) message;
+        }
+
+        @Override
+        public void attachment(String contentType, InputStream content, Map<String, String> additionalHeaders)
+                throws Exception {
+            attachments.add(IOUtils.toString(content, StandardCharsets.UTF_8));
+        }
+
+        @Override
+        public void fault(SoapFault fault) throws Exception {
+            throw new IllegalStateException("Unexpected fault");
+        }
+
+        @Override
+        public void onCompleted() {
+            completed++;
+        }
+
+        @Override
+        public void onError(Exception t) throws Exception {
+            error = (CodedException) t;
+        }
+    }
+}
@@ -227,6 +227,34 @@ public class SoapMessageTest {
         assertEquals("yyy", fault.getDetail());
     }
 
+    /**
+     * Tests that a re-encoding parser keeps the original XML of fault messages
+     * and re-encodes other messages.
+     * @throws Exception in case of any unexpected errors
+     */
+    @Test
+    public void reencodedMessages() throws Exception {
+        SaxSoapParserImpl parser = new SaxSoapParserImpl() {
+            @Override
+            protected boolean isProcessedXmlRequired() {
+                return true;
+            }
+        };
+
+        String faultXml = SoapFault.createFaultXml("foo.bar", "baz", "xxx", "yyy");
+        Soap fault = parser.parse(MimeTypes.TEXT_XML_UTF8, new ByteArrayInputStream(faultXml.getBytes()));
+
+        assertTrue(fault instanceof SoapFault);
+        assertEquals(faultXml, ((SoapFault) fault).getXml());
+
+        Soap message = parser.parse(MimeTypes.TEXT_XML_UTF8, newQueryInputStream("simple.query"));
+
+        assertTrue(message instanceof SoapMessageImpl);
+        assertEquals("1234567890", ((SoapMessageImpl) message).getQueryId());
+        // Re-encoded XML starts with the declaration written by the parser
+        assertTrue(((SoapMessageImpl) message).getXml().startsWith("<?xml version=\"1.0\" encoding=\"UTF-8\"?>"));
+    }
+
     /**
      * Checks that inconsistencies between two messages are detected.
      * @throws Exception in case of any unexpected errors
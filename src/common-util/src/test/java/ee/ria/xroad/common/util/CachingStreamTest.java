@@ -0,0 +1,207 @@
+/**
+ * The MIT License
+ * Copyright (c) 2015 Estonian Information System Authority (RIA), Population Register Centre (VRK)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package ee.ria.xroad.common.util;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.Random;
+
+import org.apache.commons.io.IOUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import ee.ria.xroad.common.SystemProperties;
+
+/**
+ * Unit test for CachingStream.
+ */
+public class CachingStreamTest {
+
+    private static final int THRESHOLD = 100000;
+
+    @Rule
+    public TemporaryFolder tempFolder = new TemporaryFolder();
+
+    /**
+     * Directs temporary files to the test folder.
+     */
+    @Before
+    public void setUp() {
+        System.setProperty(SystemProperties.TEMP_FILES_PATH, tempFolder.getRoot().getPath());
+    }
+
+    /**
+     * Restores the default temporary files path.
+     */
+    @After
+    public void tearDown() {
+        System.clearProperty(SystemProperties.TEMP_FILES_PATH);
+    }
+
+    /**
+     * Tests that small contents are cached in memory.
+     * @throws Exception if error occurs
+     */
+    @Test
+    public void cacheInMemory() throws Exception {
+        byte[] data = randomBytes(THRESHOLD);
+
+        CachingStream stream = new CachingStream(THRESHOLD, Long.MAX_VALUE);
+        write(stream, data);
+
+        assertFalse(stream.isCachedInFile());
+        assertTrue(CachingStream.getMemoryInUse() >= THRESHOLD);
+        assertCachedContents(data, stream);
+
+        stream.consume();
+
+        assertEquals(0, CachingStream.getMemoryInUse());
+        assertEquals(0, tempFolder.getRoot().list().length);
+    }
+
+    /**
+     * Tests that contents over the threshold are cached in a temporary file.
+     * @throws Exception if error occurs
+     */
+    @Test
+    public void cacheInFileOverThreshold() throws Exception {
+        byte[] data = randomBytes(THRESHOLD + 1);
+
+        CachingStream stream = new CachingStream(THRESHOLD, Long.MAX_VALUE);
+        write(stream, data);
+
+        assertTrue(stream.isCachedInFile());
+        assertEquals(0, CachingStream.getMemoryInUse());
+        assertCachedContents(data, stream);
+
+        stream.consume();
+    }
+
+    /**
+     * Tests that contents are cached in a temporary file when the memory
+     * budget has been used up by other streams.
+     * @throws Exception if error occurs
+     */
+    @Test
+    public void cacheInFileOverBudget() throws Exception {
+        byte[] data = randomBytes(THRESHOLD / 2);
+
+        CachingStream first = new CachingStream(THRESHOLD, THRESHOLD);
+        write(first, data);
+
+        CachingStream second = new CachingStream(THRESHOLD, THRESHOLD);
+        write(second, data);
+
+        assertFalse(first.isCachedInFile());
+        assertTrue(second.isCachedInFile());
+        assertCachedContents(data, first);
+        assertCachedContents(data, second);
+
+        first.consume();
+        second.consume();
+
+        assertEquals(0, CachingStream.getMemoryInUse());
+    }
+
+    /**
+     * Tests that a zero threshold caches everything in a temporary file.
+     * @throws Exception if error occurs
+     */
+    @Test
+    public void cacheInFileWithZeroThreshold() throws Exception {
+        byte[] data = randomBytes(1);
+
+        CachingStream stream = new CachingStream(0, Long.MAX_VALUE);
+        write(stream, data);
+
+        assertTrue(stream.isCachedInFile());
+        assertCachedContents(data, stream);
+
+        stream.consume();
+    }
+
+    /**
+     * Tests that contents written a byte at a time are cached across chunk
+     * boundaries and after switching to a temporary file.
+     * @throws Exception if error occurs
+     */
+    @Test
+    public void cacheSingleBytes() throws Exception {
+        byte[] data = randomBytes(THRESHOLD + 1);
+
+        CachingStream stream = new CachingStream(THRESHOLD, Long.MAX_VALUE);
+
+        for (int i = 0; i < THRESHOLD; i++) {
+            stream.write(data[i]);
+        }
+
+        assertFalse(stream.isCachedInFile());
+        assertCachedContents(Arrays.copyOf(data, THRESHOLD), stream);
+
+        stream.write(data[THRESHOLD]);
+
+        assertTrue(stream.isCachedInFile());
+        assertCachedContents(data, stream);
+
+        stream.consume();
+
+        assertEquals(0, CachingStream.getMemoryInUse());
+    }
+
+    private static void write(CachingStream stream, byte[] data) throws Exception {
+        // Write in uneven pieces to cross chunk boundaries
+        int pos = 0;
+        int len = 1;
+
+        while (pos < data.length) {
+            int n = Math.min(len, data.length - pos);
+            stream.write(data, pos, n);
+
+            pos += n;
+            len = len * 3 + 1;
+        }
+
+        stream.close();
+    }
+
+    private static void assertCachedContents(byte[] expected, CachingStream stream) throws Exception {
+        try (InputStream in = stream.getCachedContents()) {
+            assertArrayEquals(expected, IOUtils.toByteArray(in));
+        }
+    }
+
+    private static byte[] randomBytes(int size) {
+        byte[] data = new byte[size];
+        new Random(size).nextBytes(data);
+
+        return data;
+    }
+}
@@ -0,0 +1,119 @@
+/**
+ * The MIT License
+ * Copyright (c) 2015 Estonian Information System Authority (RIA), Population Register Centre (VRK)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package ee.ria.xroad.common.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Unit test for FileStampChangeChecker.
+ */
+public class FileStampChangeCheckerTest {
+
+    @Rule
+    public TemporaryFolder tempFolder = new TemporaryFolder();
+
+    /**
+     * Tests that the checksum is calculated only when the modification
+     * stamp of the file moves.
+     * @throws Exception if error occurs
+     */
+    @Test
+    public void checksumOnlyWhenStampChanges() throws Exception {
+        File file = tempFolder.newFile("keyconf.xml");
+        write(file, "foo", 1000L);
+
+        int[] checksums = new int[1];
+
+        FileStampChangeChecker checker = new FileStampChangeChecker(file.getPath()) {
+            @Override
+            protected String calculateConfFileChecksum(File f) throws Exception {
+                checksums[0]++;
+
+                return super.calculateConfFileChecksum(f);
+            }
+        };
+
+        checksums[0] = 0;
+
+        assertFalse("Should not have changed yet", checker.hasChanged());
+        assertFalse("Should not have changed yet", checker.hasChanged());
+        assertEquals("Checksum should not be calculated", 0, checksums[0]);
+
+        write(file, "bar", 2000L);
+
+        assertTrue("Should have changed", checker.hasChanged());
+        assertFalse("Should not have changed again", checker.hasChanged());
+        assertEquals("Checksum should be calculated once", 1, checksums[0]);
+
+        // Touched but same content
+        write(file, "bar", 3000L);
+
+        assertFalse("Content has not changed", checker.hasChanged());
+        assertEquals("Checksum should be calculated again", 2, checksums[0]);
+    }
+
+    /**
+     * Tests that a change made while the initial checksum is calculated is
+     * detected by the next check.
+     * @throws Exception if error occurs
+     */
+    @Test
+    public void changeWhileHashingIsDetected() throws Exception {
+        File file = tempFolder.newFile("keyconf.xml");
+        write(file, "foo", 1000L);
+
+        boolean[] changed = new boolean[1];
+
+        FileStampChangeChecker checker = new FileStampChangeChecker(file.getPath()) {
+            @Override
+            protected String calculateConfFileChecksum(File f) throws Exception {
+                String checksum = super.calculateConfFileChecksum(f);
+
+                if (!changed[0]) {
+                    changed[0] = true;
+                    write(f, "bar", 2000L);
+                }
+
+                return checksum;
+            }
+        };
+
+        assertTrue("Should have changed", checker.hasChanged());
+        assertFalse("Should not have changed again", checker.hasChanged());
+    }
+
+    private static void write(File file, String content, long lastModified) throws Exception {
+        Files.write(file.toPath(), content.getBytes(StandardCharsets.UTF_8));
+        assertTrue(file.setLastModified(lastModified));
+    }
+}
@@ -32,11 +32,9 @@ import java.security.cert.CertPath;
 import java.security.cert.CertPathBuilder;
 import java.security.cert.CertPathBuilderException;
 import java.security.cert.CertPathValidator;
-import java.security.cert.CertPathValidatorResult;
 import java.security.cert.CertStore;
 import java.security.cert.CollectionCertStoreParameters;
 import java.security.cert.PKIXBuilderParameters;
-import java.security.cert.PKIXCertPathValidatorResult;
 import java.security.cert.TrustAnchor;
 import java.security.cert.X509CertSelector;
 import java.security.cert.X509Certificate;
@@ -49,7 +47,9 @@ import java.util.Set;
 import org.bouncycastle.cert.ocsp.OCSPResp;
 
 import ee.ria.xroad.common.CodedException;
+import ee.ria.xroad.common.SystemProperties;
 import ee.ria.xroad.common.conf.globalconf.GlobalConf;
+import ee.ria.xroad.common.conf.globalconf.TimeBasedObjectCache;
 import ee.ria.xroad.common.conf.globalconfextension.GlobalConfExtensions;
 import ee.ria.xroad.common.ocsp.OcspVerifier;
 import ee.ria.xroad.common.ocsp.OcspVerifierOptions;
@@ -62,6 +62,17 @@ public class CertChainVerifier {
     /** Default validation algorithm type is PKIX. */
     private static final String VALIDATION_ALGORITHM = "PKIX";
 
+    /** Maximum number of cached certification paths. */
+    private static final int VALIDATED_PATHS_MAX_SIZE = 1000;
+
+    /**
+     * Holds successfully validated certification paths. Revocation is not
+     * part of the path validation and is always checked separately.
+     */
+    private static final TimeBasedObjectCache VALIDATED_PATHS =
+            new TimeBasedObjectCache(SystemProperties.getCertPathCachePeriod(),
+                    VALIDATED_PATHS_MAX_SIZE);
+
     /** Holds the PKIX algorithm parameters. */
     private final PKIXBuilderParameters pkixParams;
 
@@ -142,17 +153,21 @@ public class CertChainVerifier {
         verifyImpl(ocspResponses, atDate);
     }
 
+    /**
+     * Removes all cached certification paths. Called when the global
+     * configuration is reloaded.
+     */
+    public static void clearCache() {
+        VALIDATED_PATHS.clear();
+    }
+
     private void verifyImpl(List<OCSPResp> ocspResponses, Date atDate) {
         pkixParams.setDate(atDate);
         try {
-            certPath = buildCertPath(pkixParams);
-
-            PKIXCertPathValidatorResult pkixResult =
-                    verifyCertPath(certPath, pkixParams);
+            certPath = getValidatedCertPath(atDate);
 
             if (ocspResponses != null) {
-                verifyOcspResponses(
-                        getCerts(), ocspResponses, pkixResult, atDate);
+                verifyOcspResponses(getCerts(), ocspResponses, atDate);
             }
         } catch (CertPathBuilderException ex) {
             throw translateWithPrefix(X_CANNOT_CREATE_CERT_PATH, ex);
@@ -161,9 +176,42 @@ public class CertChainVerifier {
         }
     }
 
+    private CertPath getValidatedCertPath(Date atDate) throws Exception {
+        List<X509Certificate> chainCerts = certChain.getAllCerts();
+        String key = getCacheKey(chainCerts);
+
+        ValidatedCertPath validated =
+                (ValidatedCertPath) VALIDATED_PATHS.getValue(key);
+        if (validated != null && validated.getChainCerts().equals(chainCerts)
+                && validated.isValidAt(atDate != null ? atDate : new Date())) {
+            return validated.getCertPath();
+        }
+
+        CertPath path = buildCertPath(pkixParams);
+        verifyCertPath(path, pkixParams);
+
+        VALIDATED_PATHS.setValue(key, new ValidatedCertPath(chainCerts, path));
+
+        return path;
+    }
+
+    /**
+     * The key is derived from the hash codes of the certificates given for
+     * building the path, including the trust anchor. The hash codes are
+     * cached by the certificates, and the certificates themselves are
+     * compared before a cached path is used.
+     */
+    private static String getCacheKey(List<X509Certificate> chainCerts) {
+        StringBuilder key = new StringBuilder();
+        for (X509Certificate cert : chainCerts) {
+            key.append(Integer.toHexString(cert.hashCode())).append('/');
+        }
+
+        return key.toString();
+    }
+
     private void verifyOcspResponses(List<X509Certificate> certs,
-            List<OCSPResp> ocspResponses, PKIXCertPathValidatorResult result,
-            Date atDate) throws Exception {
+            List<OCSPResp> ocspResponses, Date atDate) throws Exception {
         for (X509Certificate subject : certs) {
             X509Certificate issuer =
                     GlobalConf.getCaCert(certChain.getInstanceIdentifier(),
@@ -193,15 +241,12 @@ public class CertChainVerifier {
         return certPathBuilder.build(pkixParams).getCertPath();
     }
 
-    private static PKIXCertPathValidatorResult verifyCertPath(CertPath certPath,
+    private static void verifyCertPath(CertPath certPath,
             PKIXBuilderParameters pkixParams) throws Exception {
         CertPathValidator certPathValidator =
                 CertPathValidator.getInstance(VALIDATION_ALGORITHM);
 
-        CertPathValidatorResult result =
-                certPathValidator.validate(certPath, pkixParams);
-
-        return (PKIXCertPathValidatorResult) result;
+        certPathValidator.validate(certPath, pkixParams);
     }
 
     private static Set<TrustAnchor> createTrustAnchorSet(
@@ -215,4 +260,62 @@ public class CertChainVerifier {
         return trustAnchors;
     }
 
+    /**
+     * Certification path that has been successfully validated. Apart from
+     * the validity periods of the certificates, the result of the validation
+     * does not depend on the validation date, so the path can be reused for
+     * any date when all the certificates in the path are valid.
+     */
+    private static final class ValidatedCertPath {
+
+        /** The end entity, additional and trusted root certificates. */
+        private final List<X509Certificate> chainCerts;
+
+        private final CertPath certPath;
+
+        /** The latest notBefore of the certificates in the path. */
+        private final Date notBefore;
+
+        /** The earliest notAfter of the certificates in the path. */
+        private final Date notAfter;
+
+        @SuppressWarnings("unchecked")
+        ValidatedCertPath(List<X509Certificate> chainCerts,
+                CertPath certPath) {
+            this.chainCerts = chainCerts;
+            this.certPath = certPath;
+
+            Date latestNotBefore = null;
+            Date earliestNotAfter = null;
+
+            for (X509Certificate cert
+                    : (List<X509Certificate>) certPath.getCertificates()) {
+                if (latestNotBefore == null
+                        || cert.getNotBefore().after(latestNotBefore)) {
+                    latestNotBefore = cert.getNotBefore();
+                }
+
+                if (earliestNotAfter == null
+                        || cert.getNotAfter().before(earliestNotAfter)) {
+                    earliestNotAfter = cert.getNotAfter();
+                }
+            }
+
+            this.notBefore = latestNotBefore;
+            this.notAfter = earliestNotAfter;
+        }
+
+        List<X509Certificate> getChainCerts() {
+            return chainCerts;
+        }
+
+        CertPath getCertPath() {
+            return certPath;
+        }
+
+        boolean isValidAt(Date atDate) {
+            return notBefore != null && !atDate.before(notBefore)
+                    && !atDate.after(notAfter);
+        }
+    }
 }
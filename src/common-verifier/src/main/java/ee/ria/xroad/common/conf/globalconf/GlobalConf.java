@@ -25,6 +25,7 @@ package ee.ria.xroad.common.conf.globalconf;
 import ee.ria.xroad.common.CodedException;
 import ee.ria.xroad.common.SystemProperties;
 import ee.ria.xroad.common.cert.CertChain;
+import ee.ria.xroad.common.cert.CertChainVerifier;
 import ee.ria.xroad.common.certificateprofile.AuthCertificateProfileInfo;
 import ee.ria.xroad.common.certificateprofile.SignCertificateProfileInfo;
 import ee.ria.xroad.common.identifier.CentralServiceId;
@@ -105,6 +106,8 @@ public final class GlobalConf {
      * Reloads the configuration.
      */
     public static synchronized void reload() {
+        CertChainVerifier.clearCache();
+
         if (instance != null) {
             try {
                 log.trace("reload called");
@@ -124,6 +127,7 @@ public final class GlobalConf {
      */
     public static void reload(GlobalConfProvider conf) {
         log.trace("reload called with parameter class {}", conf.getClass());
+        CertChainVerifier.clearCache();
         instance = conf;
     }
 
@@ -29,7 +29,6 @@ import ee.ria.xroad.common.certificateprofile.CertificateProfileInfoProvider;
 import ee.ria.xroad.common.certificateprofile.GetCertificateProfile;
 import ee.ria.xroad.common.certificateprofile.SignCertificateProfileInfo;
 import ee.ria.xroad.common.conf.globalconf.sharedparameters.v2.ApprovedTSAType;
-import ee.ria.xroad.common.conf.globalconf.sharedparameters.v2.CentralServiceType;
 import ee.ria.xroad.common.conf.globalconf.sharedparameters.v2.GlobalGroupType;
 import ee.ria.xroad.common.conf.globalconf.sharedparameters.v2.MemberClassType;
 import ee.ria.xroad.common.conf.globalconf.sharedparameters.v2.MemberType;
@@ -38,7 +37,6 @@ import ee.ria.xroad.common.conf.globalconf.sharedparameters.v2.SecurityServerTyp
 import ee.ria.xroad.common.conf.globalconf.sharedparameters.v2.SubsystemType;
 import ee.ria.xroad.common.identifier.*;
 import ee.ria.xroad.common.util.CertUtils;
-import ee.ria.xroad.common.util.CryptoUtils;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.lang3.ArrayUtils;
 import org.apache.commons.lang3.StringUtils;
@@ -108,15 +106,10 @@ public class GlobalConfImpl implements GlobalConfProvider {
     public ServiceId getServiceId(CentralServiceId serviceId) {
         SharedParametersV2 p = getSharedParameters(serviceId.getXRoadInstance());
 
-        for (CentralServiceType centralServiceType : p.getCentralServices()) {
-            if (centralServiceType.getImplementingService() == null) {
-                continue;
-            }
-
-            if (serviceId.getServiceCode().equals(
-                    centralServiceType.getServiceCode())) {
-                return centralServiceType.getImplementingService();
-            }
+        ServiceId implementingService = p.getCentralServiceImplementations()
+                .get(serviceId.getServiceCode());
+        if (implementingService != null) {
+            return implementingService;
         }
 
         throw new CodedException(X_INTERNAL_ERROR,
@@ -170,11 +163,7 @@ public class GlobalConfImpl implements GlobalConfProvider {
             throw new CodedException(X_INTERNAL_ERROR, e);
         }
 
-        return p == null ? null : p.getMembers().stream()
-                .filter(m -> p.createMemberId(m).memberEquals(clientId))
-                .map(MemberType::getName)
-                .findFirst()
-                .orElse(null);
+        return p == null ? null : p.getMemberName(clientId);
     }
 
     @Override
@@ -213,11 +202,9 @@ public class GlobalConfImpl implements GlobalConfProvider {
             throw new CodedException(X_INTERNAL_ERROR, e);
         }
 
-        return p == null ? null : p.getGlobalGroups().stream()
-                .filter(g -> g.getGroupCode().equals(
-                        globalGroupId.getGroupCode()))
-                .map(GlobalGroupType::getDescription)
-                .findFirst().orElse(null);
+        GlobalGroupType globalGroup =
+                p == null ? null : p.findGlobalGroup(globalGroupId);
+        return globalGroup == null ? null : globalGroup.getDescription();
     }
 
     @Override
@@ -303,13 +290,7 @@ public class GlobalConfImpl implements GlobalConfProvider {
         List<X509Certificate> responderCerts = new ArrayList<>();
         try {
             for (SharedParametersV2 p : getSharedParameters()) {
-                for (List<OcspInfoType> ocspTypes
-                        : p.getCaCertsAndOcspData().values()) {
-                    ocspTypes.stream().map(OcspInfoType::getCert)
-                            .filter(Objects::nonNull)
-                            .map(CryptoUtils::readCertificate)
-                            .forEach(responderCerts::add);
-                }
+                responderCerts.addAll(p.getOcspResponderCerts());
             }
         } catch (Exception e) {
             log.error("Error while getting OCSP responder certificates", e);
@@ -382,12 +363,9 @@ public class GlobalConfImpl implements GlobalConfProvider {
     public boolean isOcspResponderCert(X509Certificate ca,
             X509Certificate ocspCert) {
         return getSharedParameters().stream()
-                .map(p -> p.getCaCertsAndOcspData().get(ca))
-                .filter(Objects::nonNull).flatMap(o -> o.stream())
-                .map(OcspInfoType::getCert).filter(Objects::nonNull)
-                .map(CryptoUtils::readCertificate)
-                .filter(c -> c.equals(ocspCert))
-                .findFirst().isPresent();
+                .map(p -> p.getCaCertsAndOcspResponderCerts().get(ca))
+                .filter(Objects::nonNull)
+                .anyMatch(certs -> certs.contains(ocspCert));
     }
 
     @Override
@@ -511,10 +489,7 @@ public class GlobalConfImpl implements GlobalConfProvider {
     @Override
     public List<X509Certificate> getTspCertificates() throws Exception {
         return getSharedParameters().stream()
-                .flatMap(p -> p.getApprovedTSAs().stream())
-                .map(ApprovedTSAType::getCert)
-                .filter(Objects::nonNull)
-                .map(CryptoUtils::readCertificate)
+                .flatMap(p -> p.getTspCerts().stream())
                 .collect(Collectors.toList());
     }
 
@@ -541,13 +516,7 @@ public class GlobalConfImpl implements GlobalConfProvider {
             return false;
         }
 
-        GlobalGroupType group = p.findGlobalGroup(groupId);
-        if (group == null) {
-            return false;
-        }
-
-        return group.getGroupMember().stream().filter(m -> m.equals(subjectId))
-                .findFirst().isPresent();
+        return p.isGlobalGroupMember(groupId, subjectId);
     }
 
     @Override
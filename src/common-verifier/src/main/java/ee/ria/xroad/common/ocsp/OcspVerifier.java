@@ -168,15 +168,11 @@ public final class OcspVerifier {
         }
     }
 
-    private synchronized SingleResp verifyResponseValidityCached(OCSPResp response, X509Certificate subject,
+    private SingleResp verifyResponseValidityCached(OCSPResp response, X509Certificate subject,
                                                                  X509Certificate issuer)
             throws Exception {
         String key = SINGLE_RESP + response.hashCode() + subject.hashCode() + issuer.hashCode();
-        if (!CACHE.isValid(key)) {
-            CACHE.setValue(key, verifyResponseValidity(response, subject, issuer));
-        }
-
-        return (SingleResp) CACHE.getValue(key);
+        return CACHE.get(key, () -> verifyResponseValidity(response, subject, issuer));
     }
 
     private SingleResp verifyResponseValidity(OCSPResp response, X509Certificate subject, X509Certificate issuer)
@@ -230,6 +230,47 @@ public class CertChainTest {
         }
     }
 
+    /**
+     * Tests that a cached certification path is not used at a date when
+     * a certificate in the path is not valid and that the OCSP responses
+     * are verified also when the path is cached.
+     * @throws Exception if an error occurs
+     */
+    @Test
+    public void cachedCertPath() throws Exception {
+        X509Certificate rootCa = TestCertUtil.getCertChainCert("root_ca.p12");
+        X509Certificate interCa1 = TestCertUtil.getCertChainCert("ca_1.p12");
+        X509Certificate interCa2 = TestCertUtil.getCertChainCert("ca_2.p12");
+        X509Certificate interCa3 = TestCertUtil.getCertChainCert("ca_3.p12");
+        X509Certificate userCert = TestCertUtil.getCertChainCert("user_3.p12");
+
+        CertChain chain = new CertChain("EE",
+                userCert,
+                rootCa,
+                Arrays.asList(interCa1, interCa2, interCa3));
+        verify(chain, getAllOcspResponses(),
+                makeDate(rootCa.getNotBefore(), 1));
+        verifyChainOnly(chain, makeDate(rootCa.getNotBefore(), 2));
+
+        try {
+            verifyChainOnly(chain, makeDate(userCert.getNotAfter(), 1));
+            fail("Path validation should fail");
+        } catch (CodedException expected) {
+            // expected
+        }
+
+        try {
+            verify(chain, generateOcspResponses(
+                    Arrays.asList(interCa1, interCa2, interCa3, userCert),
+                    new RevokedStatus(new Date(), 0)),
+                    makeDate(rootCa.getNotBefore(), 1));
+            fail("OCSP verification should fail");
+        } catch (CodedException e) {
+            assertTrue(e.getFaultCode().startsWith(
+                    ErrorCodes.X_INVALID_CERT_PATH_X));
+        }
+    }
+
     // -- Utility methods
 
     private static void  verify(CertChain chain, List<OCSPResp> ocspResponses,
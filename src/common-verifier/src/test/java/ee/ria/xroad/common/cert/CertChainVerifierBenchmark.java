@@ -0,0 +1,105 @@
+/**
+ * The MIT License
+ * Copyright (c) 2015 Estonian Information System Authority (RIA), Population Register Centre (VRK)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package ee.ria.xroad.common.cert;
+
+import java.security.cert.X509Certificate;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import ee.ria.xroad.common.TestCertUtil;
+import ee.ria.xroad.common.TestSecurityUtil;
+
+/**
+ * Certificate chain verification benchmark. Compares building and
+ * validating the certification path for every verification against using
+ * the cached result of an earlier validation.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@State(Scope.Benchmark)
+public class CertChainVerifierBenchmark {
+
+    private CertChain chain;
+    private Date atDate;
+
+    /**
+     * Loads a chain with three intermediate CAs.
+     * @throws Exception if the certificates cannot be loaded
+     */
+    @Setup
+    public void setUp() throws Exception {
+        TestSecurityUtil.initSecurity();
+
+        X509Certificate rootCa = TestCertUtil.getCertChainCert("root_ca.p12");
+        X509Certificate userCert = TestCertUtil.getCertChainCert("user_3.p12");
+
+        chain = new CertChain("EE", userCert, rootCa, Arrays.asList(
+                TestCertUtil.getCertChainCert("ca_1.p12"),
+                TestCertUtil.getCertChainCert("ca_2.p12"),
+                TestCertUtil.getCertChainCert("ca_3.p12")));
+
+        atDate = new Date(userCert.getNotBefore().getTime() + TimeUnit.DAYS.toMillis(1));
+    }
+
+    /**
+     * Builds and validates the certification path.
+     * @return the verifier
+     */
+    @Benchmark
+    public CertChainVerifier verifyUncached() {
+        CertChainVerifier.clearCache();
+
+        return verify();
+    }
+
+    /**
+     * Uses the certification path validated by an earlier verification.
+     * @return the verifier
+     */
+    @Benchmark
+    public CertChainVerifier verifyCached() {
+        return verify();
+    }
+
+    private CertChainVerifier verify() {
+        CertChainVerifier verifier = new CertChainVerifier(chain);
+        verifier.verifyChainOnly(atDate);
+
+        return verifier;
+    }
+}
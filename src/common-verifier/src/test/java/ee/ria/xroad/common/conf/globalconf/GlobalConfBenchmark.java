@@ -0,0 +1,228 @@
+/**
+ * The MIT License
+ * Copyright (c) 2015 Estonian Information System Authority (RIA), Population Register Centre (VRK)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package ee.ria.xroad.common.conf.globalconf;
+
+import ee.ria.xroad.common.identifier.CentralServiceId;
+import ee.ria.xroad.common.identifier.ClientId;
+import ee.ria.xroad.common.identifier.GlobalGroupId;
+import ee.ria.xroad.common.identifier.SecurityServerId;
+import ee.ria.xroad.common.identifier.ServiceId;
+import org.apache.commons.io.FileUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+import static ee.ria.xroad.common.util.CryptoUtils.encodeBase64;
+
+/**
+ * Global configuration lookup benchmark. Generates a shared parameters file
+ * of a large instance and measures the lookups that are performed for every
+ * message.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@State(Scope.Benchmark)
+public class GlobalConfBenchmark {
+
+    private static final String INSTANCE = "PERF";
+    private static final String MEMBER_CLASS = "COM";
+
+    private static final int NUM_MEMBERS = 10000;
+    private static final int NUM_SERVERS = 1000;
+    private static final int NUM_GROUPS = 20;
+    private static final int NUM_GROUP_MEMBERS = 5000;
+    private static final int NUM_CENTRAL_SERVICES = 1000;
+
+    private Path confDir;
+    private GlobalConfImpl globalConf;
+
+    private int next;
+
+    /**
+     * Writes and loads the configuration.
+     * @throws Exception if the configuration cannot be written or loaded
+     */
+    @Setup
+    public void setUp() throws Exception {
+        confDir = Files.createTempDirectory("globalconf-perf");
+
+        writeConfiguration(confDir);
+
+        globalConf = new GlobalConfImpl(new ConfigurationDirectoryV2(confDir.toString()));
+    }
+
+    /**
+     * Deletes the configuration.
+     * @throws Exception if the configuration cannot be deleted
+     */
+    @TearDown
+    public void tearDown() throws Exception {
+        FileUtils.deleteDirectory(confDir.toFile());
+    }
+
+    /**
+     * Looks up the name of a member.
+     * @return the member name
+     */
+    @Benchmark
+    public String memberName() {
+        return globalConf.getMemberName(ClientId.create(INSTANCE, MEMBER_CLASS, member(next() % NUM_MEMBERS)));
+    }
+
+    /**
+     * Checks whether a member belongs to a global group.
+     * @return true, if the member belongs to the group
+     */
+    @Benchmark
+    public boolean globalGroup() {
+        int i = next();
+
+        return globalConf.isSubjectInGlobalGroup(
+                ClientId.create(INSTANCE, MEMBER_CLASS, member(i % NUM_MEMBERS)),
+                GlobalGroupId.create(INSTANCE, group(i % NUM_GROUPS)));
+    }
+
+    /**
+     * Looks up the service implementing a central service.
+     * @return the implementing service
+     */
+    @Benchmark
+    public ServiceId centralService() {
+        return globalConf.getServiceId(CentralServiceId.create(INSTANCE,
+                centralService(next() % NUM_CENTRAL_SERVICES)));
+    }
+
+    /**
+     * Looks up the address of a security server.
+     * @return the address
+     */
+    @Benchmark
+    public String serverAddress() {
+        int i = next() % NUM_SERVERS;
+
+        return globalConf.getSecurityServerAddress(SecurityServerId.create(INSTANCE, MEMBER_CLASS, member(i),
+                server(i)));
+    }
+
+    private int next() {
+        next = (next + 1) % NUM_MEMBERS;
+
+        return next;
+    }
+
+    private static void writeConfiguration(Path confDir) throws Exception {
+        StringBuilder xml = new StringBuilder();
+        xml.append("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n")
+                .append("<tns:conf xmlns:id=\"http://x-road.eu/xsd/identifiers\"")
+                .append(" xmlns:tns=\"http://x-road.eu/xsd/xroad.xsd\">\n")
+                .append("<instanceIdentifier>").append(INSTANCE).append("</instanceIdentifier>\n");
+
+        for (int i = 0; i < NUM_MEMBERS; i++) {
+            xml.append("<member id=\"m").append(i).append("\"><memberClass><code>").append(MEMBER_CLASS)
+                    .append("</code><description>Commercial</description></memberClass>")
+                    .append("<memberCode>").append(member(i)).append("</memberCode>")
+                    .append("<name>Member ").append(i).append("</name>")
+                    .append("<subsystem id=\"s").append(i).append("\"><subsystemCode>subsystem</subsystemCode>")
+                    .append("</subsystem></member>\n");
+        }
+
+        for (int i = 0; i < NUM_SERVERS; i++) {
+            xml.append("<securityServer><owner>m").append(i).append("</owner>")
+                    .append("<serverCode>").append(server(i)).append("</serverCode>")
+                    .append("<address>ss").append(i).append(".example.com</address>")
+                    .append("<authCertHash>").append(encodeBase64(("server" + i).getBytes(StandardCharsets.UTF_8)))
+                    .append("</authCertHash>")
+                    .append("<client>s").append(i).append("</client></securityServer>\n");
+        }
+
+        for (int i = 0; i < NUM_GROUPS; i++) {
+            xml.append("<globalGroup><groupCode>").append(group(i)).append("</groupCode>")
+                    .append("<description>Group ").append(i).append("</description>\n");
+
+            // groups contain every other member, starting from the group index
+            for (int j = 0; j < NUM_GROUP_MEMBERS; j++) {
+                xml.append("<groupMember id:objectType=\"MEMBER\"><id:xRoadInstance>").append(INSTANCE)
+                        .append("</id:xRoadInstance><id:memberClass>").append(MEMBER_CLASS)
+                        .append("</id:memberClass><id:memberCode>").append(member((i + 2 * j) % NUM_MEMBERS))
+                        .append("</id:memberCode></groupMember>\n");
+            }
+
+            xml.append("</globalGroup>\n");
+        }
+
+        for (int i = 0; i < NUM_CENTRAL_SERVICES; i++) {
+            xml.append("<centralService><serviceCode>").append(centralService(i)).append("</serviceCode>")
+                    .append("<implementingService id:objectType=\"SERVICE\"><id:xRoadInstance>").append(INSTANCE)
+                    .append("</id:xRoadInstance><id:memberClass>").append(MEMBER_CLASS)
+                    .append("</id:memberClass><id:memberCode>").append(member(i % NUM_MEMBERS))
+                    .append("</id:memberCode><id:serviceCode>service</id:serviceCode>")
+                    .append("</implementingService></centralService>\n");
+        }
+
+        xml.append("<globalSettings><memberClass><code>").append(MEMBER_CLASS)
+                .append("</code><description>Commercial</description></memberClass>")
+                .append("<ocspFreshnessSeconds>600</ocspFreshnessSeconds></globalSettings>\n")
+                .append("</tns:conf>\n");
+
+        Path instanceDir = Files.createDirectory(confDir.resolve(INSTANCE));
+        Files.write(confDir.resolve("instance-identifier"), INSTANCE.getBytes(StandardCharsets.UTF_8));
+        Files.write(instanceDir.resolve(ConfigurationConstants.FILE_NAME_SHARED_PARAMETERS),
+                xml.toString().getBytes(StandardCharsets.UTF_8));
+        Files.write(instanceDir.resolve(ConfigurationConstants.FILE_NAME_SHARED_PARAMETERS
+                        + ConfigurationDirectoryV2.METADATA_SUFFIX),
+                ("{\"contentIdentifier\":\"SHARED-PARAMETERS\",\"instanceIdentifier\":\"" + INSTANCE
+                        + "\",\"expirationDate\":\"2124-05-20T17:42:55Z\"}").getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static String member(int i) {
+        return "member" + i;
+    }
+
+    private static String server(int i) {
+        return "server" + i;
+    }
+
+    private static String group(int i) {
+        return "group" + i;
+    }
+
+    private static String centralService(int i) {
+        return "central" + i;
+    }
+}
@@ -91,6 +91,35 @@ public class GlobalConfTest {
                 GlobalGroupId.create("EE", "foo")));
     }
 
+    /**
+     * Tests checking the global group membership.
+     */
+    @Test
+    public void isSubjectInGlobalGroup() {
+        GlobalGroupId group = GlobalGroupId.create("EE", "Test group");
+
+        assertTrue(GlobalConf.isSubjectInGlobalGroup(
+                ClientId.create("EE", "BUSINESS", "member2"), group));
+        assertFalse(GlobalConf.isSubjectInGlobalGroup(
+                ClientId.create("EE", "BUSINESS", "member5"), group));
+        assertFalse(GlobalConf.isSubjectInGlobalGroup(
+                ClientId.create("EE", "BUSINESS", "member2"),
+                GlobalGroupId.create("EE", "foo")));
+    }
+
+    /**
+     * Tests getting the member name.
+     */
+    @Test
+    public void getMemberName() {
+        assertEquals("Experimental producer", GlobalConf.getMemberName(
+                ClientId.create("EE", "BUSINESS", "producer")));
+        assertEquals("Org with no address", GlobalConf.getMemberName(
+                ClientId.create("EE", "BUSINESS", "foo", "foosubsystem")));
+        assertNull(GlobalConf.getMemberName(
+                ClientId.create("EE", "BUSINESS", "nonexistent")));
+    }
+
     /**
      * Tests getting the actual service identifier for a given identifier.
      * @throws Exception if an error occurs
@@ -2,9 +2,9 @@
 source compile_env.sh
 
 if [[ -n $1 ]] && [[ $1 == "sonar" ]]; then
-    ./gradlew --stacktrace buildAll runProxyTest runMetaserviceTest runProxymonitorMetaserviceTest dependencyCheckAnalyze sonarqube
+    ./gradlew --stacktrace buildAll runProxyTest runProxySingleThreadPipelineTest runMetaserviceTest runProxymonitorMetaserviceTest dependencyCheckAnalyze sonarqube
 else
-    ./gradlew --stacktrace buildAll runProxyTest runMetaserviceTest runProxymonitorMetaserviceTest
+    ./gradlew --stacktrace buildAll runProxyTest runProxySingleThreadPipelineTest runMetaserviceTest runProxymonitorMetaserviceTest
 fi
 
 rc=$?; if [[ $rc != 0 ]]; then exit $rc; fi
@@ -91,6 +91,17 @@ public final class MetricRegistryHolder {
 
 
 
+    /**
+     * Either registers a new {@link SnapshotHistogram} to metricRegistry, or reuses already registered one.
+     */
+    public SnapshotHistogram getOrCreateSnapshotHistogram(String metricName) {
+        final Histogram histogram = metrics.histogram(metricName, SnapshotHistogram::new);
+        if (histogram instanceof SnapshotHistogram) {
+            return (SnapshotHistogram) histogram;
+        }
+        throw new IllegalArgumentException(metricName + " is already used for a different type of histogram");
+    }
+
     private Histogram createDefaultHistogram() {
         return new Histogram(new SlidingTimeWindowReservoir(MINUTES_IN_HOUR, TimeUnit.MINUTES));
     }
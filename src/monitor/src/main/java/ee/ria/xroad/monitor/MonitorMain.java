@@ -112,6 +112,7 @@ public final class MonitorMain {
         actorSystem.actorOf(Props.create(DiskSpaceSensor.class), "DiskSpaceSensor");
         actorSystem.actorOf(Props.create(ExecListingSensor.class), "ExecListingSensor");
         actorSystem.actorOf(Props.create(CertificateInfoSensor.class), "CertificateInfoSensor");
+        actorSystem.actorOf(Props.create(SignerMetricsSensor.class), "SignerMetricsSensor");
 
         log.info("akka init complete");
     }
@@ -0,0 +1,116 @@
+/**
+ * The MIT License
+ * Copyright (c) 2015 Estonian Information System Authority (RIA), Population Register Centre (VRK)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package ee.ria.xroad.monitor;
+
+import ee.ria.xroad.common.SystemProperties;
+import ee.ria.xroad.signer.protocol.SignerClient;
+import ee.ria.xroad.signer.protocol.message.GetSignerMetrics;
+import ee.ria.xroad.signer.protocol.message.GetSignerMetricsResponse;
+import lombok.extern.slf4j.Slf4j;
+import scala.concurrent.duration.Duration;
+import scala.concurrent.duration.FiniteDuration;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Collects the request handler, token worker mailbox and signing latency
+ * metrics of the signer. Latencies are published as histograms (in
+ * microseconds) and the rest as simple gauges.
+ * Before using SignerMetricsSensor, SignerClient needs to have been initialized
+ * with SignerClient.init()
+ */
+@Slf4j
+public class SignerMetricsSensor extends AbstractSensor {
+
+    // give signer some time to become available
+    private static final FiniteDuration INITIAL_DELAY = Duration.create(10, TimeUnit.SECONDS);
+
+    private final Fetcher fetcher;
+
+    @FunctionalInterface
+    interface Fetcher {
+        GetSignerMetricsResponse fetch() throws Exception;
+    }
+
+    /**
+     * Create new SignerMetricsSensor
+     */
+    public SignerMetricsSensor() {
+        this(() -> SignerClient.execute(new GetSignerMetrics()));
+    }
+
+    /**
+     * Constructor for test purposes
+     * @param fetcher fetches the metrics from the signer
+     */
+    SignerMetricsSensor(Fetcher fetcher) {
+        this.fetcher = fetcher;
+
+        log.info("Creating sensor, measurement interval: {}", getInterval());
+        scheduleSingleMeasurement(INITIAL_DELAY, new SignerMetricsMeasure());
+    }
+
+    private void updateMetrics(GetSignerMetricsResponse response) {
+        MetricRegistryHolder registryHolder = MetricRegistryHolder.getInstance();
+
+        for (Map.Entry<String, long[]> e : response.getLatencies().entrySet()) {
+            registryHolder
+                    .getOrCreateSnapshotHistogram(e.getKey())
+                    .setValues(e.getValue());
+        }
+
+        for (Map.Entry<String, Long> e : response.getGauges().entrySet()) {
+            registryHolder
+                    .<Long>getOrCreateSimpleSensor(e.getKey())
+                    .update(e.getValue());
+        }
+    }
+
+    @Override
+    public void onReceive(Object o) throws Exception {
+        if (o instanceof SignerMetricsMeasure) {
+            log.debug("Updating signer metrics");
+            try {
+                updateMetrics(fetcher.fetch());
+            } catch (Exception e) {
+                log.warn("Failed to get signer metrics: {}", e.getMessage());
+            }
+            scheduleSingleMeasurement(getInterval(), new SignerMetricsMeasure());
+        } else {
+            log.error("received unhandled message {}", o);
+            unhandled(o);
+        }
+    }
+
+    @Override
+    protected FiniteDuration getInterval() {
+        return Duration.create(SystemProperties.getEnvMonitorSignerMetricsSensorInterval(), TimeUnit.SECONDS);
+    }
+
+    /**
+     * Akka message
+     */
+    public static class SignerMetricsMeasure {
+    }
+}
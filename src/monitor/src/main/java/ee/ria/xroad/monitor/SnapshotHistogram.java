@@ -0,0 +1,98 @@
+/**
+ * The MIT License
+ * Copyright (c) 2015 Estonian Information System Authority (RIA), Population Register Centre (VRK)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package ee.ria.xroad.monitor;
+
+import com.codahale.metrics.Histogram;
+import com.codahale.metrics.Reservoir;
+import com.codahale.metrics.Snapshot;
+import com.codahale.metrics.UniformSnapshot;
+
+import java.util.Arrays;
+
+/**
+ * {@link Histogram} that holds the sample values collected by another
+ * process. Setting the values replaces the previous values, and the count
+ * of the histogram is the number of values it currently holds.
+ */
+public class SnapshotHistogram extends Histogram {
+
+    private final SnapshotReservoir reservoir;
+
+    /**
+     * Create new histogram without values.
+     */
+    public SnapshotHistogram() {
+        this(new SnapshotReservoir());
+    }
+
+    private SnapshotHistogram(SnapshotReservoir reservoir) {
+        super(reservoir);
+
+        this.reservoir = reservoir;
+    }
+
+    /**
+     * Replaces the values of the histogram.
+     * @param values the sample values
+     */
+    public void setValues(long[] values) {
+        reservoir.replace(values);
+    }
+
+    @Override
+    public void update(long value) {
+        reservoir.update(value);
+    }
+
+    @Override
+    public long getCount() {
+        return reservoir.size();
+    }
+
+    private static final class SnapshotReservoir implements Reservoir {
+
+        private volatile Snapshot snapshot = new UniformSnapshot(new long[0]);
+
+        @Override
+        public int size() {
+            return snapshot.size();
+        }
+
+        @Override
+        public synchronized void update(long value) {
+            long[] values = Arrays.copyOf(snapshot.getValues(), snapshot.size() + 1);
+            values[values.length - 1] = value;
+
+            snapshot = new UniformSnapshot(values);
+        }
+
+        synchronized void replace(long[] values) {
+            snapshot = new UniformSnapshot(values);
+        }
+
+        @Override
+        public Snapshot getSnapshot() {
+            return snapshot;
+        }
+    }
+}
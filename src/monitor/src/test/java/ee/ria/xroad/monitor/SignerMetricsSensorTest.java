@@ -0,0 +1,118 @@
+/**
+ * The MIT License
+ * Copyright (c) 2015 Estonian Information System Authority (RIA), Population Register Centre (VRK)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package ee.ria.xroad.monitor;
+
+import ee.ria.xroad.signer.protocol.message.GetSignerMetricsResponse;
+
+import akka.actor.ActorSystem;
+import akka.actor.Props;
+import akka.testkit.JavaTestKit;
+import akka.testkit.TestActorRef;
+import com.codahale.metrics.Histogram;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Snapshot;
+import com.typesafe.config.ConfigFactory;
+import org.junit.AfterClass;
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.util.HashMap;
+
+/**
+ * Test for SignerMetricsSensor
+ */
+public class SignerMetricsSensorTest {
+
+    private static ActorSystem actorSystem;
+
+    @BeforeClass
+    public static void init() {
+        actorSystem = ActorSystem.create("AkkaTestServer", ConfigFactory.load());
+    }
+
+    @AfterClass
+    public static void tearDown() {
+        JavaTestKit.shutdownActorSystem(actorSystem);
+    }
+
+    @Test
+    public void testSignerMetricsSensor() {
+        final MetricRegistry registry = new MetricRegistry();
+        MetricRegistryHolder.getInstance().setMetrics(registry);
+
+        HashMap<String, long[]> latencies = new HashMap<>();
+        latencies.put("signer.token.0.sign-latency", new long[] {100, 200, 300});
+
+        HashMap<String, Long> gauges = new HashMap<>();
+        gauges.put("signer.mailbox.user.RequestProcessor", 5L);
+
+        final GetSignerMetricsResponse[] response = {new GetSignerMetricsResponse(latencies, gauges)};
+
+        final TestActorRef<SignerMetricsSensor> sensor = TestActorRef.create(actorSystem,
+                Props.create(SignerMetricsSensor.class, (SignerMetricsSensor.Fetcher) () -> response[0]));
+
+        sensor.tell(new SignerMetricsSensor.SignerMetricsMeasure(), null);
+
+        Histogram histogram = registry.getHistograms().get("signer.token.0.sign-latency");
+        Snapshot snapshot = histogram.getSnapshot();
+        Assert.assertEquals(3, snapshot.size());
+        Assert.assertEquals(3, histogram.getCount());
+        Assert.assertEquals(300, snapshot.getMax());
+        Assert.assertEquals(5L, registry.getGauges().get("signer.mailbox.user.RequestProcessor").getValue());
+
+        // A new measurement replaces the previous values
+        latencies.put("signer.token.0.sign-latency", new long[] {50});
+        gauges.put("signer.mailbox.user.RequestProcessor", 0L);
+        response[0] = new GetSignerMetricsResponse(latencies, gauges);
+
+        sensor.tell(new SignerMetricsSensor.SignerMetricsMeasure(), null);
+
+        snapshot = histogram.getSnapshot();
+        Assert.assertEquals(1, snapshot.size());
+        Assert.assertEquals(1, histogram.getCount());
+        Assert.assertEquals(50, snapshot.getMax());
+        Assert.assertEquals(0L, registry.getGauges().get("signer.mailbox.user.RequestProcessor").getValue());
+
+        // Single values are added to the current ones
+        histogram.update(70);
+
+        Assert.assertEquals(2, histogram.getCount());
+        Assert.assertEquals(70, histogram.getSnapshot().getMax());
+    }
+
+    @Test
+    public void testSignerNotAvailable() {
+        final MetricRegistry registry = new MetricRegistry();
+        MetricRegistryHolder.getInstance().setMetrics(registry);
+
+        final TestActorRef<SignerMetricsSensor> sensor = TestActorRef.create(actorSystem,
+                Props.create(SignerMetricsSensor.class, (SignerMetricsSensor.Fetcher) () -> {
+                    throw new Exception("Signer not available");
+                }));
+
+        sensor.tell(new SignerMetricsSensor.SignerMetricsMeasure(), null);
+
+        Assert.assertTrue(registry.getMetrics().isEmpty());
+    }
+}
@@ -29,14 +29,18 @@ import static ee.ria.xroad.common.util.CryptoUtils.calculateCertHexHash;
 import static ee.ria.xroad.common.util.CryptoUtils.calculateDigest;
 import static ee.ria.xroad.common.util.CryptoUtils.getDigestAlgorithmId;
 
-import java.io.IOException;
-import java.security.NoSuchAlgorithmException;
 import java.security.cert.X509Certificate;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Deque;
 import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
 
-import org.bouncycastle.operator.OperatorCreationException;
+import com.codahale.metrics.Histogram;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
 
 import akka.actor.ActorRef;
 import akka.actor.ActorSystem;
@@ -46,12 +50,14 @@ import akka.actor.UntypedActorWithStash;
 import akka.pattern.Patterns;
 import akka.util.Timeout;
 import ee.ria.xroad.common.CodedException;
+import ee.ria.xroad.common.SystemProperties;
 import ee.ria.xroad.signer.protocol.SignerClient;
 import ee.ria.xroad.signer.protocol.message.GetTokenBatchSigningEnabled;
 import ee.ria.xroad.signer.protocol.message.Sign;
 import ee.ria.xroad.signer.protocol.message.SignResponse;
 import lombok.Data;
 import lombok.Getter;
+import lombok.Value;
 import lombok.extern.slf4j.Slf4j;
 import scala.concurrent.Await;
 
@@ -67,25 +73,44 @@ import scala.concurrent.Await;
  * The batch signer is an Akka actor, it creates child actors per
  * signing certificate, which means there is essentially one batch signer
  * per signing certificate.
+ *
+ * The sizes of the batches, the time the requests wait for the signer and
+ * the signature calculation times are recorded in the metric registry given
+ * at initialization.
  */
 @Slf4j
 public class BatchSigner extends UntypedActor {
 
     private static final Timeout DEFAULT_TIMEOUT = new Timeout(30000, TimeUnit.MILLISECONDS);
 
+    // The Akka scheduler is too coarse for linger times in microseconds.
+    private static final ScheduledExecutorService LINGER_TIMER = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "BatchSigner-linger-timer");
+        thread.setDaemon(true);
+
+        return thread;
+    });
+
     // Holds the actor instance, which sends and receives messages.
     private static ActorRef instance;
 
+    private final Metrics metrics;
+
     /**
      * Initializes the batch signer with the given actor system.
      * @param actorSystem actor system the batch signer should use
+     * @param metricRegistry the registry of the batch signing metrics
      */
-    public static void init(ActorSystem actorSystem) {
+    public static void init(ActorSystem actorSystem, MetricRegistry metricRegistry) {
         if (instance == null) {
-            instance = actorSystem.actorOf(Props.create(BatchSigner.class));
+            instance = actorSystem.actorOf(Props.create(BatchSigner.class, new Metrics(metricRegistry)));
         }
     }
 
+    BatchSigner(Metrics metrics) {
+        this.metrics = metrics;
+    }
+
     /**
      * Submits the given signing request for batch signing.
      * @param keyId the signing key
@@ -142,7 +167,7 @@ public class BatchSigner extends UntypedActor {
         if (worker == null) {
             log.trace("Creating new worker for cert '{}'", name);
 
-            worker = getContext().actorOf(Props.create(WorkerImpl.class), name);
+            worker = getContext().actorOf(Props.create(WorkerImpl.class, metrics), name);
         }
 
         return worker;
@@ -150,20 +175,46 @@ public class BatchSigner extends UntypedActor {
 
     /**
      * This is the worker that does the heavy lifting.
+     *
+     * If batch signing is enabled, the requests that arrive while a signature
+     * is being calculated are collected into the next batch. Additionally, a
+     * request that arrives while the worker is idle can be held back for the
+     * linger time, so that concurrent requests are signed in one batch. The
+     * linger time is limited to the average signature calculation time, since
+     * waiting longer than a signature takes cannot pay off.
      */
     private static class WorkerImpl extends UntypedActorWithStash {
 
+        // The weight of the latest observation in the average signing time.
+        private static final double SIGNING_TIME_WEIGHT = 0.2;
+
+        private final long lingerTime = SystemProperties.getBatchSigningLingerTime();
+        private final int maxBatchSize = SystemProperties.getBatchSigningMaxBatchSize();
+
+        private final Metrics metrics;
+
         // The currently active signing ctx.
         private BatchSignatureCtx workingSigningCtx;
 
-        // The next signing ctx, if batch signing.
-        private BatchSignatureCtx nextSigningCtx;
+        // The next signing contexts, if batch signing.
+        private final Deque<BatchSignatureCtx> nextSigningCtxs = new ArrayDeque<>();
 
         private long signStartTime;
+        private long signStartNanos;
         private boolean workerBusy;
 
+        // Moving average of the successful signature calculation times, in
+        // microseconds. Until the first signature has been calculated, the
+        // linger time is used as is.
+        private double averageSigningTime = lingerTime;
+        private boolean signingTimeObserved;
+
         private Boolean batchSigningEnabled;
 
+        WorkerImpl(Metrics metrics) {
+            this.metrics = metrics;
+        }
+
         @Override
         public void onReceive(Object message) throws Exception {
             log.trace("onReceive({})", message);
@@ -174,6 +225,8 @@ public class BatchSigner extends UntypedActor {
                 handleSignResponse((SignResponse) message);
             } else if (message instanceof Exception) {
                 handleException((Exception) message);
+            } else if (message instanceof LingerTimeout) {
+                handleLingerTimeout((LingerTimeout) message);
             } else {
                 unhandled(message);
             }
@@ -193,7 +246,7 @@ public class BatchSigner extends UntypedActor {
             // busy (signing, generating key, etc...) and batch signing is
             // enabled then create signing context and collect all following
             // sign requests to be signed in batch. Otherwise just sign the
-            // data straight away.
+            // data straight away, or after the linger time, if set.
             if (isWorkerBusy()) {
                 if (batchSigningEnabled) {
                     doBatchSign(signRequest);
@@ -203,6 +256,8 @@ public class BatchSigner extends UntypedActor {
                     // so stash this message for future.
                     stash();
                 }
+            } else if (batchSigningEnabled && lingerTime > 0) {
+                doLingerBatchSign(signRequest);
             } else {
                 doSign(signRequest);
             }
@@ -216,14 +271,54 @@ public class BatchSigner extends UntypedActor {
             }
         }
 
-        private void doBatchSign(SigningRequestWrapper wrapper) {
+        private BatchSignatureCtx doBatchSign(SigningRequestWrapper wrapper) {
             log.trace("doBatchSign()");
 
-            if (nextSigningCtx == null) {
-                nextSigningCtx = new BatchSignatureCtx(wrapper.getKeyId(), wrapper.getSignatureAlgorithmId());
+            BatchSignatureCtx ctx = nextSigningCtxs.peekLast();
+
+            if (ctx == null || isFull(ctx)) {
+                ctx = new BatchSignatureCtx(wrapper.getKeyId(), wrapper.getSignatureAlgorithmId());
+
+                nextSigningCtxs.addLast(ctx);
+            }
+
+            ctx.add(getSender(), wrapper.getRequest());
+
+            return ctx;
+        }
+
+        private void doLingerBatchSign(SigningRequestWrapper wrapper) {
+            log.trace("doLingerBatchSign()");
+
+            BatchSignatureCtx ctx = doBatchSign(wrapper);
+
+            if (isFull(ctx)) {
+                startNextBatchSigning();
+            } else if (ctx.getClients().size() == 1) {
+                scheduleLingerTimeout(ctx);
+            }
+        }
+
+        private void scheduleLingerTimeout(BatchSignatureCtx ctx) {
+            long delay = Math.min(lingerTime, (long) averageSigningTime);
+            ActorRef self = getSelf();
+
+            LINGER_TIMER.schedule(() -> self.tell(new LingerTimeout(ctx), ActorRef.noSender()), delay,
+                    TimeUnit.MICROSECONDS);
+        }
+
+        private void handleLingerTimeout(LingerTimeout timeout) {
+            log.trace("handleLingerTimeout()");
+
+            // The batch may have been started already, because it became full
+            // or a previous signature was calculated in the meantime.
+            if (!workerBusy && nextSigningCtxs.peekFirst() == timeout.getCtx()) {
+                startNextBatchSigning();
             }
+        }
 
-            nextSigningCtx.add(getSender(), wrapper.getRequest());
+        private boolean isFull(BatchSignatureCtx ctx) {
+            return maxBatchSize > 0 && ctx.getClients().size() >= maxBatchSize;
         }
 
         private void doSign(SigningRequestWrapper wrapper) throws Exception {
@@ -234,45 +329,71 @@ public class BatchSigner extends UntypedActor {
 
             workingSigningCtx = ctx;
 
-            doCalculateSignature(ctx.getKeyId(), ctx.getSignatureAlgorithmId(), ctx.getDataToBeSigned());
+            doCalculateSignature(ctx);
         }
 
         private void handleSignResponse(SignResponse signResponse) {
             log.trace("handleSignResponse()");
 
-            workerBusy = false;
+            signingFinished(true);
 
             // Handle the (successful) signature calculation result that came
             // from Signer -- send the signature to the clients.
             sendResponse(signResponse);
 
-            // If batch signing is not enabled, then start signing the next
-            // stashed messages.
-            if (!batchSigningEnabled) {
-                unstashAll();
-            } else if (nextSigningCtx != null) {
-                // Start the next batch signing (if any).
-                startNextBatchSigning();
-            }
+            startNext();
         }
 
         private void handleException(Exception exception) {
             log.trace("handleException()");
 
-            workerBusy = false;
+            // A failure can be much faster than a signature, so its duration
+            // must not shorten the linger time.
+            signingFinished(false);
 
             sendResponse(exception);
+
+            startNext();
+        }
+
+        private void signingFinished(boolean succeeded) {
+            workerBusy = false;
+
+            if (!succeeded) {
+                return;
+            }
+
+            long signingTime = System.nanoTime() - signStartNanos;
+            long signingTimeMicros = TimeUnit.NANOSECONDS.toMicros(signingTime);
+
+            metrics.getSigningTime().update(signingTime, TimeUnit.NANOSECONDS);
+
+            if (signingTimeObserved) {
+                averageSigningTime += SIGNING_TIME_WEIGHT * (signingTimeMicros - averageSigningTime);
+            } else {
+                averageSigningTime = signingTimeMicros;
+                signingTimeObserved = true;
+            }
+        }
+
+        private void startNext() {
+            // If batch signing is not enabled, then start signing the next
+            // stashed messages.
+            if (!Boolean.TRUE.equals(batchSigningEnabled)) {
+                unstashAll();
+            } else if (!nextSigningCtxs.isEmpty()) {
+                // Start the next batch signing (if any).
+                startNextBatchSigning();
+            }
         }
 
         private void startNextBatchSigning() {
             log.trace("startNextBatchSigning()");
 
-            workingSigningCtx = nextSigningCtx;
-            nextSigningCtx = null;
+            workingSigningCtx = nextSigningCtxs.removeFirst();
 
             try {
-                doCalculateSignature(workingSigningCtx.getKeyId(), workingSigningCtx.getSignatureAlgorithmId(),
-                        workingSigningCtx.getDataToBeSigned());
+                doCalculateSignature(workingSigningCtx);
             } catch (Exception e) {
                 sendResponse(workingSigningCtx, translateException(e));
 
@@ -295,15 +416,19 @@ public class BatchSigner extends UntypedActor {
             return workerBusy && System.currentTimeMillis() - signStartTime >= DEFAULT_TIMEOUT.duration().length();
         }
 
-        private void doCalculateSignature(String keyId, String signatureAlgorithmId, byte[] data)
-                throws NoSuchAlgorithmException, IOException, OperatorCreationException {
+        private void doCalculateSignature(BatchSignatureCtx ctx) throws Exception {
             workerBusy = true;
             signStartTime = System.currentTimeMillis();
+            signStartNanos = System.nanoTime();
 
-            byte[] digest = calculateDigest(getDigestAlgorithmId(signatureAlgorithmId), data);
+            metrics.getBatchSize().update(ctx.getClients().size());
+            metrics.getQueueingDelay().update(signStartNanos - ctx.getCreatedAt(), TimeUnit.NANOSECONDS);
+
+            byte[] digest = calculateDigest(getDigestAlgorithmId(ctx.getSignatureAlgorithmId()),
+                    ctx.getDataToBeSigned());
 
             // Proxy this request to the Signer.
-            SignerClient.execute(new Sign(keyId, signatureAlgorithmId, digest), getSelf());
+            SignerClient.execute(new Sign(ctx.getKeyId(), ctx.getSignatureAlgorithmId(), digest), getSelf());
         }
 
         private void sendResponse(Object message) {
@@ -369,6 +494,31 @@ public class BatchSigner extends UntypedActor {
         }
     }
 
+    /**
+     * The batch signing metrics, registered in the registry given at
+     * initialization.
+     */
+    @Getter
+    private static final class Metrics {
+        private final Histogram batchSize;
+        private final Timer queueingDelay;
+        private final Timer signingTime;
+
+        Metrics(MetricRegistry registry) {
+            batchSize = registry.histogram(MetricRegistry.name(BatchSigner.class, "batchSize"));
+            queueingDelay = registry.timer(MetricRegistry.name(BatchSigner.class, "queueingDelay"));
+            signingTime = registry.timer(MetricRegistry.name(BatchSigner.class, "signingTime"));
+        }
+    }
+
+    /**
+     * Tells the worker that the linger time of the signing context is over.
+     */
+    @Value
+    private static class LingerTimeout {
+        private final BatchSignatureCtx ctx;
+    }
+
     /**
      * This signature context is used for batch signing where there might
      * be more than one signature receiver (client).
@@ -381,6 +531,10 @@ public class BatchSigner extends UntypedActor {
         @Getter
         private final String keyId;
 
+        // The time the first request was added, in nanoseconds.
+        @Getter
+        private final long createdAt = System.nanoTime();
+
         BatchSignatureCtx(String keyId, String signatureAlgorithmId) {
             super(signatureAlgorithmId);
 
@@ -26,7 +26,6 @@ import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.List;
 
-import lombok.AccessLevel;
 import lombok.Getter;
 import lombok.SneakyThrows;
 import lombok.extern.slf4j.Slf4j;
@@ -55,11 +54,11 @@ import static ee.ria.xroad.common.util.MessageFileNames.*;
  * result with corresponding hash chains.
  */
 @Slf4j
-class SignatureCtx {
+public class SignatureCtx {
 
     private final List<SigningRequest> requests = new ArrayList<>();
 
-    @Getter(AccessLevel.PACKAGE)
+    @Getter
     private final String signatureAlgorithmId;
     private final String signatureAlgorithmUri;
     private final String digestAlgorithmId;
@@ -69,8 +68,12 @@ class SignatureCtx {
 
     private SignatureXmlBuilder builder;
 
+    /**
+     * Creates the context.
+     * @param signatureAlgorithmId the signature algorithm id
+     */
     @SneakyThrows
-    SignatureCtx(String signatureAlgorithmId) {
+    public SignatureCtx(String signatureAlgorithmId) {
         this.signatureAlgorithmId = signatureAlgorithmId;
 
         signatureAlgorithmUri = CryptoUtils.getSignatureAlgorithmURI(signatureAlgorithmId);
@@ -80,14 +83,14 @@ class SignatureCtx {
     /**
      * Adds a new signing request to this context.
      */
-    synchronized void add(SigningRequest request) {
+    public synchronized void add(SigningRequest request) {
         requests.add(request);
     }
 
     /**
      * Produces the XML signature from the given signed data.
      */
-    synchronized String createSignatureXml(byte[] signatureValue) throws Exception {
+    public synchronized String createSignatureXml(byte[] signatureValue) throws Exception {
         return builder.createSignatureXml(signatureValue);
     }
 
@@ -95,7 +98,7 @@ class SignatureCtx {
      * Returns the signature data for a given signer -- either normal signature
      * or batch signature with corresponding hash chain and hash chain result.
      */
-    synchronized SignatureData createSignatureData(String signature, int signerIndex) {
+    public synchronized SignatureData createSignatureData(String signature, int signerIndex) {
         return new SignatureData(signature, hashChainResult, hashChains != null ? hashChains[signerIndex] : null);
     }
 
@@ -103,7 +106,7 @@ class SignatureCtx {
      * Returns the data to be signed -- if there is only one signing request
      * and the request is simple message (no attachments), then no hash chain is used.
      */
-    synchronized byte[] getDataToBeSigned() throws Exception {
+    public synchronized byte[] getDataToBeSigned() throws Exception {
         log.trace("getDataToBeSigned(requests = {})", requests.size());
 
         if (requests.size() == 0) {
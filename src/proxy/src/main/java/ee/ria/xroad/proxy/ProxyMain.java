@@ -26,6 +26,7 @@ import akka.actor.ActorSelection;
 import akka.actor.ActorSystem;
 import akka.pattern.Patterns;
 import akka.util.Timeout;
+import com.codahale.metrics.MetricRegistry;
 import com.typesafe.config.ConfigFactory;
 import com.typesafe.config.ConfigValueFactory;
 import ee.ria.xroad.common.CommonMessages;
@@ -50,6 +51,7 @@ import ee.ria.xroad.proxy.messagelog.MessageLog;
 import ee.ria.xroad.proxy.opmonitoring.OpMonitoring;
 import ee.ria.xroad.proxy.serverproxy.ServerProxy;
 import ee.ria.xroad.proxy.util.CertHashBasedOcspResponder;
+import ee.ria.xroad.proxy.util.MetricsReporter;
 import ee.ria.xroad.signer.protocol.SignerClient;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.io.IOUtils;
@@ -178,10 +180,11 @@ public final class ProxyMain {
 
     private static void createServices() throws Exception {
         JobManager jobManager = new JobManager();
+        MetricRegistry metricRegistry = new MetricRegistry();
 
         MonitorAgent.init(actorSystem);
         SignerClient.init(actorSystem);
-        BatchSigner.init(actorSystem);
+        BatchSigner.init(actorSystem, metricRegistry);
         MessageLog.init(actorSystem, jobManager);
         OpMonitoring.init(actorSystem);
 
@@ -190,6 +193,7 @@ public final class ProxyMain {
         }
 
         SERVICES.add(jobManager);
+        SERVICES.add(new MetricsReporter(metricRegistry));
         SERVICES.add(new ClientProxy());
         SERVICES.add(new ServerProxy());
 
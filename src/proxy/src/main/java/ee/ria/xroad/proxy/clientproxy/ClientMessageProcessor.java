@@ -70,6 +70,7 @@ import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 import javax.xml.namespace.QName;
 import java.io.InputStream;
+import java.io.OutputStream;
 import java.io.PipedInputStream;
 import java.io.PipedOutputStream;
 import java.io.Writer;
@@ -146,6 +147,19 @@ class ClientMessageProcessor extends MessageProcessorBase {
     /** Holds the request to the server proxy. */
     private ProxyMessageEncoder request;
 
+    /**
+     * If set, the request is decoded, signed and streamed to the server proxy
+     * on the request thread, instead of using the SOAP handler thread and the
+     * piped streams above.
+     */
+    private final boolean singleThreadPipeline = SystemProperties.isClientProxySingleThreadPipeline();
+
+    /** Holds the request decoding state and entity in single thread pipeline mode. */
+    private SoapMessageHandler soapMessageHandler;
+    private SoapMessageDecoder soapMessageDecoder;
+    private Map<String, String> requestSoapHeaders;
+    private StreamingRequestEntity requestEntity;
+
     /** Holds the response from server proxy. */
     private ProxyMessage response;
 
@@ -174,8 +188,13 @@ class ClientMessageProcessor extends MessageProcessorBase {
 
         this.clientCert = clientCert;
         this.opMonitoringData = opMonitoringData;
-        this.reqIns = new PipedInputStream();
-        this.reqOuts = new PipedOutputStream(reqIns);
+
+        if (singleThreadPipeline) {
+            this.requestEntity = new StreamingRequestEntity(this::writeRequest);
+        } else {
+            this.reqIns = new PipedInputStream();
+            this.reqOuts = new PipedOutputStream(reqIns);
+        }
     }
 
     @Override
@@ -184,6 +203,12 @@ class ClientMessageProcessor extends MessageProcessorBase {
 
         updateOpMonitoringClientSecurityServerAddress();
 
+        if (singleThreadPipeline) {
+            processInRequestThread();
+
+            return;
+        }
+
         Future<?> soapHandler = SOAP_HANDLER_EXECUTOR.submit(this::handleSoap);
 
         try {
@@ -222,6 +247,32 @@ class ClientMessageProcessor extends MessageProcessorBase {
         }
     }
 
+    private void processInRequestThread() throws Exception {
+        log.trace("processInRequestThread()");
+
+        try {
+            // Read the request up to the SOAP message, the rest of the
+            // request is read while it is being sent to the server proxy.
+            readSoapMessage();
+
+            checkError();
+
+            verifyClientStatus();
+
+            verifyClientAuthentication();
+
+            processRequest();
+
+            if (response != null) {
+                sendResponse();
+            }
+        } finally {
+            if (response != null) {
+                response.consume();
+            }
+        }
+    }
+
     private void updateOpMonitoringClientSecurityServerAddress() {
         try {
             opMonitoringData.setClientSecurityServerAddress(getSecurityServerAddress());
@@ -238,7 +289,10 @@ class ClientMessageProcessor extends MessageProcessorBase {
             sendRequest(httpSender);
 
             // Check for any errors from the handler thread once more.
-            waitForRequestSent();
+            if (!singleThreadPipeline) {
+                waitForRequestSent();
+            }
+
             checkError();
 
             parseResponse(httpSender);
@@ -294,7 +348,13 @@ class ClientMessageProcessor extends MessageProcessorBase {
             try {
                 opMonitoringData.setRequestOutTs(getEpochMillisecond());
 
-                httpSender.doPost(getDummyServiceAddress(addresses), reqIns, CHUNKED_LENGTH, outputContentType);
+                if (singleThreadPipeline) {
+                    requestEntity.setContentType(outputContentType);
+
+                    httpSender.doPost(getDummyServiceAddress(addresses), requestEntity);
+                } else {
+                    httpSender.doPost(getDummyServiceAddress(addresses), reqIns, CHUNKED_LENGTH, outputContentType);
+                }
 
                 opMonitoringData.setResponseInTs(getEpochMillisecond());
             } catch (Exception e) {
@@ -605,6 +665,46 @@ class ClientMessageProcessor extends MessageProcessorBase {
         }
     }
 
+    private void readSoapMessage() {
+        log.trace("readSoapMessage()");
+
+        soapMessageHandler = new SoapMessageHandler();
+        soapMessageDecoder = new SoapMessageDecoder(servletRequest.getContentType(), soapMessageHandler,
+                new RequestSoapParserImpl());
+        try {
+            originalSoapAction = validateSoapActionHeader(servletRequest.getHeader("SOAPAction"));
+            soapMessageDecoder.parseSoap(servletRequest.getInputStream());
+
+            if (requestSoap == null) {
+                // There is nothing to send, complete the decoding so that
+                // the missing SOAP message gets reported.
+                soapMessageDecoder.parseRemaining();
+            }
+        } catch (Exception ex) {
+            setError(new ClientException(translateException(ex)));
+        }
+    }
+
+    /**
+     * Writes the request to the server proxy in single thread pipeline mode.
+     * Called by the HTTP client when it sends the request entity.
+     */
+    private void writeRequest() {
+        log.trace("writeRequest()");
+
+        try {
+            soapMessageHandler.writeSoapMessage(requestSoapHeaders);
+            soapMessageDecoder.parseRemaining();
+        } catch (Exception ex) {
+            setError(new ClientException(translateException(ex)));
+        } finally {
+            soapMessageHandler.close();
+        }
+    }
+
+    private OutputStream getRequestOutputStream() {
+        return singleThreadPipeline ? requestEntity.getOutputStream() : reqOuts;
+    }
 
     private class SoapMessageHandler implements SoapMessageDecoder.Callback {
 
@@ -620,14 +720,26 @@ class ClientMessageProcessor extends MessageProcessorBase {
             updateOpMonitoringDataBySoapMessage(opMonitoringData, requestSoap);
 
             if (request == null) {
-                request = new ProxyMessageEncoder(reqOuts, SoapUtils.getHashAlgoId());
+                request = new ProxyMessageEncoder(getRequestOutputStream(), SoapUtils.getHashAlgoId());
                 outputContentType = request.getContentType();
             }
 
+            if (singleThreadPipeline) {
+                // The request to server proxy is not open yet, the SOAP
+                // message is written when the request is being sent.
+                requestSoapHeaders = headers;
+
+                return;
+            }
+
             // We have the request SOAP message, we can start sending the
             // request to server proxy.
             continueProcessing();
 
+            writeSoapMessage(headers);
+        }
+
+        void writeSoapMessage(Map<String, String> headers) throws Exception {
             // In SSL mode, we need to send the OCSP response of our SSL cert.
             if (isSslEnabled()) {
                 writeOcspResponses();
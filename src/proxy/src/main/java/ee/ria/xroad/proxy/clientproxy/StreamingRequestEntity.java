@@ -0,0 +1,152 @@
+/**
+ * The MIT License
+ * Copyright (c) 2015 Estonian Information System Authority (RIA), Population Register Centre (VRK)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package ee.ria.xroad.proxy.clientproxy;
+
+import lombok.extern.slf4j.Slf4j;
+import org.apache.http.entity.AbstractHttpEntity;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+/**
+ * HTTP entity that produces the request body on the thread that executes
+ * the HTTP request. The message encoder must exist before the request is
+ * sent (the content type depends on it), so it writes into
+ * {@link #getOutputStream()}, which is connected to the connection output
+ * stream for the duration of {@link #writeTo(OutputStream)}.
+ */
+@Slf4j
+class StreamingRequestEntity extends AbstractHttpEntity {
+
+    private final OutputStream outputStream = new ForwardingOutputStream();
+
+    private final Runnable bodyWriter;
+
+    private OutputStream target;
+    private boolean consumed;
+
+    /**
+     * Creates the entity.
+     * @param bodyWriter writes the request body into the output stream of
+     * this entity, called once when the request is sent
+     */
+    StreamingRequestEntity(Runnable bodyWriter) {
+        this.bodyWriter = bodyWriter;
+
+        setChunked(true);
+    }
+
+    /**
+     * @return the output stream the request body should be written to
+     */
+    OutputStream getOutputStream() {
+        return outputStream;
+    }
+
+    @Override
+    public boolean isRepeatable() {
+        return false;
+    }
+
+    @Override
+    public long getContentLength() {
+        return -1;
+    }
+
+    /**
+     * Writes the request body into memory and returns it as an input stream.
+     * The HTTP client does not use this when sending the request, the body
+     * is streamed by {@link #writeTo(OutputStream)} instead. As the entity is
+     * not repeatable, the content can be obtained only once.
+     */
+    @Override
+    public InputStream getContent() throws IOException {
+        ByteArrayOutputStream content = new ByteArrayOutputStream();
+        writeTo(content);
+
+        return new ByteArrayInputStream(content.toByteArray());
+    }
+
+    @Override
+    public void writeTo(OutputStream out) throws IOException {
+        log.trace("writeTo()");
+
+        if (consumed) {
+            throw new IllegalStateException("Entity has already been written");
+        }
+
+        consumed = true;
+        target = out;
+
+        try {
+            bodyWriter.run();
+
+            out.flush();
+        } finally {
+            target = null;
+        }
+    }
+
+    @Override
+    public boolean isStreaming() {
+        return !consumed;
+    }
+
+    private class ForwardingOutputStream extends OutputStream {
+
+        @Override
+        public void write(int b) throws IOException {
+            getTarget().write(b);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            getTarget().write(b, off, len);
+        }
+
+        @Override
+        public void flush() throws IOException {
+            if (target != null) {
+                target.flush();
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            // The HTTP client closes the connection output stream itself
+            // after the entity has been written.
+            flush();
+        }
+
+        private OutputStream getTarget() throws IOException {
+            if (target == null) {
+                throw new IOException("Request is not being sent");
+            }
+
+            return target;
+        }
+    }
+}
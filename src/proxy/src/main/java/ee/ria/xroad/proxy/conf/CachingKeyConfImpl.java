@@ -25,9 +25,9 @@ package ee.ria.xroad.proxy.conf;
 import java.security.PrivateKey;
 import java.security.cert.X509Certificate;
 import java.util.Date;
-import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 import lombok.extern.slf4j.Slf4j;
 
@@ -40,7 +40,7 @@ import ee.ria.xroad.common.conf.globalconf.AuthKey;
 import ee.ria.xroad.common.conf.serverconf.ServerConf;
 import ee.ria.xroad.common.identifier.ClientId;
 import ee.ria.xroad.common.identifier.SecurityServerId;
-import ee.ria.xroad.common.util.FileContentChangeChecker;
+import ee.ria.xroad.common.util.FileStampChangeChecker;
 import ee.ria.xroad.signer.protocol.SignerClient;
 import ee.ria.xroad.signer.protocol.dto.AuthKeyInfo;
 import ee.ria.xroad.signer.protocol.dto.MemberSigningInfo;
@@ -59,26 +59,28 @@ class CachingKeyConfImpl extends KeyConfImpl {
     // Specifies how long data is cached
     private static final int CACHE_PERIOD_SECONDS = 300;
 
-    private final FileContentChangeChecker keyConfChangeChecker;
+    private final FileStampChangeChecker keyConfChangeChecker;
 
-    private final Map<ClientId, CachedSigningInfoImpl> signingInfoCache = new HashMap<>();
+    private final Map<ClientId, CachedSigningInfoImpl> signingInfoCache = new ConcurrentHashMap<>();
 
-    private CachedAuthKeyInfoImpl authKeyInfo;
+    private volatile CachedAuthKeyInfoImpl authKeyInfo;
 
     CachingKeyConfImpl() throws Exception {
-        keyConfChangeChecker = new FileContentChangeChecker(SystemProperties.getKeyConfFile());
+        keyConfChangeChecker = new FileStampChangeChecker(SystemProperties.getKeyConfFile());
     }
 
     @Override
     public SigningCtx getSigningCtx(ClientId clientId) {
+        invalidateIfKeyConfChanged();
+
         CachedSigningInfoImpl signingInfo = signingInfoCache.get(clientId);
 
         try {
-            if (hasExpired(signingInfo) || keyConfHasChanged()) {
+            if (hasExpired(signingInfo)) {
                 signingInfo = getSigningInfo(clientId);
-            }
 
-            signingInfoCache.put(clientId, signingInfo);
+                signingInfoCache.put(clientId, signingInfo);
+            }
 
             return signingInfo.getSigningCtx();
         } catch (Exception e) {
@@ -89,12 +91,17 @@ class CachingKeyConfImpl extends KeyConfImpl {
 
     @Override
     public AuthKey getAuthKey() {
+        invalidateIfKeyConfChanged();
+
+        CachedAuthKeyInfoImpl cachedAuthKeyInfo = authKeyInfo;
+
         try {
-            if (hasExpired(authKeyInfo) || keyConfHasChanged()) {
-                authKeyInfo = getAuthKeyInfo();
+            if (hasExpired(cachedAuthKeyInfo)) {
+                cachedAuthKeyInfo = getAuthKeyInfo();
+                authKeyInfo = cachedAuthKeyInfo;
             }
 
-            return authKeyInfo.getAuthKey();
+            return cachedAuthKeyInfo.getAuthKey();
         } catch (Exception e) {
             log.error("Failed to get authentication key", e);
 
@@ -102,6 +109,15 @@ class CachingKeyConfImpl extends KeyConfImpl {
         }
     }
 
+    private void invalidateIfKeyConfChanged() {
+        if (keyConfHasChanged()) {
+            // The change is reported to a single caller only, so drop everything
+            // cached under the previous key configuration for all threads.
+            signingInfoCache.clear();
+            authKeyInfo = null;
+        }
+    }
+
     boolean keyConfHasChanged() {
         try {
             boolean changed = keyConfChangeChecker.hasChanged();
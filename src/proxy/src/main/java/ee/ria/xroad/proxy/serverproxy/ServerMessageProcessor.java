@@ -28,6 +28,7 @@ import ee.ria.xroad.common.cert.CertChain;
 import ee.ria.xroad.common.cert.CertHelper;
 import ee.ria.xroad.common.conf.globalconf.GlobalConf;
 import ee.ria.xroad.common.conf.serverconf.ServerConf;
+import ee.ria.xroad.common.conf.serverconf.ServiceAccessDecision;
 import ee.ria.xroad.common.conf.serverconf.model.ClientType;
 import ee.ria.xroad.common.identifier.ClientId;
 import ee.ria.xroad.common.identifier.SecurityCategoryId;
@@ -68,10 +69,10 @@ import java.io.Writer;
 import java.net.URI;
 import java.net.URISyntaxException;
 import java.security.cert.X509Certificate;
-import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
 import java.util.Map;
+import java.util.function.Supplier;
 
 import static ee.ria.xroad.common.ErrorCodes.*;
 import static ee.ria.xroad.common.util.AbstractHttpSender.CHUNKED_LENGTH;
@@ -85,17 +86,16 @@ import static ee.ria.xroad.common.util.TimeUtils.getEpochMillisecond;
 @Slf4j
 class ServerMessageProcessor extends MessageProcessorBase {
 
-    private static final String SERVERPROXY_SERVICE_HANDLERS = SystemProperties.PREFIX + "proxy.serverServiceHandlers";
-
     private final X509Certificate[] clientSslCerts;
 
-    private final List<ServiceHandler> handlers = new ArrayList<>();
+    private final List<Supplier<ServiceHandler>> serviceHandlers;
 
     private String originalSoapAction;
     private ProxyMessage requestMessage;
     private ServiceId requestServiceId;
     private SoapMessageImpl responseSoap;
     private SoapFault responseFault;
+    private ServiceAccessDecision serviceAccess;
 
     private ProxyMessageDecoder decoder;
     private ProxyMessageEncoder encoder;
@@ -107,14 +107,13 @@ class ServerMessageProcessor extends MessageProcessorBase {
 
     ServerMessageProcessor(HttpServletRequest servletRequest, HttpServletResponse servletResponse,
             HttpClient httpClient, X509Certificate[] clientSslCerts, HttpClient opMonitorHttpClient,
-            OpMonitoringData opMonitoringData) {
+            OpMonitoringData opMonitoringData, List<Supplier<ServiceHandler>> serviceHandlers) {
         super(servletRequest, servletResponse, httpClient);
 
         this.clientSslCerts = clientSslCerts;
         this.opMonitorHttpClient = opMonitorHttpClient;
         this.opMonitoringData = opMonitoringData;
-
-        loadServiceHandlers();
+        this.serviceHandlers = serviceHandlers;
     }
 
     @Override
@@ -181,37 +180,21 @@ class ServerMessageProcessor extends MessageProcessorBase {
         opMonitoringData.setSucceeded(true);
     }
 
-    private void loadServiceHandlers() {
-        String serviceHandlerNames = System.getProperty(SERVERPROXY_SERVICE_HANDLERS);
-
-        if (!StringUtils.isBlank(serviceHandlerNames)) {
-            for (String serviceHandlerName : serviceHandlerNames.split(",")) {
-                handlers.add(ServiceHandlerLoader.load(serviceHandlerName));
-
-                log.debug("Loaded service handler: " + serviceHandlerName);
-            }
-        }
-
-        handlers.add(new DefaultServiceHandlerImpl()); // default handler
-    }
-
     private ServiceHandler getServiceHandler(ProxyMessage request) {
-        for (ServiceHandler handler : handlers) {
+        for (Supplier<ServiceHandler> serviceHandler : serviceHandlers) {
+            ServiceHandler handler = serviceHandler.get();
+
             if (handler.canHandle(requestServiceId, request)) {
                 return handler;
             }
         }
 
-        return null;
+        return new DefaultServiceHandlerImpl(); // default handler
     }
 
     private void handleRequest() throws Exception {
         ServiceHandler handler = getServiceHandler(requestMessage);
 
-        if (handler == null) {
-            handler = new DefaultServiceHandlerImpl();
-        }
-
         if (handler.shouldVerifyAccess()) {
             verifyAccess();
         }
@@ -343,17 +326,19 @@ class ServerMessageProcessor extends MessageProcessorBase {
     private void verifyAccess() throws Exception {
         log.trace("verifyAccess()");
 
-        if (!ServerConf.serviceExists(requestServiceId)) {
+        ServiceAccessDecision access = getServiceAccess();
+
+        if (!access.isServiceExists()) {
             throw new CodedException(X_UNKNOWN_SERVICE, "Unknown service: %s", requestServiceId);
         }
 
-        verifySecurityCategory(requestServiceId);
+        verifySecurityCategory(access.getRequiredCategories());
 
-        if (!ServerConf.isQueryAllowed(requestMessage.getSoap().getClient(), requestServiceId)) {
+        if (!access.isQueryAllowed()) {
             throw new CodedException(X_ACCESS_DENIED, "Request is not allowed: %s", requestServiceId);
         }
 
-        String disabledNotice = ServerConf.getDisabledNotice(requestServiceId);
+        String disabledNotice = access.getDisabledNotice();
 
         if (disabledNotice != null) {
             throw new CodedException(X_SERVICE_DISABLED, "Service %s is disabled: %s", requestServiceId,
@@ -361,8 +346,16 @@ class ServerMessageProcessor extends MessageProcessorBase {
         }
     }
 
-    private void verifySecurityCategory(ServiceId service) throws Exception {
-        Collection<SecurityCategoryId> required = ServerConf.getRequiredCategories(service);
+    private ServiceAccessDecision getServiceAccess() {
+        if (serviceAccess == null) {
+            serviceAccess = ServerConf.getServiceAccessDecision(requestMessage.getSoap().getClient(),
+                    requestServiceId);
+        }
+
+        return serviceAccess;
+    }
+
+    private void verifySecurityCategory(Collection<SecurityCategoryId> required) throws Exception {
 
         if (required == null || required.isEmpty()) {
             // Service requires nothing, we are satisfied.
@@ -592,14 +585,15 @@ class ServerMessageProcessor extends MessageProcessorBase {
 
             log.trace("processRequest({})", requestServiceId);
 
-            String address = ServerConf.getServiceAddress(requestServiceId);
+            ServiceAccessDecision access = getServiceAccess();
+            String address = access.getServiceAddress();
 
             if (address == null || address.isEmpty()) {
                 throw new CodedException(X_SERVICE_MISSING_URL, "Service address not specified for '%s'",
                         requestServiceId);
             }
 
-            int timeout = TimeUtils.secondsToMillis(ServerConf.getServiceTimeout(requestServiceId));
+            int timeout = TimeUtils.secondsToMillis(access.getServiceTimeout());
 
             sender.setConnectionTimeout(timeout);
             sender.setSocketTimeout(timeout);
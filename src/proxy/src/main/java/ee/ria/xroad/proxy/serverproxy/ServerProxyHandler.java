@@ -44,6 +44,8 @@ import javax.servlet.http.HttpServletResponse;
 import java.io.IOException;
 import java.security.cert.X509Certificate;
 import java.util.Date;
+import java.util.List;
+import java.util.function.Supplier;
 
 import static ee.ria.xroad.common.ErrorCodes.SERVER_SERVERPROXY_X;
 import static ee.ria.xroad.common.ErrorCodes.X_INVALID_HTTP_METHOD;
@@ -58,10 +60,12 @@ class ServerProxyHandler extends HandlerBase {
 
     private final HttpClient client;
     private final HttpClient opMonitorClient;
+    private final List<Supplier<ServiceHandler>> serviceHandlers;
 
     ServerProxyHandler(HttpClient client, HttpClient opMonitorClient) {
         this.client = client;
         this.opMonitorClient = opMonitorClient;
+        this.serviceHandlers = ServiceHandlerLoader.loadServiceHandlers();
     }
 
     @Override
@@ -109,7 +113,7 @@ class ServerProxyHandler extends HandlerBase {
     private ServerMessageProcessor createRequestProcessor(HttpServletRequest request, HttpServletResponse response,
             final long start, OpMonitoringData opMonitoringData) throws Exception {
         return new ServerMessageProcessor(request, response, client, getClientSslCertChain(request), opMonitorClient,
-                opMonitoringData) {
+                opMonitoringData, serviceHandlers) {
             @Override
             protected void postprocess() throws Exception {
                 super.postprocess();
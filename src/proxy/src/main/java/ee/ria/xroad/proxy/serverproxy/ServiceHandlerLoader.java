@@ -22,19 +22,68 @@
  */
 package ee.ria.xroad.proxy.serverproxy;
 
+import ee.ria.xroad.common.SystemProperties;
+
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.lang3.StringUtils;
+
+import java.lang.reflect.Constructor;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Supplier;
+
+/**
+ * Resolves the additional service handlers configured for the server proxy.
+ * The handler classes and their constructors are looked up once, the
+ * handlers keep per-request state and are created for every request.
+ */
+@Slf4j
 final class ServiceHandlerLoader {
 
+    private static final String SERVERPROXY_SERVICE_HANDLERS = SystemProperties.PREFIX + "proxy.serverServiceHandlers";
+
     private ServiceHandlerLoader() {
     }
 
-    static ServiceHandler load(String className) {
+    /**
+     * @return immutable list of service handler suppliers in the order the
+     * handlers were configured
+     */
+    static List<Supplier<ServiceHandler>> loadServiceHandlers() {
+        String serviceHandlerNames = System.getProperty(SERVERPROXY_SERVICE_HANDLERS);
+
+        List<Supplier<ServiceHandler>> handlers = new ArrayList<>();
+
+        if (!StringUtils.isBlank(serviceHandlerNames)) {
+            for (String serviceHandlerName : serviceHandlerNames.split(",")) {
+                handlers.add(load(serviceHandlerName.trim()));
+
+                log.debug("Loaded service handler: " + serviceHandlerName);
+            }
+        }
+
+        return Collections.unmodifiableList(handlers);
+    }
+
+    static Supplier<ServiceHandler> load(String className) {
         try {
-            Class<?> clazz = Class.forName(className);
-            return (ServiceHandler) clazz.newInstance();
+            Class<? extends ServiceHandler> clazz = Class.forName(className).asSubclass(ServiceHandler.class);
+            Constructor<? extends ServiceHandler> constructor = clazz.getDeclaredConstructor();
+
+            return () -> newInstance(constructor);
         } catch (Exception e) {
             throw new RuntimeException("Failed to load service handler: "
                     + className, e);
         }
     }
 
+    private static ServiceHandler newInstance(Constructor<? extends ServiceHandler> constructor) {
+        try {
+            return constructor.newInstance();
+        } catch (Exception e) {
+            throw new RuntimeException("Failed to create service handler: "
+                    + constructor.getDeclaringClass().getName(), e);
+        }
+    }
 }
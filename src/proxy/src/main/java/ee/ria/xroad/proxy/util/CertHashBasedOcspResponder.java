@@ -27,29 +27,24 @@ import java.io.InputStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
-import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.List;
 
 import javax.servlet.ServletException;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 
 import lombok.extern.slf4j.Slf4j;
-import org.bouncycastle.cert.ocsp.OCSPResp;
 import org.eclipse.jetty.server.HttpConnectionFactory;
 import org.eclipse.jetty.server.Request;
 import org.eclipse.jetty.server.Server;
 import org.eclipse.jetty.server.ServerConnector;
 import org.eclipse.jetty.server.handler.AbstractHandler;
-import org.eclipse.jetty.util.MultiPartOutputStream;
 import org.eclipse.jetty.xml.XmlConfiguration;
 
 import ee.ria.xroad.common.SystemProperties;
-import ee.ria.xroad.common.util.MimeTypes;
-import ee.ria.xroad.common.util.MimeUtils;
 import ee.ria.xroad.common.util.StartStop;
 import ee.ria.xroad.proxy.conf.KeyConf;
+import ee.ria.xroad.proxy.util.CertHashBasedOcspResponseCache.CachedResponse;
 
 /**
  * Service responsible for responding with OCSP responses of SSL certificates identified with the certificate hashes.
@@ -58,6 +53,9 @@ import ee.ria.xroad.proxy.conf.KeyConf;
  *
  * To retrieve OCSP responses, send a GET request to this service:
  * http://<host>:<port>/?cert=hash1&cert=hash2&cert=hash3 ...
+ *
+ * Response bodies are cached and carry an entity tag. A request whose If-None-Match header matches
+ * the entity tag of the current body is answered with 304 Not Modified.
  */
 @Slf4j
 public class CertHashBasedOcspResponder implements StartStop {
@@ -67,8 +65,15 @@ public class CertHashBasedOcspResponder implements StartStop {
 
     private static final String CERT_PARAM = "cert";
 
+    private static final String HEADER_ETAG = "ETag";
+    private static final String HEADER_IF_NONE_MATCH = "If-None-Match";
+    private static final String HEADER_CACHE_CONTROL = "Cache-Control";
+
     private final Server server = new Server();
 
+    private final CertHashBasedOcspResponseCache responseCache = new CertHashBasedOcspResponseCache(
+            KeyConf::getOcspResponse, SystemProperties.getOcspResponderCachePeriod());
+
     /**
      * Constructs a cert hash responder.
      * @throws Exception in case of any errors
@@ -140,21 +145,25 @@ public class CertHashBasedOcspResponder implements StartStop {
 
     private void doHandleRequest(HttpServletRequest request, HttpServletResponse response) throws Exception {
         String[] hashes = getCertHashes(request);
-        List<OCSPResp> ocspResponses = getOcspResponses(hashes);
+        CachedResponse cached = responseCache.get(hashes);
 
-        log.debug("Returning OCSP responses for cert hashes: " + Arrays.toString(hashes));
+        response.setHeader(HEADER_ETAG, cached.getEtag());
+        response.setHeader(HEADER_CACHE_CONTROL, "max-age=" + cached.getMaxAge(System.currentTimeMillis()));
 
-        MultiPartOutputStream mpResponse = new MultiPartOutputStream(response.getOutputStream());
+        if (cached.matches(request.getHeader(HEADER_IF_NONE_MATCH))) {
+            log.debug("OCSP responses for cert hashes not modified: " + Arrays.toString(hashes));
 
-        response.setContentType(MimeUtils.mpRelatedContentType(mpResponse.getBoundary(), MimeTypes.OCSP_RESPONSE));
-        response.setStatus(HttpServletResponse.SC_OK);
+            response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
 
-        for (OCSPResp ocsp : ocspResponses) {
-            mpResponse.startPart(MimeTypes.OCSP_RESPONSE);
-            mpResponse.write(ocsp.getEncoded());
+            return;
         }
 
-        mpResponse.close();
+        log.debug("Returning OCSP responses for cert hashes: " + Arrays.toString(hashes));
+
+        response.setContentType(cached.getContentType());
+        response.setContentLength(cached.getBody().length);
+        response.setStatus(HttpServletResponse.SC_OK);
+        response.getOutputStream().write(cached.getBody());
     }
 
     private class RequestHandler extends AbstractHandler {
@@ -187,26 +196,6 @@ public class CertHashBasedOcspResponder implements StartStop {
         }
     }
 
-    private static List<OCSPResp> getOcspResponses(String[] hashes) throws Exception {
-        List<OCSPResp> ocspResponses = new ArrayList<>(hashes.length);
-
-        for (String certHash : hashes) {
-            ocspResponses.add(getOcspResponse(certHash));
-        }
-
-        return ocspResponses;
-    }
-
-    private static OCSPResp getOcspResponse(String certHash) throws Exception {
-        OCSPResp ocsp = KeyConf.getOcspResponse(certHash);
-
-        if (ocsp == null) {
-            throw new Exception("Could not find OCSP response for certificate " + certHash);
-        }
-
-        return ocsp;
-    }
-
     private static String[] getCertHashes(HttpServletRequest request) throws Exception {
         String[] paramValues = request.getParameterValues(CERT_PARAM);
 
@@ -0,0 +1,221 @@
+/**
+ * The MIT License
+ * Copyright (c) 2015 Estonian Information System Authority (RIA), Population Register Centre (VRK)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package ee.ria.xroad.proxy.util;
+
+import java.io.ByteArrayOutputStream;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+import lombok.Value;
+import lombok.extern.slf4j.Slf4j;
+import org.bouncycastle.cert.ocsp.BasicOCSPResp;
+import org.bouncycastle.cert.ocsp.OCSPResp;
+import org.bouncycastle.cert.ocsp.SingleResp;
+import org.eclipse.jetty.util.MultiPartOutputStream;
+
+import ee.ria.xroad.common.util.MimeTypes;
+import ee.ria.xroad.common.util.MimeUtils;
+
+import static ee.ria.xroad.common.util.CryptoUtils.SHA256_ID;
+import static ee.ria.xroad.common.util.CryptoUtils.calculateDigest;
+import static ee.ria.xroad.common.util.CryptoUtils.encodeHex;
+
+/**
+ * Caches the response bodies of {@link CertHashBasedOcspResponder} by the
+ * requested certificate hashes. A body is cached for the configured cache
+ * period, but never past the earliest nextUpdate of the OCSP responses it
+ * contains.
+ */
+@Slf4j
+class CertHashBasedOcspResponseCache {
+
+    // The cache is cleared when it grows past this size
+    private static final int MAX_ENTRIES = 1000;
+
+    private final Map<List<String>, CachedResponse> responses = new ConcurrentHashMap<>();
+
+    private final OcspResponseProvider provider;
+    private final long cachePeriodMillis;
+
+    /**
+     * Provides the current OCSP response of a certificate.
+     */
+    @FunctionalInterface
+    interface OcspResponseProvider {
+        OCSPResp getOcspResponse(String certHash) throws Exception;
+    }
+
+    /**
+     * Creates the cache.
+     * @param provider provides the OCSP responses of the certificates
+     * @param cachePeriodSeconds how long a response body is cached, 0 disables caching
+     */
+    CertHashBasedOcspResponseCache(OcspResponseProvider provider, int cachePeriodSeconds) {
+        this.provider = provider;
+        this.cachePeriodMillis = TimeUnit.SECONDS.toMillis(cachePeriodSeconds);
+    }
+
+    /**
+     * Returns the response body containing the OCSP responses of the given
+     * certificates, creating it if it is not cached or has expired.
+     * @param certHashes the certificate hashes
+     * @return the response body
+     * @throws Exception if the OCSP response of a certificate cannot be found
+     */
+    CachedResponse get(String[] certHashes) throws Exception {
+        List<String> key = Collections.unmodifiableList(Arrays.asList(certHashes.clone()));
+        long now = System.currentTimeMillis();
+
+        CachedResponse response = responses.get(key);
+
+        if (response == null || response.isExpired(now)) {
+            response = createResponse(certHashes, now);
+
+            if (!response.isExpired(now)) {
+                if (responses.size() >= MAX_ENTRIES) {
+                    responses.clear();
+                }
+
+                responses.put(key, response);
+            }
+        }
+
+        return response;
+    }
+
+    private CachedResponse createResponse(String[] certHashes, long now) throws Exception {
+        log.trace("Creating response body for cert hashes: {}", Arrays.toString(certHashes));
+
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        ByteArrayOutputStream encodedResponses = new ByteArrayOutputStream();
+
+        long expiresAt = now + cachePeriodMillis;
+
+        MultiPartOutputStream mpBody = new MultiPartOutputStream(body);
+
+        for (String certHash : certHashes) {
+            OCSPResp ocsp = getOcspResponse(certHash);
+            byte[] encoded = ocsp.getEncoded();
+
+            mpBody.startPart(MimeTypes.OCSP_RESPONSE);
+            mpBody.write(encoded);
+
+            encodedResponses.write(encoded);
+
+            Date nextUpdate = getEarliestNextUpdate(ocsp);
+
+            if (nextUpdate != null) {
+                expiresAt = Math.min(expiresAt, nextUpdate.getTime());
+            }
+        }
+
+        mpBody.close();
+
+        // The entity tag must not depend on the random multipart boundary
+        String etag = "\"" + encodeHex(calculateDigest(SHA256_ID, encodedResponses.toByteArray())) + "\"";
+
+        return new CachedResponse(body.toByteArray(),
+                MimeUtils.mpRelatedContentType(mpBody.getBoundary(), MimeTypes.OCSP_RESPONSE), etag, expiresAt);
+    }
+
+    private OCSPResp getOcspResponse(String certHash) throws Exception {
+        OCSPResp ocsp = provider.getOcspResponse(certHash);
+
+        if (ocsp == null) {
+            throw new Exception("Could not find OCSP response for certificate " + certHash);
+        }
+
+        return ocsp;
+    }
+
+    private static Date getEarliestNextUpdate(OCSPResp ocsp) throws Exception {
+        Date earliest = null;
+
+        BasicOCSPResp basicResp = (BasicOCSPResp) ocsp.getResponseObject();
+
+        if (basicResp != null) {
+            for (SingleResp singleResp : basicResp.getResponses()) {
+                Date nextUpdate = singleResp.getNextUpdate();
+
+                if (nextUpdate != null && (earliest == null || nextUpdate.before(earliest))) {
+                    earliest = nextUpdate;
+                }
+            }
+        }
+
+        return earliest;
+    }
+
+    /**
+     * A pre-built response body.
+     */
+    @Value
+    static class CachedResponse {
+
+        private final byte[] body;
+        private final String contentType;
+        private final String etag;
+        private final long expiresAt;
+
+        boolean isExpired(long now) {
+            return expiresAt <= now;
+        }
+
+        /**
+         * @param now the current time in milliseconds
+         * @return the number of seconds the response may be cached by the client
+         */
+        long getMaxAge(long now) {
+            return Math.max(0, TimeUnit.MILLISECONDS.toSeconds(expiresAt - now));
+        }
+
+        /**
+         * @param ifNoneMatch value of the If-None-Match request header, may be null
+         * @return true, if the client already has this response
+         */
+        boolean matches(String ifNoneMatch) {
+            if (ifNoneMatch == null) {
+                return false;
+            }
+
+            for (String tag : ifNoneMatch.split(",")) {
+                String trimmed = tag.trim();
+
+                if (trimmed.startsWith("W/")) {
+                    trimmed = trimmed.substring(2);
+                }
+
+                if ("*".equals(trimmed) || etag.equals(trimmed)) {
+                    return true;
+                }
+            }
+
+            return false;
+        }
+    }
+}
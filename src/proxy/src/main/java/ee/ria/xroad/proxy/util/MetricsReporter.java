@@ -0,0 +1,63 @@
+/**
+ * The MIT License
+ * Copyright (c) 2015 Estonian Information System Authority (RIA), Population Register Centre (VRK)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package ee.ria.xroad.proxy.util;
+
+import java.util.concurrent.TimeUnit;
+
+import com.codahale.metrics.JmxReporter;
+import com.codahale.metrics.MetricRegistry;
+
+import ee.ria.xroad.common.util.StartStop;
+
+/**
+ * Service that publishes the proxy metrics over JMX while the proxy is running.
+ */
+public class MetricsReporter implements StartStop {
+
+    private final JmxReporter reporter;
+
+    /**
+     * Creates the reporter for the given registry.
+     * @param registry the registry of the proxy metrics
+     */
+    public MetricsReporter(MetricRegistry registry) {
+        reporter = JmxReporter.forRegistry(registry)
+                .convertDurationsTo(TimeUnit.MILLISECONDS)
+                .build();
+    }
+
+    @Override
+    public void start() throws Exception {
+        reporter.start();
+    }
+
+    @Override
+    public void stop() throws Exception {
+        reporter.stop();
+    }
+
+    @Override
+    public void join() throws InterruptedException {
+        // Nothing to wait for, the reporter has no threads of its own
+    }
+}
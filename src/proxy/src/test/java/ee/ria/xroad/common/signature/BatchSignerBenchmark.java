@@ -0,0 +1,202 @@
+/**
+ * The MIT License
+ * Copyright (c) 2015 Estonian Information System Authority (RIA), Population Register Centre (VRK)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package ee.ria.xroad.common.signature;
+
+import java.net.ServerSocket;
+import java.security.cert.X509Certificate;
+import java.util.Collections;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import akka.actor.ActorSystem;
+import akka.actor.Props;
+import akka.actor.UntypedActor;
+import com.codahale.metrics.MetricRegistry;
+import com.typesafe.config.Config;
+import com.typesafe.config.ConfigFactory;
+import lombok.extern.slf4j.Slf4j;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import ee.ria.xroad.common.SystemProperties;
+import ee.ria.xroad.common.TestCertUtil;
+import ee.ria.xroad.common.TestSecurityUtil;
+import ee.ria.xroad.common.util.MessageFileNames;
+import ee.ria.xroad.signer.protocol.SignerClient;
+import ee.ria.xroad.signer.protocol.message.GetTokenBatchSigningEnabled;
+import ee.ria.xroad.signer.protocol.message.Sign;
+import ee.ria.xroad.signer.protocol.message.SignResponse;
+
+import static ee.ria.xroad.common.util.CryptoUtils.SHA512WITHRSA_ID;
+import static ee.ria.xroad.common.util.CryptoUtils.SHA512_ID;
+import static ee.ria.xroad.common.util.CryptoUtils.calculateDigest;
+import static ee.ria.xroad.signer.protocol.ComponentNames.REQUEST_PROCESSOR;
+import static ee.ria.xroad.signer.protocol.ComponentNames.SIGNER;
+
+/**
+ * Batch signer benchmark. Clients send signing requests with a random think
+ * time in between to a stub signer that takes a fixed time per signature.
+ * Measures the mean latency seen by the clients for each linger time. The
+ * think time is not measured. The mean batch size is logged at the end of
+ * every fork.
+ */
+@Slf4j
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Threads(BatchSignerBenchmark.NUM_CLIENTS)
+@State(Scope.Benchmark)
+public class BatchSignerBenchmark {
+
+    static final int NUM_CLIENTS = 8;
+
+    // time the stub signer takes to calculate a signature, in milliseconds
+    private static final int SIGNING_TIME = 2;
+
+    // maximum time a client waits between its requests, in milliseconds
+    private static final int MAX_THINK_TIME = 50;
+
+    // linger time in microseconds
+    @Param({"0", "500", "1000", "2000", "5000"})
+    private long lingerTime;
+
+    private ActorSystem signerSystem;
+    private ActorSystem proxySystem;
+    private MetricRegistry metricRegistry;
+
+    private SigningRequest request;
+
+    /**
+     * Starts the stub signer and the batch signer.
+     * @throws Exception if an error occurs
+     */
+    @Setup
+    public void setUp() throws Exception {
+        TestSecurityUtil.initSecurity();
+
+        int signerPort;
+
+        try (ServerSocket socket = new ServerSocket(0)) {
+            signerPort = socket.getLocalPort();
+        }
+
+        System.setProperty(SystemProperties.SIGNER_PORT, Integer.toString(signerPort));
+        System.setProperty("xroad.proxy.batch-signing-linger-time", Long.toString(lingerTime));
+
+        signerSystem = ActorSystem.create(SIGNER, remotingConfig(signerPort));
+        signerSystem.actorOf(Props.create(StubSigner.class), REQUEST_PROCESSOR);
+
+        proxySystem = ActorSystem.create("Proxy", remotingConfig(0));
+        metricRegistry = new MetricRegistry();
+
+        SignerClient.init(proxySystem);
+        BatchSigner.init(proxySystem, metricRegistry);
+
+        X509Certificate cert = TestCertUtil.getConsumer().cert;
+
+        byte[] message = "<message/>".getBytes();
+        MessagePart part = new MessagePart(MessageFileNames.MESSAGE, SHA512_ID,
+                calculateDigest(SHA512_ID, message), message);
+
+        request = new SigningRequest(cert, Collections.singletonList(part));
+    }
+
+    /**
+     * Logs the mean batch size and stops the actor systems.
+     */
+    @TearDown
+    public void tearDown() {
+        log.info("Linger time {} us: {} mean batch size", lingerTime, String.format("%.2f", metricRegistry
+                .histogram(MetricRegistry.name(BatchSigner.class, "batchSize")).getSnapshot().getMean()));
+
+        proxySystem.terminate();
+        signerSystem.terminate();
+    }
+
+    /**
+     * Signs one request.
+     * @param client the state of the client thread
+     * @return the signature data
+     * @throws Exception if signing fails
+     */
+    @Benchmark
+    public SignatureData sign(Client client) throws Exception {
+        return BatchSigner.sign("key", SHA512WITHRSA_ID, request);
+    }
+
+    private static Config remotingConfig(int port) {
+        return ConfigFactory.parseString("akka.actor.provider = \"akka.remote.RemoteActorRefProvider\"\n"
+                + "akka.remote.enabled-transports = [\"akka.remote.netty.tcp\"]\n"
+                + "akka.remote.netty.tcp.hostname = \"127.0.0.1\"\n"
+                + "akka.remote.netty.tcp.port = " + port + "\n");
+    }
+
+    /**
+     * A client thread, which waits for a random think time before every request.
+     */
+    @State(Scope.Thread)
+    public static class Client {
+
+        /**
+         * Waits for the think time. Not included in the measured time.
+         * @throws InterruptedException if interrupted
+         */
+        @Setup(Level.Invocation)
+        public void think() throws InterruptedException {
+            Thread.sleep(ThreadLocalRandom.current().nextInt(MAX_THINK_TIME));
+        }
+    }
+
+    /**
+     * Signer that supports batch signing and takes a fixed time to sign.
+     */
+    public static class StubSigner extends UntypedActor {
+
+        @Override
+        public void onReceive(Object message) throws Exception {
+            if (message instanceof GetTokenBatchSigningEnabled) {
+                getSender().tell(Boolean.TRUE, getSelf());
+            } else if (message instanceof Sign) {
+                Thread.sleep(SIGNING_TIME);
+
+                getSender().tell(new SignResponse(new byte[256]), getSelf());
+            } else {
+                unhandled(message);
+            }
+        }
+    }
+}
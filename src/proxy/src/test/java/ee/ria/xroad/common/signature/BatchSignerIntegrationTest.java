@@ -38,6 +38,7 @@ import java.util.List;
 import java.util.concurrent.CountDownLatch;
 
 import akka.actor.ActorSystem;
+import com.codahale.metrics.MetricRegistry;
 import com.typesafe.config.ConfigFactory;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.io.FileUtils;
@@ -102,7 +103,7 @@ public final class BatchSignerIntegrationTest {
 
         Thread.sleep(SIGNER_INIT_DELAY); // wait for signer client to connect
 
-        BatchSigner.init(actorSystem);
+        BatchSigner.init(actorSystem, new MetricRegistry());
 
         X509Certificate subjectCert = TestCertUtil.getConsumer().cert;
         X509Certificate issuerCert = TestCertUtil.getCaCert();
@@ -0,0 +1,94 @@
+/**
+ * The MIT License
+ * Copyright (c) 2015 Estonian Information System Authority (RIA), Population Register Centre (VRK)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package ee.ria.xroad.proxy.clientproxy;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+
+import org.apache.commons.io.IOUtils;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+/**
+ * Tests the streaming request entity used by the single-thread pipeline.
+ */
+public class StreamingRequestEntityTest {
+
+    private static final String BODY = "<soap/>";
+
+    /**
+     * Test that the body is written to the output stream given to writeTo().
+     * @throws Exception in case of any unexpected errors
+     */
+    @Test
+    public void writeToStreamsBody() throws Exception {
+        StreamingRequestEntity entity = createEntity();
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        entity.writeTo(out);
+
+        assertEquals(BODY, out.toString(StandardCharsets.UTF_8.name()));
+        assertFalse(entity.isStreaming());
+    }
+
+    /**
+     * Test that the body can be read from getContent().
+     * @throws Exception in case of any unexpected errors
+     */
+    @Test
+    public void getContentReturnsBody() throws Exception {
+        StreamingRequestEntity entity = createEntity();
+
+        assertEquals(BODY, IOUtils.toString(entity.getContent(), StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Test that the entity cannot be written twice.
+     * @throws Exception in case of any unexpected errors
+     */
+    @Test(expected = IllegalStateException.class)
+    public void notRepeatable() throws Exception {
+        StreamingRequestEntity entity = createEntity();
+
+        entity.getContent();
+        entity.writeTo(new ByteArrayOutputStream());
+    }
+
+    private static StreamingRequestEntity createEntity() {
+        StreamingRequestEntity[] entity = new StreamingRequestEntity[1];
+
+        entity[0] = new StreamingRequestEntity(() -> {
+            try {
+                entity[0].getOutputStream().write(BODY.getBytes(StandardCharsets.UTF_8));
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+
+        return entity[0];
+    }
+}
@@ -0,0 +1,137 @@
+/**
+ * The MIT License
+ * Copyright (c) 2015 Estonian Information System Authority (RIA), Population Register Centre (VRK)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package ee.ria.xroad.proxy.serverproxy;
+
+import ee.ria.xroad.common.identifier.ServiceId;
+import ee.ria.xroad.common.opmonitoring.OpMonitoringData;
+import ee.ria.xroad.proxy.protocol.ProxyMessage;
+import org.apache.http.client.HttpClient;
+import org.junit.After;
+import org.junit.Test;
+
+import javax.servlet.http.HttpServletRequest;
+import java.io.InputStream;
+import java.util.List;
+import java.util.function.Supplier;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests for {@link ServiceHandlerLoader}.
+ */
+public class ServiceHandlerLoaderTest {
+
+    private static final String SERVICE_HANDLERS = "xroad.proxy.serverServiceHandlers";
+
+    @After
+    public void tearDown() {
+        System.clearProperty(SERVICE_HANDLERS);
+    }
+
+    /**
+     * Test that no handlers are loaded if none are configured.
+     */
+    @Test
+    public void loadNoHandlers() {
+        assertTrue(ServiceHandlerLoader.loadServiceHandlers().isEmpty());
+    }
+
+    /**
+     * Test that the handlers are created per request, in the configured order.
+     */
+    @Test
+    public void loadHandlers() {
+        System.setProperty(SERVICE_HANDLERS,
+                FirstHandler.class.getName() + "," + SecondHandler.class.getName());
+
+        List<Supplier<ServiceHandler>> handlers = ServiceHandlerLoader.loadServiceHandlers();
+
+        assertEquals(2, handlers.size());
+
+        ServiceHandler first = handlers.get(0).get();
+
+        assertTrue(first instanceof FirstHandler);
+        assertNotSame(first, handlers.get(0).get());
+        assertTrue(handlers.get(1).get() instanceof SecondHandler);
+    }
+
+    /**
+     * Test that an unknown handler class fails loading.
+     */
+    @Test(expected = RuntimeException.class)
+    public void loadUnknownHandler() {
+        System.setProperty(SERVICE_HANDLERS, "ee.ria.xroad.proxy.serverproxy.NoSuchServiceHandler");
+
+        ServiceHandlerLoader.loadServiceHandlers();
+    }
+
+    static class TestHandler implements ServiceHandler {
+
+        @Override
+        public boolean shouldVerifyAccess() {
+            return true;
+        }
+
+        @Override
+        public boolean shouldVerifySignature() {
+            return true;
+        }
+
+        @Override
+        public boolean shouldLogSignature() {
+            return true;
+        }
+
+        @Override
+        public boolean canHandle(ServiceId requestServiceId, ProxyMessage requestMessage) {
+            return false;
+        }
+
+        @Override
+        public void startHandling(HttpServletRequest servletRequest, ProxyMessage requestMessage,
+                HttpClient opMonitorClient, OpMonitoringData opMonitoringData) {
+        }
+
+        @Override
+        public void finishHandling() {
+        }
+
+        @Override
+        public String getResponseContentType() {
+            return null;
+        }
+
+        @Override
+        public InputStream getResponseContent() {
+            return null;
+        }
+    }
+
+    static class FirstHandler extends TestHandler {
+    }
+
+    static class SecondHandler extends TestHandler {
+    }
+}
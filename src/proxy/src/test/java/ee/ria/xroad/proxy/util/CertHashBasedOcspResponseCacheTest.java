@@ -0,0 +1,174 @@
+/**
+ * The MIT License
+ * Copyright (c) 2015 Estonian Information System Authority (RIA), Population Register Centre (VRK)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package ee.ria.xroad.proxy.util;
+
+import java.security.PrivateKey;
+import java.security.cert.X509Certificate;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.bouncycastle.cert.ocsp.CertificateStatus;
+import org.bouncycastle.cert.ocsp.OCSPResp;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import ee.ria.xroad.common.OcspTestUtils;
+import ee.ria.xroad.common.TestCertUtil;
+import ee.ria.xroad.proxy.util.CertHashBasedOcspResponseCache.CachedResponse;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests the response body cache of the cert hash based OCSP responder.
+ */
+public class CertHashBasedOcspResponseCacheTest {
+
+    private static X509Certificate subject;
+    private static X509Certificate issuer;
+    private static PrivateKey signerKey;
+
+    private final Map<String, OCSPResp> ocspResponses = new HashMap<>();
+    private final AtomicInteger lookups = new AtomicInteger();
+
+    /**
+     * Loads test certificates.
+     * @throws Exception if an error occurs
+     */
+    @BeforeClass
+    public static void loadCerts() throws Exception {
+        issuer = TestCertUtil.getCertChainCert("root_ca.p12");
+        signerKey = TestCertUtil.getCertChainKey("root_ca.p12");
+        subject = TestCertUtil.getCertChainCert("user_0.p12");
+    }
+
+    /**
+     * Set up.
+     * @throws Exception if an error occurs
+     */
+    @Before
+    public void setUp() throws Exception {
+        ocspResponses.put("hash1", createResponse(null));
+        ocspResponses.put("hash2", createResponse(null));
+    }
+
+    /**
+     * Test that the body is built once while it is cached.
+     * @throws Exception if an error occurs
+     */
+    @Test
+    public void bodyIsCached() throws Exception {
+        CertHashBasedOcspResponseCache cache = createCache(60);
+
+        CachedResponse first = cache.get(new String[] {"hash1", "hash2"});
+        CachedResponse second = cache.get(new String[] {"hash1", "hash2"});
+
+        assertSame(first, second);
+        assertEquals(2, lookups.get());
+        assertTrue(first.getContentType().contains(first.getContentType().split("boundary=")[1]));
+        assertTrue(first.getMaxAge(System.currentTimeMillis()) > 50);
+
+        // A different set of hashes gets a body of its own
+        assertNotSame(first, cache.get(new String[] {"hash2"}));
+        assertEquals(3, lookups.get());
+    }
+
+    /**
+     * Test that the body is not cached past the nextUpdate of the OCSP responses.
+     * @throws Exception if an error occurs
+     */
+    @Test
+    public void nextUpdateLimitsCachePeriod() throws Exception {
+        long now = System.currentTimeMillis();
+
+        ocspResponses.put("hash1", createResponse(new Date(now + TimeUnit.SECONDS.toMillis(10))));
+
+        CertHashBasedOcspResponseCache cache = createCache(60);
+
+        CachedResponse response = cache.get(new String[] {"hash1", "hash2"});
+
+        assertTrue(response.getMaxAge(now) <= 10);
+
+        ocspResponses.put("hash1", createResponse(new Date(now - 1000)));
+
+        CachedResponse expired = cache.get(new String[] {"hash1"});
+
+        assertEquals(0, expired.getMaxAge(now));
+        assertNotSame(expired, cache.get(new String[] {"hash1"}));
+    }
+
+    /**
+     * Test that the entity tag only depends on the OCSP responses.
+     * @throws Exception if an error occurs
+     */
+    @Test
+    public void entityTag() throws Exception {
+        CertHashBasedOcspResponseCache cache = createCache(0);
+
+        CachedResponse first = cache.get(new String[] {"hash1", "hash2"});
+        CachedResponse second = cache.get(new String[] {"hash1", "hash2"});
+
+        assertNotSame(first, second);
+        assertEquals(first.getEtag(), second.getEtag());
+
+        assertTrue(first.matches(first.getEtag()));
+        assertTrue(first.matches("\"other\", W/" + first.getEtag()));
+        assertTrue(first.matches("*"));
+        assertFalse(first.matches(null));
+        assertFalse(first.matches("\"other\""));
+
+        // The signer has fetched a new response
+        ocspResponses.put("hash2", createResponse(new Date(System.currentTimeMillis() + 60000)));
+
+        assertFalse(first.matches(cache.get(new String[] {"hash1", "hash2"}).getEtag()));
+    }
+
+    /**
+     * Test that a missing OCSP response is an error.
+     * @throws Exception if an error occurs
+     */
+    @Test(expected = Exception.class)
+    public void missingResponse() throws Exception {
+        createCache(60).get(new String[] {"hash1", "hash3"});
+    }
+
+    private CertHashBasedOcspResponseCache createCache(int cachePeriodSeconds) {
+        return new CertHashBasedOcspResponseCache(certHash -> {
+            lookups.incrementAndGet();
+
+            return ocspResponses.get(certHash);
+        }, cachePeriodSeconds);
+    }
+
+    private static OCSPResp createResponse(Date nextUpdate) throws Exception {
+        return OcspTestUtils.createOCSPResponse(subject, issuer, issuer, signerKey, CertificateStatus.GOOD,
+                new Date(), nextUpdate);
+    }
+}
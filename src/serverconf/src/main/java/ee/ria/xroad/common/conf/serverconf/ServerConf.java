@@ -99,6 +99,18 @@ public class ServerConf {
         return getInstance().isQueryAllowed(sender, service);
     }
 
+    /**
+     * @param sender the sender identifier
+     * @param service the service identifier
+     * @return the existence, access right, disabled notice, required security
+     * categories, address and timeout of the service read at once
+     */
+    public static ServiceAccessDecision getServiceAccessDecision(ClientId sender, ServiceId service) {
+        log.trace("getServiceAccessDecision({}, {})", sender, service);
+
+        return getInstance().getServiceAccessDecision(sender, service);
+    }
+
     /**
      * @param service the service identifier
      * @return if the service is disabled, returns notice about this event.
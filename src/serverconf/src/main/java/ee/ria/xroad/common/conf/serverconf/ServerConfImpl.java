@@ -35,6 +35,7 @@ import org.hibernate.Session;
 
 import java.security.cert.X509Certificate;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.stream.Collectors;
 
@@ -193,12 +194,8 @@ public class ServerConfImpl implements ServerConfProvider {
     public String getDisabledNotice(ServiceId service) {
         return tx(session -> {
             WsdlType wsdlType = getWsdl(session, service);
-            if (wsdlType != null && wsdlType.isDisabled()) {
-                if (wsdlType.getDisabledNotice() == null) {
-                    return String.format("Service '%s' is disabled", service);
-                }
-
-                return wsdlType.getDisabledNotice();
+            if (wsdlType != null) {
+                return getDisabledNotice(wsdlType, service);
             }
 
             return null;
@@ -227,6 +224,23 @@ public class ServerConfImpl implements ServerConfProvider {
         });
     }
 
+    @Override
+    public ServiceAccessDecision getServiceAccessDecision(ClientId client, ServiceId service) {
+        return tx(session -> {
+            ServiceType serviceType = getService(session, service);
+            if (serviceType == null) {
+                return new ServiceAccessDecision(false, false, null, new ArrayList<>(), null,
+                        DEFAULT_SERVICE_TIMEOUT);
+            }
+
+            return new ServiceAccessDecision(true,
+                    internalIsQueryAllowed(client, service, serviceType.getWsdl().getClient()),
+                    getDisabledNotice(serviceType.getWsdl(), service),
+                    Collections.unmodifiableList(new ArrayList<>(serviceType.getRequiredSecurityCategory())),
+                    serviceType.getUrl(), serviceType.getTimeout());
+        });
+    }
+
     @Override
     public List<String> getTspUrl() {
         return tx(session -> getConf().getTsp().stream()
@@ -253,14 +267,30 @@ public class ServerConfImpl implements ServerConfProvider {
         return new WsdlDAOImpl().getWsdl(session, service);
     }
 
+    private static String getDisabledNotice(WsdlType wsdlType, ServiceId service) {
+        if (wsdlType.isDisabled()) {
+            if (wsdlType.getDisabledNotice() == null) {
+                return String.format("Service '%s' is disabled", service);
+            }
+
+            return wsdlType.getDisabledNotice();
+        }
+
+        return null;
+    }
+
     private boolean internalIsQueryAllowed(Session session, ClientId client, ServiceId service) {
 
         if (client == null) {
             return false;
         }
 
-        ClientType clientType = getClient(session, service.getClientId());
-        if (clientType == null) {
+        return internalIsQueryAllowed(client, service, getClient(session, service.getClientId()));
+    }
+
+    private static boolean internalIsQueryAllowed(ClientId client, ServiceId service, ClientType clientType) {
+
+        if (client == null || clientType == null) {
             return false;
         }
 
@@ -278,8 +308,7 @@ public class ServerConfImpl implements ServerConfProvider {
                     return true;
                 }
             } else if (subjectId instanceof LocalGroupId) {
-                if (isMemberInLocalGroup(session, client,
-                        (LocalGroupId) subjectId, service)) {
+                if (isMemberInLocalGroup(client, (LocalGroupId) subjectId, clientType)) {
                     return true;
                 }
             } else if (subjectId instanceof ClientId) {
@@ -292,10 +321,9 @@ public class ServerConfImpl implements ServerConfProvider {
         return false;
     }
 
-    private boolean isMemberInLocalGroup(Session session, ClientId member,
-            LocalGroupId groupId, ServiceId serviceId) {
-        LocalGroupType group = findLocalGroup(session, groupId.getGroupCode(),
-                serviceId.getClientId());
+    private static boolean isMemberInLocalGroup(ClientId member, LocalGroupId groupId,
+            ClientType groupOwner) {
+        LocalGroupType group = findLocalGroup(groupId.getGroupCode(), groupOwner);
         if (group == null) {
             return false;
         }
@@ -305,10 +333,8 @@ public class ServerConfImpl implements ServerConfProvider {
                 .findFirst().isPresent();
     }
 
-    private LocalGroupType findLocalGroup(Session session, String groupCode, ClientId groupOwnerId) {
-        // No need to check for null because we already know the service
-        // (and therefore the owner) exists.
-        return getClient(session, groupOwnerId).getLocalGroup().stream()
+    private static LocalGroupType findLocalGroup(String groupCode, ClientType groupOwner) {
+        return groupOwner.getLocalGroup().stream()
                 .filter(g -> StringUtils.equals(groupCode, g.getGroupCode()))
                 .findFirst().orElse(null);
     }
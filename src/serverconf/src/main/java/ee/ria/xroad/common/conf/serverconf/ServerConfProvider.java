@@ -139,6 +139,19 @@ public interface ServerConfProvider {
      */
     Collection<SecurityCategoryId> getRequiredCategories(ServiceId service);
 
+    /**
+     * @param sender the sender identifier
+     * @param service the service identifier
+     * @return everything needed for deciding whether the sender may call the
+     * service and where to forward the call. The default implementation
+     * calls the individual getters.
+     */
+    default ServiceAccessDecision getServiceAccessDecision(ClientId sender, ServiceId service) {
+        return new ServiceAccessDecision(serviceExists(service), isQueryAllowed(sender, service),
+                getDisabledNotice(service), getRequiredCategories(service), getServiceAddress(service),
+                getServiceTimeout(service));
+    }
+
     /**
      * @return list of URLs for the Time-stamping providers configured
      * in this security server.
@@ -0,0 +1,56 @@
+/**
+ * The MIT License
+ * Copyright (c) 2015 Estonian Information System Authority (RIA), Population Register Centre (VRK)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package ee.ria.xroad.common.conf.serverconf;
+
+import ee.ria.xroad.common.identifier.SecurityCategoryId;
+
+import lombok.Value;
+
+import java.util.Collection;
+
+/**
+ * Everything the server proxy needs from the server configuration to decide
+ * whether a client may call a service and where to forward the call,
+ * read in a single transaction. Instances are immutable and can be shared.
+ */
+@Value
+public class ServiceAccessDecision {
+
+    /** True, if the service exists in the configuration. */
+    private final boolean serviceExists;
+
+    /** True, if the access rights allow the client to call the service. */
+    private final boolean queryAllowed;
+
+    /** Notice about the service being disabled, null if the service is enabled. */
+    private final String disabledNotice;
+
+    /** Security categories required by the service, never null. */
+    private final Collection<SecurityCategoryId> requiredCategories;
+
+    /** Address of the service, null if the service does not exist. */
+    private final String serviceAddress;
+
+    /** Connection timeout of the service in seconds. */
+    private final int serviceTimeout;
+}
@@ -70,6 +70,7 @@ import ee.ria.xroad.common.conf.serverconf.IsAuthentication;
 import ee.ria.xroad.common.conf.serverconf.ServerConf;
 import ee.ria.xroad.common.conf.serverconf.ServerConfDatabaseCtx;
 import ee.ria.xroad.common.conf.serverconf.ServerConfImpl;
+import ee.ria.xroad.common.conf.serverconf.ServiceAccessDecision;
 import ee.ria.xroad.common.conf.serverconf.dao.ServiceDAOImpl;
 import ee.ria.xroad.common.identifier.ClientId;
 import ee.ria.xroad.common.identifier.SecurityCategoryId;
@@ -257,6 +258,39 @@ public class ServerConfTest {
                 SECURITY_CATEGORY + 1), securityCategories.iterator().next());
     }
 
+    /**
+     * Tests that the service access decision agrees with the individual queries.
+     */
+    @Test
+    public void getServiceAccessDecision() {
+        ClientId client1 = createTestClientId(client(1));
+        ClientId clientX = createTestClientId(CLIENT_CODE + "X");
+        ServiceId service1 = createTestServiceId(client1.getMemberCode(),
+                service(1, 1), SERVICE_VERSION);
+        ServiceId disabledService = createTestServiceId(client(1),
+                service(NUM_WSDLS - 1, NUM_SERVICES - 1), SERVICE_VERSION);
+        ServiceId serviceX = createTestServiceId(client1.getMemberCode(),
+                SERVICE_CODE + "X", SERVICE_VERSION + "X");
+
+        for (ClientId client : Arrays.asList(client1, clientX, null)) {
+            for (ServiceId service : Arrays.asList(service1, disabledService, serviceX)) {
+                ServiceAccessDecision access = ServerConf.getServiceAccessDecision(client, service);
+
+                assertEquals(ServerConf.serviceExists(service), access.isServiceExists());
+                assertEquals(ServerConf.isQueryAllowed(client, service), access.isQueryAllowed());
+                assertEquals(ServerConf.getDisabledNotice(service), access.getDisabledNotice());
+                assertEquals(new ArrayList<>(ServerConf.getRequiredCategories(service)),
+                        new ArrayList<>(access.getRequiredCategories()));
+                assertEquals(ServerConf.getServiceAddress(service), access.getServiceAddress());
+                assertEquals(ServerConf.getServiceTimeout(service), access.getServiceTimeout());
+            }
+        }
+
+        assertTrue(ServerConf.getServiceAccessDecision(client1, service1).isQueryAllowed());
+        assertNotNull(ServerConf.getServiceAccessDecision(client1, disabledService).getDisabledNotice());
+        assertFalse(ServerConf.getServiceAccessDecision(client1, serviceX).isServiceExists());
+    }
+
     /**
      * Tests getting IS authentication.
      */
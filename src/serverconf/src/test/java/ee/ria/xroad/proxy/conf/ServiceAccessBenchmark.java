@@ -0,0 +1,121 @@
+/**
+ * The MIT License
+ * Copyright (c) 2015 Estonian Information System Authority (RIA), Population Register Centre (VRK)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package ee.ria.xroad.proxy.conf;
+
+import static ee.ria.xroad.proxy.conf.TestUtil.NUM_SERVICES;
+import static ee.ria.xroad.proxy.conf.TestUtil.NUM_WSDLS;
+import static ee.ria.xroad.proxy.conf.TestUtil.SERVICE_VERSION;
+import static ee.ria.xroad.proxy.conf.TestUtil.client;
+import static ee.ria.xroad.proxy.conf.TestUtil.createTestClientId;
+import static ee.ria.xroad.proxy.conf.TestUtil.createTestServiceId;
+import static ee.ria.xroad.proxy.conf.TestUtil.prepareDB;
+import static ee.ria.xroad.proxy.conf.TestUtil.service;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import ee.ria.xroad.common.conf.serverconf.ServerConf;
+import ee.ria.xroad.common.conf.serverconf.ServerConfImpl;
+import ee.ria.xroad.common.conf.serverconf.ServiceAccessDecision;
+import ee.ria.xroad.common.identifier.ClientId;
+import ee.ria.xroad.common.identifier.ServiceId;
+
+/**
+ * Server conf access check benchmark. Compares the per-request cost of the
+ * separate queries the server proxy used to make for verifying access and
+ * forwarding a request against a single service access decision.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@State(Scope.Benchmark)
+public class ServiceAccessBenchmark {
+
+    private final ClientId client = createTestClientId(client(1));
+
+    private final ServiceId[] services = new ServiceId[NUM_WSDLS * NUM_SERVICES];
+
+    private int next;
+
+    /**
+     * Fills the in-memory database with the test data.
+     * @throws Exception if the database cannot be prepared
+     */
+    @Setup
+    public void setUp() throws Exception {
+        prepareDB();
+
+        ServerConf.reload(new ServerConfImpl());
+
+        for (int i = 0; i < NUM_WSDLS; i++) {
+            for (int j = 0; j < NUM_SERVICES; j++) {
+                services[i * NUM_SERVICES + j] = createTestServiceId(client.getMemberCode(), service(i, j),
+                        SERVICE_VERSION);
+            }
+        }
+    }
+
+    /**
+     * Makes the separate queries for one request.
+     * @param blackhole consumes the query results
+     */
+    @Benchmark
+    public void separateQueries(Blackhole blackhole) {
+        ServiceId service = nextService();
+
+        blackhole.consume(ServerConf.serviceExists(service));
+        blackhole.consume(ServerConf.getRequiredCategories(service));
+        blackhole.consume(ServerConf.isQueryAllowed(client, service));
+        blackhole.consume(ServerConf.getDisabledNotice(service));
+        blackhole.consume(ServerConf.getServiceAddress(service));
+        blackhole.consume(ServerConf.getServiceTimeout(service));
+    }
+
+    /**
+     * Makes the access decision for one request.
+     * @return the decision
+     */
+    @Benchmark
+    public ServiceAccessDecision accessDecision() {
+        return ServerConf.getServiceAccessDecision(client, nextService());
+    }
+
+    private ServiceId nextService() {
+        next = (next + 1) % services.length;
+
+        return services[next];
+    }
+}
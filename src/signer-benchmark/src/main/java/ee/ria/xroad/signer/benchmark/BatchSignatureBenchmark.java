@@ -0,0 +1,122 @@
+/**
+ * The MIT License
+ * Copyright (c) 2015 Estonian Information System Authority (RIA), Population Register Centre (VRK)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package ee.ria.xroad.signer.benchmark;
+
+import java.nio.charset.StandardCharsets;
+import java.security.cert.X509Certificate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import ee.ria.xroad.common.TestCertUtil;
+import ee.ria.xroad.common.TestSecurityUtil;
+import ee.ria.xroad.common.signature.MessagePart;
+import ee.ria.xroad.common.signature.SignatureCtx;
+import ee.ria.xroad.common.signature.SigningRequest;
+
+import static ee.ria.xroad.common.util.CryptoUtils.SHA512WITHRSA_ID;
+import static ee.ria.xroad.common.util.CryptoUtils.SHA512_ID;
+import static ee.ria.xroad.common.util.CryptoUtils.calculateDigest;
+import static ee.ria.xroad.common.util.CryptoUtils.getDigestAlgorithmId;
+import static ee.ria.xroad.common.util.MessageFileNames.MESSAGE;
+
+/**
+ * Measures the batch signature assembly done by the batch signer for a
+ * batch of signing requests: the hash chain built with the
+ * {@code HashChainBuilder}, the data to be signed, the signature XML and the
+ * signature data of every request. Only the signature calculation itself
+ * is left out; the signature value is a constant.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@State(Scope.Benchmark)
+public class BatchSignatureBenchmark {
+
+    private static final int SIGNATURE_LENGTH = 256;
+
+    @Param({"1", "10", "100"})
+    private int batchSize;
+
+    private final List<SigningRequest> requests = new ArrayList<>();
+
+    private final byte[] signatureValue = new byte[SIGNATURE_LENGTH];
+
+    /**
+     * Creates the signing requests of the batch.
+     * @throws Exception if an error occurs
+     */
+    @Setup
+    public void setUp() throws Exception {
+        TestSecurityUtil.initSecurity();
+
+        X509Certificate signingCert = TestCertUtil.getConsumer().cert;
+
+        for (int i = 0; i < batchSize; i++) {
+            byte[] soap = ("<message id=\"" + i + "\"/>").getBytes(StandardCharsets.UTF_8);
+
+            MessagePart part = new MessagePart(MESSAGE, SHA512_ID, calculateDigest(SHA512_ID, soap), soap);
+
+            requests.add(new SigningRequest(signingCert, Collections.singletonList(part)));
+        }
+    }
+
+    /**
+     * Assembles the batch signature.
+     * @param blackhole consumes the digest and the signature data
+     * @throws Exception if an error occurs
+     */
+    @Benchmark
+    public void assembleBatch(Blackhole blackhole) throws Exception {
+        SignatureCtx ctx = new SignatureCtx(SHA512WITHRSA_ID);
+
+        for (SigningRequest request : requests) {
+            ctx.add(request);
+        }
+
+        blackhole.consume(calculateDigest(getDigestAlgorithmId(ctx.getSignatureAlgorithmId()),
+                ctx.getDataToBeSigned()));
+
+        String signature = ctx.createSignatureXml(signatureValue);
+
+        for (int i = 0; i < batchSize; i++) {
+            blackhole.consume(ctx.createSignatureData(signature, i));
+        }
+    }
+}
@@ -0,0 +1,99 @@
+/**
+ * The MIT License
+ * Copyright (c) 2015 Estonian Information System Authority (RIA), Population Register Centre (VRK)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package ee.ria.xroad.signer.benchmark;
+
+import ee.ria.xroad.signer.tokenmanager.module.PrivKeyAttributes;
+import ee.ria.xroad.signer.tokenmanager.module.PubKeyAttributes;
+import ee.ria.xroad.signer.tokenmanager.token.TokenType;
+import ee.ria.xroad.signer.util.SignerUtil;
+
+/**
+ * Token type of the tokens created by the benchmarks. Every instance has
+ * its own token id.
+ */
+public final class BenchmarkTokenType implements TokenType {
+
+    private static final String MODULE_TYPE = "benchmark";
+
+    private final String id = "benchmark-" + SignerUtil.randomId();
+
+    private final boolean batchSigningEnabled;
+
+    /**
+     * Creates the token type.
+     * @param batchSigningEnabled whether batch signing is enabled for the token
+     */
+    public BenchmarkTokenType(boolean batchSigningEnabled) {
+        this.batchSigningEnabled = batchSigningEnabled;
+    }
+
+    @Override
+    public String getModuleType() {
+        return MODULE_TYPE;
+    }
+
+    @Override
+    public boolean isReadOnly() {
+        return false;
+    }
+
+    @Override
+    public boolean isBatchSigningEnabled() {
+        return batchSigningEnabled;
+    }
+
+    @Override
+    public Integer getSlotIndex() {
+        return 0;
+    }
+
+    @Override
+    public String getSerialNumber() {
+        return null;
+    }
+
+    @Override
+    public String getLabel() {
+        return id;
+    }
+
+    @Override
+    public String getId() {
+        return id;
+    }
+
+    @Override
+    public String getSignMechanismName() {
+        return null;
+    }
+
+    @Override
+    public PrivKeyAttributes getPrivKeyAttributes() {
+        return null;
+    }
+
+    @Override
+    public PubKeyAttributes getPubKeyAttributes() {
+        return null;
+    }
+}
@@ -0,0 +1,106 @@
+/**
+ * The MIT License
+ * Copyright (c) 2015 Estonian Information System Authority (RIA), Population Register Centre (VRK)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package ee.ria.xroad.signer.benchmark;
+
+import java.net.ServerSocket;
+
+import akka.actor.ActorSystem;
+import akka.actor.Props;
+import com.typesafe.config.Config;
+import com.typesafe.config.ConfigFactory;
+import com.typesafe.config.ConfigValueFactory;
+import lombok.extern.slf4j.Slf4j;
+
+import ee.ria.xroad.common.SystemProperties;
+import ee.ria.xroad.signer.protocol.SignerClient;
+import ee.ria.xroad.signer.protocol.SignerRequestProcessor;
+
+import static ee.ria.xroad.signer.protocol.ComponentNames.REQUEST_PROCESSOR;
+import static ee.ria.xroad.signer.protocol.ComponentNames.SIGNER;
+
+/**
+ * Signer request processor running in the benchmark process, with the
+ * {@link SignerClient} connected to it over Akka remoting the same way as
+ * the proxy is connected to the signer. The request handlers work on the
+ * tokens created in the {@code TokenManager} by the benchmarks.
+ */
+@Slf4j
+public final class InProcessSigner implements AutoCloseable {
+
+    private static final String METERED_MAILBOX = "metered-mailbox";
+
+    private final ActorSystem signerSystem;
+    private final ActorSystem clientSystem;
+
+    private InProcessSigner(ActorSystem signerSystem, ActorSystem clientSystem) {
+        this.signerSystem = signerSystem;
+        this.clientSystem = clientSystem;
+    }
+
+    /**
+     * Starts the signer on a free port and initializes the signer client.
+     * The signer client can only be initialized once per process.
+     * @return the started signer
+     * @throws Exception if the signer cannot be started
+     */
+    public static InProcessSigner start() throws Exception {
+        int signerPort;
+
+        try (ServerSocket socket = new ServerSocket(0)) {
+            signerPort = socket.getLocalPort();
+        }
+
+        log.info("Starting in-process signer on port {}...", signerPort);
+
+        System.setProperty(SystemProperties.SIGNER_PORT, Integer.toString(signerPort));
+
+        ActorSystem signerSystem = ActorSystem.create(SIGNER, signerConfig(signerPort));
+        signerSystem.actorOf(Props.create(SignerRequestProcessor.class).withMailbox(METERED_MAILBOX),
+                REQUEST_PROCESSOR);
+
+        ActorSystem clientSystem = ActorSystem.create("Proxy", clientConfig());
+
+        SignerClient.init(clientSystem);
+
+        return new InProcessSigner(signerSystem, clientSystem);
+    }
+
+    @Override
+    public void close() {
+        clientSystem.terminate();
+        signerSystem.terminate();
+    }
+
+    private static Config signerConfig(int signerPort) {
+        Config conf = ConfigFactory.load().getConfig("signer-main").withFallback(ConfigFactory.load());
+
+        return conf.withValue("akka.remote.netty.tcp.port", ConfigValueFactory.fromAnyRef(signerPort));
+    }
+
+    private static Config clientConfig() {
+        return ConfigFactory.parseString("akka.actor.provider = \"akka.remote.RemoteActorRefProvider\"\n"
+                + "akka.remote.enabled-transports = [\"akka.remote.netty.tcp\"]\n"
+                + "akka.remote.netty.tcp.hostname = \"127.0.0.1\"\n"
+                + "akka.remote.netty.tcp.port = 0\n").withFallback(ConfigFactory.load());
+    }
+}
@@ -0,0 +1,131 @@
+/**
+ * The MIT License
+ * Copyright (c) 2015 Estonian Information System Authority (RIA), Population Register Centre (VRK)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package ee.ria.xroad.signer.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import ee.ria.xroad.signer.protocol.SignerClient;
+import ee.ria.xroad.signer.protocol.message.GetTokenBatchSigningEnabled;
+import ee.ria.xroad.signer.protocol.message.ListTokens;
+import ee.ria.xroad.signer.tokenmanager.TokenManager;
+import ee.ria.xroad.signer.util.SignerUtil;
+
+/**
+ * Measures the round trips of {@link SignerClient} requests to the
+ * {@link InProcessSigner}. Every fork starts its own signer, because the
+ * signer client can only be initialized once per process.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@State(Scope.Benchmark)
+public class SignerClientBenchmark {
+
+    /**
+     * The request sent to the signer.
+     */
+    public enum Request {
+        /** Looked up by the proxy for every signature. */
+        GET_TOKEN_BATCH_SIGNING_ENABLED,
+
+        /** Returns all tokens with their keys and certificates. */
+        LIST_TOKENS
+    }
+
+    @Param
+    private Request request;
+
+    private InProcessSigner signer;
+
+    private Object message;
+
+    /**
+     * Starts the signer and creates the token and the key used by the requests.
+     * @throws Exception if the signer cannot be started
+     */
+    @Setup
+    public void setUp() throws Exception {
+        signer = InProcessSigner.start();
+
+        String tokenId = TokenManager.createToken(new BenchmarkTokenType(true)).getId();
+        String keyId = SignerUtil.randomId();
+
+        TokenManager.addKey(tokenId, keyId, null);
+
+        switch (request) {
+            case GET_TOKEN_BATCH_SIGNING_ENABLED:
+                message = new GetTokenBatchSigningEnabled(keyId);
+                break;
+            case LIST_TOKENS:
+                message = new ListTokens();
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown request: " + request);
+        }
+    }
+
+    /**
+     * Stops the signer.
+     */
+    @TearDown
+    public void tearDown() {
+        signer.close();
+    }
+
+    /**
+     * Sends the request from one thread.
+     * @return the response
+     * @throws Exception if the request fails
+     */
+    @Benchmark
+    public Object roundTrip() throws Exception {
+        return SignerClient.execute(message);
+    }
+
+    /**
+     * Sends the request from as many threads as there are processors.
+     * @return the response
+     * @throws Exception if the request fails
+     */
+    @Benchmark
+    @Threads(Threads.MAX)
+    public Object concurrentRoundTrip() throws Exception {
+        return SignerClient.execute(message);
+    }
+}
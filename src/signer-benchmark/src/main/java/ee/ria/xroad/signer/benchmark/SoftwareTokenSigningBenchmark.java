@@ -0,0 +1,138 @@
+/**
+ * The MIT License
+ * Copyright (c) 2015 Estonian Information System Authority (RIA), Population Register Centre (VRK)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package ee.ria.xroad.signer.benchmark;
+
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.Signature;
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import ee.ria.xroad.common.util.CryptoUtils;
+import ee.ria.xroad.signer.tokenmanager.TokenManager;
+import ee.ria.xroad.signer.tokenmanager.token.SoftwareTokenSigner;
+import ee.ria.xroad.signer.util.SignerUtil;
+
+import static ee.ria.xroad.common.util.CryptoUtils.encodeBase64;
+
+/**
+ * Measures the signing done by the software token worker: the token and
+ * key checks and the signature calculation with a loaded private key.
+ * Every benchmark thread uses its own signature instance, like every
+ * signing worker does.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@State(Scope.Benchmark)
+public class SoftwareTokenSigningBenchmark {
+
+    private static final int KEY_SIZE = 2048;
+
+    private static final String SIGNATURE_ALGORITHM_ID = CryptoUtils.SHA256WITHRSA_ID;
+
+    private String keyId;
+    private SoftwareTokenSigner signer;
+    private byte[] data;
+
+    /**
+     * Creates the token and the key and publishes the private key.
+     * @throws Exception if an error occurs
+     */
+    @Setup
+    public void setUp() throws Exception {
+        String tokenId = TokenManager.createToken(new BenchmarkTokenType(false)).getId();
+
+        keyId = SignerUtil.randomId();
+
+        KeyPairGenerator keyPairGen = KeyPairGenerator.getInstance("RSA");
+        keyPairGen.initialize(KEY_SIZE);
+
+        KeyPair keyPair = keyPairGen.generateKeyPair();
+
+        TokenManager.addKey(tokenId, keyId, encodeBase64(keyPair.getPublic().getEncoded()));
+        TokenManager.setKeyAvailable(keyId, true);
+        TokenManager.setTokenActive(tokenId, true);
+
+        signer = new SoftwareTokenSigner(tokenId);
+        signer.setPrivateKeys(Collections.singletonMap(keyId, keyPair.getPrivate()));
+
+        data = SignerUtil.createDataToSign(
+                CryptoUtils.calculateDigest(CryptoUtils.SHA256_ID, "benchmark".getBytes()), SIGNATURE_ALGORITHM_ID);
+    }
+
+    /**
+     * Signs on one thread.
+     * @param thread the state of the benchmark thread
+     * @return the signature
+     * @throws Exception if signing fails
+     */
+    @Benchmark
+    public byte[] sign(SigningThread thread) throws Exception {
+        return signer.sign(thread.signature, keyId, SIGNATURE_ALGORITHM_ID, data);
+    }
+
+    /**
+     * Signs on as many threads as there are processors.
+     * @param thread the state of the benchmark thread
+     * @return the signature
+     * @throws Exception if signing fails
+     */
+    @Benchmark
+    @Threads(Threads.MAX)
+    public byte[] signConcurrently(SigningThread thread) throws Exception {
+        return signer.sign(thread.signature, keyId, SIGNATURE_ALGORITHM_ID, data);
+    }
+
+    /**
+     * The signature instance of a benchmark thread.
+     */
+    @State(Scope.Thread)
+    public static class SigningThread {
+
+        private Signature signature;
+
+        /**
+         * Creates the signature instance.
+         * @throws Exception if the signature algorithm is not available
+         */
+        @Setup
+        public void setUp() throws Exception {
+            signature = SoftwareTokenSigner.createSignature();
+        }
+    }
+}
@@ -0,0 +1,126 @@
+/**
+ * The MIT License
+ * Copyright (c) 2015 Estonian Information System Authority (RIA), Population Register Centre (VRK)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package ee.ria.xroad.signer.benchmark;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import ee.ria.xroad.signer.tokenmanager.TokenManager;
+import ee.ria.xroad.signer.util.SignerUtil;
+
+/**
+ * Measures the {@link TokenManager} lookups done for every signature
+ * request, alone and while a writer thread keeps modifying the keys of
+ * the token.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@State(Scope.Benchmark)
+public class TokenManagerLookupBenchmark {
+
+    private static final int NUM_KEYS = 100;
+
+    private static final int READER_THREADS = 3;
+
+    private final List<String> keyIds = new ArrayList<>();
+
+    /**
+     * Creates an active token with available keys.
+     */
+    @Setup
+    public void setUp() {
+        String tokenId = TokenManager.createToken(new BenchmarkTokenType(true)).getId();
+
+        for (int i = 0; i < NUM_KEYS; i++) {
+            String keyId = SignerUtil.randomId();
+
+            TokenManager.addKey(tokenId, keyId, null);
+            TokenManager.setKeyAvailable(keyId, true);
+
+            keyIds.add(keyId);
+        }
+
+        TokenManager.setTokenActive(tokenId, true);
+    }
+
+    /**
+     * Looks up a random key with no concurrent writes.
+     * @return whether the key can be used for batch signing
+     */
+    @Benchmark
+    public boolean lookup() {
+        return isSigningKey(randomKeyId());
+    }
+
+    /**
+     * Looks up a random key while {@link #write()} modifies the keys.
+     * @return whether the key can be used for batch signing
+     */
+    @Benchmark
+    @Group("contended")
+    @GroupThreads(READER_THREADS)
+    public boolean contendedLookup() {
+        return isSigningKey(randomKeyId());
+    }
+
+    /**
+     * Changes the friendly name of a random key.
+     */
+    @Benchmark
+    @Group("contended")
+    @GroupThreads(1)
+    public void write() {
+        TokenManager.setKeyFriendlyName(randomKeyId(), Integer.toString(ThreadLocalRandom.current().nextInt()));
+    }
+
+    private String randomKeyId() {
+        return keyIds.get(ThreadLocalRandom.current().nextInt(keyIds.size()));
+    }
+
+    // The same lookups as a signature request going through the request
+    // handler and the token worker
+    private static boolean isSigningKey(String keyId) {
+        String tokenId = TokenManager.findTokenIdForKeyId(keyId);
+
+        return TokenManager.isTokenAvailable(tokenId) && TokenManager.isTokenActive(tokenId)
+                && TokenManager.isKeyAvailable(keyId) && TokenManager.isBatchSigningEnabled(tokenId);
+    }
+}
@@ -29,13 +29,18 @@ import akka.pattern.Patterns;
 import akka.util.Timeout;
 import ee.ria.xroad.common.CodedException;
 import ee.ria.xroad.common.SystemProperties;
+import ee.ria.xroad.signer.protocol.binary.BinaryMessageCodec;
+import ee.ria.xroad.signer.protocol.binary.BinarySignerClient;
+import ee.ria.xroad.signer.protocol.binary.RequestNotSentException;
 import lombok.extern.slf4j.Slf4j;
 import scala.concurrent.Await;
 
+import java.io.IOException;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
 
 import static ee.ria.xroad.common.ErrorCodes.X_HTTP_ERROR;
+import static ee.ria.xroad.common.ErrorCodes.X_INTERNAL_ERROR;
 import static ee.ria.xroad.signer.protocol.ComponentNames.REQUEST_PROCESSOR;
 import static ee.ria.xroad.signer.protocol.ComponentNames.SIGNER;
 
@@ -51,6 +56,7 @@ public final class SignerClient {
 
     private static ActorSystem actorSystem;
     private static ActorSelection requestProcessor;
+    private static BinarySignerClient binaryClient;
 
     private SignerClient() {
     }
@@ -69,6 +75,9 @@ public final class SignerClient {
             requestProcessor = system.actorSelection(
                     getSignerPath() + "/user/" + REQUEST_PROCESSOR);
 
+            if (SystemProperties.isSignerBinaryTransportEnabled()) {
+                binaryClient = new BinarySignerClient("127.0.0.1", SystemProperties.getSignerBinaryPort());
+            }
         }
     }
 
@@ -79,7 +88,24 @@ public final class SignerClient {
      */
     public static void execute(Object message, ActorRef receiver) {
         verifyInitialized();
-        requestProcessor.tell(message, receiver);
+
+        if (useBinaryTransport(message)) {
+            binaryClient.send(message).whenComplete((response, error) -> {
+                if (error instanceof RequestNotSentException) {
+                    log.warn("Binary signer transport failed, falling back to Akka: {}", error.getMessage());
+
+                    requestProcessor.tell(message, receiver);
+                } else if (error != null) {
+                    receiver.tell(connectionFailedException(error), ActorRef.noSender());
+                } else if (response == null) {
+                    receiver.tell(noResponseException(message), ActorRef.noSender());
+                } else {
+                    receiver.tell(response, ActorRef.noSender());
+                }
+            });
+        } else {
+            requestProcessor.tell(message, receiver);
+        }
     }
 
     /**
@@ -93,6 +119,14 @@ public final class SignerClient {
     public static <T> T execute(Object message) throws Exception {
         verifyInitialized();
 
+        if (useBinaryTransport(message)) {
+            try {
+                return result(executeBinary(message));
+            } catch (RequestNotSentException e) {
+                log.warn("Binary signer transport failed, falling back to Akka: {}", e.getMessage());
+            }
+        }
+
         final Timeout timeout = Timeout.apply(TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
         try {
             return result(Await.result(Patterns.ask(requestProcessor, message, timeout), timeout.duration()));
@@ -118,6 +152,35 @@ public final class SignerClient {
         }
     }
 
+    /**
+     * Sends the message over the binary transport. Only a request that was
+     * not sent at all may be sent again over Akka: once the frame has been
+     * written, the signer may already be processing the request.
+     */
+    private static Object executeBinary(Object message) throws Exception {
+        Object response;
+
+        try {
+            response = binaryClient.execute(message, TIMEOUT_MILLIS);
+        } catch (RequestNotSentException e) {
+            throw e;
+        } catch (TimeoutException te) {
+            throw connectionTimeoutException(te);
+        } catch (IOException e) {
+            throw connectionFailedException(e);
+        }
+
+        if (response == null) {
+            throw noResponseException(message);
+        }
+
+        return response;
+    }
+
+    private static boolean useBinaryTransport(Object message) {
+        return binaryClient != null && BinaryMessageCodec.isSupportedRequest(message);
+    }
+
     private static String getSignerPath() {
         return "akka.tcp://" + SIGNER + "@127.0.0.1:"
                 + SystemProperties.getSignerPort();
@@ -135,4 +198,15 @@ public final class SignerClient {
                 SystemProperties.getSignerPort());
     }
 
+    private static CodedException connectionFailedException(Throwable e) {
+        return new CodedException(X_HTTP_ERROR, e,
+                "Connection to Signer (port %s) failed: %s",
+                SystemProperties.getSignerBinaryPort(), e.getMessage());
+    }
+
+    private static CodedException noResponseException(Object message) {
+        return new CodedException(X_INTERNAL_ERROR,
+                "Signer returned no response to %s", message.getClass().getSimpleName());
+    }
+
 }
@@ -0,0 +1,443 @@
+/**
+ * The MIT License
+ * Copyright (c) 2015 Estonian Information System Authority (RIA), Population Register Centre (VRK)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package ee.ria.xroad.signer.protocol.binary;
+
+import ee.ria.xroad.common.identifier.ClientId;
+import ee.ria.xroad.common.identifier.SecurityServerId;
+import ee.ria.xroad.signer.protocol.dto.AuthKeyInfo;
+import ee.ria.xroad.signer.protocol.dto.CertificateInfo;
+import ee.ria.xroad.signer.protocol.dto.MemberSigningInfo;
+import ee.ria.xroad.signer.protocol.message.GetAuthKey;
+import ee.ria.xroad.signer.protocol.message.GetMemberSigningInfo;
+import ee.ria.xroad.signer.protocol.message.GetOcspResponses;
+import ee.ria.xroad.signer.protocol.message.GetOcspResponsesResponse;
+import ee.ria.xroad.signer.protocol.message.Sign;
+import ee.ria.xroad.signer.protocol.message.SignResponse;
+import lombok.Value;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * Encodes and decodes the frames of the binary signer protocol.
+ *
+ * A frame consists of the length of the rest of the frame (int), the request
+ * id (long), the message type (byte) and the message. The request id of a
+ * response frame is the id of the request, so that several requests can be
+ * in flight on one connection and the responses can arrive in any order.
+ *
+ * Only the most frequent requests and their responses have hand-written
+ * encodings. Exceptions are sent as serialized Java objects, which is why
+ * request and response frames are read separately: the signer reads only
+ * request frames and never deserializes objects sent by a client.
+ */
+public final class BinaryMessageCodec {
+
+    private static final int MAX_FRAME_LENGTH = 64 * 1024 * 1024;
+
+    private static final int HEADER_LENGTH = Long.BYTES + Byte.BYTES;
+
+    private static final byte SIGN = 1;
+    private static final byte SIGN_RESPONSE = 2;
+    private static final byte GET_MEMBER_SIGNING_INFO = 3;
+    private static final byte MEMBER_SIGNING_INFO = 4;
+    private static final byte GET_OCSP_RESPONSES = 5;
+    private static final byte GET_OCSP_RESPONSES_RESPONSE = 6;
+    private static final byte GET_AUTH_KEY = 7;
+    private static final byte AUTH_KEY_INFO = 8;
+    private static final byte EXCEPTION = 127;
+
+    private BinaryMessageCodec() {
+    }
+
+    /**
+     * A decoded frame.
+     */
+    @Value
+    public static class Frame {
+        private final long requestId;
+        private final Object message;
+    }
+
+    /**
+     * @param message the request message
+     * @return true, if the request can be sent using the binary protocol
+     */
+    public static boolean isSupportedRequest(Object message) {
+        return message instanceof Sign
+                || message instanceof GetMemberSigningInfo
+                || message instanceof GetOcspResponses
+                || message instanceof GetAuthKey;
+    }
+
+    /**
+     * @param message the response message
+     * @return true, if the response can be sent using the binary protocol
+     */
+    public static boolean isSupportedResponse(Object message) {
+        return message instanceof SignResponse
+                || message instanceof MemberSigningInfo
+                || message instanceof GetOcspResponsesResponse
+                || message instanceof AuthKeyInfo
+                || message instanceof Exception;
+    }
+
+    /**
+     * Writes a frame. The caller must make sure that frames are not written
+     * concurrently to the same stream.
+     * @param out the output stream
+     * @param requestId the request id
+     * @param message the message
+     * @throws IOException if the message cannot be encoded or written
+     */
+    public static void writeFrame(DataOutputStream out, long requestId, Object message) throws IOException {
+        writeFrame(out, encodeFrame(requestId, message));
+    }
+
+    /**
+     * Encodes a frame without writing it, so that encoding errors can be
+     * told apart from errors writing to the stream.
+     * @param requestId the request id
+     * @param message the message
+     * @return the encoded frame
+     * @throws IOException if the message cannot be encoded
+     */
+    public static byte[] encodeFrame(long requestId, Object message) throws IOException {
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        DataOutputStream payload = new DataOutputStream(buffer);
+
+        payload.writeLong(requestId);
+        writeMessage(payload, message);
+        payload.flush();
+
+        return buffer.toByteArray();
+    }
+
+    /**
+     * Writes a frame encoded by {@link #encodeFrame(long, Object)}. The caller
+     * must make sure that frames are not written concurrently to the same stream.
+     * @param out the output stream
+     * @param frame the encoded frame
+     * @throws IOException if the frame cannot be written
+     */
+    public static void writeFrame(DataOutputStream out, byte[] frame) throws IOException {
+        out.writeInt(frame.length);
+        out.write(frame);
+        out.flush();
+    }
+
+    /**
+     * Reads a request frame. Only the request types with hand-written encodings
+     * are accepted; a frame of any other type is rejected before its contents
+     * are read.
+     * @param in the input stream
+     * @return the frame
+     * @throws IOException if the frame cannot be read or decoded, or is not
+     * a supported request
+     */
+    public static Frame readRequestFrame(DataInputStream in) throws IOException {
+        return readFrame(in, true);
+    }
+
+    /**
+     * Reads a response frame.
+     * @param in the input stream
+     * @return the frame
+     * @throws IOException if the frame cannot be read or decoded, or is not
+     * a supported response
+     */
+    public static Frame readResponseFrame(DataInputStream in) throws IOException {
+        return readFrame(in, false);
+    }
+
+    private static Frame readFrame(DataInputStream in, boolean request) throws IOException {
+        int length = in.readInt();
+
+        if (length < HEADER_LENGTH || length > MAX_FRAME_LENGTH) {
+            throw new IOException("Invalid frame length: " + length);
+        }
+
+        long requestId = in.readLong();
+        byte type = in.readByte();
+
+        if (request ? !isRequestType(type) : !isResponseType(type)) {
+            throw new IOException("Unexpected message type: " + type);
+        }
+
+        byte[] body = new byte[length - HEADER_LENGTH];
+        in.readFully(body);
+
+        DataInputStream payload = new DataInputStream(new ByteArrayInputStream(body));
+
+        return new Frame(requestId, request ? readRequest(type, payload) : readResponse(type, payload));
+    }
+
+    private static boolean isRequestType(byte type) {
+        return type == SIGN || type == GET_MEMBER_SIGNING_INFO || type == GET_OCSP_RESPONSES || type == GET_AUTH_KEY;
+    }
+
+    private static boolean isResponseType(byte type) {
+        return type == SIGN_RESPONSE || type == MEMBER_SIGNING_INFO || type == GET_OCSP_RESPONSES_RESPONSE
+                || type == AUTH_KEY_INFO || type == EXCEPTION;
+    }
+
+    // -- Messages ------------------------------------------------------------
+
+    private static void writeMessage(DataOutputStream out, Object message) throws IOException {
+        if (message instanceof Sign) {
+            Sign sign = (Sign) message;
+
+            out.writeByte(SIGN);
+            writeString(out, sign.getKeyId());
+            writeString(out, sign.getSignatureAlgorithmId());
+            writeBytes(out, sign.getDigest());
+        } else if (message instanceof SignResponse) {
+            out.writeByte(SIGN_RESPONSE);
+            writeBytes(out, ((SignResponse) message).getSignature());
+        } else if (message instanceof GetMemberSigningInfo) {
+            out.writeByte(GET_MEMBER_SIGNING_INFO);
+            writeClientId(out, ((GetMemberSigningInfo) message).getMemberId());
+        } else if (message instanceof MemberSigningInfo) {
+            MemberSigningInfo info = (MemberSigningInfo) message;
+
+            out.writeByte(MEMBER_SIGNING_INFO);
+            writeString(out, info.getKeyId());
+            writeCertificateInfo(out, info.getCert());
+            writeString(out, info.getSignMechanismName());
+        } else if (message instanceof GetOcspResponses) {
+            out.writeByte(GET_OCSP_RESPONSES);
+            writeStrings(out, ((GetOcspResponses) message).getCertHash());
+        } else if (message instanceof GetOcspResponsesResponse) {
+            out.writeByte(GET_OCSP_RESPONSES_RESPONSE);
+            writeStrings(out, ((GetOcspResponsesResponse) message).getBase64EncodedResponses());
+        } else if (message instanceof GetAuthKey) {
+            out.writeByte(GET_AUTH_KEY);
+            writeSecurityServerId(out, ((GetAuthKey) message).getSecurityServer());
+        } else if (message instanceof AuthKeyInfo) {
+            AuthKeyInfo info = (AuthKeyInfo) message;
+
+            out.writeByte(AUTH_KEY_INFO);
+            writeString(out, info.getAlias());
+            writeString(out, info.getKeyStoreFileName());
+            writeString(out, info.getPassword() != null ? new String(info.getPassword()) : null);
+            writeCertificateInfo(out, info.getCert());
+        } else if (message instanceof Exception) {
+            out.writeByte(EXCEPTION);
+            writeSerialized(out, message);
+        } else {
+            throw new IOException("Unsupported message: " + message.getClass().getName());
+        }
+    }
+
+    private static Object readRequest(byte type, DataInputStream in) throws IOException {
+        switch (type) {
+            case SIGN:
+                return new Sign(readString(in), readString(in), readBytes(in));
+            case GET_MEMBER_SIGNING_INFO:
+                return new GetMemberSigningInfo(readClientId(in));
+            case GET_OCSP_RESPONSES:
+                return new GetOcspResponses(readStrings(in));
+            case GET_AUTH_KEY:
+                return new GetAuthKey(readSecurityServerId(in));
+            default:
+                throw new IOException("Unknown request type: " + type);
+        }
+    }
+
+    private static Object readResponse(byte type, DataInputStream in) throws IOException {
+        switch (type) {
+            case SIGN_RESPONSE:
+                return new SignResponse(readBytes(in));
+            case MEMBER_SIGNING_INFO:
+                return new MemberSigningInfo(readString(in), readCertificateInfo(in), readString(in));
+            case GET_OCSP_RESPONSES_RESPONSE:
+                return new GetOcspResponsesResponse(readStrings(in));
+            case AUTH_KEY_INFO:
+                String alias = readString(in);
+                String keyStoreFileName = readString(in);
+                String password = readString(in);
+
+                return new AuthKeyInfo(alias, keyStoreFileName, password != null ? password.toCharArray() : null,
+                        readCertificateInfo(in));
+            case EXCEPTION:
+                // Exceptions are only accepted from the signer, never read from a client
+                return readSerialized(in);
+            default:
+                throw new IOException("Unknown response type: " + type);
+        }
+    }
+
+    // -- Data types ----------------------------------------------------------
+
+    private static void writeCertificateInfo(DataOutputStream out, CertificateInfo cert) throws IOException {
+        out.writeBoolean(cert != null);
+
+        if (cert != null) {
+            writeClientId(out, cert.getMemberId());
+            out.writeBoolean(cert.isActive());
+            out.writeBoolean(cert.isSavedToConfiguration());
+            writeString(out, cert.getStatus());
+            writeString(out, cert.getId());
+            writeBytes(out, cert.getCertificateBytes());
+            writeBytes(out, cert.getOcspBytes());
+        }
+    }
+
+    private static CertificateInfo readCertificateInfo(DataInputStream in) throws IOException {
+        if (!in.readBoolean()) {
+            return null;
+        }
+
+        return new CertificateInfo(readClientId(in), in.readBoolean(), in.readBoolean(), readString(in),
+                readString(in), readBytes(in), readBytes(in));
+    }
+
+    private static void writeClientId(DataOutputStream out, ClientId clientId) throws IOException {
+        out.writeBoolean(clientId != null);
+
+        if (clientId != null) {
+            writeString(out, clientId.getXRoadInstance());
+            writeString(out, clientId.getMemberClass());
+            writeString(out, clientId.getMemberCode());
+            writeString(out, clientId.getSubsystemCode());
+        }
+    }
+
+    private static ClientId readClientId(DataInputStream in) throws IOException {
+        if (!in.readBoolean()) {
+            return null;
+        }
+
+        return ClientId.create(readString(in), readString(in), readString(in), readString(in));
+    }
+
+    private static void writeSecurityServerId(DataOutputStream out, SecurityServerId serverId) throws IOException {
+        out.writeBoolean(serverId != null);
+
+        if (serverId != null) {
+            writeString(out, serverId.getXRoadInstance());
+            writeString(out, serverId.getMemberClass());
+            writeString(out, serverId.getMemberCode());
+            writeString(out, serverId.getServerCode());
+        }
+    }
+
+    private static SecurityServerId readSecurityServerId(DataInputStream in) throws IOException {
+        if (!in.readBoolean()) {
+            return null;
+        }
+
+        return SecurityServerId.create(readString(in), readString(in), readString(in), readString(in));
+    }
+
+    private static void writeStrings(DataOutputStream out, String[] values) throws IOException {
+        out.writeInt(values != null ? values.length : -1);
+
+        if (values != null) {
+            for (String value : values) {
+                writeString(out, value);
+            }
+        }
+    }
+
+    private static String[] readStrings(DataInputStream in) throws IOException {
+        int count = in.readInt();
+
+        if (count == -1) {
+            return null;
+        }
+
+        // Every string takes at least the bytes of its length field
+        if (count < 0 || count > in.available() / Integer.BYTES) {
+            throw new IOException("Invalid array length: " + count);
+        }
+
+        String[] values = new String[count];
+
+        for (int i = 0; i < count; i++) {
+            values[i] = readString(in);
+        }
+
+        return values;
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        writeBytes(out, value != null ? value.getBytes(UTF_8) : null);
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        byte[] bytes = readBytes(in);
+
+        return bytes != null ? new String(bytes, UTF_8) : null;
+    }
+
+    private static void writeBytes(DataOutputStream out, byte[] value) throws IOException {
+        out.writeInt(value != null ? value.length : -1);
+
+        if (value != null) {
+            out.write(value);
+        }
+    }
+
+    private static byte[] readBytes(DataInputStream in) throws IOException {
+        int length = in.readInt();
+
+        if (length < 0) {
+            return null;
+        }
+
+        if (length > in.available()) {
+            throw new IOException("Invalid field length: " + length);
+        }
+
+        byte[] value = new byte[length];
+        in.readFully(value);
+
+        return value;
+    }
+
+    private static void writeSerialized(DataOutputStream out, Object value) throws IOException {
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+
+        try (ObjectOutputStream oos = new ObjectOutputStream(buffer)) {
+            oos.writeObject(value);
+        }
+
+        writeBytes(out, buffer.toByteArray());
+    }
+
+    private static Object readSerialized(DataInputStream in) throws IOException {
+        try (ObjectInputStream ois = new ObjectInputStream(new ByteArrayInputStream(readBytes(in)))) {
+            return ois.readObject();
+        } catch (ClassNotFoundException e) {
+            throw new IOException(e);
+        }
+    }
+}
@@ -0,0 +1,214 @@
+/**
+ * The MIT License
+ * Copyright (c) 2015 Estonian Information System Authority (RIA), Population Register Centre (VRK)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package ee.ria.xroad.signer.protocol.binary;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Client side of the binary signer protocol. All requests are sent over one
+ * persistent connection, which is opened when the first request is sent and
+ * reopened after a failure. Requests are not serialized behind each other:
+ * every request gets an id and a reader thread completes the pending request
+ * with the same id when its response arrives.
+ */
+@Slf4j
+public final class BinarySignerClient implements Closeable {
+
+    private static final int CONNECT_TIMEOUT_MILLIS = 5000;
+
+    private final String host;
+    private final int port;
+
+    private final AtomicLong requestIds = new AtomicLong();
+
+    private final ConcurrentMap<Long, CompletableFuture<Object>> pendingRequests = new ConcurrentHashMap<>();
+
+    private Socket socket;
+    private DataOutputStream out;
+
+    /**
+     * Creates the client. No connection is opened before the first request.
+     * @param host the signer host
+     * @param port the signer binary protocol port
+     */
+    public BinarySignerClient(String host, int port) {
+        this.host = host;
+        this.port = port;
+    }
+
+    /**
+     * Sends a request without waiting for the response.
+     * @param message the request
+     * @return the future response; the response can be an exception thrown
+     * by the signer. The future completes exceptionally with a
+     * {@link RequestNotSentException} if the connection could not be opened, and
+     * with an IOException if the connection fails after that, before the
+     * response arrives.
+     */
+    public CompletableFuture<Object> send(Object message) {
+        long requestId = requestIds.incrementAndGet();
+        CompletableFuture<Object> response = new CompletableFuture<>();
+
+        synchronized (this) {
+            try {
+                connect();
+            } catch (IOException e) {
+                response.completeExceptionally(new RequestNotSentException(e));
+
+                return response;
+            }
+
+            try {
+                pendingRequests.put(requestId, response);
+
+                BinaryMessageCodec.writeFrame(out, requestId, message);
+            } catch (IOException e) {
+                disconnect(socket, e);
+
+                response.completeExceptionally(e);
+            }
+        }
+
+        return response;
+    }
+
+    /**
+     * Sends a request and waits for the response.
+     * @param message the request
+     * @param timeoutMillis the maximum time to wait for the response
+     * @return the response; can be an exception thrown by the signer
+     * @throws RequestNotSentException if the connection could not be opened and
+     * the request was not sent
+     * @throws IOException if the connection failed before the response arrived
+     * @throws TimeoutException if the response did not arrive in time
+     * @throws InterruptedException if the thread was interrupted
+     */
+    public Object execute(Object message, long timeoutMillis)
+            throws IOException, TimeoutException, InterruptedException {
+        CompletableFuture<Object> response = send(message);
+
+        try {
+            return response.get(timeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            }
+
+            throw new IOException(e.getCause());
+        } catch (TimeoutException e) {
+            pendingRequests.values().remove(response);
+
+            throw e;
+        }
+    }
+
+    @Override
+    public synchronized void close() {
+        disconnect(socket, new IOException("Client closed"));
+    }
+
+    private void connect() throws IOException {
+        if (socket != null) {
+            return;
+        }
+
+        log.debug("Connecting to signer at {}:{}", host, port);
+
+        Socket newSocket = new Socket();
+
+        try {
+            newSocket.setTcpNoDelay(true);
+            newSocket.connect(new InetSocketAddress(host, port), CONNECT_TIMEOUT_MILLIS);
+        } catch (IOException e) {
+            newSocket.close();
+
+            throw e;
+        }
+
+        socket = newSocket;
+        out = new DataOutputStream(new BufferedOutputStream(newSocket.getOutputStream()));
+
+        DataInputStream in = new DataInputStream(new BufferedInputStream(newSocket.getInputStream()));
+
+        Thread reader = new Thread(() -> readResponses(newSocket, in), "BinarySignerClient-reader");
+        reader.setDaemon(true);
+        reader.start();
+    }
+
+    private void readResponses(Socket readerSocket, DataInputStream in) {
+        try {
+            while (true) {
+                BinaryMessageCodec.Frame frame = BinaryMessageCodec.readResponseFrame(in);
+                CompletableFuture<Object> response = pendingRequests.remove(frame.getRequestId());
+
+                if (response != null) {
+                    response.complete(frame.getMessage());
+                }
+            }
+        } catch (IOException e) {
+            synchronized (this) {
+                disconnect(readerSocket, e);
+            }
+        }
+    }
+
+    /**
+     * Closes the socket if it is still the current one and fails all requests
+     * that were sent over it. Must be called while holding the client lock.
+     */
+    private void disconnect(Socket failedSocket, IOException cause) {
+        if (failedSocket == null || failedSocket != socket) {
+            return;
+        }
+
+        log.debug("Connection to signer closed: {}", cause.getMessage());
+
+        try {
+            socket.close();
+        } catch (IOException e) {
+            log.trace("Error closing socket", e);
+        }
+
+        socket = null;
+        out = null;
+
+        pendingRequests.values().forEach(r -> r.completeExceptionally(cause));
+        pendingRequests.clear();
+    }
+}
@@ -25,16 +25,19 @@ package ee.ria.xroad.signer;
 import akka.actor.ActorRef;
 import akka.actor.ActorSystem;
 import akka.actor.Props;
+import com.codahale.metrics.JmxReporter;
 import ee.ria.xroad.common.SystemProperties;
 import ee.ria.xroad.common.util.PeriodicJob;
 import ee.ria.xroad.common.util.StartStop;
 import ee.ria.xroad.common.util.filewatcher.FileWatcherRunner;
 import ee.ria.xroad.signer.certmanager.OcspClientWorker;
 import ee.ria.xroad.signer.certmanager.OcspResponseManager;
+import ee.ria.xroad.signer.protocol.BinarySignerServer;
 import ee.ria.xroad.signer.protocol.SignerRequestProcessor;
 import ee.ria.xroad.signer.tokenmanager.TokenManager;
 import ee.ria.xroad.signer.tokenmanager.module.AbstractModuleManager;
 import ee.ria.xroad.signer.tokenmanager.module.DefaultModuleManagerImpl;
+import ee.ria.xroad.signer.util.SignerMetrics;
 import ee.ria.xroad.signer.util.Update;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
@@ -60,14 +63,25 @@ public class Signer implements StartStop {
     private static final FiniteDuration MODULE_MANAGER_UPDATE_INTERVAL =
             Duration.create(60, TimeUnit.SECONDS);
 
+    private static final String METERED_MAILBOX = "metered-mailbox";
+
     private final ActorSystem actorSystem;
 
     private FileWatcherRunner keyConfFileWatcherRunner;
 
+    private BinarySignerServer binarySignerServer;
+
+    private JmxReporter jmxReporter;
+
     @Override
     public void start() throws Exception {
         log.trace("start()");
 
+        jmxReporter = JmxReporter.forRegistry(SignerMetrics.getRegistry())
+                .convertDurationsTo(TimeUnit.MILLISECONDS)
+                .build();
+        jmxReporter.start();
+
         TokenManager.init();
 
         ActorRef moduleManager = createComponent(MODULE_MANAGER, getModuleManagerImpl());
@@ -84,7 +98,14 @@ public class Signer implements StartStop {
 
         createComponent(ModuleManagerJob.class);
 
-        createComponent(REQUEST_PROCESSOR, SignerRequestProcessor.class);
+        ActorRef requestProcessor = actorSystem.actorOf(
+                Props.create(SignerRequestProcessor.class).withMailbox(METERED_MAILBOX), REQUEST_PROCESSOR);
+
+        if (SystemProperties.isSignerBinaryTransportEnabled()) {
+            binarySignerServer = new BinarySignerServer(SystemProperties.getSignerBinaryPort(), requestProcessor,
+                    SystemProperties.getSignerClientTimeout());
+            binarySignerServer.start();
+        }
 
         createComponent(OCSP_RESPONSE_MANAGER, OcspResponseManager.class);
         createComponent(OCSP_CLIENT, OcspClientWorker.class);
@@ -115,6 +136,13 @@ public class Signer implements StartStop {
             this.keyConfFileWatcherRunner.stop();
         }
 
+        if (binarySignerServer != null) {
+            binarySignerServer.stop();
+        }
+
+        if (jmxReporter != null) {
+            jmxReporter.stop();
+        }
     }
 
     @Override
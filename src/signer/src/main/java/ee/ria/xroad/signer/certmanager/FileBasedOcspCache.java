@@ -27,15 +27,18 @@ import static ee.ria.xroad.common.SystemProperties.getOcspCachePath;
 
 import java.io.File;
 import java.io.FileInputStream;
-import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
-import java.io.OutputStream;
 import java.nio.file.DirectoryStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 
 import org.apache.commons.io.IOUtils;
 import org.bouncycastle.cert.ocsp.OCSPResp;
@@ -44,14 +47,17 @@ import ee.ria.xroad.common.ocsp.OcspCache;
 import lombok.extern.slf4j.Slf4j;
 
 /**
- * OCSP cache that holds the OCSP responses on disk.
+ * OCSP cache that holds the OCSP responses on disk. The responses are kept
+ * in a single {@link OcspResponseStore} file in the OCSP cache directory.
  */
 @Slf4j
 public class FileBasedOcspCache extends OcspCache {
 
-    /** The OCSP response file extension. */
+    /** The OCSP response file extension used by earlier versions. */
     private static final String OCSP_FILE_EXTENSION = ".ocsp";
 
+    private OcspResponseStore store;
+
     /**
      * Returns the OCSP response for the given certificate or null, if the
      * response is not available.
@@ -68,11 +74,10 @@ public class FileBasedOcspCache extends OcspCache {
             }
         }
 
-        File file = getOcspResponseFile(getOcspCachePath(), key);
         try {
-            response = loadResponseFromFileIfNotExpired(file, atDate);
+            response = loadResponseFromStoreIfNotExpired(key.toString(), atDate);
         } catch (Exception e) {
-            // Failed to load OCSP response from file
+            // Failed to load OCSP response from store
             throw translateException(e);
         }
 
@@ -83,61 +88,75 @@ public class FileBasedOcspCache extends OcspCache {
     public OCSPResp put(String key, OCSPResp value) {
         OCSPResp response = super.put(key, value);
         try {
-            File file = getOcspResponseFile(getOcspCachePath(), key);
-            saveResponseToFile(file, value);
+            getStore().putAll(Collections.singletonMap(key, value.getEncoded()));
         } catch (IOException e) {
-            // Failed to save OCSP response to file
+            // Failed to save OCSP response to store
             throw translateException(e);
         }
 
         return response;
     }
 
-    void reloadFromDisk() throws Exception {
-        Path path = Paths.get(getOcspCachePath());
-
-        try (DirectoryStream<Path> stream =
-                Files.newDirectoryStream(path, this::isOcspFile)) {
-            for (Path entry : stream) {
-                loadResponseFromFileIfNotExpired(entry.toFile(), new Date());
+    /**
+     * Puts all the given responses to the cache, writing them to disk at once.
+     * @param responses the responses mapped by certificate hash
+     */
+    public void putAll(Map<String, OCSPResp> responses) {
+        Map<String, byte[]> encoded = new HashMap<>();
+        try {
+            for (Map.Entry<String, OCSPResp> e : responses.entrySet()) {
+                encoded.put(e.getKey(), e.getValue().getEncoded());
             }
+
+            getStore().putAll(encoded);
+        } catch (IOException e) {
+            // Failed to save OCSP responses to store
+            throw translateException(e);
         }
-    }
 
-    boolean isOcspFile(Path p) {
-        return Files.isRegularFile(p)
-                && p.toString().endsWith(OCSP_FILE_EXTENSION);
+        responses.forEach(super::put);
     }
 
-    void saveResponseToFile(File file, OCSPResp ocspResponse)
-            throws IOException {
-        createIntermediateDirectories(file);
+    /**
+     * Loads all the responses from disk to memory, dropping the expired
+     * ones. Response files of earlier versions are moved to the store.
+     * @throws Exception if an error occurs
+     */
+    synchronized void reloadFromDisk() throws Exception {
+        Path path = Paths.get(getOcspCachePath());
+
+        OcspResponseStore newStore = new OcspResponseStore(path.resolve(OcspResponseStore.STORE_FILE_NAME));
+        Map<String, byte[]> stored = newStore.load();
 
-        try (OutputStream os = new FileOutputStream(file)) {
-            os.write(ocspResponse.getEncoded());
+        if (store != null) {
+            store.close();
         }
 
-        log.trace("Saved OCSP response to file '{}'", file);
-    }
+        store = newStore;
 
-    OCSPResp loadResponseFromFileIfNotExpired(File file, Date atDate)
-            throws Exception {
-        OCSPResp response = loadResponseFromFile(file);
-        if (response != null) {
-            String key = getFileNameWithoutExtension(file);
-            if (!isExpired(response, atDate)) {
-                log.trace("Loaded OCSP response for cert hash {}", key);
+        Date now = new Date();
+        List<String> expired = new ArrayList<>();
 
-                super.put(key, response); // store in memory
+        for (Map.Entry<String, byte[]> e : stored.entrySet()) {
+            OCSPResp response = new OCSPResp(e.getValue());
+            if (!isExpired(response, now)) {
+                super.put(e.getKey(), response);
             } else {
-                log.trace("Cached OCSP response for certificate '{}' "
-                        + "has expired, deleting the file '{}'", key, file);
-                delete(file);
-                return null;
+                expired.add(e.getKey());
             }
         }
 
-        return response;
+        store.removeAll(expired);
+
+        log.trace("Loaded {} OCSP responses, dropped {} expired ones", stored.size() - expired.size(),
+                expired.size());
+
+        migrateResponseFiles(path, now);
+    }
+
+    boolean isOcspFile(Path p) {
+        return Files.isRegularFile(p)
+                && p.toString().endsWith(OCSP_FILE_EXTENSION);
     }
 
     OCSPResp loadResponseFromFile(File file) throws IOException {
@@ -158,19 +177,75 @@ public class FileBasedOcspCache extends OcspCache {
         }
     }
 
-    private static void createIntermediateDirectories(File file)
-            throws IOException {
-        File path = file.getParentFile();
-        if (!path.exists() && !path.mkdirs()) {
-            throw new IOException("Could not create path " + path);
+    private OCSPResp loadResponseFromStoreIfNotExpired(String key, Date atDate) throws Exception {
+        byte[] encoded = getStore().get(key);
+        if (encoded == null) {
+            return null;
         }
+
+        OCSPResp response = new OCSPResp(encoded);
+        if (!isExpired(response, atDate)) {
+            log.trace("Loaded OCSP response for cert hash {}", key);
+
+            super.put(key, response); // store in memory
+
+            return response;
+        }
+
+        log.trace("Cached OCSP response for certificate '{}' has expired, removing it", key);
+        getStore().removeAll(Collections.singletonList(key));
+
+        return null;
     }
 
-    private static File getOcspResponseFile(String path, Object certHash) {
-        return new File(path, certHash + OCSP_FILE_EXTENSION);
+    private void migrateResponseFiles(Path path, Date atDate) throws Exception {
+        Map<String, OCSPResp> responses = new HashMap<>();
+        List<File> files = new ArrayList<>();
+
+        try (DirectoryStream<Path> stream =
+                Files.newDirectoryStream(path, this::isOcspFile)) {
+            for (Path entry : stream) {
+                File file = entry.toFile();
+                files.add(file);
+
+                try {
+                    OCSPResp response = loadResponseFromFile(file);
+                    if (response != null && !isExpired(response, atDate)) {
+                        responses.put(getFileNameWithoutExtension(file), response);
+                    }
+                } catch (Exception e) {
+                    log.warn("Failed to load OCSP response from file '{}': {}", file, e);
+                }
+            }
+        }
+
+        if (files.isEmpty()) {
+            return;
+        }
+
+        log.info("Moving {} OCSP response files to the OCSP response store", files.size());
+
+        // The files are deleted only after the responses have been
+        // written to the store.
+        putAll(responses);
+
+        files.forEach(FileBasedOcspCache::delete);
+    }
+
+    private synchronized OcspResponseStore getStore() throws IOException {
+        if (store == null) {
+            store = new OcspResponseStore(Paths.get(getOcspCachePath(), OcspResponseStore.STORE_FILE_NAME));
+            store.load();
+        }
+
+        return store;
     }
 
     private static void delete(File file) {
+        if (!file.exists()) {
+            return;
+        }
+
         try {
             Files.delete(file.toPath());
         } catch (Exception e) {
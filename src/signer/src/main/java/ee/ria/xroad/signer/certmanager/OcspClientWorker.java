@@ -29,6 +29,18 @@ import java.security.cert.X509Certificate;
 import java.time.LocalTime;
 import java.util.*;
 import java.util.Map.Entry;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import akka.actor.ActorRef;
 
@@ -42,6 +54,7 @@ import ee.ria.xroad.common.CertificationServiceDiagnostics;
 import ee.ria.xroad.common.CertificationServiceStatus;
 import ee.ria.xroad.common.DiagnosticsErrorCodes;
 import ee.ria.xroad.common.OcspResponderStatus;
+import ee.ria.xroad.common.SystemProperties;
 import ee.ria.xroad.common.cert.CertChain;
 import ee.ria.xroad.common.conf.globalconf.GlobalConf;
 import ee.ria.xroad.common.conf.globalconfextension.GlobalConfExtensions;
@@ -89,11 +102,32 @@ public class OcspClientWorker extends AbstractSignerActor {
 
     private CertificationServiceDiagnostics diagnostics;
 
+    // Fetches the responses of different certificates in parallel.
+    private ExecutorService certificateExecutor;
+
+    // Sends the requests to the responders of one certificate.
+    private ExecutorService requestExecutor;
+
+    // Limits the number of concurrent requests per responder URI.
+    private final Map<String, Semaphore> responderPermits = new ConcurrentHashMap<>();
+
     @Override
     public void preStart() throws Exception {
         super.preStart();
         changeChecker = new GlobalConfChangeChecker();
         diagnostics = new CertificationServiceDiagnostics();
+
+        certificateExecutor = Executors.newFixedThreadPool(SystemProperties.getSignerOcspFetchParallelism(),
+                daemonThreads("ocsp-fetch"));
+        requestExecutor = Executors.newCachedThreadPool(daemonThreads("ocsp-request"));
+    }
+
+    @Override
+    public void postStop() throws Exception {
+        certificateExecutor.shutdownNow();
+        requestExecutor.shutdownNow();
+
+        super.postStop();
     }
 
     @Override
@@ -200,13 +234,26 @@ public class OcspClientWorker extends AbstractSignerActor {
 
         log.info("Fetching OCSP responses for {} certificates", certs.size());
 
-        Boolean failed = false;
-        Map<String, OCSPResp> statuses = new HashMap<>();
+        long start = System.currentTimeMillis();
+
+        OcspVerifierOptions verifierOptions = new OcspVerifierOptions(
+                GlobalConfExtensions.getInstance().shouldVerifyOcspNextUpdate());
+
+        Map<X509Certificate, Future<OCSPResp>> results = new LinkedHashMap<>();
 
         for (X509Certificate subject : certs) {
+            results.put(subject, certificateExecutor.submit(() -> queryCertStatus(subject, verifierOptions)));
+        }
+
+        boolean failed = false;
+        Map<String, OCSPResp> statuses = new HashMap<>();
+
+        for (Entry<X509Certificate, Future<OCSPResp>> result : results.entrySet()) {
+            X509Certificate subject = result.getKey();
+
             try {
-                OCSPResp status = queryCertStatus(subject, new OcspVerifierOptions(
-                        GlobalConfExtensions.getInstance().shouldVerifyOcspNextUpdate()));
+                OCSPResp status = result.getValue().get();
+
                 if (status != null) {
                     String subjectHash = calculateCertHexHash(subject);
                     statuses.put(subjectHash, status);
@@ -216,10 +263,14 @@ public class OcspClientWorker extends AbstractSignerActor {
             } catch (Exception e) {
                 failed = true;
 
-                log.error("Error when querying certificate '{}'", subject.getSerialNumber(), e);
+                log.error("Error when querying certificate '{}'", subject.getSerialNumber(),
+                        e instanceof ExecutionException ? e.getCause() : e);
             }
         }
 
+        log.info("OCSP-response refresh cycle finished in {} ms, received {} of {} responses",
+                System.currentTimeMillis() - start, statuses.size(), certs.size());
+
         if (failed) {
             getSender().tell(FAILED, getSelf());
         } else {
@@ -289,59 +340,158 @@ public class OcspClientWorker extends AbstractSignerActor {
             throw new ConnectException("No OCSP responder URIs available");
         }
 
-        OCSPResp response = null;
+        OCSPResp response = fetchResponse(responderURIs, subject, issuer, signerKey, signer, signAlgoId);
 
-        for (String responderURI : responderURIs) {
-            try {
-                log.debug("Fetching response from: {}", responderURI);
+        try {
+            log.debug("Verifying response: {}", response);
 
-                response = OcspClient.fetchResponse(responderURI, subject, issuer, signerKey, signer, signAlgoId);
+            OcspVerifier verifier = new OcspVerifier(GlobalConf.getOcspFreshnessSeconds(true), verifierOptions);
+            verifier.verifyValidity(response, subject, issuer);
 
-                if (response != null) {
-                    reportOcspDiagnostics(issuer, responderURI, DiagnosticsErrorCodes.RETURN_SUCCESS, LocalTime.now(),
-                        LocalTime.now().plusSeconds(GlobalConfExtensions.getInstance().getOcspFetchInterval()));
+            log.debug("Received OCSP response for certificate '{}'", subject.getSubjectX500Principal());
+            log.debug("Verification successful");
+
+            return response;
+        } catch (Exception e) {
+            log.warn("Received OCSP response that failed verification", e);
+
+            return null;
+        }
+    }
+
+    /**
+     * Sends the request to the first responder. If the responder fails, or
+     * does not respond within the hedge delay, the request is also sent to
+     * the next responder. Returns the first response received, or null if
+     * none of the responders responded. Requests that are still running when
+     * this method returns are cancelled and do not report diagnostics.
+     */
+    private OCSPResp fetchResponse(List<String> responderURIs, X509Certificate subject, X509Certificate issuer,
+            PrivateKey signerKey, X509Certificate signer, String signAlgoId) throws InterruptedException {
+        int hedgeDelay = SystemProperties.getSignerOcspHedgeDelay();
 
-                    break;
+        CompletionService<OCSPResp> completionService = new ExecutorCompletionService<>(requestExecutor);
+        List<Future<OCSPResp>> requests = new ArrayList<>();
+        Iterator<String> nextResponders = responderURIs.iterator();
+        AtomicBoolean finished = new AtomicBoolean();
+
+        try {
+            int pending = 0;
+
+            do {
+                if (pending == 0 || nextResponders.hasNext() && hedgeDelay > 0) {
+                    String responderURI = nextResponders.next();
+
+                    requests.add(completionService.submit(
+                            () -> fetchResponse(responderURI, subject, issuer, signerKey, signer, signAlgoId,
+                                    finished)));
+                    pending++;
                 }
-            } catch (OCSPException e) {
-                log.error("Parsing OCSP response from " + responderURI + " failed", e);
 
-                reportOcspDiagnostics(issuer, responderURI, DiagnosticsErrorCodes.ERROR_CODE_OCSP_RESPONSE_INVALID,
-                        LocalTime.now(),
-                        LocalTime.now().plusSeconds(GlobalConfExtensions.getInstance().getOcspFetchInterval()));
-            } catch (IOException e) {
-                log.error("Unable to connect to responder at " + responderURI, e);
+                Future<OCSPResp> completed = nextResponders.hasNext() && hedgeDelay > 0
+                        ? completionService.poll(hedgeDelay, TimeUnit.MILLISECONDS) : completionService.take();
 
-                reportOcspDiagnostics(issuer, responderURI, DiagnosticsErrorCodes.ERROR_CODE_OCSP_CONNECTION_ERROR,
-                    LocalTime.now(),
-                    LocalTime.now().plusSeconds(GlobalConfExtensions.getInstance().getOcspFetchInterval()));
-            } catch (Exception e) {
-                log.error("Unable to fetch response from responder at " + responderURI, e);
+                if (completed == null) {
+                    log.debug("No OCSP response within {} ms, sending request to next responder", hedgeDelay);
+
+                    continue;
+                }
 
-                reportOcspDiagnostics(issuer, responderURI, DiagnosticsErrorCodes.ERROR_CODE_OCSP_FAILED,
+                pending--;
+
+                OCSPResp response = getResult(completed);
+
+                if (response != null) {
+                    return response;
+                }
+            } while (pending > 0 || nextResponders.hasNext());
+
+            return null;
+        } finally {
+            synchronized (diagnostics) {
+                finished.set(true);
+            }
+
+            requests.forEach(r -> r.cancel(true));
+        }
+    }
+
+    private static OCSPResp getResult(Future<OCSPResp> request) {
+        try {
+            return request.get();
+        } catch (InterruptedException | ExecutionException e) {
+            // The request task handles its own errors
+            return null;
+        }
+    }
+
+    private OCSPResp fetchResponse(String responderURI, X509Certificate subject, X509Certificate issuer,
+            PrivateKey signerKey, X509Certificate signer, String signAlgoId, AtomicBoolean finished) {
+        Semaphore permits = responderPermits.computeIfAbsent(responderURI,
+                uri -> new Semaphore(SystemProperties.getSignerOcspResponderMaxConcurrency()));
+
+        try {
+            if (!permits.tryAcquire(SystemProperties.getSignerOcspConnectTimeout(), TimeUnit.MILLISECONDS)) {
+                throw new ConnectException("Too many concurrent requests to responder");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+
+            return null;
+        } catch (IOException e) {
+            log.error("Unable to connect to responder at " + responderURI, e);
+
+            reportOcspDiagnostics(finished, issuer, responderURI,
+                    DiagnosticsErrorCodes.ERROR_CODE_OCSP_CONNECTION_ERROR,
                     LocalTime.now(),
                     LocalTime.now().plusSeconds(GlobalConfExtensions.getInstance().getOcspFetchInterval()));
-            }
+
+            return null;
         }
+
         try {
-            log.debug("Verifying response: {}", response);
+            log.debug("Fetching response from: {}", responderURI);
 
-            OcspVerifier verifier = new OcspVerifier(GlobalConf.getOcspFreshnessSeconds(true), verifierOptions);
-            verifier.verifyValidity(response, subject, issuer);
+            OCSPResp response = OcspClient.fetchResponse(responderURI, subject, issuer, signerKey, signer,
+                    signAlgoId);
 
-            log.debug("Received OCSP response for certificate '{}'", subject.getSubjectX500Principal());
-            log.debug("Verification successful");
+            if (response != null) {
+                reportOcspDiagnostics(finished, issuer, responderURI,
+                        DiagnosticsErrorCodes.RETURN_SUCCESS, LocalTime.now(),
+                        LocalTime.now().plusSeconds(GlobalConfExtensions.getInstance().getOcspFetchInterval()));
+            }
 
             return response;
-        } catch (Exception e) {
-            log.warn("Received OCSP response that failed verification", e);
+        } catch (OCSPException e) {
+            log.error("Parsing OCSP response from " + responderURI + " failed", e);
 
-            return null;
+            reportOcspDiagnostics(finished, issuer, responderURI,
+                    DiagnosticsErrorCodes.ERROR_CODE_OCSP_RESPONSE_INVALID,
+                    LocalTime.now(),
+                    LocalTime.now().plusSeconds(GlobalConfExtensions.getInstance().getOcspFetchInterval()));
+        } catch (IOException e) {
+            log.error("Unable to connect to responder at " + responderURI, e);
+
+            reportOcspDiagnostics(finished, issuer, responderURI,
+                    DiagnosticsErrorCodes.ERROR_CODE_OCSP_CONNECTION_ERROR,
+                LocalTime.now(),
+                LocalTime.now().plusSeconds(GlobalConfExtensions.getInstance().getOcspFetchInterval()));
+        } catch (Exception e) {
+            log.error("Unable to fetch response from responder at " + responderURI, e);
+
+            reportOcspDiagnostics(finished, issuer, responderURI,
+                    DiagnosticsErrorCodes.ERROR_CODE_OCSP_FAILED,
+                LocalTime.now(),
+                LocalTime.now().plusSeconds(GlobalConfExtensions.getInstance().getOcspFetchInterval()));
+        } finally {
+            permits.release();
         }
+
+        return null;
     }
 
-    private void reportOcspDiagnostics(X509Certificate issuer, String responderURI, int statusCode,
-            LocalTime prevUpdate, LocalTime nextUpdate) {
+    private void reportOcspDiagnostics(AtomicBoolean finished, X509Certificate issuer, String responderURI,
+            int statusCode, LocalTime prevUpdate, LocalTime nextUpdate) {
 
         OcspResponderStatus responderStatus = new OcspResponderStatus(statusCode, responderURI, prevUpdate, nextUpdate);
 
@@ -349,16 +499,24 @@ public class OcspClientWorker extends AbstractSignerActor {
 
         CertificationServiceStatus serviceStatus;
 
-        Map<String, CertificationServiceStatus> serviceStatusMap = diagnostics.getCertificationServiceStatusMap();
+        // Responses are fetched in parallel
+        synchronized (diagnostics) {
+            if (finished.get()) {
+                // Another responder already answered and this request was cancelled
+                return;
+            }
 
-        if (!serviceStatusMap.containsKey(subjectName)) {
-            serviceStatus = new CertificationServiceStatus(subjectName);
-            serviceStatusMap.put(subjectName, serviceStatus);
-        } else {
-            serviceStatus = serviceStatusMap.get(subjectName);
-        }
+            Map<String, CertificationServiceStatus> serviceStatusMap = diagnostics.getCertificationServiceStatusMap();
+
+            if (!serviceStatusMap.containsKey(subjectName)) {
+                serviceStatus = new CertificationServiceStatus(subjectName);
+                serviceStatusMap.put(subjectName, serviceStatus);
+            } else {
+                serviceStatus = serviceStatusMap.get(subjectName);
+            }
 
-        serviceStatus.getOcspResponderStatusMap().put(responderURI, responderStatus);
+            serviceStatus.getOcspResponderStatusMap().put(responderURI, responderStatus);
+        }
     }
 
     void updateCertStatuses(Map<String, OCSPResp> statuses) throws Exception {
@@ -451,6 +609,12 @@ public class OcspClientWorker extends AbstractSignerActor {
     }
 
     private void initializeDiagnostics() {
+        synchronized (diagnostics) {
+            initializeDiagnosticsLocked();
+        }
+    }
+
+    private void initializeDiagnosticsLocked() {
         for (X509Certificate caCertificate : GlobalConf.getAllCaCerts()) {
             try {
                 final String key = caCertificate.getSubjectDN().toString();
@@ -478,6 +642,17 @@ public class OcspClientWorker extends AbstractSignerActor {
         }
     }
 
+    private static ThreadFactory daemonThreads(String name) {
+        AtomicInteger threadNumber = new AtomicInteger();
+
+        return r -> {
+            Thread thread = new Thread(r, name + "-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+
+            return thread;
+        };
+    }
+
     /**
      * @return the next ocsp freshness time in seconds
      */
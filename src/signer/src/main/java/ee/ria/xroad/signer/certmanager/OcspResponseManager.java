@@ -39,6 +39,8 @@ import org.bouncycastle.cert.ocsp.OCSPResp;
 import java.io.Serializable;
 import java.security.cert.X509Certificate;
 import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.Map;
 import java.util.Map.Entry;
 
 import static ee.ria.xroad.common.util.CryptoUtils.calculateCertHexHash;
@@ -167,10 +169,18 @@ public class OcspResponseManager extends AbstractSignerActor {
     void handleSetOcspResponses(SetOcspResponses message) throws Exception {
         log.trace("handleSetOcspResponses()");
 
+        Map<String, OCSPResp> responses = new LinkedHashMap<>();
         for (int i = 0; i < message.getCertHashes().length; i++) {
-            setResponse(message.getCertHashes()[i], new OCSPResp(
+            responses.put(message.getCertHashes()[i], new OCSPResp(
                     decodeBase64(message.getBase64EncodedResponses()[i])));
         }
+
+        log.debug("Setting {} new responses to cache", responses.size());
+        try {
+            responseCache.putAll(responses);
+        } finally {
+            responses.forEach(TokenManager::setOcspResponse);
+        }
     }
 
     void handleIsCachedOcspResponse(IsCachedOcspResponse message)
@@ -0,0 +1,452 @@
+/**
+ * The MIT License
+ * Copyright (c) 2015 Estonian Information System Authority (RIA), Population Register Centre (VRK)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package ee.ria.xroad.signer.certmanager;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Stores OCSP responses in a single append-only file, with an in-memory
+ * index of the latest record of every certificate hash.
+ *
+ * Every record is written as the length of the record body, the CRC32
+ * checksum of the body and the body itself. The body consists of the record
+ * type (put or remove), the certificate hash and the encoded OCSP response.
+ * A record that was only partly written when the process stopped fails the
+ * length or checksum check when the file is opened, and the file is truncated
+ * before it.
+ *
+ * When most of the file consists of outdated records, the live records are
+ * copied to a new file, which then atomically replaces the old one.
+ */
+@Slf4j
+class OcspResponseStore implements Closeable {
+
+    /** The name of the store file in the OCSP cache directory. */
+    static final String STORE_FILE_NAME = "ocsp-responses.store";
+
+    private static final byte PUT = 1;
+    private static final byte REMOVE = 2;
+
+    private static final int HEADER_LENGTH = Integer.BYTES * 2;
+    private static final int MAX_RECORD_LENGTH = 16 * 1024 * 1024;
+
+    // The file is not compacted before it reaches this size.
+    private static final long MIN_COMPACTION_SIZE = 64 * 1024;
+
+    private final Path file;
+
+    private final Map<String, Entry> index = new HashMap<>();
+
+    private FileChannel channel;
+    private long liveBytes;
+
+    /**
+     * Creates the store. The file is not opened before {@link #load()}.
+     * @param file the store file
+     */
+    OcspResponseStore(Path file) {
+        this.file = file;
+    }
+
+    /**
+     * Opens the store file, creating it if necessary, and reads all stored
+     * responses.
+     * @return the encoded responses mapped by certificate hash
+     * @throws IOException if the file cannot be read
+     */
+    synchronized Map<String, byte[]> load() throws IOException {
+        close();
+
+        Files.createDirectories(file.toAbsolutePath().getParent());
+
+        channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE);
+
+        Map<String, byte[]> responses = read();
+
+        compactIfNeeded();
+
+        return responses;
+    }
+
+    /**
+     * @param certHash the certificate hash
+     * @return the encoded response or null, if there is none
+     * @throws IOException if the response cannot be read
+     */
+    synchronized byte[] get(String certHash) throws IOException {
+        Entry entry = index.get(certHash);
+
+        if (entry == null) {
+            return null;
+        }
+
+        ByteBuffer value = ByteBuffer.allocate(entry.getValueLength());
+        readFully(value, entry.getValuePosition());
+
+        return value.array();
+    }
+
+    /**
+     * Stores the responses with a single write.
+     * @param responses the encoded responses mapped by certificate hash
+     * @throws IOException if the responses cannot be stored
+     */
+    synchronized void putAll(Map<String, byte[]> responses) throws IOException {
+        if (responses.isEmpty()) {
+            return;
+        }
+
+        ByteArrayOutputStream records = new ByteArrayOutputStream();
+        Map<String, Entry> entries = new LinkedHashMap<>();
+
+        long position = getChannel().size();
+
+        for (Map.Entry<String, byte[]> response : responses.entrySet()) {
+            Entry entry = writeRecord(records, position + records.size(), PUT, response.getKey(),
+                    response.getValue());
+
+            entries.put(response.getKey(), entry);
+        }
+
+        append(records.toByteArray(), position);
+
+        entries.forEach(this::updateIndex);
+
+        compactIfNeeded();
+    }
+
+    /**
+     * Removes the responses of the given certificate hashes.
+     * @param certHashes the certificate hashes
+     * @throws IOException if the removal cannot be stored
+     */
+    synchronized void removeAll(Collection<String> certHashes) throws IOException {
+        ByteArrayOutputStream records = new ByteArrayOutputStream();
+
+        long position = getChannel().size();
+
+        for (String certHash : certHashes) {
+            if (index.containsKey(certHash)) {
+                writeRecord(records, position + records.size(), REMOVE, certHash, new byte[0]);
+            }
+        }
+
+        if (records.size() == 0) {
+            return;
+        }
+
+        append(records.toByteArray(), position);
+
+        certHashes.forEach(certHash -> updateIndex(certHash, null));
+
+        compactIfNeeded();
+    }
+
+    /**
+     * @return the number of stored responses
+     */
+    synchronized int size() {
+        return index.size();
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        if (channel != null) {
+            channel.close();
+            channel = null;
+        }
+
+        index.clear();
+        liveBytes = 0;
+    }
+
+    /**
+     * Copies the live records to a new file that replaces the current one.
+     * @throws IOException if an error occurs
+     */
+    synchronized void compact() throws IOException {
+        log.debug("Compacting OCSP response store {} ({} bytes, {} live)", file, getChannel().size(), liveBytes);
+
+        Path tempFile = file.resolveSibling(file.getFileName() + ".tmp");
+
+        Map<String, byte[]> responses = new LinkedHashMap<>();
+
+        for (String certHash : index.keySet()) {
+            responses.put(certHash, get(certHash));
+        }
+
+        ByteArrayOutputStream records = new ByteArrayOutputStream();
+        Map<String, Entry> entries = new HashMap<>();
+
+        for (Map.Entry<String, byte[]> response : responses.entrySet()) {
+            entries.put(response.getKey(), writeRecord(records, records.size(), PUT, response.getKey(),
+                    response.getValue()));
+        }
+
+        try (FileChannel tempChannel = FileChannel.open(tempFile, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            write(tempChannel, ByteBuffer.wrap(records.toByteArray()), 0);
+            tempChannel.force(true);
+        } catch (IOException e) {
+            Files.deleteIfExists(tempFile);
+
+            throw e;
+        }
+
+        channel.close();
+        channel = null;
+
+        boolean replaced = false;
+
+        try {
+            replaceFile(tempFile, file);
+            replaced = true;
+
+            syncDirectory(file.toAbsolutePath().getParent());
+        } finally {
+            try {
+                if (!replaced) {
+                    Files.deleteIfExists(tempFile);
+                }
+            } finally {
+                // If the file was not replaced, the old file and index are still valid
+                channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            }
+        }
+
+        index.clear();
+        index.putAll(entries);
+        liveBytes = records.size();
+    }
+
+    /**
+     * Atomically replaces the store file with the compacted file.
+     * @param source the compacted file
+     * @param target the store file
+     * @throws IOException if the file cannot be replaced
+     */
+    void replaceFile(Path source, Path target) throws IOException {
+        Files.move(source, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    /**
+     * Makes the rename of the store file durable. The compacted file is
+     * already synced, so a failure here only risks losing the rename on a
+     * crash, in which case the old file is still valid.
+     */
+    private static void syncDirectory(Path dir) {
+        try (FileChannel dirChannel = FileChannel.open(dir, StandardOpenOption.READ)) {
+            dirChannel.force(true);
+        } catch (IOException e) {
+            log.warn("Failed to sync directory {}: {}", dir, e.getMessage());
+        }
+    }
+
+    private Map<String, byte[]> read() throws IOException {
+        Map<String, byte[]> responses = new HashMap<>();
+
+        long size = channel.size();
+        long position = 0;
+
+        ByteBuffer header = ByteBuffer.allocate(HEADER_LENGTH);
+
+        while (position < size) {
+            header.clear();
+
+            if (size - position < HEADER_LENGTH) {
+                break;
+            }
+
+            readFully(header, position);
+            header.flip();
+
+            int length = header.getInt();
+            int checksum = header.getInt();
+
+            if (length <= 0 || length > MAX_RECORD_LENGTH || size - position - HEADER_LENGTH < length) {
+                break;
+            }
+
+            ByteBuffer body = ByteBuffer.allocate(length);
+            readFully(body, position + HEADER_LENGTH);
+
+            if (checksum(body.array()) != checksum) {
+                break;
+            }
+
+            body.flip();
+
+            byte type = body.get();
+            byte[] key = new byte[body.getShort()];
+            body.get(key);
+            byte[] value = new byte[body.getInt()];
+            long valuePosition = position + HEADER_LENGTH + body.position();
+            body.get(value);
+
+            String certHash = new String(key, StandardCharsets.UTF_8);
+
+            if (type == PUT) {
+                responses.put(certHash, value);
+                updateIndex(certHash, new Entry(valuePosition, value.length, HEADER_LENGTH + length));
+            } else {
+                responses.remove(certHash);
+                updateIndex(certHash, null);
+            }
+
+            position += HEADER_LENGTH + length;
+        }
+
+        if (position < size) {
+            log.warn("OCSP response store {} has an incomplete or corrupted record at {}, truncating",
+                    file, position);
+
+            channel.truncate(position);
+            channel.force(true);
+        }
+
+        log.debug("Loaded {} OCSP responses from {}", responses.size(), file);
+
+        return responses;
+    }
+
+    private void compactIfNeeded() throws IOException {
+        long size = getChannel().size();
+
+        if (size >= MIN_COMPACTION_SIZE && size > 2 * liveBytes) {
+            compact();
+        }
+    }
+
+    private void updateIndex(String certHash, Entry entry) {
+        Entry previous = entry != null ? index.put(certHash, entry) : index.remove(certHash);
+
+        if (previous != null) {
+            liveBytes -= previous.getRecordLength();
+        }
+
+        if (entry != null) {
+            liveBytes += entry.getRecordLength();
+        }
+    }
+
+    private void append(byte[] records, long position) throws IOException {
+        try {
+            write(getChannel(), ByteBuffer.wrap(records), position);
+            channel.force(false);
+        } catch (IOException e) {
+            // Do not leave a partial record behind the next appended one
+            channel.truncate(position);
+
+            throw e;
+        }
+    }
+
+    private FileChannel getChannel() throws IOException {
+        if (channel == null) {
+            throw new IOException("OCSP response store " + file + " is not open");
+        }
+
+        return channel;
+    }
+
+    private void readFully(ByteBuffer buffer, long position) throws IOException {
+        long offset = position;
+
+        while (buffer.hasRemaining()) {
+            int read = getChannel().read(buffer, offset);
+
+            if (read < 0) {
+                throw new IOException("Unexpected end of OCSP response store " + file);
+            }
+
+            offset += read;
+        }
+    }
+
+    private static void write(FileChannel target, ByteBuffer buffer, long position) throws IOException {
+        long offset = position;
+
+        while (buffer.hasRemaining()) {
+            offset += target.write(buffer, offset);
+        }
+    }
+
+    private static Entry writeRecord(ByteArrayOutputStream out, long position, byte type, String certHash,
+            byte[] value) throws IOException {
+        byte[] key = certHash.getBytes(StandardCharsets.UTF_8);
+
+        ByteArrayOutputStream bodyBytes = new ByteArrayOutputStream();
+
+        try (DataOutputStream body = new DataOutputStream(bodyBytes)) {
+            body.writeByte(type);
+            body.writeShort(key.length);
+            body.write(key);
+            body.writeInt(value.length);
+            body.write(value);
+        }
+
+        byte[] bodyArray = bodyBytes.toByteArray();
+
+        DataOutputStream record = new DataOutputStream(out);
+        record.writeInt(bodyArray.length);
+        record.writeInt(checksum(bodyArray));
+        record.write(bodyArray);
+        record.flush();
+
+        long valuePosition = position + HEADER_LENGTH + bodyArray.length - value.length;
+
+        return new Entry(valuePosition, value.length, HEADER_LENGTH + bodyArray.length);
+    }
+
+    private static int checksum(byte[] data) {
+        CRC32 crc = new CRC32();
+        crc.update(data);
+
+        return (int) crc.getValue();
+    }
+
+    @lombok.Value
+    private static class Entry {
+        private final long valuePosition;
+        private final int valueLength;
+        private final int recordLength;
+    }
+}
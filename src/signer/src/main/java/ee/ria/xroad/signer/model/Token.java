@@ -113,7 +113,7 @@ public final class Token {
         return new TokenInfo(type, friendlyName, id, readOnly, available,
                 active, serialNumber, label, slotIndex, status,
                 Collections.unmodifiableList(getKeysAsDTOs()),
-                Collections.unmodifiableMap(tokenInfo));
+                Collections.unmodifiableMap(new LinkedHashMap<>(tokenInfo)));
     }
 
     /**
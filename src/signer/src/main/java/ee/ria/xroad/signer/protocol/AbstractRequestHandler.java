@@ -28,11 +28,14 @@ import static ee.ria.xroad.common.ErrorCodes.translateException;
 import static ee.ria.xroad.signer.tokenmanager.ServiceLocator.getToken;
 import static ee.ria.xroad.signer.util.ExceptionHelper.tokenNotAvailable;
 
+import java.util.concurrent.TimeUnit;
+
 import akka.actor.ActorRef;
 import akka.actor.UntypedActor;
 import ee.ria.xroad.common.CodedException;
 import ee.ria.xroad.signer.protocol.message.SuccessResponse;
 import ee.ria.xroad.signer.tokenmanager.TokenManager;
+import ee.ria.xroad.signer.util.SignerMetrics;
 import lombok.extern.slf4j.Slf4j;
 
 /**
@@ -46,9 +49,20 @@ public abstract class AbstractRequestHandler<T> extends UntypedActor {
     private static final Object SUCCESS = new SuccessResponse();
     private static final Object NOTHING = null;
 
+    /**
+     * Handles the message. The handling time is recorded in the handler
+     * timer only if the handler replies itself. Handlers that return
+     * {@link #nothing()} pass the request on and the reply is sent later
+     * by another actor, so their handling time would not cover the request.
+     * Signing is measured separately, see SignerMetrics.
+     */
     @Override
     public void onReceive(Object message) throws Exception {
         log.trace("onReceive({})", message);
+
+        long start = System.nanoTime();
+        boolean replied = true;
+
         try {
             Object result = handle((T) message);
             if (result != nothing()) {
@@ -57,6 +71,8 @@ public abstract class AbstractRequestHandler<T> extends UntypedActor {
                 } else if (hasSender()) {
                     getSender().tell(result, getSelf());
                 }
+            } else {
+                replied = false;
             }
         } catch (ClassCastException e) {
             handleError(new CodedException(X_INTERNAL_ERROR,
@@ -64,6 +80,10 @@ public abstract class AbstractRequestHandler<T> extends UntypedActor {
         } catch (Exception e) {
             handleError(translateException(e));
         } finally {
+            if (replied) {
+                SignerMetrics.getHandlerTimer(getClass()).update(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            }
+
             getContext().stop(getSelf());
         }
     }
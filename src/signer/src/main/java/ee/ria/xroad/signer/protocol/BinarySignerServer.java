@@ -0,0 +1,191 @@
+/**
+ * The MIT License
+ * Copyright (c) 2015 Estonian Information System Authority (RIA), Population Register Centre (VRK)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package ee.ria.xroad.signer.protocol;
+
+import akka.actor.ActorRef;
+import akka.pattern.PatternsCS;
+import ee.ria.xroad.common.CodedException;
+import ee.ria.xroad.common.util.StartStop;
+import ee.ria.xroad.signer.protocol.binary.BinaryMessageCodec;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+
+import static ee.ria.xroad.common.ErrorCodes.X_INTERNAL_ERROR;
+import static ee.ria.xroad.common.ErrorCodes.translateException;
+
+/**
+ * Accepts requests of the binary signer protocol on a local port and passes
+ * them to the request processor. Each connection is served by its own
+ * reader thread; responses are written back as soon as the request processor
+ * replies, so several requests of one connection can be processed at once.
+ */
+@Slf4j
+public class BinarySignerServer implements StartStop {
+
+    private final int port;
+    private final ActorRef requestProcessor;
+    private final long timeoutMillis;
+
+    private ServerSocket serverSocket;
+    private Thread acceptor;
+
+    /**
+     * Creates the server.
+     * @param port the local port to listen on
+     * @param requestProcessor the actor that processes the requests
+     * @param timeoutMillis the maximum time to wait for the request processor
+     */
+    public BinarySignerServer(int port, ActorRef requestProcessor, long timeoutMillis) {
+        this.port = port;
+        this.requestProcessor = requestProcessor;
+        this.timeoutMillis = timeoutMillis;
+    }
+
+    @Override
+    public void start() throws Exception {
+        log.info("Starting binary signer protocol server on port {}", port);
+
+        serverSocket = new ServerSocket(port, 0, InetAddress.getLoopbackAddress());
+
+        acceptor = new Thread(this::acceptConnections, "BinarySignerServer-acceptor");
+        acceptor.setDaemon(true);
+        acceptor.start();
+    }
+
+    @Override
+    public void stop() throws Exception {
+        if (serverSocket != null) {
+            serverSocket.close();
+        }
+    }
+
+    @Override
+    public void join() throws InterruptedException {
+        if (acceptor != null) {
+            acceptor.join();
+        }
+    }
+
+    /**
+     * @return the port the server is listening on
+     */
+    public int getLocalPort() {
+        return serverSocket.getLocalPort();
+    }
+
+    private void acceptConnections() {
+        while (!serverSocket.isClosed()) {
+            try {
+                Socket socket = serverSocket.accept();
+                socket.setTcpNoDelay(true);
+
+                Thread reader = new Thread(() -> serve(socket), "BinarySignerServer-connection");
+                reader.setDaemon(true);
+                reader.start();
+            } catch (IOException e) {
+                if (!serverSocket.isClosed()) {
+                    log.error("Error accepting connection", e);
+                }
+            }
+        }
+    }
+
+    private void serve(Socket socket) {
+        log.debug("Client connected from port {}", socket.getPort());
+
+        try (Socket s = socket) {
+            DataInputStream in = new DataInputStream(new BufferedInputStream(s.getInputStream()));
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(s.getOutputStream()));
+
+            while (true) {
+                BinaryMessageCodec.Frame frame = BinaryMessageCodec.readRequestFrame(in);
+
+                if (!BinaryMessageCodec.isSupportedRequest(frame.getMessage())) {
+                    throw new IOException("Unsupported request: " + frame.getMessage().getClass().getName());
+                }
+
+                PatternsCS.ask(requestProcessor, frame.getMessage(), timeoutMillis).whenComplete(
+                        (response, error) -> reply(s, out, frame.getRequestId(),
+                                error != null ? translateException(error) : response));
+            }
+        } catch (EOFException e) {
+            log.debug("Client disconnected");
+        } catch (IOException e) {
+            log.error("Error reading request, closing connection", e);
+        }
+    }
+
+    private static void reply(Socket socket, DataOutputStream out, long requestId, Object response) {
+        Object message = response;
+
+        if (!BinaryMessageCodec.isSupportedResponse(response)) {
+            message = new CodedException(X_INTERNAL_ERROR, "Unexpected response: %s",
+                    response != null ? response.getClass().getName() : null);
+        }
+
+        byte[] frame;
+
+        try {
+            frame = BinaryMessageCodec.encodeFrame(requestId, message);
+        } catch (Exception e) {
+            log.error("Error encoding response", e);
+
+            // The client waits for a response to every request, so send a plain error instead
+            frame = encodeError(requestId, e);
+
+            if (frame == null) {
+                return;
+            }
+        }
+
+        synchronized (out) {
+            try {
+                BinaryMessageCodec.writeFrame(out, frame);
+            } catch (IOException e) {
+                if (!socket.isClosed()) {
+                    log.error("Error writing response", e);
+                }
+            }
+        }
+    }
+
+    private static byte[] encodeError(long requestId, Exception cause) {
+        try {
+            return BinaryMessageCodec.encodeFrame(requestId,
+                    new CodedException(X_INTERNAL_ERROR, "Failed to encode response: %s", cause.getMessage()));
+        } catch (IOException e) {
+            log.error("Error encoding error response", e);
+
+            return null;
+        }
+    }
+}
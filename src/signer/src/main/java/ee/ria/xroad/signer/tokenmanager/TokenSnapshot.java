@@ -0,0 +1,179 @@
+/**
+ * The MIT License
+ * Copyright (c) 2015 Estonian Information System Authority (RIA), Population Register Centre (VRK)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package ee.ria.xroad.signer.tokenmanager;
+
+import java.security.cert.X509Certificate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import ee.ria.xroad.signer.model.Cert;
+import ee.ria.xroad.signer.model.Key;
+import ee.ria.xroad.signer.model.Token;
+import ee.ria.xroad.signer.protocol.dto.CertificateInfo;
+import ee.ria.xroad.signer.protocol.dto.KeyInfo;
+import ee.ria.xroad.signer.protocol.dto.TokenInfo;
+import ee.ria.xroad.signer.tokenmanager.module.SoftwareModuleType;
+import ee.ria.xroad.signer.util.TokenAndKey;
+
+/**
+ * Immutable view of the tokens, their keys and certificates at one point in
+ * time. The token manager publishes a new snapshot after every change, so
+ * that lookups can be made without locking. If several tokens, keys or
+ * certificates have the same identifier, the first one wins, as when
+ * searching the tokens in order.
+ */
+final class TokenSnapshot {
+
+    static final TokenSnapshot EMPTY = new TokenSnapshot(Collections.emptyList());
+
+    private final List<TokenInfo> tokens;
+
+    private final Map<String, TokenInfo> tokensById = new HashMap<>();
+    private final Map<String, String> moduleIdsByTokenId = new HashMap<>();
+    private final Set<String> batchSigningTokenIds = new HashSet<>();
+
+    private final Map<String, TokenAndKey> keysById = new HashMap<>();
+
+    private final Map<String, CertificateInfo> certsById = new HashMap<>();
+    private final Map<String, KeyInfo> keysByCertId = new HashMap<>();
+
+    private final Map<String, CertificateInfo> certsByHash = new HashMap<>();
+    private final Map<String, KeyInfo> keysByCertHash = new HashMap<>();
+    private final Map<String, X509Certificate> certificatesByHash = new HashMap<>();
+
+    private final List<CertificateInfo> allCerts = new ArrayList<>();
+
+    private String softwareTokenId;
+
+    /**
+     * Creates a snapshot of the given tokens. Must be called while the tokens
+     * cannot be modified.
+     * @param currentTokens the tokens
+     */
+    TokenSnapshot(List<Token> currentTokens) {
+        List<TokenInfo> tokenInfos = new ArrayList<>(currentTokens.size());
+
+        for (Token token : currentTokens) {
+            TokenInfo tokenInfo = token.toDTO();
+            tokenInfos.add(tokenInfo);
+
+            addToken(token, tokenInfo);
+        }
+
+        this.tokens = Collections.unmodifiableList(tokenInfos);
+    }
+
+    private void addToken(Token token, TokenInfo tokenInfo) {
+        if (tokensById.putIfAbsent(token.getId(), tokenInfo) == null) {
+            if (token.getModuleId() != null) {
+                moduleIdsByTokenId.put(token.getId(), token.getModuleId());
+            }
+
+            if (token.isBatchSigningEnabled()) {
+                batchSigningTokenIds.add(token.getId());
+            }
+        }
+
+        if (softwareTokenId == null && SoftwareModuleType.TYPE.equals(token.getType())) {
+            softwareTokenId = token.getId();
+        }
+
+        // The DTOs are in the same order as the model objects
+        for (int i = 0; i < token.getKeys().size(); i++) {
+            Key key = token.getKeys().get(i);
+            KeyInfo keyInfo = tokenInfo.getKeyInfo().get(i);
+
+            keysById.putIfAbsent(key.getId(), new TokenAndKey(token.getId(), keyInfo));
+
+            for (int j = 0; j < key.getCerts().size(); j++) {
+                addCert(key.getCerts().get(j), keyInfo.getCerts().get(j), keyInfo);
+            }
+        }
+    }
+
+    private void addCert(Cert cert, CertificateInfo certInfo, KeyInfo keyInfo) {
+        allCerts.add(certInfo);
+
+        if (certsById.putIfAbsent(cert.getId(), certInfo) == null) {
+            keysByCertId.put(cert.getId(), keyInfo);
+        }
+
+        if (cert.getHash() != null && certsByHash.putIfAbsent(cert.getHash(), certInfo) == null) {
+            keysByCertHash.put(cert.getHash(), keyInfo);
+            certificatesByHash.put(cert.getHash(), cert.getCertificate());
+        }
+    }
+
+    List<TokenInfo> getTokens() {
+        return tokens;
+    }
+
+    TokenInfo getToken(String tokenId) {
+        return tokensById.get(tokenId);
+    }
+
+    String getModuleId(String tokenId) {
+        return moduleIdsByTokenId.get(tokenId);
+    }
+
+    boolean isBatchSigningEnabled(String tokenId) {
+        return batchSigningTokenIds.contains(tokenId);
+    }
+
+    String getSoftwareTokenId() {
+        return softwareTokenId;
+    }
+
+    TokenAndKey getTokenAndKey(String keyId) {
+        return keysById.get(keyId);
+    }
+
+    CertificateInfo getCert(String certId) {
+        return certsById.get(certId);
+    }
+
+    KeyInfo getKeyForCertId(String certId) {
+        return keysByCertId.get(certId);
+    }
+
+    CertificateInfo getCertForHash(String certHash) {
+        return certsByHash.get(certHash);
+    }
+
+    KeyInfo getKeyForCertHash(String certHash) {
+        return keysByCertHash.get(certHash);
+    }
+
+    X509Certificate getCertificateForHash(String certHash) {
+        return certificatesByHash.get(certHash);
+    }
+
+    List<CertificateInfo> getAllCerts() {
+        return allCerts;
+    }
+}
@@ -44,6 +44,8 @@ public class HardwareModuleType implements ModuleType {
 
     private final String signMechanismName;
 
+    private final int signSessionPoolSize;
+
     private final PrivKeyAttributes privKeyAttributes;
 
     private final PubKeyAttributes pubKeyAttributes;
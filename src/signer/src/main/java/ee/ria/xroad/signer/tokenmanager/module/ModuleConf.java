@@ -66,6 +66,8 @@ public final class ModuleConf {
 
     private static final String DEFAULT_SIGN_MECHANISM_NAME = PKCS11Constants.NAME_CKM_RSA_PKCS;
 
+    private static final int DEFAULT_SIGN_SESSION_POOL_SIZE = 1;
+
     // Module configuration fields
     private static final String ENABLED_PARAM = "enabled";
     private static final String SIGN_VERIFY_PIN_PARAM = "sign_verify_pin";
@@ -73,6 +75,7 @@ public final class ModuleConf {
     private static final String READ_ONLY_PARAM = "read_only";
     private static final String TOKEN_ID_FORMAT_PARAM = "token_id_format";
     private static final String SIGN_MECHANISM_PARAM = "sign_mechanism";
+    private static final String SIGN_SESSION_POOL_SIZE_PARAM = "sign_session_pool_size";
     private static final String PUB_KEY_ATTRIBUTE_ENCRYPT_PARAM = "pub_key_attribute_encrypt";
     private static final String PUB_KEY_ATTRIBUTE_VERIFY_PARAM = "pub_key_attribute_verify";
     private static final String PUB_KEY_ATTRIBUTE_VERIFY_RECOVER_PARAM = "pub_key_attribute_verify_recover";
@@ -231,13 +234,23 @@ public final class ModuleConf {
             return;
         }
 
+        int signSessionPoolSize = getInteger(section, SIGN_SESSION_POOL_SIZE_PARAM, DEFAULT_SIGN_SESSION_POOL_SIZE);
+
+        if (signSessionPoolSize < 1) {
+            log.error("Invalid sign session pool size ({}) specified for module ({}), skipping...",
+                    signSessionPoolSize, uid);
+
+            return;
+        }
+
         PubKeyAttributes pubKeyAttributes = loadPubKeyAttributes(section);
         PrivKeyAttributes privKeyAttributes = loadPrivKeyAttributes(section);
 
         log.trace("Read module configuration (UID = {}, library = {}, tokenIdFormat = {}"
                 + ", pinVerificationPerSigning = {}, batchSigning = {}, signMechanism = {}"
-                + ", pubKeyAttributes = {}, privKeyAttributes = {})", uid, library, tokenIdFormat, verifyPin,
-                batchSigning, signMechanismName, pubKeyAttributes, privKeyAttributes);
+                + ", signSessionPoolSize = {}, pubKeyAttributes = {}, privKeyAttributes = {})", uid, library,
+                tokenIdFormat, verifyPin, batchSigning, signMechanismName, signSessionPoolSize, pubKeyAttributes,
+                privKeyAttributes);
 
         if (MODULES.containsKey(uid)) {
             log.warn("Module information already defined for {}, skipping...", uid);
@@ -246,7 +259,7 @@ public final class ModuleConf {
         }
 
         MODULES.put(uid, new HardwareModuleType(uid, library, tokenIdFormat, verifyPin, batchSigning, readOnly,
-                signMechanismName, privKeyAttributes, pubKeyAttributes));
+                signMechanismName, signSessionPoolSize, privKeyAttributes, pubKeyAttributes));
     }
 
     private static PubKeyAttributes loadPubKeyAttributes(SubnodeConfiguration section) {
@@ -311,6 +324,15 @@ public final class ModuleConf {
         }
     }
 
+    private static int getInteger(SubnodeConfiguration section, String key, int defaultValue) {
+        try {
+            return section.getInt(key, defaultValue);
+        } catch (ConversionException e) {
+            throw new ConversionException(String.format("Invalid value of '%s' for module (%s), skipping...",
+                    key, section.getSubnodeKey()), e);
+        }
+    }
+
     private static String[] getStringArray(SubnodeConfiguration section, String key) {
         try {
             return section.getStringArray(key);
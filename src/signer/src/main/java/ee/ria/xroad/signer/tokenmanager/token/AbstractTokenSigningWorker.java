@@ -0,0 +1,52 @@
+/**
+ * The MIT License
+ * Copyright (c) 2015 Estonian Information System Authority (RIA), Population Register Centre (VRK)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package ee.ria.xroad.signer.tokenmanager.token;
+
+import ee.ria.xroad.signer.util.AbstractSignerActor;
+import ee.ria.xroad.signer.util.CalculateSignature;
+
+/**
+ * Signing worker base class. Token workers route signature calculation
+ * requests to a pool of signing workers so that signatures can be
+ * calculated in parallel, while key management stays on the token worker.
+ * The signature is calculated as in
+ * {@link AbstractTokenWorker#calculateSignature}.
+ */
+abstract class AbstractTokenSigningWorker extends AbstractSignerActor {
+
+    @Override
+    public void onReceive(Object message) throws Exception {
+        if (message instanceof CalculateSignature) {
+            sendResponse(AbstractTokenWorker.calculateSignature((CalculateSignature) message, this::sign,
+                    this::customizeException));
+        } else {
+            unhandled(message);
+        }
+    }
+
+    protected Exception customizeException(Exception e) {
+        return e;
+    }
+
+    protected abstract byte[] sign(String keyId, String signatureAlgorithmId, byte[] data) throws Exception;
+}
@@ -24,8 +24,11 @@ package ee.ria.xroad.signer.tokenmanager.token;
 
 import static ee.ria.xroad.common.ErrorCodes.X_CANNOT_SIGN;
 import static ee.ria.xroad.common.ErrorCodes.X_FAILED_TO_GENERATE_R_KEY;
+import static ee.ria.xroad.common.ErrorCodes.translateException;
 import static ee.ria.xroad.signer.tokenmanager.TokenManager.setTokenAvailable;
 
+import java.util.function.Function;
+
 import ee.ria.xroad.common.CodedException;
 import ee.ria.xroad.common.util.PasswordStore;
 import ee.ria.xroad.signer.protocol.dto.TokenInfo;
@@ -170,16 +173,31 @@ public abstract class AbstractTokenWorker extends AbstractUpdateableActor {
     }
 
     private void handleCalculateSignature(CalculateSignature signRequest) throws Exception {
+        sendResponse(calculateSignature(signRequest, this::sign, this::customizeException));
+    }
+
+    /**
+     * Calculates the signature for the request. Used by token workers and
+     * by the signing workers that calculate signatures on their behalf.
+     * @param signRequest the signature calculation request
+     * @param signer calculates the signature of the data to be signed
+     * @param exceptionCustomizer customizes exceptions thrown by the signer
+     * @return the response message, containing either the signature or the error
+     */
+    static CalculatedSignature calculateSignature(CalculateSignature signRequest, TokenSigner signer,
+            Function<Exception, Exception> exceptionCustomizer) {
         try {
             byte data[] = SignerUtil.createDataToSign(signRequest.getDigest(), signRequest.getSignatureAlgorithmId());
 
-            byte[] signature = sign(signRequest.getKeyId(), signRequest.getSignatureAlgorithmId(), data);
-            sendResponse(new CalculatedSignature(signRequest, signature, null));
+            byte[] signature = signer.sign(signRequest.getKeyId(), signRequest.getSignatureAlgorithmId(), data);
+
+            return new CalculatedSignature(signRequest, signature, null);
         } catch (Exception e) { // catch-log-rethrow
             log.error("Error while signing with key '{}'", signRequest.getKeyId(), e);
 
-            CodedException tr = translateError(customizeException(e)).withPrefix(X_CANNOT_SIGN);
-            sendResponse(new CalculatedSignature(signRequest, null, tr));
+            CodedException tr = translateException(exceptionCustomizer.apply(e)).withPrefix(X_CANNOT_SIGN);
+
+            return new CalculatedSignature(signRequest, null, tr);
         }
     }
 
@@ -196,6 +214,14 @@ public abstract class AbstractTokenWorker extends AbstractUpdateableActor {
 
     // ------------------------------------------------------------------------
 
+    /**
+     * Calculates a signature with a key of the token.
+     */
+    @FunctionalInterface
+    interface TokenSigner {
+        byte[] sign(String keyId, String signatureAlgorithmId, byte[] data) throws Exception;
+    }
+
     @Value
     protected static class GenerateKeyResult {
         private final String keyId;
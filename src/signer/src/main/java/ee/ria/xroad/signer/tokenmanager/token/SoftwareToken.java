@@ -34,7 +34,7 @@ import ee.ria.xroad.signer.tokenmanager.TokenManager;
  */
 public class SoftwareToken extends AbstractToken {
 
-    private static final String DISPATCHER = "token-worker-dispatcher";
+    static final String DISPATCHER = "token-worker-dispatcher";
 
     private final SoftwareTokenType tokenType;
 
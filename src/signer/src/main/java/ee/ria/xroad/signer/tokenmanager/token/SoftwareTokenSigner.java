@@ -0,0 +1,166 @@
+/**
+ * The MIT License
+ * Copyright (c) 2015 Estonian Information System Authority (RIA), Population Register Centre (VRK)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package ee.ria.xroad.signer.tokenmanager.token;
+
+import java.security.PrivateKey;
+import java.security.Signature;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import lombok.extern.slf4j.Slf4j;
+
+import ee.ria.xroad.common.CodedException;
+import ee.ria.xroad.common.util.CryptoUtils;
+
+import static ee.ria.xroad.common.ErrorCodes.X_UNSUPPORTED_SIGN_ALGORITHM;
+import static ee.ria.xroad.signer.tokenmanager.TokenManager.isKeyAvailable;
+import static ee.ria.xroad.signer.tokenmanager.TokenManager.isTokenActive;
+import static ee.ria.xroad.signer.tokenmanager.token.SoftwareTokenUtil.getKeyStoreFileName;
+import static ee.ria.xroad.signer.util.ExceptionHelper.keyNotAvailable;
+import static ee.ria.xroad.signer.util.ExceptionHelper.keyNotFound;
+import static ee.ria.xroad.signer.util.ExceptionHelper.tokenNotActive;
+
+/**
+ * Holds the loaded private keys of the software token and calculates
+ * signatures with them. The private keys are loaded by the token worker,
+ * which publishes them as an immutable map. Signing only reads the current
+ * map. Signature instances are not shared: every caller passes in its own
+ * instance, which is reused between signatures.
+ */
+@Slf4j
+public class SoftwareTokenSigner {
+
+    // Use no digesting algorithm, since the input data is already a digest
+    private static final String SIGNATURE_ALGORITHM = "NONEwithRSA";
+
+    private volatile Map<String, PrivateKey> privateKeys = Collections.emptyMap();
+
+    private final String tokenId;
+
+    /**
+     * Creates the signer.
+     * @param tokenId the id of the token whose keys are used
+     */
+    public SoftwareTokenSigner(String tokenId) {
+        this.tokenId = tokenId;
+    }
+
+    /**
+     * @return new signature instance to be used with
+     * {@link #sign(Signature, String, String, byte[])}
+     * @throws Exception if the signature algorithm is not available
+     */
+    public static Signature createSignature() throws Exception {
+        return Signature.getInstance(SIGNATURE_ALGORITHM);
+    }
+
+    /**
+     * @return the currently published private keys, mapped by key id
+     */
+    Map<String, PrivateKey> getPrivateKeys() {
+        return privateKeys;
+    }
+
+    /**
+     * Publishes the private keys to be used for signing.
+     * @param keys the private keys, mapped by key id
+     */
+    public void setPrivateKeys(Map<String, PrivateKey> keys) {
+        privateKeys = Collections.unmodifiableMap(new HashMap<>(keys));
+    }
+
+    void clear() {
+        privateKeys = Collections.emptyMap();
+    }
+
+    /**
+     * Loads the private key from the key store of the token.
+     * @param keyId the key id
+     * @param pin the token PIN
+     * @return the private key or null if the key store does not contain it
+     * @throws Exception if the key cannot be loaded
+     */
+    static PrivateKey loadPrivateKey(String keyId, char[] pin) throws Exception {
+        String keyStoreFile = getKeyStoreFileName(keyId);
+
+        log.trace("Loading pkcs#12 private key '{}' from file '{}'", keyId, keyStoreFile);
+
+        PrivateKey pkey = SoftwareTokenUtil.loadPrivateKey(keyStoreFile, keyId, pin);
+
+        if (pkey != null) {
+            log.debug("Found usable key '{}'", keyId);
+        }
+
+        return pkey;
+    }
+
+    /**
+     * Signs the data with the given key.
+     * @param signature the signature instance to use
+     * @param keyId the key id
+     * @param signatureAlgorithmId the signature algorithm id
+     * @param data the data to sign
+     * @return the signature
+     * @throws Exception if an error occurs
+     */
+    public byte[] sign(Signature signature, String keyId, String signatureAlgorithmId, byte[] data) throws Exception {
+        log.trace("sign({}, {})", keyId, signatureAlgorithmId);
+
+        checkSignatureAlgorithm(signatureAlgorithmId);
+
+        if (!isTokenActive(tokenId)) {
+            throw tokenNotActive(tokenId);
+        }
+
+        if (!isKeyAvailable(keyId)) {
+            throw keyNotAvailable(keyId);
+        }
+
+        PrivateKey key = privateKeys.get(keyId);
+
+        if (key == null) {
+            throw keyNotFound(keyId);
+        }
+
+        log.debug("Signing with key '{}' and signature algorithm '{}'", keyId, signatureAlgorithmId);
+
+        signature.initSign(key);
+        signature.update(data);
+
+        return signature.sign();
+    }
+
+    private static void checkSignatureAlgorithm(String signatureAlgorithmId) throws CodedException {
+        switch (signatureAlgorithmId) {
+            case CryptoUtils.SHA1WITHRSA_ID:
+            case CryptoUtils.SHA256WITHRSA_ID:
+            case CryptoUtils.SHA384WITHRSA_ID:
+            case CryptoUtils.SHA512WITHRSA_ID:
+                break;
+            default:
+                throw CodedException.tr(X_UNSUPPORTED_SIGN_ALGORITHM, "unsupported_sign_algorithm",
+                        "Unsupported signature algorithm '%s'", signatureAlgorithmId);
+        }
+    }
+}
@@ -0,0 +1,51 @@
+/**
+ * The MIT License
+ * Copyright (c) 2015 Estonian Information System Authority (RIA), Population Register Centre (VRK)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package ee.ria.xroad.signer.tokenmanager.token;
+
+import java.security.Signature;
+
+/**
+ * Calculates signatures with the software token keys. Each worker keeps its
+ * own signature instance, the private keys are shared through the
+ * {@link SoftwareTokenSigner}.
+ */
+class SoftwareTokenSigningWorker extends AbstractTokenSigningWorker {
+
+    private final SoftwareTokenSigner signer;
+
+    private Signature signature;
+
+    SoftwareTokenSigningWorker(SoftwareTokenSigner signer) {
+        this.signer = signer;
+    }
+
+    @Override
+    public void preStart() throws Exception {
+        signature = SoftwareTokenSigner.createSignature();
+    }
+
+    @Override
+    protected byte[] sign(String keyId, String signatureAlgorithmId, byte[] data) throws Exception {
+        return signer.sign(signature, keyId, signatureAlgorithmId, data);
+    }
+}
@@ -37,11 +37,14 @@ import java.util.List;
 
 import org.bouncycastle.operator.ContentSigner;
 
+import ee.ria.xroad.common.CodedException;
 import ee.ria.xroad.common.SystemProperties;
 import ee.ria.xroad.common.util.CryptoUtils;
+import ee.ria.xroad.common.util.PasswordStore;
 import ee.ria.xroad.common.util.ResourceUtils;
 import ee.ria.xroad.signer.util.SignerUtil;
 
+import static ee.ria.xroad.common.ErrorCodes.X_INTERNAL_ERROR;
 import static ee.ria.xroad.common.util.CryptoUtils.loadPkcs12KeyStore;
 
 /**
@@ -164,4 +167,17 @@ public final class SoftwareTokenUtil {
 
         return keyPairGen.generateKeyPair();
     }
+
+    static char[] getPin(String tokenId) throws Exception {
+        final char[] pin = PasswordStore.getPassword(tokenId);
+        verifyPinProvided(pin);
+
+        return pin;
+    }
+
+    static void verifyPinProvided(char[] pin) {
+        if (pin == null || pin.length == 0) {
+            throw new CodedException(X_INTERNAL_ERROR, "PIN not provided");
+        }
+    }
 }
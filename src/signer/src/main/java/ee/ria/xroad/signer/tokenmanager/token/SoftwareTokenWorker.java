@@ -34,11 +34,13 @@ import java.security.Signature;
 import java.util.HashMap;
 import java.util.Map;
 
+import akka.actor.ActorRef;
+import akka.actor.Props;
+import akka.routing.SmallestMailboxPool;
 import lombok.extern.slf4j.Slf4j;
 
 import ee.ria.xroad.common.CodedException;
 import ee.ria.xroad.common.SystemProperties;
-import ee.ria.xroad.common.util.CryptoUtils;
 import ee.ria.xroad.common.util.PasswordStore;
 import ee.ria.xroad.common.util.TokenPinPolicy;
 import ee.ria.xroad.signer.protocol.dto.KeyInfo;
@@ -48,6 +50,7 @@ import ee.ria.xroad.signer.protocol.message.ActivateToken;
 import ee.ria.xroad.signer.protocol.message.GenerateKey;
 import ee.ria.xroad.signer.protocol.message.InitSoftwareToken;
 import ee.ria.xroad.signer.tokenmanager.TokenManager;
+import ee.ria.xroad.signer.util.CalculateSignature;
 import ee.ria.xroad.signer.util.SignerUtil;
 
 import static ee.ria.xroad.common.ErrorCodes.*;
@@ -58,15 +61,18 @@ import static ee.ria.xroad.signer.util.ExceptionHelper.*;
 
 /**
  * Encapsulates the software token worker which handles software signing and key
- * management.
+ * management. If more than one signing worker is configured, signature
+ * calculation is delegated to a pool of {@link SoftwareTokenSigningWorker}s.
  */
 @Slf4j
 public class SoftwareTokenWorker extends AbstractTokenWorker {
 
-    // Use no digesting algorithm, since the input data is already a digest
-    private static final String SIGNATURE_ALGORITHM = "NONEwithRSA";
+    private static final String SIGNING_WORKERS = "signingworkers";
 
-    private final Map<String, PrivateKey> privateKeys = new HashMap<>();
+    private final SoftwareTokenSigner signer;
+
+    private Signature signature;
+    private ActorRef signingWorkers;
 
     /**
      * Creates new worker.
@@ -75,6 +81,26 @@ public class SoftwareTokenWorker extends AbstractTokenWorker {
      */
     public SoftwareTokenWorker(TokenInfo tokenInfo, SoftwareTokenType ignored) {
         super(tokenInfo);
+
+        this.signer = new SoftwareTokenSigner(tokenId);
+    }
+
+    @Override
+    public void preStart() throws Exception {
+        super.preStart();
+
+        signature = SoftwareTokenSigner.createSignature();
+
+        int workers = SystemProperties.getSignerSoftwareTokenSigningWorkers();
+
+        if (workers > 1) {
+            log.debug("Starting {} software token signing workers", workers);
+
+            Props props = Props.create(SoftwareTokenSigningWorker.class, signer)
+                    .withDispatcher(SoftwareToken.DISPATCHER);
+
+            signingWorkers = getContext().actorOf(new SmallestMailboxPool(workers).props(props), SIGNING_WORKERS);
+        }
     }
 
     @Override
@@ -99,6 +125,8 @@ public class SoftwareTokenWorker extends AbstractTokenWorker {
         if (message instanceof InitSoftwareToken) {
             initializeToken(((InitSoftwareToken) message).getPin());
             sendSuccessResponse();
+        } else if (message instanceof CalculateSignature && signingWorkers != null) {
+            signingWorkers.forward(message, getContext());
         } else {
             super.onMessage(message);
         }
@@ -127,10 +155,14 @@ public class SoftwareTokenWorker extends AbstractTokenWorker {
         java.security.KeyPair keyPair = generateKeyPair(SystemProperties.getSignerKeyLength());
 
         String keyId = SignerUtil.randomId();
-        savePkcs12Keystore(keyPair, keyId, getKeyStoreFileName(keyId), getPin());
+        savePkcs12Keystore(keyPair, keyId, getKeyStoreFileName(keyId), getPin(tokenId));
 
         String publicKeyBase64 = encodeBase64(keyPair.getPublic().getEncoded());
 
+        Map<String, PrivateKey> keys = new HashMap<>(signer.getPrivateKeys());
+        keys.put(keyId, keyPair.getPrivate());
+        signer.setPrivateKeys(keys);
+
         return new GenerateKeyResult(keyId, publicKeyBase64);
     }
 
@@ -147,6 +179,10 @@ public class SoftwareTokenWorker extends AbstractTokenWorker {
         log.info("Deleting key file {}", path);
 
         Files.deleteIfExists(path);
+
+        Map<String, PrivateKey> keys = new HashMap<>(signer.getPrivateKeys());
+        keys.remove(keyId);
+        signer.setPrivateKeys(keys);
     }
 
     @Override
@@ -156,44 +192,7 @@ public class SoftwareTokenWorker extends AbstractTokenWorker {
 
     @Override
     protected byte[] sign(String keyId, String signatureAlgorithmId, byte[] data) throws Exception {
-        log.trace("sign({}, {})", keyId, signatureAlgorithmId);
-
-        checkSignatureAlgorithm(signatureAlgorithmId);
-
-        if (!isTokenActive(tokenId)) {
-            throw tokenNotActive(tokenId);
-        }
-
-        if (!isKeyAvailable(keyId)) {
-            throw keyNotAvailable(keyId);
-        }
-
-        PrivateKey key = getPrivateKey(keyId);
-
-        if (key == null) {
-            throw keyNotFound(keyId);
-        }
-
-        log.debug("Signing with key '{}' and signature algorithm '{}'", keyId, signatureAlgorithmId);
-
-        Signature signature = Signature.getInstance(SIGNATURE_ALGORITHM);
-        signature.initSign(key);
-        signature.update(data);
-
-        return signature.sign();
-    }
-
-    private static void checkSignatureAlgorithm(String signatureAlgorithmId) throws CodedException {
-        switch (signatureAlgorithmId) {
-            case CryptoUtils.SHA1WITHRSA_ID:
-            case CryptoUtils.SHA256WITHRSA_ID:
-            case CryptoUtils.SHA384WITHRSA_ID:
-            case CryptoUtils.SHA512WITHRSA_ID:
-                break;
-            default:
-                throw CodedException.tr(X_UNSUPPORTED_SIGN_ALGORITHM, "unsupported_sign_algorithm",
-                        "Unsupported signature algorithm '%s'", signatureAlgorithmId);
-        }
+        return signer.sign(signature, keyId, signatureAlgorithmId, data);
     }
 
     // ------------------------------------------------------------------------
@@ -220,23 +219,34 @@ public class SoftwareTokenWorker extends AbstractTokenWorker {
     }
 
     private void updateKeys() throws Exception {
+        Map<String, PrivateKey> loadedKeys = signer.getPrivateKeys();
+        Map<String, PrivateKey> keys = new HashMap<>();
+
         for (KeyInfo keyInfo : listKeys(tokenId)) {
             String keyId = keyInfo.getId();
 
             setKeyAvailable(keyId, true);
 
-            if (privateKeys.containsKey(keyId)) {
+            if (loadedKeys.containsKey(keyId)) {
+                keys.put(keyId, loadedKeys.get(keyId));
+
                 continue;
             }
 
             try {
-                initializePrivateKey(keyId);
+                PrivateKey pkey = SoftwareTokenSigner.loadPrivateKey(keyId, getPin(tokenId));
+
+                if (pkey != null) {
+                    keys.put(keyId, pkey);
+                }
             } catch (Exception e) {
                 setKeyAvailable(keyId, false);
 
                 log.trace("Failed to load private key from key store", e);
             }
         }
+
+        signer.setPrivateKeys(keys);
     }
 
     private void findKeysNotInConf() throws Exception {
@@ -257,26 +267,6 @@ public class SoftwareTokenWorker extends AbstractTokenWorker {
         }
     }
 
-    private PrivateKey getPrivateKey(String keyId) throws Exception {
-        PrivateKey pkey = privateKeys.get(keyId);
-
-        if (pkey == null) {
-            initializePrivateKey(keyId);
-        }
-
-        return privateKeys.get(keyId);
-    }
-
-    private void initializePrivateKey(String keyId) throws Exception {
-        PrivateKey pkey = loadPrivateKey(keyId);
-
-        if (pkey != null) {
-            log.debug("Found usable key '{}'", keyId);
-
-            privateKeys.put(keyId, pkey);
-        }
-    }
-
     private void initializeToken(char[] pin) throws Exception {
         verifyPinProvided(pin);
 
@@ -314,28 +304,23 @@ public class SoftwareTokenWorker extends AbstractTokenWorker {
 
             throw CodedException.tr(X_PIN_INCORRECT, "pin_incorrect", "PIN incorrect");
         }
+
+        // Load the private keys right away, so that the token can sign as soon as it is activated
+        updateKeys();
     }
 
     private void deactivateToken() {
-        privateKeys.clear();
+        signer.clear();
 
         setTokenActive(tokenId, false);
     }
 
-    private PrivateKey loadPrivateKey(String keyId) throws Exception {
-        String keyStoreFile = getKeyStoreFileName(keyId);
-
-        log.trace("Loading pkcs#12 private key '{}' from file '{}'", keyId, keyStoreFile);
-
-        return SoftwareTokenUtil.loadPrivateKey(keyStoreFile, keyId, getPin());
-    }
-
     private String loadPublicKeyBase64(String keyId) throws Exception {
         String keyStoreFile = getKeyStoreFileName(keyId);
 
         log.trace("Loading pkcs#12 public key '{}' from file '{}'", keyId, keyStoreFile);
 
-        java.security.cert.Certificate cert = loadCertificate(keyStoreFile, keyId, getPin());
+        java.security.cert.Certificate cert = loadCertificate(keyStoreFile, keyId, getPin(tokenId));
 
         if (cert == null) {
             log.error("No certificate found in '{}' using alias '{}'", keyStoreFile, keyId);
@@ -357,19 +342,6 @@ public class SoftwareTokenWorker extends AbstractTokenWorker {
         SoftwareTokenUtil.loadPrivateKey(getKeyStoreFileName(PIN_FILE), PIN_ALIAS, pin);
     }
 
-    private char[] getPin() throws Exception {
-        final char[] pin = PasswordStore.getPassword(tokenId);
-        verifyPinProvided(pin);
-
-        return pin;
-    }
-
-    private static void verifyPinProvided(char[] pin) {
-        if (pin == null || pin.length == 0) {
-            throw new CodedException(X_INTERNAL_ERROR, "PIN not provided");
-        }
-    }
-
     private static void savePkcs12Keystore(KeyPair kp, String alias, String keyStoreFile, char[] password)
             throws Exception {
         KeyStore keyStore = createKeyStore(kp, alias, password);
@@ -34,6 +34,7 @@ import ee.ria.xroad.signer.protocol.message.Sign;
 import ee.ria.xroad.signer.protocol.message.SignResponse;
 import ee.ria.xroad.signer.util.CalculateSignature;
 import ee.ria.xroad.signer.util.CalculatedSignature;
+import ee.ria.xroad.signer.util.SignerMetrics;
 
 import static ee.ria.xroad.common.ErrorCodes.SIGNER_X;
 import static ee.ria.xroad.common.ErrorCodes.translateException;
@@ -72,6 +73,10 @@ public class TokenSigner extends UntypedActor {
     private void handleCalculatedSignature(CalculatedSignature message) {
         log.trace("handleCalculatedSignature()");
 
+        // The token actor is named after the token id
+        SignerMetrics.recordSignLatency(getContext().parent().path().name(),
+                System.nanoTime() - message.getRequest().getCreatedAt());
+
         Object response = null;
 
         if (message.getException() != null) {
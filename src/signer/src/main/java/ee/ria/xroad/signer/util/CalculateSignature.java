@@ -40,4 +40,7 @@ public class CalculateSignature implements Serializable {
     private final String signatureAlgorithmId;
     private final byte[] digest;
 
+    /** The time the request was created, in nanoseconds. */
+    private final long createdAt = System.nanoTime();
+
 }
@@ -0,0 +1,78 @@
+/**
+ * The MIT License
+ * Copyright (c) 2015 Estonian Information System Authority (RIA), Population Register Centre (VRK)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package ee.ria.xroad.signer.util;
+
+import akka.actor.ActorRef;
+import akka.actor.ActorSystem;
+import akka.dispatch.MailboxType;
+import akka.dispatch.MessageQueue;
+import akka.dispatch.ProducesMessageQueue;
+import akka.dispatch.UnboundedMailbox;
+import com.codahale.metrics.Gauge;
+import com.typesafe.config.Config;
+import scala.Option;
+
+/**
+ * Unbounded mailbox that publishes the number of queued messages of its
+ * owner in {@link SignerMetrics}. Used as the mailbox type of the token
+ * worker dispatcher.
+ */
+public class MeteredMailbox implements MailboxType, ProducesMessageQueue<UnboundedMailbox.MessageQueue> {
+
+    /**
+     * Constructor used by Akka when the mailbox type is configured.
+     * @param settings the actor system settings
+     * @param config the mailbox configuration
+     */
+    public MeteredMailbox(ActorSystem.Settings settings, Config config) {
+        // no configuration
+    }
+
+    @Override
+    public MessageQueue create(Option<ActorRef> owner, Option<ActorSystem> system) {
+        if (owner.isEmpty()) {
+            return new UnboundedMailbox.MessageQueue();
+        }
+
+        return new MeteredMessageQueue(owner.get().path().toStringWithoutAddress());
+    }
+
+    private static final class MeteredMessageQueue extends UnboundedMailbox.MessageQueue {
+
+        private final String actorPath;
+        private final Gauge<Integer> depth = this::numberOfMessages;
+
+        MeteredMessageQueue(String actorPath) {
+            this.actorPath = actorPath;
+
+            SignerMetrics.registerMailbox(actorPath, depth);
+        }
+
+        @Override
+        public void cleanUp(ActorRef owner, MessageQueue deadLetters) {
+            SignerMetrics.unregisterMailbox(actorPath, depth);
+
+            super.cleanUp(owner, deadLetters);
+        }
+    }
+}
@@ -0,0 +1,147 @@
+/**
+ * The MIT License
+ * Copyright (c) 2015 Estonian Information System Authority (RIA), Population Register Centre (VRK)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package ee.ria.xroad.signer.util;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.Histogram;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Sampling;
+import com.codahale.metrics.Timer;
+
+import ee.ria.xroad.signer.protocol.message.GetSignerMetricsResponse;
+
+/**
+ * Holds the metrics of the signer: the processing time of every request
+ * handler type, the mailbox depth of token workers and the signing latency
+ * of every token.
+ */
+public final class SignerMetrics {
+
+    private static final String HANDLER_PREFIX = "signer.handler.";
+    private static final String MAILBOX_PREFIX = "signer.mailbox";
+    private static final String TOKEN_PREFIX = "signer.token.";
+    private static final String SIGN_LATENCY_SUFFIX = ".sign-latency";
+
+    private static final MetricRegistry METRICS = new MetricRegistry();
+
+    private SignerMetrics() {
+    }
+
+    /**
+     * @return the metric registry of the signer
+     */
+    public static MetricRegistry getRegistry() {
+        return METRICS;
+    }
+
+    /**
+     * @param handlerClass the request handler class
+     * @return the timer of the given request handler type
+     */
+    public static Timer getHandlerTimer(Class<?> handlerClass) {
+        return METRICS.timer(HANDLER_PREFIX + handlerClass.getSimpleName());
+    }
+
+    /**
+     * Records the time it took to sign with the given token, from receiving
+     * the sign request to receiving the calculated signature.
+     * @param tokenId the token id
+     * @param nanos the signing time in nanoseconds
+     */
+    public static void recordSignLatency(String tokenId, long nanos) {
+        METRICS.histogram(TOKEN_PREFIX + tokenId + SIGN_LATENCY_SUFFIX).update(TimeUnit.NANOSECONDS.toMicros(nanos));
+    }
+
+    /**
+     * Registers the mailbox depth gauge of an actor, replacing the gauge of
+     * an earlier actor with the same path.
+     * @param actorPath the actor path without address
+     * @param gauge the mailbox depth gauge
+     */
+    public static synchronized void registerMailbox(String actorPath, Gauge<Integer> gauge) {
+        String name = getMailboxMetricName(actorPath);
+
+        METRICS.remove(name);
+        METRICS.register(name, gauge);
+    }
+
+    /**
+     * Removes the mailbox depth gauge of an actor, unless it has already
+     * been replaced by the gauge of another actor.
+     * @param actorPath the actor path without address
+     * @param gauge the mailbox depth gauge
+     */
+    public static synchronized void unregisterMailbox(String actorPath, Gauge<Integer> gauge) {
+        String name = getMailboxMetricName(actorPath);
+
+        if (METRICS.getGauges().get(name) == gauge) {
+            METRICS.remove(name);
+        }
+    }
+
+    /**
+     * @return the current values of the metrics
+     */
+    public static GetSignerMetricsResponse getMetrics() {
+        HashMap<String, long[]> latencies = new HashMap<>();
+        HashMap<String, Long> gauges = new HashMap<>();
+
+        for (Map.Entry<String, Timer> e : METRICS.getTimers().entrySet()) {
+            long[] values = getValues(e.getValue());
+
+            for (int i = 0; i < values.length; i++) {
+                values[i] = TimeUnit.NANOSECONDS.toMicros(values[i]);
+            }
+
+            latencies.put(e.getKey(), values);
+            gauges.put(e.getKey() + ".count", e.getValue().getCount());
+        }
+
+        for (Map.Entry<String, Histogram> e : METRICS.getHistograms().entrySet()) {
+            latencies.put(e.getKey(), getValues(e.getValue()));
+            gauges.put(e.getKey() + ".count", e.getValue().getCount());
+        }
+
+        for (Map.Entry<String, Gauge> e : METRICS.getGauges().entrySet()) {
+            Object value = e.getValue().getValue();
+
+            if (value instanceof Number) {
+                gauges.put(e.getKey(), ((Number) value).longValue());
+            }
+        }
+
+        return new GetSignerMetricsResponse(latencies, gauges);
+    }
+
+    private static long[] getValues(Sampling sampling) {
+        return sampling.getSnapshot().getValues();
+    }
+
+    private static String getMailboxMetricName(String actorPath) {
+        return MAILBOX_PREFIX + actorPath.replace('/', '.');
+    }
+}
@@ -22,24 +22,35 @@
  */
 package ee.ria.xroad.signer.certmanager;
 
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.when;
 
 import java.io.File;
+import java.nio.file.Files;
 import java.security.PrivateKey;
 import java.security.cert.X509Certificate;
 import java.util.Date;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.stream.Collectors;
 
 import org.bouncycastle.cert.ocsp.CertificateStatus;
 import org.bouncycastle.cert.ocsp.OCSPResp;
 import org.joda.time.DateTime;
+import org.junit.After;
+import org.junit.Before;
 import org.junit.BeforeClass;
+import org.junit.Rule;
 import org.junit.Test;
-import org.mockito.Mockito;
+import org.junit.rules.TemporaryFolder;
 
 import ee.ria.xroad.common.OcspTestUtils;
+import ee.ria.xroad.common.SystemProperties;
 import ee.ria.xroad.common.TestCertUtil;
 import ee.ria.xroad.common.conf.globalconf.EmptyGlobalConf;
 import ee.ria.xroad.common.conf.globalconf.GlobalConf;
@@ -54,28 +65,39 @@ public class FileBasedOcspCacheTest {
     static X509Certificate signer;
     static PrivateKey signerKey;
 
+    @Rule
+    public TemporaryFolder tempFolder = new TemporaryFolder();
+
+    /**
+     * Points the OCSP cache to a temporary directory.
+     */
+    @Before
+    public void setUp() {
+        System.setProperty(SystemProperties.OCSP_CACHE_PATH, tempFolder.getRoot().getAbsolutePath());
+    }
+
+    /**
+     * Restores the OCSP cache path.
+     */
+    @After
+    public void tearDown() {
+        System.clearProperty(SystemProperties.OCSP_CACHE_PATH);
+    }
+
     /**
      * Test.
      * @throws Exception if an error occurs
      */
     @Test
     public void putGet() throws Exception {
-        Date thisUpdate = new DateTime().plusDays(1).toDate();
-        OCSPResp ocsp = OcspTestUtils.createOCSPResponse(subject, issuer,
-                signer, signerKey, CertificateStatus.GOOD, thisUpdate, null);
+        OCSPResp ocsp = createResponse(new DateTime().plusDays(1).toDate());
 
         FileBasedOcspCache cache = new FileBasedOcspCache();
-        FileBasedOcspCache spy = Mockito.spy(cache);
-
-        Mockito.doNothing().when(spy).saveResponseToFile(
-                Mockito.any(File.class), Mockito.any(OCSPResp.class));
-
-        spy.put("foo", ocsp);
 
-        Mockito.verify(spy).saveResponseToFile(Mockito.any(File.class),
-                Mockito.any(OCSPResp.class));
+        cache.put("foo", ocsp);
 
         assertNotNull(cache.get("foo"));
+        assertTrue(getStoreFile().exists());
     }
 
     /**
@@ -84,21 +106,17 @@ public class FileBasedOcspCacheTest {
      */
     @Test
     public void expiredResponse() throws Exception {
-        Date thisUpdate = new DateTime().minusDays(1).toDate();
-        OCSPResp ocsp = OcspTestUtils.createOCSPResponse(subject, issuer,
-                signer, signerKey, CertificateStatus.GOOD, thisUpdate, null);
+        OCSPResp ocsp = createResponse(new DateTime().minusDays(1).toDate());
 
         FileBasedOcspCache cache = new FileBasedOcspCache();
-        FileBasedOcspCache spy = Mockito.spy(cache);
 
-        Mockito.doNothing().when(spy).saveResponseToFile(
-                Mockito.any(File.class), Mockito.any(OCSPResp.class));
+        assertNull(cache.put("foo", ocsp));
+        assertNull(cache.get("foo"));
 
-        Mockito.doReturn(ocsp).when(spy).loadResponseFromFile(
-                Mockito.any(File.class));
+        FileBasedOcspCache reloaded = new FileBasedOcspCache();
+        reloaded.reloadFromDisk();
 
-        assertNull(spy.put("foo", ocsp));
-        assertNull(spy.get("foo"));
+        assertTrue(reloaded.entrySet().isEmpty());
     }
 
     /**
@@ -107,27 +125,72 @@ public class FileBasedOcspCacheTest {
      */
     @Test
     public void saveLoadOcspResponseToFile() throws Exception {
-        Date thisUpdate = new DateTime().plusDays(1).toDate();
-        OCSPResp ocsp = OcspTestUtils.createOCSPResponse(subject, issuer,
-                signer, signerKey, CertificateStatus.GOOD, thisUpdate, null);
+        OCSPResp ocsp = createResponse(new DateTime().plusDays(1).toDate());
 
         FileBasedOcspCache cache = new FileBasedOcspCache();
-        FileBasedOcspCache spy = Mockito.spy(cache);
 
-        Mockito.doNothing().when(spy).saveResponseToFile(
-                Mockito.any(File.class), Mockito.any(OCSPResp.class));
+        cache.put("foo", ocsp);
+        cache.clear();
 
-        spy.put("foo", ocsp);
+        assertNotNull(cache.get("foo"));
 
-        Mockito.verify(spy).saveResponseToFile(Mockito.any(File.class),
-                Mockito.any(OCSPResp.class));
+        FileBasedOcspCache reloaded = new FileBasedOcspCache();
+        reloaded.reloadFromDisk();
 
-        spy.clear();
+        assertEquals(1, reloaded.entrySet().size());
+        assertNotNull(reloaded.get("foo"));
+    }
 
-        Mockito.doReturn(ocsp).when(spy).loadResponseFromFile(
-                Mockito.any(File.class));
+    /**
+     * Test.
+     * @throws Exception if an error occurs
+     */
+    @Test
+    public void putAllReload() throws Exception {
+        Map<String, OCSPResp> responses = new HashMap<>();
+        for (int i = 0; i < 10; i++) {
+            responses.put("cert" + i, createResponse(new DateTime().plusDays(1).toDate()));
+        }
+
+        FileBasedOcspCache cache = new FileBasedOcspCache();
+        cache.putAll(responses);
 
-        assertNotNull(spy.get("foo"));
+        assertEquals(10, cache.entrySet().size());
+
+        FileBasedOcspCache reloaded = new FileBasedOcspCache();
+        reloaded.reloadFromDisk();
+
+        assertEquals(responses.keySet(), reloaded.entrySet().stream().map(Map.Entry::getKey).collect(Collectors.toSet()));
+    }
+
+    /**
+     * Test.
+     * @throws Exception if an error occurs
+     */
+    @Test
+    public void migrateResponseFiles() throws Exception {
+        OCSPResp ocsp = createResponse(new DateTime().plusDays(1).toDate());
+        OCSPResp expired = createResponse(new DateTime().minusDays(1).toDate());
+
+        File file = tempFolder.newFile("foo.ocsp");
+        Files.write(file.toPath(), ocsp.getEncoded());
+
+        File expiredFile = tempFolder.newFile("bar.ocsp");
+        Files.write(expiredFile.toPath(), expired.getEncoded());
+
+        FileBasedOcspCache cache = new FileBasedOcspCache();
+        cache.reloadFromDisk();
+
+        assertNotNull(cache.get("foo"));
+        assertNull(cache.get("bar"));
+        assertFalse(file.exists());
+        assertFalse(expiredFile.exists());
+
+        FileBasedOcspCache reloaded = new FileBasedOcspCache();
+        reloaded.reloadFromDisk();
+
+        assertEquals(1, reloaded.entrySet().size());
+        assertNotNull(reloaded.get("foo"));
     }
 
     /**
@@ -164,4 +227,13 @@ public class FileBasedOcspCacheTest {
         subject = TestCertUtil.getCertChainCert("user_0.p12");
         assertNotNull(subject);
     }
+
+    private static OCSPResp createResponse(Date thisUpdate) throws Exception {
+        return OcspTestUtils.createOCSPResponse(subject, issuer,
+                signer, signerKey, CertificateStatus.GOOD, thisUpdate, null);
+    }
+
+    private File getStoreFile() {
+        return new File(tempFolder.getRoot(), OcspResponseStore.STORE_FILE_NAME);
+    }
 }
@@ -30,7 +30,12 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Date;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import javax.servlet.ServletException;
 import javax.servlet.http.HttpServletRequest;
@@ -62,13 +67,16 @@ import org.junit.rules.ExpectedException;
 import org.mockito.Mockito;
 
 import ee.ria.xroad.common.OcspTestUtils;
+import ee.ria.xroad.common.SystemProperties;
 import ee.ria.xroad.common.TestCertUtil;
 import ee.ria.xroad.common.conf.globalconf.GlobalConf;
 import ee.ria.xroad.common.conf.globalconf.GlobalConfProvider;
 import ee.ria.xroad.common.ocsp.OcspVerifier;
 import ee.ria.xroad.common.ocsp.OcspVerifierOptions;
 
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.when;
@@ -86,11 +94,20 @@ public class OcspClientTest {
 
     private static final String RESPONDER_URI = "http://127.0.0.1:" + RESPONDER_PORT;
 
+    private static final int SLOW_RESPONDER_PORT = 8092;
+
+    private static final String SLOW_RESPONDER_URI = "http://127.0.0.1:" + SLOW_RESPONDER_PORT;
+
     private static final ActorSystem ACTOR_SYSTEM = ActorSystem.create();
 
     private static Server ocspResponder;
+    private static Server slowOcspResponder;
     private static byte[] responseData;
 
+    private static volatile long slowResponseDelay;
+    private static final AtomicInteger SLOW_RESPONDER_REQUESTS = new AtomicInteger();
+    private static final AtomicInteger SLOW_RESPONDER_MAX_REQUESTS = new AtomicInteger();
+
     private static final Map<String, OCSPResp> OCSP_RESPONSES = new HashMap<>();
     private static X509Certificate ocspResponderCert;
 
@@ -246,6 +263,85 @@ public class OcspClientTest {
         OcspClient.fetchResponse(RESPONDER_URI, subject, issuer, null, null, null);
     }
 
+    /**
+     * Test that the request is also sent to the next responder if the first
+     * one does not respond within the hedge delay.
+     * @throws Exception if an error occurs
+     */
+    @Test
+    public void slowResponderIsHedged() throws Exception {
+        X509Certificate subject = getDefaultClientCert();
+
+        GlobalConfProvider conf = getTestGlobalConf();
+        when(conf.getOcspResponderAddresses(Mockito.any(X509Certificate.class))).thenReturn(
+                Arrays.asList(SLOW_RESPONDER_URI, RESPONDER_URI));
+        GlobalConf.reload(conf);
+
+        Date thisUpdate = new DateTime().plusDays(1).toDate();
+
+        responseData = OcspTestUtils.createOCSPResponse(subject, GlobalConf.getCaCert("EE", subject), ocspResponderCert,
+                getOcspSignerKey(), CertificateStatus.GOOD, thisUpdate, null).getEncoded();
+
+        slowResponseDelay = 5000;
+        System.setProperty(SystemProperties.SIGNER_OCSP_HEDGE_DELAY, "200");
+
+        long start = System.currentTimeMillis();
+
+        queryAndUpdateCertStatus(ocspClient, subject);
+
+        assertTrue(System.currentTimeMillis() - start < slowResponseDelay);
+        assertNotNull(getOcspResponse(subject));
+    }
+
+    /**
+     * Test that concurrent queries do not send more requests to a responder
+     * than allowed.
+     * @throws Exception if an error occurs
+     */
+    @Test
+    public void responderConcurrencyIsLimited() throws Exception {
+        X509Certificate subject = getDefaultClientCert();
+
+        GlobalConfProvider conf = getTestGlobalConf();
+        when(conf.getOcspResponderAddresses(Mockito.any(X509Certificate.class))).thenReturn(
+                Arrays.asList(SLOW_RESPONDER_URI));
+        GlobalConf.reload(conf);
+
+        Date thisUpdate = new DateTime().plusDays(1).toDate();
+
+        responseData = OcspTestUtils.createOCSPResponse(subject, GlobalConf.getCaCert("EE", subject), ocspResponderCert,
+                getOcspSignerKey(), CertificateStatus.GOOD, thisUpdate, null).getEncoded();
+
+        slowResponseDelay = 200;
+        System.setProperty(SystemProperties.SIGNER_OCSP_RESPONDER_MAX_CONCURRENCY, "1");
+
+        // Wait for the requests left over from other tests
+        while (SLOW_RESPONDER_REQUESTS.get() > 0) {
+            Thread.sleep(100);
+        }
+
+        SLOW_RESPONDER_MAX_REQUESTS.set(0);
+
+        ExecutorService executor = Executors.newFixedThreadPool(3);
+
+        try {
+            List<Future<OCSPResp>> responses = new ArrayList<>();
+
+            for (int i = 0; i < 3; i++) {
+                responses.add(executor.submit(() -> ocspClient.queryCertStatus(subject,
+                        new OcspVerifierOptions(true))));
+            }
+
+            for (Future<OCSPResp> response : responses) {
+                assertNotNull(response.get());
+            }
+        } finally {
+            executor.shutdown();
+        }
+
+        assertEquals(1, SLOW_RESPONDER_MAX_REQUESTS.get());
+    }
+
     // ------------------------------------------------------------------------
 
     /**
@@ -257,6 +353,10 @@ public class OcspClientTest {
         ocspResponder = new Server(RESPONDER_PORT);
         ocspResponder.setHandler(new TestOCSPResponder());
         ocspResponder.start();
+
+        slowOcspResponder = new Server(SLOW_RESPONDER_PORT);
+        slowOcspResponder.setHandler(new SlowTestOCSPResponder());
+        slowOcspResponder.start();
     }
 
     /**
@@ -282,6 +382,9 @@ public class OcspClientTest {
     @After
     public void afterTest() throws Exception {
         testActor.stop();
+
+        System.clearProperty(SystemProperties.SIGNER_OCSP_HEDGE_DELAY);
+        System.clearProperty(SystemProperties.SIGNER_OCSP_RESPONDER_MAX_CONCURRENCY);
     }
 
     /**
@@ -299,6 +402,14 @@ public class OcspClientTest {
                 ocspResponder = null;
             }
         }
+
+        if (slowOcspResponder != null) {
+            try {
+                slowOcspResponder.stop();
+            } finally {
+                slowOcspResponder = null;
+            }
+        }
     }
 
     private static X509Certificate getDefaultClientCert() throws Exception {
@@ -367,4 +478,25 @@ public class OcspClientTest {
             }
         }
     }
+
+    private static class SlowTestOCSPResponder extends TestOCSPResponder {
+
+        @Override
+        public void handle(String target, Request baseRequest, HttpServletRequest request, HttpServletResponse response)
+                throws IOException, ServletException {
+            int requests = SLOW_RESPONDER_REQUESTS.incrementAndGet();
+
+            SLOW_RESPONDER_MAX_REQUESTS.accumulateAndGet(requests, Math::max);
+
+            try {
+                Thread.sleep(slowResponseDelay);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } finally {
+                SLOW_RESPONDER_REQUESTS.decrementAndGet();
+            }
+
+            super.handle(target, baseRequest, request, response);
+        }
+    }
 }
@@ -0,0 +1,247 @@
+/**
+ * The MIT License
+ * Copyright (c) 2015 Estonian Information System Authority (RIA), Population Register Centre (VRK)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package ee.ria.xroad.signer.certmanager;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Tests the OCSP response store.
+ */
+public class OcspResponseStoreTest {
+
+    @Rule
+    public TemporaryFolder tempFolder = new TemporaryFolder();
+
+    private Path file;
+
+    /**
+     * Set up.
+     */
+    @Before
+    public void setUp() {
+        file = tempFolder.getRoot().toPath().resolve(OcspResponseStore.STORE_FILE_NAME);
+    }
+
+    /**
+     * Test.
+     * @throws Exception if an error occurs
+     */
+    @Test
+    public void putRemoveReload() throws Exception {
+        try (OcspResponseStore store = new OcspResponseStore(file)) {
+            assertTrue(store.load().isEmpty());
+
+            store.putAll(responses(3, 100));
+            store.putAll(Collections.singletonMap("cert0", bytes(50, 7)));
+            store.removeAll(Collections.singletonList("cert1"));
+
+            assertEquals(2, store.size());
+            assertArrayEquals(bytes(50, 7), store.get("cert0"));
+            assertNull(store.get("cert1"));
+        }
+
+        try (OcspResponseStore store = new OcspResponseStore(file)) {
+            Map<String, byte[]> loaded = store.load();
+
+            assertEquals(2, loaded.size());
+            assertArrayEquals(bytes(50, 7), loaded.get("cert0"));
+            assertArrayEquals(bytes(100, 2), loaded.get("cert2"));
+            assertArrayEquals(bytes(100, 2), store.get("cert2"));
+        }
+    }
+
+    /**
+     * Test.
+     * @throws Exception if an error occurs
+     */
+    @Test
+    public void incompleteRecordIsTruncated() throws Exception {
+        long size;
+
+        try (OcspResponseStore store = new OcspResponseStore(file)) {
+            store.load();
+            store.putAll(responses(2, 100));
+
+            size = Files.size(file);
+
+            store.putAll(Collections.singletonMap("cert2", bytes(100, 3)));
+        }
+
+        try (RandomAccessFile raf = new RandomAccessFile(file.toFile(), "rw")) {
+            raf.setLength(size + 20);
+        }
+
+        try (OcspResponseStore store = new OcspResponseStore(file)) {
+            Map<String, byte[]> loaded = store.load();
+
+            assertEquals(2, loaded.size());
+            assertEquals(size, Files.size(file));
+
+            store.putAll(Collections.singletonMap("cert2", bytes(100, 3)));
+        }
+
+        try (OcspResponseStore store = new OcspResponseStore(file)) {
+            assertEquals(3, store.load().size());
+        }
+    }
+
+    /**
+     * Test.
+     * @throws Exception if an error occurs
+     */
+    @Test
+    public void corruptedRecordIsTruncated() throws Exception {
+        long size;
+
+        try (OcspResponseStore store = new OcspResponseStore(file)) {
+            store.load();
+            store.putAll(Collections.singletonMap("cert0", bytes(100, 0)));
+
+            size = Files.size(file);
+
+            store.putAll(Collections.singletonMap("cert1", bytes(100, 1)));
+        }
+
+        try (RandomAccessFile raf = new RandomAccessFile(file.toFile(), "rw")) {
+            raf.seek(Files.size(file) - 1);
+            raf.write(0xFF);
+        }
+
+        try (OcspResponseStore store = new OcspResponseStore(file)) {
+            Map<String, byte[]> loaded = store.load();
+
+            assertEquals(Collections.singleton("cert0"), loaded.keySet());
+            assertEquals(size, Files.size(file));
+        }
+    }
+
+    /**
+     * Test.
+     * @throws Exception if an error occurs
+     */
+    @Test
+    public void outdatedRecordsAreCompacted() throws Exception {
+        try (OcspResponseStore store = new OcspResponseStore(file)) {
+            store.load();
+
+            for (int i = 0; i < 200; i++) {
+                store.putAll(responses(5, 1000 + i));
+            }
+
+            // Without compaction, the file would hold 1000 records
+            assertTrue(Files.size(file) < 100 * 1000);
+            assertEquals(5, store.size());
+            assertArrayEquals(bytes(1199, 4), store.get("cert4"));
+
+            store.compact();
+
+            assertTrue(Files.size(file) < 6 * 1200);
+            assertArrayEquals(bytes(1199, 4), store.get("cert4"));
+        }
+
+        try (OcspResponseStore store = new OcspResponseStore(file)) {
+            Map<String, byte[]> loaded = store.load();
+
+            assertEquals(5, loaded.size());
+            assertArrayEquals(bytes(1199, 0), loaded.get("cert0"));
+        }
+    }
+
+    /**
+     * Test.
+     * @throws Exception if an error occurs
+     */
+    @Test
+    public void storeIsUsableAfterFailedCompaction() throws Exception {
+        OcspResponseStore failingStore = new OcspResponseStore(file) {
+            @Override
+            void replaceFile(Path source, Path target) throws IOException {
+                throw new IOException("Move failed");
+            }
+        };
+
+        try (OcspResponseStore store = failingStore) {
+            store.load();
+            store.putAll(responses(5, 100));
+
+            try {
+                store.compact();
+                fail("Compaction should have failed");
+            } catch (IOException expected) {
+                // expected
+            }
+
+            assertFalse(Files.exists(file.resolveSibling(file.getFileName() + ".tmp")));
+            assertArrayEquals(bytes(100, 4), store.get("cert4"));
+
+            store.putAll(responses(1, 200));
+
+            assertArrayEquals(bytes(200, 0), store.get("cert0"));
+        }
+
+        try (OcspResponseStore store = new OcspResponseStore(file)) {
+            Map<String, byte[]> loaded = store.load();
+
+            assertEquals(5, loaded.size());
+            assertArrayEquals(bytes(200, 0), loaded.get("cert0"));
+        }
+    }
+
+    private static Map<String, byte[]> responses(int count, int length) {
+        Map<String, byte[]> responses = new HashMap<>();
+
+        for (int i = 0; i < count; i++) {
+            responses.put("cert" + i, bytes(length, i));
+        }
+
+        return responses;
+    }
+
+    private static byte[] bytes(int length, int value) {
+        byte[] bytes = new byte[length];
+
+        for (int i = 0; i < length; i++) {
+            bytes[i] = (byte) (value + i);
+        }
+
+        return bytes;
+    }
+}
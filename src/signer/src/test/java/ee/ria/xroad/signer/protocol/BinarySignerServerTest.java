@@ -0,0 +1,327 @@
+/**
+ * The MIT License
+ * Copyright (c) 2015 Estonian Information System Authority (RIA), Population Register Centre (VRK)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package ee.ria.xroad.signer.protocol;
+
+import akka.actor.ActorRef;
+import akka.actor.ActorSystem;
+import akka.actor.Props;
+import akka.actor.UntypedActor;
+import com.typesafe.config.ConfigFactory;
+import ee.ria.xroad.common.CodedException;
+import ee.ria.xroad.common.identifier.ClientId;
+import ee.ria.xroad.signer.protocol.binary.BinaryMessageCodec;
+import ee.ria.xroad.signer.protocol.binary.BinarySignerClient;
+import ee.ria.xroad.signer.protocol.binary.RequestNotSentException;
+import ee.ria.xroad.signer.protocol.dto.CertificateInfo;
+import ee.ria.xroad.signer.protocol.dto.MemberSigningInfo;
+import ee.ria.xroad.signer.protocol.message.GetMemberSigningInfo;
+import ee.ria.xroad.signer.protocol.message.GetOcspResponses;
+import ee.ria.xroad.signer.protocol.message.GetOcspResponsesResponse;
+import ee.ria.xroad.signer.protocol.message.Sign;
+import ee.ria.xroad.signer.protocol.message.SignResponse;
+import org.junit.After;
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.io.DataOutputStream;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import static ee.ria.xroad.common.ErrorCodes.X_INTERNAL_ERROR;
+import static ee.ria.xroad.common.ErrorCodes.X_KEY_NOT_FOUND;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests the binary signer protocol between {@link BinarySignerClient} and
+ * {@link BinarySignerServer}.
+ */
+public class BinarySignerServerTest {
+
+    private static final long TIMEOUT_MILLIS = 10000;
+
+    // Message type of GetOcspResponses in BinaryMessageCodec
+    private static final byte GET_OCSP_RESPONSES_TYPE = 5;
+
+    private static ActorSystem actorSystem;
+    private static BinarySignerServer server;
+
+    private BinarySignerClient client;
+
+    /**
+     * Starts the server in front of a stub request processor.
+     * @throws Exception if an error occurs
+     */
+    @BeforeClass
+    public static void startServer() throws Exception {
+        actorSystem = ActorSystem.create("BinarySignerServerTest",
+                ConfigFactory.parseString("akka.actor.provider = \"akka.actor.LocalActorRefProvider\"")
+                        .withFallback(ConfigFactory.load()));
+
+        ActorRef requestProcessor = actorSystem.actorOf(Props.create(StubRequestProcessor.class));
+
+        server = new BinarySignerServer(0, requestProcessor, TIMEOUT_MILLIS);
+        server.start();
+    }
+
+    /**
+     * Stops the server.
+     * @throws Exception if an error occurs
+     */
+    @AfterClass
+    public static void stopServer() throws Exception {
+        server.stop();
+        actorSystem.terminate();
+    }
+
+    /**
+     * Creates the client.
+     */
+    @Before
+    public void setUp() {
+        client = new BinarySignerClient("127.0.0.1", server.getLocalPort());
+    }
+
+    /**
+     * Closes the client.
+     */
+    @After
+    public void tearDown() {
+        client.close();
+    }
+
+    /**
+     * Test that a signature request is answered.
+     * @throws Exception if an error occurs
+     */
+    @Test
+    public void sign() throws Exception {
+        Object response = client.execute(new Sign("key", "alg", new byte[] {1, 2, 3}), TIMEOUT_MILLIS);
+
+        assertArrayEquals(new byte[] {3, 2, 1}, ((SignResponse) response).getSignature());
+    }
+
+    /**
+     * Test that member signing info survives the round trip, including
+     * absent values.
+     * @throws Exception if an error occurs
+     */
+    @Test
+    public void memberSigningInfo() throws Exception {
+        ClientId member = ClientId.create("EE", "GOV", "1234", "sub");
+
+        MemberSigningInfo info = (MemberSigningInfo) client.execute(new GetMemberSigningInfo(member),
+                TIMEOUT_MILLIS);
+
+        assertEquals("key", info.getKeyId());
+        assertEquals(member, info.getCert().getMemberId());
+        assertEquals(CertificateInfo.STATUS_REGISTERED, info.getCert().getStatus());
+        assertArrayEquals(new byte[] {1}, info.getCert().getCertificateBytes());
+        assertNull(info.getCert().getOcspBytes());
+        assertNull(info.getSignMechanismName());
+    }
+
+    /**
+     * Test that an exception from the request processor is returned as the
+     * response.
+     * @throws Exception if an error occurs
+     */
+    @Test
+    public void exception() throws Exception {
+        Object response = client.execute(new Sign("missing", "alg", new byte[0]), TIMEOUT_MILLIS);
+
+        assertEquals(X_KEY_NOT_FOUND, ((CodedException) response).getFaultCode());
+    }
+
+    /**
+     * Test that a response that cannot be encoded is answered with an error,
+     * instead of leaving the client waiting.
+     * @throws Exception if an error occurs
+     */
+    @Test
+    public void unencodableResponse() throws Exception {
+        Object response = client.execute(new Sign("unserializable", "alg", new byte[0]), TIMEOUT_MILLIS);
+
+        assertEquals(X_INTERNAL_ERROR, ((CodedException) response).getFaultCode());
+
+        // The connection remains usable
+        assertTrue(client.execute(new Sign("key", "alg", new byte[] {1}), TIMEOUT_MILLIS) instanceof SignResponse);
+    }
+
+    /**
+     * Test that concurrent requests on one connection get their own responses.
+     * @throws Exception if an error occurs
+     */
+    @Test
+    public void pipelinedRequests() throws Exception {
+        List<CompletableFuture<Object>> responses = new ArrayList<>();
+
+        for (int i = 0; i < 1000; i++) {
+            responses.add(client.send(new GetOcspResponses(new String[] {Integer.toString(i)})));
+        }
+
+        for (int i = 0; i < responses.size(); i++) {
+            GetOcspResponsesResponse response = (GetOcspResponsesResponse) responses.get(i).get();
+
+            assertArrayEquals(new String[] {Integer.toString(i), null}, response.getBase64EncodedResponses());
+        }
+    }
+
+    /**
+     * Test that the client reconnects after the connection has been lost.
+     * @throws Exception if an error occurs
+     */
+    @Test
+    public void reconnect() throws Exception {
+        client.execute(new Sign("key", "alg", new byte[] {1}), TIMEOUT_MILLIS);
+        client.close();
+
+        Object response = client.execute(new Sign("key", "alg", new byte[] {1}), TIMEOUT_MILLIS);
+
+        assertTrue(response instanceof SignResponse);
+    }
+
+    /**
+     * Test that the server closes the connection when it receives a frame
+     * that is not a supported request, without decoding its contents.
+     * @throws Exception if an error occurs
+     */
+    @Test
+    public void unsupportedFrameClosesConnection() throws Exception {
+        assertConnectionClosedAfter(new CodedException(X_INTERNAL_ERROR, "serialized"));
+        assertConnectionClosedAfter(new SignResponse(new byte[] {1}));
+    }
+
+    /**
+     * Test that the server closes the connection after a request whose array
+     * length does not fit in the frame, without allocating the array.
+     * @throws Exception if an error occurs
+     */
+    @Test
+    public void invalidArrayLengthClosesConnection() throws Exception {
+        for (int count : new int[] {Integer.MAX_VALUE, -2}) {
+            try (Socket socket = new Socket("127.0.0.1", server.getLocalPort())) {
+                socket.setSoTimeout((int) TIMEOUT_MILLIS);
+
+                DataOutputStream out = new DataOutputStream(socket.getOutputStream());
+                out.writeInt(Long.BYTES + Byte.BYTES + Integer.BYTES);
+                out.writeLong(1);
+                out.writeByte(GET_OCSP_RESPONSES_TYPE);
+                out.writeInt(count);
+                out.flush();
+
+                assertEquals(-1, socket.getInputStream().read());
+            }
+        }
+    }
+
+    /**
+     * Test that a request is reported as not sent if the connection cannot
+     * be opened.
+     * @throws Exception if an error occurs
+     */
+    @Test(expected = RequestNotSentException.class)
+    public void requestNotSentWhenConnectionFails() throws Exception {
+        int closedPort;
+
+        try (ServerSocket socket = new ServerSocket(0)) {
+            closedPort = socket.getLocalPort();
+        }
+
+        BinarySignerClient unconnected = new BinarySignerClient("127.0.0.1", closedPort);
+
+        try {
+            unconnected.execute(new Sign("key", "alg", new byte[] {1}), TIMEOUT_MILLIS);
+        } finally {
+            unconnected.close();
+        }
+    }
+
+    private static void assertConnectionClosedAfter(Object message) throws Exception {
+        try (Socket socket = new Socket("127.0.0.1", server.getLocalPort())) {
+            socket.setSoTimeout((int) TIMEOUT_MILLIS);
+
+            BinaryMessageCodec.writeFrame(new DataOutputStream(socket.getOutputStream()), 1, message);
+
+            assertEquals(-1, socket.getInputStream().read());
+        }
+    }
+
+    /**
+     * Exception that fails to serialize because of its state.
+     */
+    private static class UnserializableException extends Exception {
+        private final Object state = new Object();
+    }
+
+    /**
+     * Request processor that answers requests without tokens.
+     */
+    public static class StubRequestProcessor extends UntypedActor {
+
+        @Override
+        public void onReceive(Object message) throws Exception {
+            getSender().tell(handle(message), getSelf());
+        }
+
+        private static Object handle(Object message) {
+            if (message instanceof Sign) {
+                Sign sign = (Sign) message;
+
+                if ("unserializable".equals(sign.getKeyId())) {
+                    return new CodedException(X_INTERNAL_ERROR, new UnserializableException());
+                }
+
+                if (!"key".equals(sign.getKeyId())) {
+                    return new CodedException(X_KEY_NOT_FOUND, "Key '%s' not found", sign.getKeyId());
+                }
+
+                byte[] signature = new byte[sign.getDigest().length];
+
+                for (int i = 0; i < signature.length; i++) {
+                    signature[i] = sign.getDigest()[signature.length - 1 - i];
+                }
+
+                return new SignResponse(signature);
+            } else if (message instanceof GetMemberSigningInfo) {
+                ClientId member = ((GetMemberSigningInfo) message).getMemberId();
+
+                return new MemberSigningInfo("key", new CertificateInfo(member, true, true,
+                        CertificateInfo.STATUS_REGISTERED, "cert", new byte[] {1}, null), null);
+            } else if (message instanceof GetOcspResponses) {
+                String[] certHashes = ((GetOcspResponses) message).getCertHash();
+
+                return new GetOcspResponsesResponse(new String[] {certHashes[0], null});
+            }
+
+            return new CodedException(X_INTERNAL_ERROR, "Unexpected message");
+        }
+    }
+}
@@ -0,0 +1,183 @@
+/**
+ * The MIT License
+ * Copyright (c) 2015 Estonian Information System Authority (RIA), Population Register Centre (VRK)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package ee.ria.xroad.signer.protocol;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import akka.actor.ActorRef;
+import akka.actor.ActorSelection;
+import akka.actor.ActorSystem;
+import akka.actor.Props;
+import akka.pattern.PatternsCS;
+import akka.util.Timeout;
+import com.typesafe.config.Config;
+import com.typesafe.config.ConfigFactory;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import ee.ria.xroad.signer.protocol.binary.BinarySignerClient;
+import ee.ria.xroad.signer.protocol.message.Sign;
+
+/**
+ * Signer transport benchmark. Sends signature requests to a stub request
+ * processor over Akka remoting or over the binary signer protocol and
+ * measures the round-trip time of sequential requests and the throughput
+ * of pipelined requests.
+ */
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@State(Scope.Benchmark)
+public class BinarySignerTransportBenchmark {
+
+    private static final long TIMEOUT_MILLIS = 60000;
+
+    // number of requests in flight in the throughput benchmark
+    private static final int NUM_IN_FLIGHT = 64;
+
+    private static final Sign REQUEST = new Sign("key", "alg", new byte[32]);
+
+    /**
+     * The transport used to send the requests.
+     */
+    public enum TransportType {
+        AKKA,
+        BINARY
+    }
+
+    @Param
+    private TransportType transportType;
+
+    private ActorSystem signerSystem;
+    private ActorSystem clientSystem;
+    private BinarySignerServer server;
+    private BinarySignerClient client;
+
+    private Transport transport;
+
+    /**
+     * Starts the stub request processor and connects to it.
+     * @throws Exception if an error occurs
+     */
+    @Setup
+    public void setUp() throws Exception {
+        signerSystem = ActorSystem.create("Signer", remotingConfig());
+        clientSystem = ActorSystem.create("Client", remotingConfig());
+
+        ActorRef requestProcessor = signerSystem.actorOf(
+                Props.create(BinarySignerServerTest.StubRequestProcessor.class), "RequestProcessor");
+
+        server = new BinarySignerServer(0, requestProcessor, TIMEOUT_MILLIS);
+        server.start();
+
+        client = new BinarySignerClient("127.0.0.1", server.getLocalPort());
+
+        ActorSelection remoteRequestProcessor = clientSystem.actorSelection(
+                requestProcessor.path().toStringWithAddress(signerSystem.provider().getDefaultAddress()));
+
+        switch (transportType) {
+            case AKKA:
+                transport = message -> PatternsCS.ask(remoteRequestProcessor, message,
+                        Timeout.apply(TIMEOUT_MILLIS, TimeUnit.MILLISECONDS)).toCompletableFuture();
+                break;
+            case BINARY:
+                transport = client::send;
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown transport: " + transportType);
+        }
+    }
+
+    /**
+     * Closes the connection and stops the stub request processor.
+     * @throws Exception if an error occurs
+     */
+    @TearDown
+    public void tearDown() throws Exception {
+        client.close();
+        server.stop();
+        clientSystem.terminate();
+        signerSystem.terminate();
+    }
+
+    /**
+     * Sends one request and waits for the response.
+     * @return the response
+     * @throws Exception if the request fails
+     */
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public Object roundTrip() throws Exception {
+        return transport.send(REQUEST).get(TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Sends requests without waiting for the earlier responses and then
+     * waits for all of the responses.
+     * @param blackhole consumes the responses
+     * @throws Exception if a request fails
+     */
+    @Benchmark
+    @BenchmarkMode(Mode.Throughput)
+    @OutputTimeUnit(TimeUnit.SECONDS)
+    @OperationsPerInvocation(NUM_IN_FLIGHT)
+    public void pipelined(Blackhole blackhole) throws Exception {
+        List<CompletableFuture<Object>> responses = new ArrayList<>(NUM_IN_FLIGHT);
+
+        for (int i = 0; i < NUM_IN_FLIGHT; i++) {
+            responses.add(transport.send(REQUEST));
+        }
+
+        for (CompletableFuture<Object> response : responses) {
+            blackhole.consume(response.get(TIMEOUT_MILLIS, TimeUnit.MILLISECONDS));
+        }
+    }
+
+    private static Config remotingConfig() {
+        return ConfigFactory.parseString("akka.actor.provider = \"akka.remote.RemoteActorRefProvider\"\n"
+                + "akka.remote.enabled-transports = [\"akka.remote.netty.tcp\"]\n"
+                + "akka.remote.netty.tcp.hostname = \"127.0.0.1\"\n"
+                + "akka.remote.netty.tcp.port = 0\n");
+    }
+
+    @FunctionalInterface
+    private interface Transport {
+        CompletableFuture<Object> send(Object message);
+    }
+}
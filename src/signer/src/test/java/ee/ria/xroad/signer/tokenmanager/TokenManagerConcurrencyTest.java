@@ -0,0 +1,199 @@
+/**
+ * The MIT License
+ * Copyright (c) 2015 Estonian Information System Authority (RIA), Population Register Centre (VRK)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package ee.ria.xroad.signer.tokenmanager;
+
+import ee.ria.xroad.common.TestCertUtil;
+import ee.ria.xroad.signer.protocol.dto.CertificateInfo;
+import ee.ria.xroad.signer.protocol.dto.KeyInfo;
+import ee.ria.xroad.signer.protocol.dto.TokenInfo;
+import ee.ria.xroad.signer.tokenmanager.token.TokenType;
+import ee.ria.xroad.signer.util.SignerUtil;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Stress test for {@link TokenManager} reading the token state while it is
+ * being modified. Every writer owns a key, adds certificates to it and
+ * counts up the key friendly name. Readers check that they never see the
+ * state going backwards or a certificate without its key.
+ */
+public class TokenManagerConcurrencyTest {
+
+    private static final int NUM_WRITERS = 4;
+    private static final int NUM_READERS = 4;
+    private static final int NUM_UPDATES = 200;
+
+    private final List<String> keyIds = new ArrayList<>();
+
+    private String tokenId;
+    private byte[] certBytes;
+
+    /**
+     * Creates a token with a key for every writer.
+     * @throws Exception if an error occurs
+     */
+    @Before
+    public void setUp() throws Exception {
+        tokenId = "concurrency-" + SignerUtil.randomId();
+        certBytes = TestCertUtil.getConsumer().cert.getEncoded();
+
+        TokenType tokenType = mock(TokenType.class);
+        when(tokenType.getId()).thenReturn(tokenId);
+        when(tokenType.getModuleType()).thenReturn("test");
+
+        TokenManager.createToken(tokenType);
+
+        for (int i = 0; i < NUM_WRITERS; i++) {
+            String keyId = SignerUtil.randomId();
+            TokenManager.addKey(tokenId, keyId, null);
+            TokenManager.setKeyFriendlyName(keyId, "0");
+
+            keyIds.add(keyId);
+        }
+    }
+
+    /**
+     * Test that readers see consistent state while writers modify it.
+     * @throws Exception if an error occurs
+     */
+    @Test
+    public void readersSeeConsistentState() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(NUM_WRITERS + NUM_READERS);
+        CountDownLatch start = new CountDownLatch(1);
+        AtomicBoolean writing = new AtomicBoolean(true);
+        ConcurrentLinkedQueue<Throwable> errors = new ConcurrentLinkedQueue<>();
+
+        try {
+            List<Future<?>> writers = new ArrayList<>();
+
+            for (String keyId : keyIds) {
+                writers.add(executor.submit(() -> {
+                    start.await();
+
+                    for (int i = 1; i <= NUM_UPDATES; i++) {
+                        TokenManager.addCert(keyId, certBytes);
+                        TokenManager.setKeyFriendlyName(keyId, String.valueOf(i));
+                    }
+
+                    return null;
+                }));
+            }
+
+            List<Future<?>> readers = new ArrayList<>();
+
+            for (int i = 0; i < NUM_READERS; i++) {
+                readers.add(executor.submit(() -> {
+                    start.await();
+
+                    try {
+                        read(writing);
+                    } catch (Throwable t) {
+                        errors.add(t);
+                    }
+
+                    return null;
+                }));
+            }
+
+            start.countDown();
+
+            for (Future<?> writer : writers) {
+                writer.get(1, TimeUnit.MINUTES);
+            }
+
+            writing.set(false);
+
+            for (Future<?> reader : readers) {
+                reader.get(1, TimeUnit.MINUTES);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        if (!errors.isEmpty()) {
+            throw new AssertionError("Reader failed", errors.peek());
+        }
+
+        for (String keyId : keyIds) {
+            KeyInfo key = TokenManager.getKeyInfo(keyId);
+
+            assertEquals(NUM_UPDATES, key.getCerts().size());
+            assertEquals(String.valueOf(NUM_UPDATES), key.getFriendlyName());
+        }
+    }
+
+    private void read(AtomicBoolean writing) {
+        Map<String, Integer> lastCertCounts = new HashMap<>();
+        Map<String, Integer> lastNames = new HashMap<>();
+
+        do {
+            for (String keyId : keyIds) {
+                KeyInfo key = TokenManager.getKeyInfo(keyId);
+                assertNotNull(key);
+
+                int certCount = key.getCerts().size();
+                int name = Integer.parseInt(key.getFriendlyName());
+
+                assertTrue("Certificate count went backwards",
+                        certCount >= lastCertCounts.getOrDefault(keyId, 0));
+                assertTrue("Friendly name went backwards", name >= lastNames.getOrDefault(keyId, 0));
+
+                // The name is set after the certificate is added
+                assertTrue("Certificate missing", certCount >= name);
+
+                lastCertCounts.put(keyId, certCount);
+                lastNames.put(keyId, name);
+
+                for (CertificateInfo cert : key.getCerts()) {
+                    KeyInfo certKey = TokenManager.getKeyInfoForCertId(cert.getId());
+
+                    assertNotNull("Key not found for certificate", certKey);
+                    assertEquals(keyId, certKey.getId());
+                }
+
+                assertEquals(tokenId, TokenManager.findTokenIdForKeyId(keyId));
+            }
+
+            TokenInfo token = TokenManager.getTokenInfo(tokenId);
+            assertEquals(NUM_WRITERS, token.getKeyInfo().size());
+        } while (writing.get());
+    }
+}
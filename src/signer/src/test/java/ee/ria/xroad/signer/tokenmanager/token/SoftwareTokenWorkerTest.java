@@ -0,0 +1,149 @@
+/**
+ * The MIT License
+ * Copyright (c) 2015 Estonian Information System Authority (RIA), Population Register Centre (VRK)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package ee.ria.xroad.signer.tokenmanager.token;
+
+import java.io.FileOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.security.KeyPair;
+import java.security.Signature;
+import java.util.concurrent.TimeUnit;
+
+import akka.actor.ActorRef;
+import akka.actor.ActorSystem;
+import akka.actor.Props;
+import akka.pattern.Patterns;
+import akka.util.Timeout;
+import com.typesafe.config.ConfigFactory;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import scala.concurrent.Await;
+
+import ee.ria.xroad.common.SystemProperties;
+import ee.ria.xroad.common.util.CryptoUtils;
+import ee.ria.xroad.common.util.PasswordStore;
+import ee.ria.xroad.signer.protocol.dto.TokenInfo;
+import ee.ria.xroad.signer.protocol.message.ActivateToken;
+import ee.ria.xroad.signer.protocol.message.InitSoftwareToken;
+import ee.ria.xroad.signer.protocol.message.SuccessResponse;
+import ee.ria.xroad.signer.tokenmanager.TokenManager;
+import ee.ria.xroad.signer.util.CalculateSignature;
+import ee.ria.xroad.signer.util.CalculatedSignature;
+import ee.ria.xroad.signer.util.SignerUtil;
+
+import static ee.ria.xroad.common.util.CryptoUtils.encodeBase64;
+import static ee.ria.xroad.signer.tokenmanager.token.SoftwareTokenUtil.getKeyStoreFileName;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests the software token worker.
+ */
+public class SoftwareTokenWorkerTest {
+
+    private static final Timeout TIMEOUT = Timeout.apply(10, TimeUnit.SECONDS);
+
+    private static final char[] PIN = "Secret1234".toCharArray();
+
+    @Rule
+    public TemporaryFolder keyDir = new TemporaryFolder();
+
+    private ActorSystem actorSystem;
+
+    /**
+     * Points the key configuration to a temporary key directory and starts the actor system.
+     */
+    @Before
+    public void setUp() {
+        System.setProperty(SystemProperties.KEY_CONFIGURATION_FILE,
+                keyDir.getRoot().toPath().resolve("keyconf.xml").toString());
+        System.setProperty(SystemProperties.SIGNER_SOFTWARE_TOKEN_SIGNING_WORKERS, "1");
+
+        actorSystem = ActorSystem.create("SoftwareTokenWorkerTest",
+                ConfigFactory.parseString("akka.actor.provider = \"akka.actor.LocalActorRefProvider\"")
+                        .withFallback(ConfigFactory.load()));
+    }
+
+    /**
+     * Removes the stored PIN and stops the actor system.
+     * @throws Exception if an error occurs
+     */
+    @After
+    public void tearDown() throws Exception {
+        PasswordStore.storePassword(SoftwareTokenType.ID, null);
+
+        System.clearProperty(SystemProperties.KEY_CONFIGURATION_FILE);
+        System.clearProperty(SystemProperties.SIGNER_SOFTWARE_TOKEN_SIGNING_WORKERS);
+
+        actorSystem.terminate();
+    }
+
+    /**
+     * Tests that the keys of the token can be used as soon as the token is activated.
+     * @throws Exception if an error occurs
+     */
+    @Test
+    public void signsRightAfterActivation() throws Exception {
+        TokenInfo tokenInfo = TokenManager.createToken(new SoftwareTokenType());
+        String tokenId = tokenInfo.getId();
+
+        ActorRef worker = actorSystem.actorOf(
+                Props.create(SoftwareTokenWorker.class, tokenInfo, new SoftwareTokenType()));
+
+        assertTrue(ask(worker, new InitSoftwareToken(PIN)) instanceof SuccessResponse);
+
+        String keyId = SignerUtil.randomId();
+        KeyPair keyPair = SoftwareTokenUtil.generateKeyPair(2048);
+
+        try (FileOutputStream fos = new FileOutputStream(getKeyStoreFileName(keyId))) {
+            SoftwareTokenUtil.createKeyStore(keyPair, keyId, PIN).store(fos, PIN);
+        }
+
+        TokenManager.addKey(tokenId, keyId, encodeBase64(keyPair.getPublic().getEncoded()));
+
+        // The PIN is stored by the user interface before it asks the signer to activate the token
+        PasswordStore.storePassword(tokenId, PIN);
+
+        assertTrue(ask(worker, new ActivateToken(tokenId, true)) instanceof SuccessResponse);
+
+        byte[] data = "data".getBytes(StandardCharsets.UTF_8);
+        byte[] digest = CryptoUtils.calculateDigest(CryptoUtils.SHA256_ID, data);
+
+        CalculatedSignature response = (CalculatedSignature) ask(worker,
+                new CalculateSignature(null, keyId, CryptoUtils.SHA256WITHRSA_ID, digest));
+
+        assertNull(response.getException());
+
+        Signature signature = Signature.getInstance("SHA256withRSA");
+        signature.initVerify(keyPair.getPublic());
+        signature.update(data);
+
+        assertTrue(signature.verify(response.getSignature()));
+    }
+
+    private static Object ask(ActorRef actor, Object message) throws Exception {
+        return Await.result(Patterns.ask(actor, message, TIMEOUT), TIMEOUT.duration());
+    }
+}
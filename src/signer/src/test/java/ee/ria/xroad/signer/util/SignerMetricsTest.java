@@ -0,0 +1,140 @@
+/**
+ * The MIT License
+ * Copyright (c) 2015 Estonian Information System Authority (RIA), Population Register Centre (VRK)
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ */
+package ee.ria.xroad.signer.util;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import akka.actor.ActorRef;
+import akka.actor.ActorSystem;
+import akka.actor.Props;
+import akka.actor.UntypedActor;
+import akka.testkit.JavaTestKit;
+import com.typesafe.config.ConfigFactory;
+import org.junit.Test;
+
+import ee.ria.xroad.signer.protocol.handler.ListTokensRequestHandler;
+import ee.ria.xroad.signer.protocol.message.GetSignerMetricsResponse;
+
+/**
+ * Tests the signer metrics.
+ */
+public class SignerMetricsTest {
+
+    private static final String MAILBOX_GAUGE = "signer.mailbox.user.blocking";
+
+    private static final String ACTOR_SYSTEM_CONFIG =
+            "metered-mailbox.mailbox-type = \"" + MeteredMailbox.class.getName() + "\"\n"
+                    + "akka.actor.provider = \"akka.actor.LocalActorRefProvider\"";
+
+    /**
+     * Test.
+     */
+    @Test
+    public void latencies() {
+        SignerMetrics.getHandlerTimer(ListTokensRequestHandler.class).update(2, TimeUnit.MILLISECONDS);
+        SignerMetrics.recordSignLatency("testToken", TimeUnit.MILLISECONDS.toNanos(3));
+
+        GetSignerMetricsResponse metrics = SignerMetrics.getMetrics();
+
+        assertArrayEquals(new long[] {2000},
+                metrics.getLatencies().get("signer.handler.ListTokensRequestHandler"));
+        assertArrayEquals(new long[] {3000},
+                metrics.getLatencies().get("signer.token.testToken.sign-latency"));
+        assertEquals(Long.valueOf(1), metrics.getGauges().get("signer.token.testToken.sign-latency.count"));
+    }
+
+    /**
+     * Test.
+     * @throws Exception if an error occurs
+     */
+    @Test
+    public void mailboxDepth() throws Exception {
+        ActorSystem system = ActorSystem.create("SignerMetricsTest",
+                ConfigFactory.parseString(ACTOR_SYSTEM_CONFIG).withFallback(ConfigFactory.load()));
+        try {
+            CountDownLatch latch = new CountDownLatch(1);
+
+            ActorRef actor = system.actorOf(Props.create(BlockingActor.class, latch)
+                    .withMailbox("metered-mailbox"), "blocking");
+
+            for (int i = 0; i < 3; i++) {
+                actor.tell("message", ActorRef.noSender());
+            }
+
+            // The first message blocks the actor, the rest stay in the mailbox
+            assertEquals(Long.valueOf(2), awaitGauge(Long.valueOf(2)));
+
+            latch.countDown();
+
+            assertEquals(Long.valueOf(0), awaitGauge(Long.valueOf(0)));
+
+            system.stop(actor);
+
+            assertEquals(null, awaitGauge(null));
+        } finally {
+            JavaTestKit.shutdownActorSystem(system);
+        }
+    }
+
+    private static Long awaitGauge(Long expected) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+
+        Long value = SignerMetrics.getMetrics().getGauges().get(MAILBOX_GAUGE);
+        while (!isEqual(expected, value) && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+
+            value = SignerMetrics.getMetrics().getGauges().get(MAILBOX_GAUGE);
+        }
+
+        return value;
+    }
+
+    private static boolean isEqual(Long expected, Long value) {
+        return expected == null ? value == null : expected.equals(value);
+    }
+
+    /**
+     * Actor that blocks on the first message until the latch is released.
+     */
+    public static class BlockingActor extends UntypedActor {
+
+        private final CountDownLatch latch;
+
+        /**
+         * @param latch the latch to wait for
+         */
+        public BlockingActor(CountDownLatch latch) {
+            this.latch = latch;
+        }
+
+        @Override
+        public void onReceive(Object message) throws Exception {
+            latch.await(5, TimeUnit.SECONDS);
+        }
+    }
+}